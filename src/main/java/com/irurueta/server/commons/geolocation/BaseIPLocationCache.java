@@ -0,0 +1,425 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Base class for bounded caches of locations.
+ * Cached locations are kept in least recently used order, so that once the
+ * maximum size is reached, least recently used locations are evicted.
+ * Optionally, cached locations can expire after a given amount of time.
+ * Caches are safe to be used concurrently. Locations are distributed among
+ * several independently locked segments so that concurrent lookups rarely
+ * contend for the same lock.
+ * Subclasses define the keys used to store locations.
+ */
+public abstract class BaseIPLocationCache {
+
+    /**
+     * Maximum number of segments of this cache.
+     */
+    private static final int MAX_SEGMENTS = 64;
+
+    /**
+     * Number of segments per available processor.
+     */
+    private static final int SEGMENTS_PER_PROCESSOR = 4;
+
+    /**
+     * Number of nanoseconds in a millisecond.
+     */
+    private static final long NANOS_PER_MILLISECOND = 1000000L;
+
+    /**
+     * Value stored for keys whose presence is cached without any location.
+     */
+    private static final Object PRESENT = new Object();
+
+    /**
+     * Maximum number of locations to be kept in this cache.
+     */
+    private final int mMaxSize;
+
+    /**
+     * Amount of time expressed in milliseconds that locations are kept in this
+     * cache. Zero or negative values indicate that locations never expire.
+     */
+    private final long mTimeToLive;
+
+    /**
+     * Amount of time expressed in nanoseconds that locations are kept in this
+     * cache.
+     */
+    private final long mTimeToLiveNanos;
+
+    /**
+     * Segments containing cached locations.
+     */
+    private final Segment[] mSegments;
+
+    /**
+     * Mask to obtain the segment of a given key hash.
+     */
+    private final int mSegmentMask;
+
+    /**
+     * Constructor.
+     *
+     * @param maxSize    maximum number of locations to be kept in this cache.
+     * @param timeToLive amount of time expressed in milliseconds that locations
+     *                   are kept in this cache. Zero or negative values indicate
+     *                   that locations never expire.
+     * @throws IllegalArgumentException if provided maximum size is less than 1.
+     */
+    protected BaseIPLocationCache(final int maxSize, final long timeToLive) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        mMaxSize = maxSize;
+        mTimeToLive = timeToLive;
+        mTimeToLiveNanos = timeToLive > 0 ?
+                timeToLive * NANOS_PER_MILLISECOND : 0;
+
+        // use a power of two number of segments not larger than maximum size
+        final int desired = Math.min(Math.min(MAX_SEGMENTS, maxSize),
+                Runtime.getRuntime().availableProcessors() *
+                        SEGMENTS_PER_PROCESSOR);
+        int numSegments = 1;
+        while (numSegments * 2 <= desired) {
+            numSegments *= 2;
+        }
+
+        final int segmentSize = (maxSize + numSegments - 1) / numSegments;
+        mSegments = new Segment[numSegments];
+        for (int i = 0; i < numSegments; i++) {
+            mSegments[i] = new Segment(segmentSize);
+        }
+        mSegmentMask = numSegments - 1;
+    }
+
+    /**
+     * Gets maximum number of locations to be kept in this cache.
+     *
+     * @return maximum number of locations to be kept in this cache.
+     */
+    public int getMaxSize() {
+        return mMaxSize;
+    }
+
+    /**
+     * Gets amount of time expressed in milliseconds that locations are kept in
+     * this cache. Zero or negative values indicate that locations never expire.
+     *
+     * @return amount of time expressed in milliseconds that locations are kept
+     * in this cache.
+     */
+    public long getTimeToLive() {
+        return mTimeToLive;
+    }
+
+    /**
+     * Gets cached location for provided key.
+     * Keys must properly implement hashCode and equals.
+     *
+     * @param key key to look for.
+     * @return cached location or null if not found or expired.
+     */
+    protected IPLocation getLocation(final Object key) {
+        final long now = mTimeToLiveNanos > 0 ? System.nanoTime() : 0;
+        return (IPLocation) segmentFor(key).get(key, now);
+    }
+
+    /**
+     * Indicates whether provided key has been stored using
+     * {@link #putKey(Object)} and has not expired.
+     * Keys must properly implement hashCode and equals.
+     *
+     * @param key key to look for.
+     * @return true if key is cached, false otherwise.
+     */
+    protected boolean containsKey(final Object key) {
+        final long now = mTimeToLiveNanos > 0 ? System.nanoTime() : 0;
+        return segmentFor(key).get(key, now) != null;
+    }
+
+    /**
+     * Stores location for provided key.
+     * Keys must properly implement hashCode and equals.
+     *
+     * @param key      key to store location for.
+     * @param location location to be stored.
+     */
+    protected void putLocation(final Object key, final IPLocation location) {
+        final long expiration = mTimeToLiveNanos > 0 ?
+                System.nanoTime() + mTimeToLiveNanos : 0;
+        segmentFor(key).put(key, new CachedLocation(location, expiration));
+    }
+
+    /**
+     * Stores provided key without any associated location, so that only its
+     * presence is cached.
+     * Keys must properly implement hashCode and equals.
+     *
+     * @param key key to be stored.
+     */
+    protected void putKey(final Object key) {
+        final long expiration = mTimeToLiveNanos > 0 ?
+                System.nanoTime() + mTimeToLiveNanos : 0;
+        segmentFor(key).put(key, new CachedLocation(PRESENT, expiration));
+    }
+
+    /**
+     * Removes all cached locations.
+     * Statistics of this cache are preserved.
+     */
+    public void clear() {
+        for (final Segment segment : mSegments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Gets number of locations currently stored in this cache.
+     *
+     * @return number of cached locations.
+     */
+    public int size() {
+        int size = 0;
+        for (final Segment segment : mSegments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Gets number of lookups that were served from this cache.
+     *
+     * @return number of cache hits.
+     */
+    public long getHitCount() {
+        long count = 0;
+        for (final Segment segment : mSegments) {
+            count += segment.getHitCount();
+        }
+        return count;
+    }
+
+    /**
+     * Gets number of lookups that could not be served from this cache.
+     *
+     * @return number of cache misses.
+     */
+    public long getMissCount() {
+        long count = 0;
+        for (final Segment segment : mSegments) {
+            count += segment.getMissCount();
+        }
+        return count;
+    }
+
+    /**
+     * Gets number of locations that have been removed from this cache either
+     * because maximum size was reached or because they expired.
+     *
+     * @return number of evicted locations.
+     */
+    public long getEvictionCount() {
+        long count = 0;
+        for (final Segment segment : mSegments) {
+            count += segment.getEvictionCount();
+        }
+        return count;
+    }
+
+    /**
+     * Gets segment where provided key is stored.
+     *
+     * @param key a key.
+     * @return segment for provided key.
+     */
+    private Segment segmentFor(final Object key) {
+        int h = key.hashCode();
+        // spread bits so that consecutive keys fall in different segments
+        h ^= (h >>> 16);
+        h ^= (h >>> 8);
+        return mSegments[h & mSegmentMask];
+    }
+
+    /**
+     * Cached location, or presence marker, along with its expiration time.
+     */
+    private static final class CachedLocation {
+
+        /**
+         * Cached location or presence marker.
+         */
+        private final Object mValue;
+
+        /**
+         * Expiration time expressed in nanoseconds as given by
+         * {@link System#nanoTime()}, or zero if location never expires.
+         */
+        private final long mExpiration;
+
+        /**
+         * Constructor.
+         *
+         * @param value      cached location or presence marker.
+         * @param expiration expiration time in nanoseconds or zero.
+         */
+        CachedLocation(final Object value, final long expiration) {
+            mValue = value;
+            mExpiration = expiration;
+        }
+
+        /**
+         * Indicates whether this entry has expired.
+         *
+         * @param now current time expressed in nanoseconds.
+         * @return true if expired, false otherwise.
+         */
+        boolean isExpired(final long now) {
+            return mExpiration != 0 && now - mExpiration >= 0;
+        }
+    }
+
+    /**
+     * Independently locked portion of this cache, keeping entries in least
+     * recently used order.
+     */
+    private static final class Segment {
+
+        /**
+         * Entries of this segment in least recently used order. Guarded by
+         * this segment's lock.
+         */
+        private final LinkedHashMap<Object, CachedLocation> mEntries;
+
+        /**
+         * Number of hits. Guarded by this segment's lock.
+         */
+        private long mHitCount;
+
+        /**
+         * Number of misses. Guarded by this segment's lock.
+         */
+        private long mMissCount;
+
+        /**
+         * Number of evictions. Guarded by this segment's lock.
+         */
+        private long mEvictionCount;
+
+        /**
+         * Constructor.
+         *
+         * @param capacity maximum number of entries in this segment.
+         */
+        Segment(final int capacity) {
+            mEntries = new LinkedHashMap<Object, CachedLocation>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(
+                        final Map.Entry<Object, CachedLocation> eldest) {
+                    if (size() > capacity) {
+                        mEvictionCount++;
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        /**
+         * Gets value for provided key if available and not expired.
+         *
+         * @param key key to look for.
+         * @param now current time expressed in nanoseconds.
+         * @return cached location, presence marker or null.
+         */
+        synchronized Object get(final Object key, final long now) {
+            final CachedLocation entry = mEntries.get(key);
+            if (entry == null) {
+                mMissCount++;
+                return null;
+            }
+            if (entry.isExpired(now)) {
+                mEntries.remove(key);
+                mEvictionCount++;
+                mMissCount++;
+                return null;
+            }
+            mHitCount++;
+            return entry.mValue;
+        }
+
+        /**
+         * Stores provided entry, evicting least recently used entry if
+         * capacity is exceeded.
+         *
+         * @param key   key of entry.
+         * @param entry entry to be stored.
+         */
+        synchronized void put(final Object key, final CachedLocation entry) {
+            mEntries.put(key, entry);
+        }
+
+        /**
+         * Removes all entries.
+         */
+        synchronized void clear() {
+            mEntries.clear();
+        }
+
+        /**
+         * Gets number of entries.
+         *
+         * @return number of entries.
+         */
+        synchronized int size() {
+            return mEntries.size();
+        }
+
+        /**
+         * Gets number of hits.
+         *
+         * @return number of hits.
+         */
+        synchronized long getHitCount() {
+            return mHitCount;
+        }
+
+        /**
+         * Gets number of misses.
+         *
+         * @return number of misses.
+         */
+        synchronized long getMissCount() {
+            return mMissCount;
+        }
+
+        /**
+         * Gets number of evictions.
+         *
+         * @return number of evictions.
+         */
+        synchronized long getEvictionCount() {
+            return mEvictionCount;
+        }
+    }
+}
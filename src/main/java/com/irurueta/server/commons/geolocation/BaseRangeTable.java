@@ -0,0 +1,374 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Base class for flat tables of address ranges compiled from the search tree
+ * of a Maxmind database.
+ * Each range starts at an address and ends where the next range starts, and
+ * points to an entry of a deduplicated table of database records. Subclasses
+ * store range starts for a given address family and resolve addresses into
+ * positions within the record table.
+ * Locations obtained for each record can be stored in the table, so that all
+ * addresses pointing to the same record share a single location.
+ * Tables can be stored off-heap, in which case all their arrays are kept in
+ * direct buffers and locations are serialized into an
+ * {@link OffHeapLocationStore}, so that tables add almost no live data to the
+ * Java heap.
+ * Instances of this class are safe to be used concurrently.
+ */
+abstract class BaseRangeTable {
+
+    /**
+     * Value returned when an address is not found in the table.
+     */
+    static final int NOT_FOUND = -1;
+
+    /**
+     * Value returned when an address must be resolved using the search tree
+     * of the database instead.
+     */
+    static final int DELEGATED = -2;
+
+    /**
+     * Number of bits used by the first level index of subclasses.
+     */
+    static final int INDEX_BITS = 16;
+
+    /**
+     * Number of entries of the first level index of subclasses.
+     */
+    static final int INDEX_SIZE = 1 << INDEX_BITS;
+
+    /**
+     * Maximum number of records that can be indexed using 16 bit values.
+     */
+    private static final int MAX_SHORT_INDEXED_RECORDS = 0xFFFF;
+
+    /**
+     * Initial capacity of arrays used while compiling tables.
+     */
+    static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Index of record of each range when there are few records, or null.
+     * Value 0 indicates that range has no record, otherwise value minus one
+     * is the position within the record table.
+     */
+    private final CharBuffer mShortIndices;
+
+    /**
+     * Index of record of each range when there are many records, or null.
+     * Value 0 indicates that range has no record, otherwise value minus one
+     * is the position within the record table.
+     */
+    private final IntBuffer mIntIndices;
+
+    /**
+     * Deduplicated table containing the position of each record within the
+     * database.
+     */
+    private final IntBuffer mRecords;
+
+    /**
+     * Locations obtained for each record of the record table, or null if
+     * table is stored off-heap.
+     */
+    private final AtomicReferenceArray<IPLocation> mLocations;
+
+    /**
+     * Serialized locations obtained for each record of the record table, or
+     * null if table is stored on the Java heap.
+     */
+    private final OffHeapLocationStore mOffHeapLocations;
+
+    /**
+     * Constructor.
+     *
+     * @param collector collector containing compiled ranges.
+     * @param offHeap   true to store table off-heap, false otherwise.
+     */
+    BaseRangeTable(final RangeCollector collector, final boolean offHeap) {
+        final int size = collector.mSize;
+        final int[] indices = collector.mIndices;
+        final int recordCount = collector.mRecordCount;
+        mRecords = toBuffer(collector.mRecords, recordCount, offHeap);
+        if (recordCount <= MAX_SHORT_INDEXED_RECORDS) {
+            final char[] shortIndices = new char[size];
+            for (int i = 0; i < size; i++) {
+                shortIndices[i] = (char) indices[i];
+            }
+            mShortIndices = offHeap ? allocateDirect(size, 2).asCharBuffer()
+                    .put(shortIndices) : CharBuffer.wrap(shortIndices);
+            mIntIndices = null;
+        } else {
+            mShortIndices = null;
+            mIntIndices = toBuffer(indices, size, offHeap);
+        }
+
+        if (offHeap) {
+            mLocations = null;
+            mOffHeapLocations = new OffHeapLocationStore(recordCount);
+        } else {
+            mLocations = new AtomicReferenceArray<>(recordCount);
+            mOffHeapLocations = null;
+        }
+    }
+
+    /**
+     * Gets number of ranges of this table.
+     *
+     * @return number of ranges.
+     */
+    abstract int size();
+
+    /**
+     * Finds position within the record table of the record containing data
+     * of provided address.
+     *
+     * @param address address to look for.
+     * @return position within record table, {@link #NOT_FOUND} or
+     * {@link #DELEGATED} if address must be resolved using the search tree.
+     */
+    abstract int findIndex(final InetAddress address);
+
+    /**
+     * Gets number of distinct records of this table.
+     *
+     * @return number of records.
+     */
+    int getRecordCount() {
+        return mRecords.capacity();
+    }
+
+    /**
+     * Gets position within the database of a record of the record table.
+     *
+     * @param index position within the record table.
+     * @return position of record within the database.
+     */
+    int getRecord(final int index) {
+        return mRecords.get(index);
+    }
+
+    /**
+     * Gets location obtained for a record of the record table.
+     * When table is stored off-heap, recently requested locations are
+     * returned from a front cache, otherwise they are decoded again.
+     *
+     * @param index position within the record table.
+     * @return location or null if not available yet.
+     */
+    IPLocation getLocation(final int index) {
+        if (mLocations == null) {
+            return mOffHeapLocations.get(index);
+        }
+        return mLocations.get(index);
+    }
+
+    /**
+     * Sets location obtained for a record of the record table, unless another
+     * one has already been set.
+     *
+     * @param index    position within the record table.
+     * @param location location obtained for record.
+     * @return location stored in the table.
+     */
+    IPLocation setLocation(final int index, final IPLocation location) {
+        if (mLocations == null) {
+            return mOffHeapLocations.put(index, location);
+        }
+        if (mLocations.compareAndSet(index, null, location)) {
+            return location;
+        }
+        return mLocations.get(index);
+    }
+
+    /**
+     * Gets position within the record table of the record of a range.
+     *
+     * @param range position of range.
+     * @return position within record table or {@link #NOT_FOUND}.
+     */
+    int recordIndexOf(final int range) {
+        return (mShortIndices != null ? mShortIndices.get(range) :
+                mIntIndices.get(range)) - 1;
+    }
+
+    /**
+     * Copies values into a buffer.
+     *
+     * @param values  values to be copied.
+     * @param length  number of values to be copied.
+     * @param offHeap true to allocate buffer off-heap, false otherwise.
+     * @return buffer containing values.
+     */
+    static IntBuffer toBuffer(final int[] values, final int length,
+                              final boolean offHeap) {
+        if (!offHeap) {
+            return IntBuffer.wrap(Arrays.copyOf(values, length));
+        }
+        return allocateDirect(length, 4).asIntBuffer().put(values, 0, length);
+    }
+
+    /**
+     * Copies values into a buffer.
+     *
+     * @param values  values to be copied.
+     * @param length  number of values to be copied.
+     * @param offHeap true to allocate buffer off-heap, false otherwise.
+     * @return buffer containing values.
+     */
+    static LongBuffer toBuffer(final long[] values, final int length,
+                               final boolean offHeap) {
+        if (!offHeap) {
+            return LongBuffer.wrap(Arrays.copyOf(values, length));
+        }
+        return allocateDirect(length, 8).asLongBuffer().put(values, 0, length);
+    }
+
+    /**
+     * Allocates an off-heap buffer using native byte order.
+     *
+     * @param length      number of values.
+     * @param valueLength number of bytes of each value.
+     * @return allocated buffer.
+     */
+    private static ByteBuffer allocateDirect(final int length,
+                                             final int valueLength) {
+        return ByteBuffer.allocateDirect(length * valueLength)
+                .order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Collects ranges in ascending order while walking the search tree of a
+     * database, deduplicating their records.
+     * Subclasses store range starts.
+     */
+    abstract static class RangeCollector {
+
+        /**
+         * Record index of collected ranges.
+         */
+        private int[] mIndices = new int[INITIAL_CAPACITY];
+
+        /**
+         * Number of collected ranges.
+         */
+        private int mSize;
+
+        /**
+         * Deduplicated records found so far.
+         */
+        private int[] mRecords = new int[INITIAL_CAPACITY];
+
+        /**
+         * Number of deduplicated records.
+         */
+        private int mRecordCount;
+
+        /**
+         * Maps record positions to their index within the record table.
+         */
+        private final Map<Integer, Integer> mRecordIndices = new HashMap<>();
+
+        /**
+         * Gets number of collected ranges.
+         *
+         * @return number of collected ranges.
+         */
+        int size() {
+            return mSize;
+        }
+
+        /**
+         * Adds a range pointing to provided record, unless previous range
+         * points to the same record.
+         *
+         * @param record position of record within the database or
+         *               {@link MmdbReader#NOT_FOUND}.
+         * @return position where range start must be stored, or -1 if range
+         * was merged with previous one.
+         */
+        int add(final int record) {
+            final int index = indexOf(record);
+            if (mSize > 0 && mIndices[mSize - 1] == index) {
+                return -1;
+            }
+            if (mSize == mIndices.length) {
+                mIndices = Arrays.copyOf(mIndices, 2 * mSize);
+                grow(2 * mSize);
+            }
+            mIndices[mSize] = index;
+            return mSize++;
+        }
+
+        /**
+         * Gets position within the record table of provided record, if it has
+         * already been collected.
+         *
+         * @param record position of record within the database.
+         * @return position within record table or {@link #NOT_FOUND}.
+         */
+        int findRecordIndex(final int record) {
+            final Integer existing = mRecordIndices.get(record);
+            return existing != null ? existing - 1 : NOT_FOUND;
+        }
+
+        /**
+         * Grows arrays where range starts are stored.
+         *
+         * @param capacity new capacity.
+         */
+        abstract void grow(final int capacity);
+
+        /**
+         * Gets index of provided record within the record table, adding it if
+         * needed.
+         *
+         * @param record position of record within the database or
+         *               {@link MmdbReader#NOT_FOUND}.
+         * @return record index plus one, or 0 if there is no record.
+         */
+        private int indexOf(final int record) {
+            if (record == MmdbReader.NOT_FOUND) {
+                return 0;
+            }
+            final Integer existing = mRecordIndices.get(record);
+            if (existing != null) {
+                return existing;
+            }
+
+            if (mRecordCount == mRecords.length) {
+                mRecords = Arrays.copyOf(mRecords, 2 * mRecordCount);
+            }
+            mRecords[mRecordCount++] = record;
+            mRecordIndices.put(record, mRecordCount);
+            return mRecordCount;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Table of canonical locations.
+ * Locations having identical data are replaced by a single shared instance,
+ * and the strings and subdivision arrays they contain are interned, so that
+ * cached locations and any object keeping them reuse memory instead of
+ * duplicating it.
+ * Locations are kept until the table is cleared. Since databases contain a
+ * bounded number of distinct locations, table size is also bounded.
+ * This class is safe to be used concurrently.
+ */
+final class CanonicalLocationTable {
+
+    /**
+     * Canonical locations indexed by their data.
+     */
+    private final ConcurrentMap<LocationKey, IPLocation> mLocations =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Interned strings.
+     */
+    private final ConcurrentMap<String, String> mStrings =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Interned subdivision arrays indexed by their contents.
+     */
+    private final ConcurrentMap<List<String>, String[]> mArrays =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Gets canonical instance of provided location.
+     * If no location with identical data exists, a copy of provided location
+     * containing interned strings becomes canonical.
+     *
+     * @param location location to be canonicalized.
+     * @return canonical location.
+     */
+    IPLocation canonicalize(final IPLocation location) {
+        final IPLocation existing = mLocations.get(new LocationKey(location));
+        if (existing != null) {
+            return existing;
+        }
+
+        final IPLocation canonical = new IPLocation.Builder(location)
+                .setCity(intern(location.mCity))
+                .setTimeZoneId(intern(location.mTimeZoneId))
+                .setPostalCode(intern(location.mPostalCode))
+                .setSubdivisionCodes(intern(location.mSubdivisionCodes))
+                .setSubdivisionNames(intern(location.mSubdivisionNames))
+                .setCountryCode(intern(location.mCountryCode))
+                .setCountryName(intern(location.mCountryName))
+                .setRegisteredCountryCode(intern(
+                        location.mRegisteredCountryCode))
+                .setRegisteredCountryName(intern(
+                        location.mRegisteredCountryName))
+                .setDomain(intern(location.mDomain))
+                .setIsp(intern(location.mIsp))
+                .setOrganization(intern(location.mOrganization))
+                .setContinentCode(intern(location.mContinentCode))
+                .setContinentName(intern(location.mContinentName))
+                .setLocalizedCityNames(intern(location.mLocalizedCityNames))
+                .setLocalizedSubdivisionNames(intern(
+                        location.mLocalizedSubdivisionNames))
+                .setLocalizedCountryNames(intern(
+                        location.mLocalizedCountryNames))
+                .setLocalizedRegisteredCountryNames(intern(
+                        location.mLocalizedRegisteredCountryNames))
+                .setLocalizedContinentNames(intern(
+                        location.mLocalizedContinentNames))
+                .build();
+
+        final IPLocation previous = mLocations.putIfAbsent(
+                new LocationKey(canonical), canonical);
+        return previous != null ? previous : canonical;
+    }
+
+    /**
+     * Gets interned instance of provided string.
+     *
+     * @param value string to be interned.
+     * @return interned string or null if provided value is null.
+     */
+    String intern(final String value) {
+        if (value == null) {
+            return null;
+        }
+        final String previous = mStrings.putIfAbsent(value, value);
+        return previous != null ? previous : value;
+    }
+
+    /**
+     * Gets interned instance of provided array of strings.
+     * Interned arrays must not be modified.
+     *
+     * @param values array to be interned.
+     * @return interned array or null if provided value is null.
+     */
+    String[] intern(final String[] values) {
+        if (values == null) {
+            return null;
+        }
+        final String[] existing = mArrays.get(Arrays.asList(values));
+        if (existing != null) {
+            return existing;
+        }
+
+        final String[] interned = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            interned[i] = intern(values[i]);
+        }
+        final String[] previous = mArrays.putIfAbsent(
+                Arrays.asList(interned), interned);
+        return previous != null ? previous : interned;
+    }
+
+    /**
+     * Gets number of canonical locations.
+     *
+     * @return number of canonical locations.
+     */
+    int size() {
+        return mLocations.size();
+    }
+
+    /**
+     * Removes all canonical locations and interned values.
+     */
+    void clear() {
+        mLocations.clear();
+        mStrings.clear();
+        mArrays.clear();
+    }
+
+    /**
+     * Key identifying locations by their data.
+     */
+    private static final class LocationKey {
+
+        /**
+         * Location whose data is compared.
+         */
+        private final IPLocation mLocation;
+
+        /**
+         * Constructor.
+         *
+         * @param location location whose data is compared.
+         */
+        LocationKey(final IPLocation location) {
+            mLocation = location;
+        }
+
+        /**
+         * Computes hash code of this key.
+         *
+         * @return hash code.
+         */
+        @Override
+        public int hashCode() {
+            final IPLocation l = mLocation;
+            int hash = hash(l.mLevel);
+            hash = 31 * hash + hash(l.mCity);
+            hash = 31 * hash + hash(l.mTimeZoneId);
+            hash = 31 * hash + l.mPresence;
+            hash = 31 * hash + l.mAccuracyRadius;
+            hash = 31 * hash + l.mMetroCode;
+            hash = 31 * hash + hash(Double.doubleToLongBits(l.mLatitude));
+            hash = 31 * hash + hash(Double.doubleToLongBits(l.mLongitude));
+            hash = 31 * hash + hash(l.mPostalCode);
+            hash = 31 * hash + Arrays.hashCode(l.mSubdivisionCodes);
+            hash = 31 * hash + Arrays.hashCode(l.mSubdivisionNames);
+            hash = 31 * hash + hash(l.mCountryCode);
+            hash = 31 * hash + hash(l.mCountryName);
+            hash = 31 * hash + hash(l.mRegisteredCountryCode);
+            hash = 31 * hash + hash(l.mRegisteredCountryName);
+            hash = 31 * hash + l.mAutonomousSystemNumber;
+            hash = 31 * hash + hash(l.mDomain);
+            hash = 31 * hash + hash(l.mIsp);
+            hash = 31 * hash + hash(l.mOrganization);
+            hash = 31 * hash + hash(l.mContinentCode);
+            hash = 31 * hash + hash(l.mContinentName);
+            hash = 31 * hash + Arrays.hashCode(l.mLocalizedCityNames);
+            hash = 31 * hash + Arrays.hashCode(l.mLocalizedSubdivisionNames);
+            hash = 31 * hash + Arrays.hashCode(l.mLocalizedCountryNames);
+            hash = 31 * hash + Arrays.hashCode(
+                    l.mLocalizedRegisteredCountryNames);
+            return 31 * hash + Arrays.hashCode(l.mLocalizedContinentNames);
+        }
+
+        /**
+         * Indicates whether provided object is equal to this key.
+         *
+         * @param obj object to compare.
+         * @return true if both objects are equal, false otherwise.
+         */
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof LocationKey)) {
+                return false;
+            }
+            final IPLocation l1 = mLocation;
+            final IPLocation l2 = ((LocationKey) obj).mLocation;
+            return l1.mLevel == l2.mLevel &&
+                    equal(l1.mCity, l2.mCity) &&
+                    equal(l1.mTimeZoneId, l2.mTimeZoneId) &&
+                    l1.mPresence == l2.mPresence &&
+                    l1.mAccuracyRadius == l2.mAccuracyRadius &&
+                    l1.mMetroCode == l2.mMetroCode &&
+                    Double.doubleToLongBits(l1.mLatitude) ==
+                            Double.doubleToLongBits(l2.mLatitude) &&
+                    Double.doubleToLongBits(l1.mLongitude) ==
+                            Double.doubleToLongBits(l2.mLongitude) &&
+                    equal(l1.mPostalCode, l2.mPostalCode) &&
+                    Arrays.equals(l1.mSubdivisionCodes, l2.mSubdivisionCodes) &&
+                    Arrays.equals(l1.mSubdivisionNames, l2.mSubdivisionNames) &&
+                    equal(l1.mCountryCode, l2.mCountryCode) &&
+                    equal(l1.mCountryName, l2.mCountryName) &&
+                    equal(l1.mRegisteredCountryCode,
+                            l2.mRegisteredCountryCode) &&
+                    equal(l1.mRegisteredCountryName,
+                            l2.mRegisteredCountryName) &&
+                    l1.mAutonomousSystemNumber == l2.mAutonomousSystemNumber &&
+                    equal(l1.mDomain, l2.mDomain) &&
+                    equal(l1.mIsp, l2.mIsp) &&
+                    equal(l1.mOrganization, l2.mOrganization) &&
+                    equal(l1.mContinentCode, l2.mContinentCode) &&
+                    equal(l1.mContinentName, l2.mContinentName) &&
+                    l1.mNameLocales == l2.mNameLocales &&
+                    Arrays.equals(l1.mLocalizedCityNames,
+                            l2.mLocalizedCityNames) &&
+                    Arrays.equals(l1.mLocalizedSubdivisionNames,
+                            l2.mLocalizedSubdivisionNames) &&
+                    Arrays.equals(l1.mLocalizedCountryNames,
+                            l2.mLocalizedCountryNames) &&
+                    Arrays.equals(l1.mLocalizedRegisteredCountryNames,
+                            l2.mLocalizedRegisteredCountryNames) &&
+                    Arrays.equals(l1.mLocalizedContinentNames,
+                            l2.mLocalizedContinentNames);
+        }
+
+        /**
+         * Computes hash code of a nullable value.
+         *
+         * @param value a value.
+         * @return hash code or zero if value is null.
+         */
+        private static int hash(final Object value) {
+            return value != null ? value.hashCode() : 0;
+        }
+
+        /**
+         * Indicates whether two nullable values are equal.
+         *
+         * @param value1 first value.
+         * @param value2 second value.
+         * @return true if both values are equal, false otherwise.
+         */
+        private static boolean equal(final Object value1, final Object value2) {
+            return value1 == null ? value2 == null : value1.equals(value2);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+/**
+ * Compact primitive indices of countries, which allow locating countries of IP
+ * addresses without creating any object.
+ * The index of a country is computed from its two-character ISO 3166-1 alpha
+ * code as {@code (c0 - 'A') * 26 + (c1 - 'A')}, hence indices do not depend
+ * on databases, range from 0 to {@link #SIZE} - 1 and can be used to index
+ * arrays.
+ * This class is safe to be used concurrently.
+ *
+ * @see <a href="http://en.wikipedia.org/wiki/ISO_3166-1">
+ * http://en.wikipedia.org/wiki/ISO_3166-1</a>
+ */
+public final class CountryIndex {
+
+    /**
+     * Number of letters of country codes.
+     */
+    private static final int LETTERS = 26;
+
+    /**
+     * Index returned when the country of an IP address is not known.
+     */
+    public static final int UNKNOWN = -1;
+
+    /**
+     * Number of possible country indices.
+     */
+    public static final int SIZE = LETTERS * LETTERS;
+
+    /**
+     * Country codes indexed by country index.
+     */
+    private static final String[] CODES = new String[SIZE];
+
+    static {
+        for (int i = 0; i < SIZE; i++) {
+            CODES[i] = new String(new char[]{
+                    (char) ('A' + i / LETTERS), (char) ('A' + i % LETTERS)});
+        }
+    }
+
+    /**
+     * Constructor.
+     * Prevents instantiation.
+     */
+    private CountryIndex() {
+    }
+
+    /**
+     * Gets index of provided country code.
+     * Country codes are case insensitive.
+     *
+     * @param code two-character ISO 3166-1 alpha code of a country.
+     * @return country index or {@link #UNKNOWN} if provided value is not a
+     * valid country code.
+     */
+    public static int fromCode(final String code) {
+        if (code == null || code.length() != 2) {
+            return UNKNOWN;
+        }
+
+        final int first = Character.toUpperCase(code.charAt(0)) - 'A';
+        final int second = Character.toUpperCase(code.charAt(1)) - 'A';
+        if (first < 0 || first >= LETTERS || second < 0 || second >= LETTERS) {
+            return UNKNOWN;
+        }
+        return first * LETTERS + second;
+    }
+
+    /**
+     * Gets country code of provided index.
+     * Returned codes are shared, hence no object is created.
+     *
+     * @param index country index.
+     * @return two-character ISO 3166-1 alpha code of country or null if index
+     * is not valid.
+     */
+    public static String toCode(final int index) {
+        return index >= 0 && index < SIZE ? CODES[index] : null;
+    }
+}
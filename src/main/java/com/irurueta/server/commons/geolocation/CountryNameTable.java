@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Table of localized country names indexed by locale and ISO country code.
+ * Obtaining a localized country name from the JDK requires creating a locale
+ * and looking up locale resources each time, hence names are resolved once per
+ * locale and country code and read from this table afterwards.
+ * Since the number of country codes is bounded, table size is also bounded by
+ * the number of requested locales.
+ * This class is safe to be used concurrently.
+ */
+final class CountryNameTable {
+
+    /**
+     * Value stored for country codes having no localized name, so that they
+     * are not resolved again.
+     */
+    private static final String NO_NAME = "";
+
+    /**
+     * Localized country names indexed by locale and country code.
+     */
+    private static final ConcurrentMap<Locale, ConcurrentMap<String, String>>
+            NAMES = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     * Prevents instantiation.
+     */
+    private CountryNameTable() {
+    }
+
+    /**
+     * Gets localized name of provided country.
+     *
+     * @param countryCode two-character ISO 3166-1 alpha code of a country.
+     * @param locale      locale to obtain name for. If null, default display
+     *                    locale is used.
+     * @return localized country name or null if country code is not known.
+     */
+    static String get(final String countryCode, final Locale locale) {
+        if (countryCode == null) {
+            return null;
+        }
+
+        final Locale l = locale != null ? locale :
+                Locale.getDefault(Locale.Category.DISPLAY);
+        ConcurrentMap<String, String> names = NAMES.get(l);
+        if (names == null) {
+            final ConcurrentMap<String, String> newNames =
+                    new ConcurrentHashMap<>();
+            names = NAMES.putIfAbsent(l, newNames);
+            if (names == null) {
+                names = newNames;
+            }
+        }
+
+        String name = names.get(countryCode);
+        if (name == null) {
+            name = new Locale("", countryCode).getDisplayCountry(l);
+            if (name.equals(countryCode)) {
+                // country code is invalid and it is returned as display
+                // country name
+                name = NO_NAME;
+            }
+            names.putIfAbsent(countryCode, name);
+        }
+
+        return !name.isEmpty() ? name : null;
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Table resolving IP addresses into country indices without creating any
+ * object.
+ * Table is compiled from the range tables of a database, by decoding once the
+ * country of each distinct database record, so that locating the country of
+ * an IPv4 address only requires a search within a flat array of ranges and an
+ * array access.
+ * Continents of countries are also collected while compiling the table.
+ * Instances of this class are immutable and can be safely shared among
+ * threads.
+ *
+ * @see CountryIndex
+ */
+final class CountryTable {
+
+    /**
+     * Charset of keys.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Keys of record entries containing country and continent.
+     */
+    private static final byte[][] RECORD_KEYS = {
+            "country".getBytes(UTF8), "continent".getBytes(UTF8)};
+
+    /**
+     * Keys of country entries containing country code.
+     */
+    private static final byte[][] COUNTRY_KEYS = {"iso_code".getBytes(UTF8)};
+
+    /**
+     * Keys of continent entries containing continent code.
+     */
+    private static final byte[][] CONTINENT_KEYS = {"code".getBytes(UTF8)};
+
+    /**
+     * Codes of continents.
+     */
+    private static final String[] CONTINENT_CODES = {
+            "AF", "AN", "AS", "EU", "NA", "OC", "SA"};
+
+    /**
+     * Search tree of database, which is used for addresses that are not
+     * compiled into range tables.
+     */
+    private final MmdbReader mTree;
+
+    /**
+     * Table of IPv4 address ranges.
+     */
+    private final IPv4RangeTable mIpv4Table;
+
+    /**
+     * Country index of each record of IPv4 table.
+     */
+    private final short[] mIpv4Countries;
+
+    /**
+     * Table of IPv6 address ranges, or null if database only contains IPv4
+     * addresses.
+     */
+    private final IPv6RangeTable mIpv6Table;
+
+    /**
+     * Country index of each record of IPv6 table, or null if database only
+     * contains IPv4 addresses.
+     */
+    private final short[] mIpv6Countries;
+
+    /**
+     * Position within continent codes of the continent of each country, or -1
+     * if not known.
+     */
+    private final byte[] mContinents;
+
+    /**
+     * Constructor.
+     * Range tables already compiled in provided index are reused, and
+     * otherwise they are compiled on the Java heap.
+     *
+     * @param index index of database.
+     * @throws IOException if database data is corrupt.
+     */
+    CountryTable(final DatabaseIndex index) throws IOException {
+        mTree = index.getTree();
+        mIpv4Table = index.getIpv4Table() != null ? index.getIpv4Table() :
+                IPv4RangeTable.compile(mTree, false);
+        if (index.getIpv6Table() != null) {
+            mIpv6Table = index.getIpv6Table();
+        } else {
+            mIpv6Table = mTree.getIpVersion() == 6 ?
+                    IPv6RangeTable.compile(mTree, false) : null;
+        }
+
+        mContinents = new byte[CountryIndex.SIZE];
+        Arrays.fill(mContinents, (byte) -1);
+        mIpv4Countries = compile(mIpv4Table);
+        mIpv6Countries = mIpv6Table != null ? compile(mIpv6Table) : null;
+    }
+
+    /**
+     * Finds country of provided IPv4 address.
+     *
+     * @param address IPv4 address expressed as an integer in network order.
+     * @return country index or {@link CountryIndex#UNKNOWN} if not found.
+     */
+    int find(final int address) {
+        final int index = mIpv4Table.findIndex(address);
+        return index >= 0 ? mIpv4Countries[index] : CountryIndex.UNKNOWN;
+    }
+
+    /**
+     * Finds country of provided address.
+     * Only IPv6 addresses aliasing IPv4 address space (i.e. 6to4 addresses)
+     * require decoding data.
+     *
+     * @param address IP address to look for.
+     * @return country index or {@link CountryIndex#UNKNOWN} if not found.
+     * @throws IOException if database data is corrupt.
+     */
+    int find(final InetAddress address) throws IOException {
+        if (address instanceof Inet4Address) {
+            return find(IPAddressParser.toInt((Inet4Address) address));
+        }
+        if (mIpv6Table == null) {
+            return CountryIndex.UNKNOWN;
+        }
+
+        final int index = mIpv6Table.findIndex(address);
+        if (index >= 0) {
+            return mIpv6Countries[index];
+        }
+        if (index == BaseRangeTable.DELEGATED) {
+            final int record = mTree.findRecord(address);
+            if (record != MmdbReader.NOT_FOUND) {
+                return decode(record, null);
+            }
+        }
+        return CountryIndex.UNKNOWN;
+    }
+
+    /**
+     * Gets code of the continent of provided country.
+     *
+     * @param country country index.
+     * @return continent code or null if not known.
+     */
+    String getContinentCode(final int country) {
+        if (country < 0 || country >= CountryIndex.SIZE) {
+            return null;
+        }
+        final int continent = mContinents[country];
+        return continent >= 0 ? CONTINENT_CODES[continent] : null;
+    }
+
+    /**
+     * Decodes the country of each record of provided range table.
+     *
+     * @param table range table.
+     * @return country index of each record of range table.
+     * @throws IOException if database data is corrupt.
+     */
+    private short[] compile(final BaseRangeTable table) throws IOException {
+        final short[] countries = new short[table.getRecordCount()];
+        for (int i = 0; i < countries.length; i++) {
+            // IPv6 tables contain a marker record for ranges aliasing IPv4
+            // address space
+            final int record = table.getRecord(i);
+            countries[i] = (short) (record >= 0 ? decode(record, mContinents) :
+                    CountryIndex.UNKNOWN);
+        }
+        return countries;
+    }
+
+    /**
+     * Decodes the country of a database record.
+     *
+     * @param record     position of record within the database.
+     * @param continents array where continent of decoded country will be
+     *                   stored, or null.
+     * @return country index or {@link CountryIndex#UNKNOWN} if record has no
+     * country.
+     * @throws IOException if database data is corrupt.
+     */
+    private int decode(final int record, final byte[] continents)
+            throws IOException {
+        final int[] entries = new int[RECORD_KEYS.length];
+        mTree.findEntries(record, RECORD_KEYS, entries);
+        final int country = CountryIndex.fromCode(
+                code(entries[0], COUNTRY_KEYS));
+        if (country != CountryIndex.UNKNOWN && continents != null) {
+            final int continent = Arrays.asList(CONTINENT_CODES).indexOf(
+                    code(entries[1], CONTINENT_KEYS));
+            if (continent >= 0) {
+                continents[country] = (byte) continent;
+            }
+        }
+        return country;
+    }
+
+    /**
+     * Decodes code contained in a map.
+     *
+     * @param position position of map or {@link MmdbReader#NOT_FOUND}.
+     * @param keys     keys containing the key of code.
+     * @return decoded code or null if not found.
+     * @throws IOException if database data is corrupt.
+     */
+    private String code(final int position, final byte[][] keys)
+            throws IOException {
+        if (position == MmdbReader.NOT_FOUND) {
+            return null;
+        }
+        final int[] values = new int[1];
+        mTree.findEntries(position, keys, values);
+        return values[0] != MmdbReader.NOT_FOUND ?
+                String.valueOf(mTree.decode(values[0])) : null;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Lookup structures built for a database in addition to its Maxmind reader.
+ * Contains the search tree of the database, which is used to identify the
+ * database record of each address, and optionally compiled tables resolving
+ * IPv4 and IPv6 addresses without walking the search tree.
+ * Instances of this class are immutable and can be safely shared among
+ * threads.
+ */
+final class DatabaseIndex {
+
+    /**
+     * Search tree of database.
+     */
+    private final MmdbReader mTree;
+
+    /**
+     * Compiled table of IPv4 address ranges, or null if not compiled.
+     */
+    private final IPv4RangeTable mIpv4Table;
+
+    /**
+     * Compiled table of IPv6 address ranges, or null if not compiled.
+     */
+    private final IPv6RangeTable mIpv6Table;
+
+    /**
+     * Constructor.
+     *
+     * @param file        database file.
+     * @param compileIpv4 true to compile a table of IPv4 address ranges.
+     * @param compileIpv6 true to compile a table of IPv6 address ranges. It is
+     *                    ignored if database only contains IPv4 addresses.
+     * @param offHeap     true to store compiled tables off-heap.
+     * @throws IOException if database cannot be read.
+     */
+    DatabaseIndex(final File file, final boolean compileIpv4,
+                  final boolean compileIpv6, final boolean offHeap)
+            throws IOException {
+        this(new MmdbReader(file), compileIpv4, compileIpv6, offHeap);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param buffer      buffer containing database.
+     * @param compileIpv4 true to compile a table of IPv4 address ranges.
+     * @param compileIpv6 true to compile a table of IPv6 address ranges. It is
+     *                    ignored if database only contains IPv4 addresses.
+     * @param offHeap     true to store compiled tables off-heap.
+     * @throws IOException if database cannot be read.
+     */
+    DatabaseIndex(final ByteBuffer buffer, final boolean compileIpv4,
+                  final boolean compileIpv6, final boolean offHeap)
+            throws IOException {
+        this(new MmdbReader(buffer), compileIpv4, compileIpv6, offHeap);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param tree        search tree of database.
+     * @param compileIpv4 true to compile a table of IPv4 address ranges.
+     * @param compileIpv6 true to compile a table of IPv6 address ranges. It is
+     *                    ignored if database only contains IPv4 addresses.
+     * @param offHeap     true to store compiled tables off-heap.
+     */
+    DatabaseIndex(final MmdbReader tree, final boolean compileIpv4,
+                  final boolean compileIpv6, final boolean offHeap) {
+        mTree = tree;
+        mIpv4Table = compileIpv4 ? IPv4RangeTable.compile(mTree, offHeap) :
+                null;
+        mIpv6Table = compileIpv6 && mTree.getIpVersion() == 6 ?
+                IPv6RangeTable.compile(mTree, offHeap) : null;
+    }
+
+    /**
+     * Gets search tree of database.
+     *
+     * @return search tree of database.
+     */
+    MmdbReader getTree() {
+        return mTree;
+    }
+
+    /**
+     * Gets compiled table of IPv4 address ranges.
+     *
+     * @return compiled table or null if not compiled.
+     */
+    IPv4RangeTable getIpv4Table() {
+        return mIpv4Table;
+    }
+
+    /**
+     * Gets compiled table of IPv6 address ranges.
+     *
+     * @return compiled table or null if not compiled.
+     */
+    IPv6RangeTable getIpv6Table() {
+        return mIpv6Table;
+    }
+}
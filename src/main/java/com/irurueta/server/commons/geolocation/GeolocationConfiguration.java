@@ -122,4 +122,210 @@ public interface GeolocationConfiguration extends Configuration {
      * locally.
      */
     String getIPGeolocationCityDatabaseFile();
+
+    /**
+     * Indicates whether obtained locations must be cached so that repeated
+     * lookups of the same IP address are served from memory without decoding
+     * the database again.
+     *
+     * @return true if results of lookups must be cached, false otherwise.
+     */
+    boolean isResultCacheEnabled();
+
+    /**
+     * Maximum number of locations to be kept in the results cache. Once this
+     * size is reached, least recently used locations are evicted.
+     *
+     * @return maximum number of locations to be kept in the results cache.
+     */
+    int getResultCacheSize();
+
+    /**
+     * Amount of time expressed in milliseconds that locations are kept in the
+     * results cache. Zero or negative values indicate that cached locations
+     * never expire.
+     *
+     * @return amount of time expressed in milliseconds that locations are
+     * kept in the results cache.
+     */
+    long getResultCacheTimeToLive();
+
+    /**
+     * Indicates whether obtained locations must be cached per database record,
+     * so that all addresses belonging to the same network block share a single
+     * cache entry.
+     *
+     * @return true if locations must be cached per database record, false
+     * otherwise.
+     */
+    boolean isNetworkCacheEnabled();
+
+    /**
+     * Maximum number of database records to be kept in the network cache. Once
+     * this size is reached, least recently used records are evicted.
+     *
+     * @return maximum number of database records to be kept in the network cache.
+     */
+    int getNetworkCacheSize();
+
+    /**
+     * Indicates whether private, reserved and unrouted addresses (i.e.
+     * 10.0.0.0/8, 192.168.0.0/16 or fc00::/7) must be reported as not found
+     * without accessing any database.
+     *
+     * @return true if reserved addresses are not looked up, false otherwise.
+     */
+    boolean isReservedAddressesFilterEnabled();
+
+    /**
+     * Indicates whether addresses that could not be located must be cached so
+     * that repeated lookups of such addresses are answered without accessing
+     * the database again.
+     *
+     * @return true if addresses that could not be located must be cached, false
+     * otherwise.
+     */
+    boolean isNegativeCacheEnabled();
+
+    /**
+     * Maximum number of addresses to be kept in the negative cache. Once this
+     * size is reached, least recently used addresses are evicted.
+     *
+     * @return maximum number of addresses to be kept in the negative cache.
+     */
+    int getNegativeCacheSize();
+
+    /**
+     * Indicates whether host names provided to string based lookups must be
+     * resolved using DNS. When disabled, only IP address literals are
+     * accepted, so that string lookups never block on DNS queries.
+     *
+     * @return true if host names must be resolved, false otherwise.
+     */
+    boolean isHostNameResolutionEnabled();
+
+    /**
+     * Number of threads used to execute asynchronous lookups when no executor
+     * has been provided. Zero or negative values indicate that as many threads
+     * as available processors are used.
+     *
+     * @return number of threads used to execute asynchronous lookups.
+     */
+    int getAsyncThreadPoolSize();
+
+    /**
+     * Indicates whether databases must be compiled into flat tables of IPv4
+     * address ranges when opened, so that IPv4 addresses are resolved with a
+     * binary search and locations are shared by all addresses pointing to the
+     * same database record.
+     *
+     * @return true if IPv4 tables must be compiled, false otherwise.
+     */
+    boolean isCompiledIpv4TableEnabled();
+
+    /**
+     * Indicates whether databases must be compiled into flat tables of IPv6
+     * address ranges when opened, so that IPv6 addresses are resolved using
+     * primitive comparisons instead of walking the search tree bit by bit.
+     *
+     * @return true if IPv6 tables must be compiled, false otherwise.
+     */
+    boolean isCompiledIpv6TableEnabled();
+
+    /**
+     * Indicates whether compiled IPv4 and IPv6 tables, and the locations
+     * stored in them, must be kept outside of the Java heap, so that they do not
+     * increase garbage collection pauses. When enabled, decoded database data
+     * is not cached on heap by database readers either.
+     *
+     * @return true if compiled tables must be stored off-heap, false otherwise.
+     */
+    boolean isOffHeapStorageEnabled();
+
+    /**
+     * Indicates whether located addresses having identical data must share a
+     * single canonical location instance, along with the strings and
+     * subdivision lists it contains. It has no effect when compiled tables are
+     * stored off-heap.
+     *
+     * @return true if locations must be interned, false otherwise.
+     */
+    boolean isLocationInterningEnabled();
+
+    /**
+     * Gets comma separated list of language tags (i.e. en,es,pt-BR) of
+     * localized names to be loaded from databases for cities, subdivisions,
+     * countries and continents. Localized names are stored once for each
+     * location, so that they can be requested in any of these locales without
+     * further database accesses.
+     *
+     * @return comma separated list of language tags or null if no localized
+     * names must be loaded.
+     */
+    String getNameLocales();
+
+    /**
+     * Indicates whether embedded databases must be loaded into memory directly
+     * from their resources instead of being copied into database files.
+     * Loading databases into memory avoids writing them into disk on startup,
+     * at the expense of keeping them within the Java heap.
+     * Database readers keep their own copy of each database, and another copy
+     * is kept for database indices, hence each database takes twice its size
+     * on the heap, and up to three times its size while being opened.
+     *
+     * @return true if embedded databases must be loaded into memory, false otherwise.
+     */
+    boolean isEmbeddedDatabaseLoadedInMemory();
+
+    /**
+     * Indicates whether database files copied from embedded resources must be
+     * kept when geolocation is closed. Kept files are reused on next startup
+     * as long as their contents match the embedded resources, and can be shared
+     * by several processes on the same host.
+     *
+     * @return true if database files must be kept, false otherwise.
+     */
+    boolean isEmbeddedDatabaseFileKeptOnClose();
+
+    /**
+     * Indicates whether database files must be watched, so that databases are
+     * reloaded without interrupting lookups when their files are replaced.
+     * Files must be replaced atomically (i.e. written elsewhere and then moved
+     * into place), since files modified in place are not reloaded.
+     *
+     * @return true if database files must be watched, false otherwise.
+     */
+    boolean isDatabaseWatchEnabled();
+
+    /**
+     * Indicates whether database records must be decoded directly into
+     * locations, instead of using Maxmind database readers.
+     * Decoding records directly avoids creating intermediate responses and
+     * hence most of the garbage produced by each lookup.
+     *
+     * @return true if database records must be decoded directly, false
+     * otherwise.
+     */
+    boolean isDirectDecodingEnabled();
+
+    /**
+     * Indicates whether memory mapped database files must be loaded into
+     * physical memory when databases are opened.
+     * Loading database files avoids page faults during the first lookups made
+     * after databases are opened or reloaded.
+     *
+     * @return true if database files must be loaded when opened, false
+     * otherwise.
+     */
+    boolean isDatabasePreloadEnabled();
+
+    /**
+     * Indicates whether search trees of databases must be walked when
+     * databases are opened.
+     * Walking search trees touches all tree nodes and the records they point
+     * to, so that they are resident in memory before the first lookups.
+     *
+     * @return true if search trees must be walked when opened, false otherwise.
+     */
+    boolean isDatabaseTreeWalkEnabled();
 }
@@ -142,6 +142,311 @@ public class GeolocationConfigurationFactory extends
     public static final String DEFAULT_IP_GEOLOCATION_CITY_DATABASE_FILE =
             "./GeoLite2-City.mmdb";
 
+    /**
+     * Property indicating whether obtained locations must be cached so that
+     * repeated lookups of the same IP address are served from memory without
+     * decoding the database again.
+     */
+    public static final String RESULT_CACHE_ENABLED_PROPERTY =
+            "com.irurueta.server.commons.geolocation.RESULT_CACHE_ENABLED";
+
+    /**
+     * By default results of lookups are not cached.
+     */
+    public static final boolean DEFAULT_RESULT_CACHE_ENABLED =
+            false;
+
+    /**
+     * Property indicating the maximum number of locations to be kept in the
+     * results cache. Once this size is reached, least recently used locations
+     * are evicted.
+     */
+    public static final String RESULT_CACHE_SIZE_PROPERTY =
+            "com.irurueta.server.commons.geolocation.RESULT_CACHE_SIZE";
+
+    /**
+     * Default maximum number of locations to be kept in the results cache.
+     */
+    public static final int DEFAULT_RESULT_CACHE_SIZE =
+            10000;
+
+    /**
+     * Property indicating the amount of time expressed in milliseconds that
+     * locations are kept in the results cache. Zero or negative values indicate
+     * that cached locations never expire.
+     */
+    public static final String RESULT_CACHE_TIME_TO_LIVE_PROPERTY =
+            "com.irurueta.server.commons.geolocation.RESULT_CACHE_TIME_TO_LIVE";
+
+    /**
+     * By default cached locations never expire.
+     */
+    public static final long DEFAULT_RESULT_CACHE_TIME_TO_LIVE =
+            0;
+
+    /**
+     * Property indicating whether obtained locations must be cached per
+     * database record, so that all addresses belonging to the same network
+     * block share a single cache entry.
+     */
+    public static final String NETWORK_CACHE_ENABLED_PROPERTY =
+            "com.irurueta.server.commons.geolocation.NETWORK_CACHE_ENABLED";
+
+    /**
+     * By default locations are not cached per database record.
+     */
+    public static final boolean DEFAULT_NETWORK_CACHE_ENABLED =
+            false;
+
+    /**
+     * Property indicating the maximum number of database records to be kept
+     * in the network cache. Once this size is reached, least recently used
+     * records are evicted.
+     */
+    public static final String NETWORK_CACHE_SIZE_PROPERTY =
+            "com.irurueta.server.commons.geolocation.NETWORK_CACHE_SIZE";
+
+    /**
+     * Default maximum number of database records to be kept in the network
+     * cache.
+     */
+    public static final int DEFAULT_NETWORK_CACHE_SIZE =
+            10000;
+
+    /**
+     * Property indicating whether private, reserved and unrouted addresses
+     * (i.e. 10.0.0.0/8, 192.168.0.0/16 or fc00::/7) must be reported as not
+     * found without accessing any database.
+     */
+    public static final String RESERVED_ADDRESSES_FILTER_ENABLED_PROPERTY =
+            "com.irurueta.server.commons.geolocation.RESERVED_ADDRESSES_FILTER_ENABLED";
+
+    /**
+     * By default reserved addresses are not looked up, since they are never
+     * contained in public geolocation databases.
+     */
+    public static final boolean DEFAULT_RESERVED_ADDRESSES_FILTER_ENABLED =
+            true;
+
+    /**
+     * Property indicating whether addresses that could not be located must be
+     * cached so that repeated lookups of such addresses are answered without
+     * accessing the database again.
+     */
+    public static final String NEGATIVE_CACHE_ENABLED_PROPERTY =
+            "com.irurueta.server.commons.geolocation.NEGATIVE_CACHE_ENABLED";
+
+    /**
+     * By default addresses that could not be located are not cached.
+     */
+    public static final boolean DEFAULT_NEGATIVE_CACHE_ENABLED =
+            false;
+
+    /**
+     * Property indicating the maximum number of addresses to be kept in the
+     * negative cache. Once this size is reached, least recently used addresses
+     * are evicted.
+     */
+    public static final String NEGATIVE_CACHE_SIZE_PROPERTY =
+            "com.irurueta.server.commons.geolocation.NEGATIVE_CACHE_SIZE";
+
+    /**
+     * Default maximum number of addresses to be kept in the negative cache.
+     */
+    public static final int DEFAULT_NEGATIVE_CACHE_SIZE =
+            10000;
+
+    /**
+     * Property indicating whether host names provided to string based lookups
+     * must be resolved using DNS. When disabled, only IP address literals are
+     * accepted, so that string lookups never block on DNS queries.
+     */
+    public static final String HOST_NAME_RESOLUTION_ENABLED_PROPERTY =
+            "com.irurueta.server.commons.geolocation.HOST_NAME_RESOLUTION_ENABLED";
+
+    /**
+     * By default host names are not resolved.
+     */
+    public static final boolean DEFAULT_HOST_NAME_RESOLUTION_ENABLED =
+            false;
+
+    /**
+     * Property indicating the number of threads used to execute asynchronous
+     * lookups when no executor has been provided. Zero or negative values
+     * indicate that as many threads as available processors are used.
+     */
+    public static final String ASYNC_THREAD_POOL_SIZE_PROPERTY =
+            "com.irurueta.server.commons.geolocation.ASYNC_THREAD_POOL_SIZE";
+
+    /**
+     * By default as many threads as available processors are used.
+     */
+    public static final int DEFAULT_ASYNC_THREAD_POOL_SIZE =
+            0;
+
+    /**
+     * Property indicating whether databases must be compiled into flat tables
+     * of IPv4 address ranges when opened, so that IPv4 addresses are resolved
+     * with a binary search and locations are shared by all addresses pointing
+     * to the same database record.
+     */
+    public static final String COMPILED_IPV4_TABLE_ENABLED_PROPERTY =
+            "com.irurueta.server.commons.geolocation.COMPILED_IPV4_TABLE_ENABLED";
+
+    /**
+     * By default IPv4 tables are not compiled, since compilation increases
+     * startup time and memory usage.
+     */
+    public static final boolean DEFAULT_COMPILED_IPV4_TABLE_ENABLED =
+            false;
+
+    /**
+     * Property indicating whether databases must be compiled into flat tables
+     * of IPv6 address ranges when opened, so that IPv6 addresses are resolved
+     * using primitive comparisons instead of walking the search tree bit by bit.
+     */
+    public static final String COMPILED_IPV6_TABLE_ENABLED_PROPERTY =
+            "com.irurueta.server.commons.geolocation.COMPILED_IPV6_TABLE_ENABLED";
+
+    /**
+     * By default IPv6 tables are not compiled, since compilation increases
+     * startup time and memory usage.
+     */
+    public static final boolean DEFAULT_COMPILED_IPV6_TABLE_ENABLED =
+            false;
+
+    /**
+     * Property indicating whether compiled IPv4 and IPv6 tables, and the
+     * locations stored in them, must be kept outside of the Java heap, so that
+     * they do not increase garbage collection pauses. When enabled, decoded
+     * database data is not cached on heap by database readers either.
+     */
+    public static final String OFF_HEAP_STORAGE_ENABLED_PROPERTY =
+            "com.irurueta.server.commons.geolocation.OFF_HEAP_STORAGE_ENABLED";
+
+    /**
+     * By default compiled tables are stored on the Java heap, since off-heap
+     * locations not kept in their front cache must be decoded when retrieved.
+     */
+    public static final boolean DEFAULT_OFF_HEAP_STORAGE_ENABLED =
+            false;
+
+    /**
+     * Property indicating whether located addresses having identical data must
+     * share a single canonical location instance, along with the strings and
+     * subdivision lists it contains. It has no effect when compiled tables are
+     * stored off-heap.
+     */
+    public static final String LOCATION_INTERNING_ENABLED_PROPERTY =
+            "com.irurueta.server.commons.geolocation.LOCATION_INTERNING_ENABLED";
+
+    /**
+     * By default locations are interned, since databases contain a bounded
+     * number of distinct locations and interning avoids keeping duplicate
+     * copies of them.
+     */
+    public static final boolean DEFAULT_LOCATION_INTERNING_ENABLED =
+            true;
+
+    /**
+     * Property containing a comma separated list of language tags (i.e.
+     * en,es,pt-BR) of localized names to be loaded from databases for cities,
+     * subdivisions, countries and continents.
+     */
+    public static final String NAME_LOCALES_PROPERTY =
+            "com.irurueta.server.commons.geolocation.NAME_LOCALES";
+
+    /**
+     * By default no localized names are loaded, and only the default names
+     * obtained from databases are kept.
+     */
+    public static final String DEFAULT_NAME_LOCALES = null;
+
+    /**
+     * Property indicating whether embedded databases must be loaded into memory
+     * directly from their resources instead of being copied into database
+     * files.
+     */
+    public static final String EMBEDDED_DATABASE_LOADED_IN_MEMORY_PROPERTY =
+            "com.irurueta.server.commons.geolocation.EMBEDDED_DATABASE_LOADED_IN_MEMORY";
+
+    /**
+     * By default embedded databases are copied into database files, which are
+     * memory mapped and do not increase the Java heap.
+     */
+    public static final boolean DEFAULT_EMBEDDED_DATABASE_LOADED_IN_MEMORY =
+            false;
+
+    /**
+     * Property indicating whether database files copied from embedded resources
+     * must be kept when geolocation is closed, so that they can be reused on
+     * next startup or shared with other processes on the same host.
+     * Files should only be deleted when no other process uses them.
+     */
+    public static final String EMBEDDED_DATABASE_FILE_KEPT_ON_CLOSE_PROPERTY =
+            "com.irurueta.server.commons.geolocation.EMBEDDED_DATABASE_FILE_KEPT_ON_CLOSE";
+
+    /**
+     * By default database files copied from embedded resources are deleted
+     * when geolocation is closed.
+     */
+    public static final boolean DEFAULT_EMBEDDED_DATABASE_FILE_KEPT_ON_CLOSE =
+            false;
+
+    /**
+     * Property indicating whether database files must be watched, so that
+     * databases are reloaded without interrupting lookups when their files are
+     * atomically replaced.
+     */
+    public static final String DATABASE_WATCH_ENABLED_PROPERTY =
+            "com.irurueta.server.commons.geolocation.DATABASE_WATCH_ENABLED";
+
+    /**
+     * By default database files are not watched, and databases are only
+     * reloaded on request.
+     */
+    public static final boolean DEFAULT_DATABASE_WATCH_ENABLED =
+            false;
+
+    /**
+     * Property indicating whether database records must be decoded directly
+     * into locations, instead of using Maxmind database readers.
+     */
+    public static final String DIRECT_DECODING_ENABLED_PROPERTY =
+            "com.irurueta.server.commons.geolocation.DIRECT_DECODING_ENABLED";
+
+    /**
+     * By default database records are decoded using Maxmind database readers.
+     */
+    public static final boolean DEFAULT_DIRECT_DECODING_ENABLED =
+            false;
+
+    /**
+     * Property indicating whether memory mapped database files must be loaded
+     * into physical memory when databases are opened.
+     */
+    public static final String DATABASE_PRELOAD_ENABLED_PROPERTY =
+            "com.irurueta.server.commons.geolocation.DATABASE_PRELOAD_ENABLED";
+
+    /**
+     * By default database files are loaded into memory as they are accessed.
+     */
+    public static final boolean DEFAULT_DATABASE_PRELOAD_ENABLED =
+            false;
+
+    /**
+     * Property indicating whether search trees of databases must be walked when
+     * databases are opened.
+     */
+    public static final String DATABASE_TREE_WALK_ENABLED_PROPERTY =
+            "com.irurueta.server.commons.geolocation.DATABASE_TREE_WALK_ENABLED";
+
+    /**
+     * By default search trees of databases are not walked when opened.
+     */
+    public static final boolean DEFAULT_DATABASE_TREE_WALK_ENABLED =
+            false;
+
     /**
      * Reference to factory singleton.
      */
@@ -102,6 +102,157 @@ public class GeolocationConfigurationImpl implements GeolocationConfiguration {
      */
     private String mIpGeolocationCityDatabaseFile;
 
+    /**
+     * Indicates whether obtained locations must be cached so that repeated
+     * lookups of the same IP address are served from memory without decoding
+     * the database again.
+     */
+    private boolean mResultCacheEnabled;
+
+    /**
+     * Maximum number of locations to be kept in the results cache. Once this
+     * size is reached, least recently used locations are evicted.
+     */
+    private int mResultCacheSize;
+
+    /**
+     * Amount of time expressed in milliseconds that locations are kept in the
+     * results cache. Zero or negative values indicate that cached locations
+     * never expire.
+     */
+    private long mResultCacheTimeToLive;
+
+    /**
+     * Indicates whether obtained locations must be cached per database record,
+     * so that all addresses belonging to the same network block share a single
+     * cache entry.
+     */
+    private boolean mNetworkCacheEnabled;
+
+    /**
+     * Maximum number of database records to be kept in the network cache. Once
+     * this size is reached, least recently used records are evicted.
+     */
+    private int mNetworkCacheSize;
+
+    /**
+     * Indicates whether private, reserved and unrouted addresses (i.e.
+     * 10.0.0.0/8, 192.168.0.0/16 or fc00::/7) must be reported as not found
+     * without accessing any database.
+     */
+    private boolean mReservedAddressesFilterEnabled;
+
+    /**
+     * Indicates whether addresses that could not be located must be cached so
+     * that repeated lookups of such addresses are answered without accessing
+     * the database again.
+     */
+    private boolean mNegativeCacheEnabled;
+
+    /**
+     * Maximum number of addresses to be kept in the negative cache. Once this
+     * size is reached, least recently used addresses are evicted.
+     */
+    private int mNegativeCacheSize;
+
+    /**
+     * Indicates whether host names provided to string based lookups must be
+     * resolved using DNS. When disabled, only IP address literals are
+     * accepted, so that string lookups never block on DNS queries.
+     */
+    private boolean mHostNameResolutionEnabled;
+
+    /**
+     * Number of threads used to execute asynchronous lookups when no executor
+     * has been provided. Zero or negative values indicate that as many threads
+     * as available processors are used.
+     */
+    private int mAsyncThreadPoolSize;
+
+    /**
+     * Indicates whether databases must be compiled into flat tables of IPv4
+     * address ranges when opened, so that IPv4 addresses are resolved with a
+     * binary search and locations are shared by all addresses pointing to the
+     * same database record.
+     */
+    private boolean mCompiledIpv4TableEnabled;
+
+    /**
+     * Indicates whether databases must be compiled into flat tables of IPv6
+     * address ranges when opened, so that IPv6 addresses are resolved using
+     * primitive comparisons instead of walking the search tree bit by bit.
+     */
+    private boolean mCompiledIpv6TableEnabled;
+
+    /**
+     * Indicates whether compiled IPv4 and IPv6 tables, and the locations
+     * stored in them, must be kept outside of the Java heap, so that they do not
+     * increase garbage collection pauses. When enabled, decoded database data
+     * is not cached on heap by database readers either.
+     */
+    private boolean mOffHeapStorageEnabled;
+
+    /**
+     * Indicates whether located addresses having identical data must share a
+     * single canonical location instance, along with the strings and
+     * subdivision lists it contains. It has no effect when compiled tables are
+     * stored off-heap.
+     */
+    private boolean mLocationInterningEnabled;
+
+    /**
+     * Comma separated list of language tags (i.e. en,es,pt-BR) of localized
+     * names to be loaded from databases for cities, subdivisions, countries
+     * and continents.
+     */
+    private String mNameLocales;
+
+    /**
+     * Indicates whether embedded databases must be loaded into memory directly
+     * from their resources instead of being copied into database files.
+     * Loading databases into memory avoids writing them into disk on startup,
+     * at the expense of keeping them within the Java heap.
+     */
+    private boolean mEmbeddedDatabaseLoadedInMemory;
+
+    /**
+     * Indicates whether database files copied from embedded resources must be
+     * kept when geolocation is closed. Kept files are reused on next startup
+     * as long as their contents match the embedded resources, and can be shared
+     * by several processes on the same host.
+     */
+    private boolean mEmbeddedDatabaseFileKeptOnClose;
+
+    /**
+     * Indicates whether database files must be watched, so that databases are
+     * reloaded without interrupting lookups when their files are replaced.
+     */
+    private boolean mDatabaseWatchEnabled;
+
+    /**
+     * Indicates whether database records must be decoded directly into
+     * locations, instead of using Maxmind database readers.
+     * Decoding records directly avoids creating intermediate responses and
+     * hence most of the garbage produced by each lookup.
+     */
+    private boolean mDirectDecodingEnabled;
+
+    /**
+     * Indicates whether memory mapped database files must be loaded into
+     * physical memory when databases are opened.
+     * Loading database files avoids page faults during the first lookups made
+     * after databases are opened or reloaded.
+     */
+    private boolean mDatabasePreloadEnabled;
+
+    /**
+     * Indicates whether search trees of databases must be walked when
+     * databases are opened.
+     * Walking search trees touches all tree nodes and the records they point
+     * to, so that they are resident in memory before the first lookups.
+     */
+    private boolean mDatabaseTreeWalkEnabled;
+
     /**
      * Constructor.
      */
@@ -123,6 +274,48 @@ public class GeolocationConfigurationImpl implements GeolocationConfiguration {
                 DEFAULT_IP_GEOLOCATION_CITY_EMBEDDED_RESOURCE;
         mIpGeolocationCityDatabaseFile = GeolocationConfigurationFactory.
                 DEFAULT_IP_GEOLOCATION_CITY_DATABASE_FILE;
+        mResultCacheEnabled = GeolocationConfigurationFactory.
+                DEFAULT_RESULT_CACHE_ENABLED;
+        mResultCacheSize = GeolocationConfigurationFactory.
+                DEFAULT_RESULT_CACHE_SIZE;
+        mResultCacheTimeToLive = GeolocationConfigurationFactory.
+                DEFAULT_RESULT_CACHE_TIME_TO_LIVE;
+        mNetworkCacheEnabled = GeolocationConfigurationFactory.
+                DEFAULT_NETWORK_CACHE_ENABLED;
+        mNetworkCacheSize = GeolocationConfigurationFactory.
+                DEFAULT_NETWORK_CACHE_SIZE;
+        mReservedAddressesFilterEnabled = GeolocationConfigurationFactory.
+                DEFAULT_RESERVED_ADDRESSES_FILTER_ENABLED;
+        mNegativeCacheEnabled = GeolocationConfigurationFactory.
+                DEFAULT_NEGATIVE_CACHE_ENABLED;
+        mNegativeCacheSize = GeolocationConfigurationFactory.
+                DEFAULT_NEGATIVE_CACHE_SIZE;
+        mHostNameResolutionEnabled = GeolocationConfigurationFactory.
+                DEFAULT_HOST_NAME_RESOLUTION_ENABLED;
+        mAsyncThreadPoolSize = GeolocationConfigurationFactory.
+                DEFAULT_ASYNC_THREAD_POOL_SIZE;
+        mCompiledIpv4TableEnabled = GeolocationConfigurationFactory.
+                DEFAULT_COMPILED_IPV4_TABLE_ENABLED;
+        mCompiledIpv6TableEnabled = GeolocationConfigurationFactory.
+                DEFAULT_COMPILED_IPV6_TABLE_ENABLED;
+        mOffHeapStorageEnabled = GeolocationConfigurationFactory.
+                DEFAULT_OFF_HEAP_STORAGE_ENABLED;
+        mLocationInterningEnabled = GeolocationConfigurationFactory.
+                DEFAULT_LOCATION_INTERNING_ENABLED;
+        mNameLocales = GeolocationConfigurationFactory.
+                DEFAULT_NAME_LOCALES;
+        mEmbeddedDatabaseLoadedInMemory = GeolocationConfigurationFactory.
+                DEFAULT_EMBEDDED_DATABASE_LOADED_IN_MEMORY;
+        mEmbeddedDatabaseFileKeptOnClose = GeolocationConfigurationFactory.
+                DEFAULT_EMBEDDED_DATABASE_FILE_KEPT_ON_CLOSE;
+        mDatabaseWatchEnabled = GeolocationConfigurationFactory.
+                DEFAULT_DATABASE_WATCH_ENABLED;
+        mDirectDecodingEnabled = GeolocationConfigurationFactory.
+                DEFAULT_DIRECT_DECODING_ENABLED;
+        mDatabasePreloadEnabled = GeolocationConfigurationFactory.
+                DEFAULT_DATABASE_PRELOAD_ENABLED;
+        mDatabaseTreeWalkEnabled = GeolocationConfigurationFactory.
+                DEFAULT_DATABASE_TREE_WALK_ENABLED;
     }
 
     /**
@@ -260,6 +453,270 @@ public class GeolocationConfigurationImpl implements GeolocationConfiguration {
         return mIpGeolocationCityDatabaseFile;
     }
 
+    /**
+     * Indicates whether obtained locations must be cached so that repeated
+     * lookups of the same IP address are served from memory without decoding
+     * the database again.
+     *
+     * @return true if results of lookups must be cached, false otherwise.
+     */
+    @Override
+    public boolean isResultCacheEnabled() {
+        return mResultCacheEnabled;
+    }
+
+    /**
+     * Maximum number of locations to be kept in the results cache. Once this
+     * size is reached, least recently used locations are evicted.
+     *
+     * @return maximum number of locations to be kept in the results cache.
+     */
+    @Override
+    public int getResultCacheSize() {
+        return mResultCacheSize;
+    }
+
+    /**
+     * Amount of time expressed in milliseconds that locations are kept in the
+     * results cache. Zero or negative values indicate that cached locations
+     * never expire.
+     *
+     * @return amount of time expressed in milliseconds that locations are
+     * kept in the results cache.
+     */
+    @Override
+    public long getResultCacheTimeToLive() {
+        return mResultCacheTimeToLive;
+    }
+
+    /**
+     * Indicates whether obtained locations must be cached per database record,
+     * so that all addresses belonging to the same network block share a single
+     * cache entry.
+     *
+     * @return true if locations must be cached per database record, false
+     * otherwise.
+     */
+    @Override
+    public boolean isNetworkCacheEnabled() {
+        return mNetworkCacheEnabled;
+    }
+
+    /**
+     * Maximum number of database records to be kept in the network cache. Once
+     * this size is reached, least recently used records are evicted.
+     *
+     * @return maximum number of database records to be kept in the network cache.
+     */
+    @Override
+    public int getNetworkCacheSize() {
+        return mNetworkCacheSize;
+    }
+
+    /**
+     * Indicates whether private, reserved and unrouted addresses (i.e.
+     * 10.0.0.0/8, 192.168.0.0/16 or fc00::/7) must be reported as not found
+     * without accessing any database.
+     *
+     * @return true if reserved addresses are not looked up, false otherwise.
+     */
+    @Override
+    public boolean isReservedAddressesFilterEnabled() {
+        return mReservedAddressesFilterEnabled;
+    }
+
+    /**
+     * Indicates whether addresses that could not be located must be cached so
+     * that repeated lookups of such addresses are answered without accessing
+     * the database again.
+     *
+     * @return true if addresses that could not be located must be cached, false
+     * otherwise.
+     */
+    @Override
+    public boolean isNegativeCacheEnabled() {
+        return mNegativeCacheEnabled;
+    }
+
+    /**
+     * Maximum number of addresses to be kept in the negative cache. Once this
+     * size is reached, least recently used addresses are evicted.
+     *
+     * @return maximum number of addresses to be kept in the negative cache.
+     */
+    @Override
+    public int getNegativeCacheSize() {
+        return mNegativeCacheSize;
+    }
+
+    /**
+     * Indicates whether host names provided to string based lookups must be
+     * resolved using DNS. When disabled, only IP address literals are
+     * accepted, so that string lookups never block on DNS queries.
+     *
+     * @return true if host names must be resolved, false otherwise.
+     */
+    @Override
+    public boolean isHostNameResolutionEnabled() {
+        return mHostNameResolutionEnabled;
+    }
+
+    /**
+     * Number of threads used to execute asynchronous lookups when no executor
+     * has been provided. Zero or negative values indicate that as many threads
+     * as available processors are used.
+     *
+     * @return number of threads used to execute asynchronous lookups.
+     */
+    @Override
+    public int getAsyncThreadPoolSize() {
+        return mAsyncThreadPoolSize;
+    }
+
+    /**
+     * Indicates whether databases must be compiled into flat tables of IPv4
+     * address ranges when opened, so that IPv4 addresses are resolved with a
+     * binary search and locations are shared by all addresses pointing to the
+     * same database record.
+     *
+     * @return true if IPv4 tables must be compiled, false otherwise.
+     */
+    @Override
+    public boolean isCompiledIpv4TableEnabled() {
+        return mCompiledIpv4TableEnabled;
+    }
+
+    /**
+     * Indicates whether databases must be compiled into flat tables of IPv6
+     * address ranges when opened, so that IPv6 addresses are resolved using
+     * primitive comparisons instead of walking the search tree bit by bit.
+     *
+     * @return true if IPv6 tables must be compiled, false otherwise.
+     */
+    @Override
+    public boolean isCompiledIpv6TableEnabled() {
+        return mCompiledIpv6TableEnabled;
+    }
+
+    /**
+     * Indicates whether compiled IPv4 and IPv6 tables, and the locations
+     * stored in them, must be kept outside of the Java heap, so that they do not
+     * increase garbage collection pauses. When enabled, decoded database data
+     * is not cached on heap by database readers either.
+     *
+     * @return true if compiled tables must be stored off-heap, false otherwise.
+     */
+    @Override
+    public boolean isOffHeapStorageEnabled() {
+        return mOffHeapStorageEnabled;
+    }
+
+    /**
+     * Indicates whether located addresses having identical data must share a
+     * single canonical location instance, along with the strings and
+     * subdivision lists it contains. It has no effect when compiled tables are
+     * stored off-heap.
+     *
+     * @return true if locations must be interned, false otherwise.
+     */
+    @Override
+    public boolean isLocationInterningEnabled() {
+        return mLocationInterningEnabled;
+    }
+
+    /**
+     * Gets comma separated list of language tags (i.e. en,es,pt-BR) of
+     * localized names to be loaded from databases for cities, subdivisions,
+     * countries and continents. Localized names are stored once for each
+     * location, so that they can be requested in any of these locales without
+     * further database accesses.
+     *
+     * @return comma separated list of language tags or null if no localized
+     * names must be loaded.
+     */
+    @Override
+    public String getNameLocales() {
+        return mNameLocales;
+    }
+
+    /**
+     * Indicates whether embedded databases must be loaded into memory directly
+     * from their resources instead of being copied into database files.
+     * Loading databases into memory avoids writing them into disk on startup,
+     * at the expense of keeping them within the Java heap.
+     *
+     * @return true if embedded databases must be loaded into memory, false otherwise.
+     */
+    @Override
+    public boolean isEmbeddedDatabaseLoadedInMemory() {
+        return mEmbeddedDatabaseLoadedInMemory;
+    }
+
+    /**
+     * Indicates whether database files copied from embedded resources must be
+     * kept when geolocation is closed. Kept files are reused on next startup
+     * as long as their contents match the embedded resources, and can be shared
+     * by several processes on the same host.
+     *
+     * @return true if database files must be kept, false otherwise.
+     */
+    @Override
+    public boolean isEmbeddedDatabaseFileKeptOnClose() {
+        return mEmbeddedDatabaseFileKeptOnClose;
+    }
+
+    /**
+     * Indicates whether database files must be watched, so that databases are
+     * reloaded without interrupting lookups when their files are replaced.
+     *
+     * @return true if database files must be watched, false otherwise.
+     */
+    @Override
+    public boolean isDatabaseWatchEnabled() {
+        return mDatabaseWatchEnabled;
+    }
+
+    /**
+     * Indicates whether database records must be decoded directly into
+     * locations, instead of using Maxmind database readers.
+     * Decoding records directly avoids creating intermediate responses and
+     * hence most of the garbage produced by each lookup.
+     *
+     * @return true if database records must be decoded directly, false
+     * otherwise.
+     */
+    @Override
+    public boolean isDirectDecodingEnabled() {
+        return mDirectDecodingEnabled;
+    }
+
+    /**
+     * Indicates whether memory mapped database files must be loaded into
+     * physical memory when databases are opened.
+     * Loading database files avoids page faults during the first lookups made
+     * after databases are opened or reloaded.
+     *
+     * @return true if database files must be loaded when opened, false
+     * otherwise.
+     */
+    @Override
+    public boolean isDatabasePreloadEnabled() {
+        return mDatabasePreloadEnabled;
+    }
+
+    /**
+     * Indicates whether search trees of databases must be walked when
+     * databases are opened.
+     * Walking search trees touches all tree nodes and the records they point
+     * to, so that they are resident in memory before the first lookups.
+     *
+     * @return true if search trees must be walked when opened, false otherwise.
+     */
+    @Override
+    public boolean isDatabaseTreeWalkEnabled() {
+        return mDatabaseTreeWalkEnabled;
+    }
+
     /**
      * Loads configuration from provided properties.
      *
@@ -312,6 +769,91 @@ public class GeolocationConfigurationImpl implements GeolocationConfiguration {
                             IP_GEOLOCATION_CITY_DATABASE_FILE_PROPERTY,
                     GeolocationConfigurationFactory.
                             DEFAULT_IP_GEOLOCATION_CITY_DATABASE_FILE);
+            mResultCacheEnabled = Boolean.parseBoolean(properties.getProperty(
+                    GeolocationConfigurationFactory.RESULT_CACHE_ENABLED_PROPERTY,
+                    Boolean.toString(GeolocationConfigurationFactory.
+                            DEFAULT_RESULT_CACHE_ENABLED)));
+            mResultCacheSize = Integer.parseInt(properties.getProperty(
+                    GeolocationConfigurationFactory.RESULT_CACHE_SIZE_PROPERTY,
+                    Integer.toString(GeolocationConfigurationFactory.
+                            DEFAULT_RESULT_CACHE_SIZE)));
+            mResultCacheTimeToLive = Long.parseLong(properties.getProperty(
+                    GeolocationConfigurationFactory.RESULT_CACHE_TIME_TO_LIVE_PROPERTY,
+                    Long.toString(GeolocationConfigurationFactory.
+                            DEFAULT_RESULT_CACHE_TIME_TO_LIVE)));
+            mNetworkCacheEnabled = Boolean.parseBoolean(properties.getProperty(
+                    GeolocationConfigurationFactory.NETWORK_CACHE_ENABLED_PROPERTY,
+                    Boolean.toString(GeolocationConfigurationFactory.
+                            DEFAULT_NETWORK_CACHE_ENABLED)));
+            mNetworkCacheSize = Integer.parseInt(properties.getProperty(
+                    GeolocationConfigurationFactory.NETWORK_CACHE_SIZE_PROPERTY,
+                    Integer.toString(GeolocationConfigurationFactory.
+                            DEFAULT_NETWORK_CACHE_SIZE)));
+            mReservedAddressesFilterEnabled = Boolean.parseBoolean(properties.getProperty(
+                    GeolocationConfigurationFactory.RESERVED_ADDRESSES_FILTER_ENABLED_PROPERTY,
+                    Boolean.toString(GeolocationConfigurationFactory.
+                            DEFAULT_RESERVED_ADDRESSES_FILTER_ENABLED)));
+            mNegativeCacheEnabled = Boolean.parseBoolean(properties.getProperty(
+                    GeolocationConfigurationFactory.NEGATIVE_CACHE_ENABLED_PROPERTY,
+                    Boolean.toString(GeolocationConfigurationFactory.
+                            DEFAULT_NEGATIVE_CACHE_ENABLED)));
+            mNegativeCacheSize = Integer.parseInt(properties.getProperty(
+                    GeolocationConfigurationFactory.NEGATIVE_CACHE_SIZE_PROPERTY,
+                    Integer.toString(GeolocationConfigurationFactory.
+                            DEFAULT_NEGATIVE_CACHE_SIZE)));
+            mHostNameResolutionEnabled = Boolean.parseBoolean(properties.getProperty(
+                    GeolocationConfigurationFactory.HOST_NAME_RESOLUTION_ENABLED_PROPERTY,
+                    Boolean.toString(GeolocationConfigurationFactory.
+                            DEFAULT_HOST_NAME_RESOLUTION_ENABLED)));
+            mAsyncThreadPoolSize = Integer.parseInt(properties.getProperty(
+                    GeolocationConfigurationFactory.ASYNC_THREAD_POOL_SIZE_PROPERTY,
+                    Integer.toString(GeolocationConfigurationFactory.
+                            DEFAULT_ASYNC_THREAD_POOL_SIZE)));
+            mCompiledIpv4TableEnabled = Boolean.parseBoolean(properties.getProperty(
+                    GeolocationConfigurationFactory.COMPILED_IPV4_TABLE_ENABLED_PROPERTY,
+                    Boolean.toString(GeolocationConfigurationFactory.
+                            DEFAULT_COMPILED_IPV4_TABLE_ENABLED)));
+            mCompiledIpv6TableEnabled = Boolean.parseBoolean(properties.getProperty(
+                    GeolocationConfigurationFactory.COMPILED_IPV6_TABLE_ENABLED_PROPERTY,
+                    Boolean.toString(GeolocationConfigurationFactory.
+                            DEFAULT_COMPILED_IPV6_TABLE_ENABLED)));
+            mOffHeapStorageEnabled = Boolean.parseBoolean(properties.getProperty(
+                    GeolocationConfigurationFactory.OFF_HEAP_STORAGE_ENABLED_PROPERTY,
+                    Boolean.toString(GeolocationConfigurationFactory.
+                            DEFAULT_OFF_HEAP_STORAGE_ENABLED)));
+            mLocationInterningEnabled = Boolean.parseBoolean(properties.getProperty(
+                    GeolocationConfigurationFactory.LOCATION_INTERNING_ENABLED_PROPERTY,
+                    Boolean.toString(GeolocationConfigurationFactory.
+                            DEFAULT_LOCATION_INTERNING_ENABLED)));
+            mNameLocales = properties.getProperty(
+                    GeolocationConfigurationFactory.
+                            NAME_LOCALES_PROPERTY,
+                    GeolocationConfigurationFactory.
+                            DEFAULT_NAME_LOCALES);
+            mEmbeddedDatabaseLoadedInMemory = Boolean.parseBoolean(properties.getProperty(
+                    GeolocationConfigurationFactory.EMBEDDED_DATABASE_LOADED_IN_MEMORY_PROPERTY,
+                    Boolean.toString(GeolocationConfigurationFactory.
+                            DEFAULT_EMBEDDED_DATABASE_LOADED_IN_MEMORY)));
+            mEmbeddedDatabaseFileKeptOnClose = Boolean.parseBoolean(properties.getProperty(
+                    GeolocationConfigurationFactory.EMBEDDED_DATABASE_FILE_KEPT_ON_CLOSE_PROPERTY,
+                    Boolean.toString(GeolocationConfigurationFactory.
+                            DEFAULT_EMBEDDED_DATABASE_FILE_KEPT_ON_CLOSE)));
+            mDatabaseWatchEnabled = Boolean.parseBoolean(properties.getProperty(
+                    GeolocationConfigurationFactory.DATABASE_WATCH_ENABLED_PROPERTY,
+                    Boolean.toString(GeolocationConfigurationFactory.
+                            DEFAULT_DATABASE_WATCH_ENABLED)));
+            mDirectDecodingEnabled = Boolean.parseBoolean(properties.getProperty(
+                    GeolocationConfigurationFactory.DIRECT_DECODING_ENABLED_PROPERTY,
+                    Boolean.toString(GeolocationConfigurationFactory.
+                            DEFAULT_DIRECT_DECODING_ENABLED)));
+            mDatabasePreloadEnabled = Boolean.parseBoolean(properties.getProperty(
+                    GeolocationConfigurationFactory.DATABASE_PRELOAD_ENABLED_PROPERTY,
+                    Boolean.toString(GeolocationConfigurationFactory.
+                            DEFAULT_DATABASE_PRELOAD_ENABLED)));
+            mDatabaseTreeWalkEnabled = Boolean.parseBoolean(properties.getProperty(
+                    GeolocationConfigurationFactory.DATABASE_TREE_WALK_ENABLED_PROPERTY,
+                    Boolean.toString(GeolocationConfigurationFactory.
+                            DEFAULT_DATABASE_TREE_WALK_ENABLED)));
         } catch (final Exception e) {
             throw new ConfigurationException(e);
         }
@@ -359,6 +901,87 @@ public class GeolocationConfigurationImpl implements GeolocationConfiguration {
                     mIpGeolocationCityDatabaseFile);
         }
 
+        properties.setProperty(GeolocationConfigurationFactory.
+                        RESULT_CACHE_ENABLED_PROPERTY,
+                Boolean.toString(mResultCacheEnabled));
+        properties.setProperty(GeolocationConfigurationFactory.
+                        RESULT_CACHE_SIZE_PROPERTY,
+                Integer.toString(mResultCacheSize));
+        properties.setProperty(GeolocationConfigurationFactory.
+                        RESULT_CACHE_TIME_TO_LIVE_PROPERTY,
+                Long.toString(mResultCacheTimeToLive));
+
+        properties.setProperty(GeolocationConfigurationFactory.
+                        NETWORK_CACHE_ENABLED_PROPERTY,
+                Boolean.toString(mNetworkCacheEnabled));
+        properties.setProperty(GeolocationConfigurationFactory.
+                        NETWORK_CACHE_SIZE_PROPERTY,
+                Integer.toString(mNetworkCacheSize));
+
+        properties.setProperty(GeolocationConfigurationFactory.
+                        RESERVED_ADDRESSES_FILTER_ENABLED_PROPERTY,
+                Boolean.toString(mReservedAddressesFilterEnabled));
+        properties.setProperty(GeolocationConfigurationFactory.
+                        NEGATIVE_CACHE_ENABLED_PROPERTY,
+                Boolean.toString(mNegativeCacheEnabled));
+        properties.setProperty(GeolocationConfigurationFactory.
+                        NEGATIVE_CACHE_SIZE_PROPERTY,
+                Integer.toString(mNegativeCacheSize));
+
+        properties.setProperty(GeolocationConfigurationFactory.
+                        HOST_NAME_RESOLUTION_ENABLED_PROPERTY,
+                Boolean.toString(mHostNameResolutionEnabled));
+
+        properties.setProperty(GeolocationConfigurationFactory.
+                        ASYNC_THREAD_POOL_SIZE_PROPERTY,
+                Integer.toString(mAsyncThreadPoolSize));
+
+        properties.setProperty(GeolocationConfigurationFactory.
+                        COMPILED_IPV4_TABLE_ENABLED_PROPERTY,
+                Boolean.toString(mCompiledIpv4TableEnabled));
+
+        properties.setProperty(GeolocationConfigurationFactory.
+                        COMPILED_IPV6_TABLE_ENABLED_PROPERTY,
+                Boolean.toString(mCompiledIpv6TableEnabled));
+
+        properties.setProperty(GeolocationConfigurationFactory.
+                        OFF_HEAP_STORAGE_ENABLED_PROPERTY,
+                Boolean.toString(mOffHeapStorageEnabled));
+
+        properties.setProperty(GeolocationConfigurationFactory.
+                        LOCATION_INTERNING_ENABLED_PROPERTY,
+                Boolean.toString(mLocationInterningEnabled));
+
+        if (mNameLocales != null) {
+            properties.setProperty(GeolocationConfigurationFactory.
+                            NAME_LOCALES_PROPERTY,
+                    mNameLocales);
+        }
+
+        properties.setProperty(GeolocationConfigurationFactory.
+                        EMBEDDED_DATABASE_LOADED_IN_MEMORY_PROPERTY,
+                Boolean.toString(mEmbeddedDatabaseLoadedInMemory));
+
+        properties.setProperty(GeolocationConfigurationFactory.
+                        EMBEDDED_DATABASE_FILE_KEPT_ON_CLOSE_PROPERTY,
+                Boolean.toString(mEmbeddedDatabaseFileKeptOnClose));
+
+        properties.setProperty(GeolocationConfigurationFactory.
+                        DATABASE_WATCH_ENABLED_PROPERTY,
+                Boolean.toString(mDatabaseWatchEnabled));
+
+        properties.setProperty(GeolocationConfigurationFactory.
+                        DIRECT_DECODING_ENABLED_PROPERTY,
+                Boolean.toString(mDirectDecodingEnabled));
+
+        properties.setProperty(GeolocationConfigurationFactory.
+                        DATABASE_PRELOAD_ENABLED_PROPERTY,
+                Boolean.toString(mDatabasePreloadEnabled));
+
+        properties.setProperty(GeolocationConfigurationFactory.
+                        DATABASE_TREE_WALK_ENABLED_PROPERTY,
+                Boolean.toString(mDatabaseTreeWalkEnabled));
+
         return properties;
     }
 
@@ -0,0 +1,329 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+
+/**
+ * Parses textual representations of IPv4 and IPv6 addresses without ever
+ * performing any DNS lookup.
+ * Unlike {@link InetAddress#getByName(String)}, strings that are not IP
+ * literals (i.e. host names or malformed values taken from HTTP headers) are
+ * rejected immediately, so that parsing has bounded latency.
+ * Supported formats are dotted-quad IPv4 addresses (i.e. 192.0.2.1), IPv6
+ * addresses with optional "::" compression (i.e. 2001:db8::1), IPv6 addresses
+ * with embedded IPv4 addresses (i.e. ::ffff:192.0.2.1), IPv6 zone IDs (i.e.
+ * fe80::1%1) and IPv6 addresses enclosed in brackets (i.e. [2001:db8::1]).
+ * Surrounding whitespace is ignored.
+ */
+final class IPAddressParser {
+
+    /**
+     * Length in bytes of IPv4 addresses.
+     */
+    private static final int IPV4_LENGTH = 4;
+
+    /**
+     * Length in bytes of IPv6 addresses.
+     */
+    private static final int IPV6_LENGTH = 16;
+
+    /**
+     * Number of 16 bit groups of IPv6 addresses.
+     */
+    private static final int IPV6_GROUPS = 8;
+
+    /**
+     * Maximum value of each IPv4 address byte.
+     */
+    private static final int MAX_IPV4_BYTE = 255;
+
+    /**
+     * Constructor.
+     * Prevents instantiation of utility class.
+     */
+    private IPAddressParser() {
+    }
+
+    /**
+     * Converts provided IPv4 address into an integer in network order.
+     * The hash code of IPv4 addresses is specified to be the address itself,
+     * hence it is used to avoid copying address bytes on every lookup.
+     *
+     * @param address IPv4 address to be converted.
+     * @return address expressed as an integer in network order.
+     */
+    static int toInt(final Inet4Address address) {
+        return address.hashCode();
+    }
+
+    /**
+     * Parses provided IP address literal.
+     * Non-numeric IPv6 zone IDs (i.e. interface names) are accepted but
+     * ignored, since resolving them is not required for geolocation.
+     *
+     * @param address textual representation of an IPv4 or IPv6 address.
+     * @return parsed address or null if provided value is not a valid IP
+     * address literal.
+     */
+    static InetAddress parse(final String address) {
+        if (address == null) {
+            return null;
+        }
+
+        int start = 0;
+        int end = address.length();
+        while (start < end && address.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && address.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (end - start >= 2 && address.charAt(start) == '[' &&
+                address.charAt(end - 1) == ']') {
+            start++;
+            end--;
+        }
+        if (start == end) {
+            return null;
+        }
+
+        int zone = -1;
+        boolean ipv6 = false;
+        for (int i = start; i < end; i++) {
+            final char c = address.charAt(i);
+            if (c == ':') {
+                ipv6 = true;
+            } else if (c == '%') {
+                zone = i;
+                break;
+            }
+        }
+
+        try {
+            if (!ipv6) {
+                if (zone >= 0) {
+                    return null;
+                }
+                final byte[] bytes = new byte[IPV4_LENGTH];
+                return parseIPv4(address, start, end, bytes, 0) ?
+                        InetAddress.getByAddress(bytes) : null;
+            }
+
+            final byte[] bytes = new byte[IPV6_LENGTH];
+            if (!parseIPv6(address, start, zone >= 0 ? zone : end, bytes)) {
+                return null;
+            }
+            if (zone >= 0) {
+                if (zone + 1 == end) {
+                    // empty zone ID
+                    return null;
+                }
+                final int scope = parseScope(address, zone + 1, end);
+                if (scope >= 0) {
+                    return Inet6Address.getByAddress(null, bytes, scope);
+                }
+            }
+
+            // IPv4-mapped addresses are converted into IPv4 addresses
+            return InetAddress.getByAddress(bytes);
+        } catch (final UnknownHostException e) {
+            // only thrown for invalid address lengths, which cannot happen
+            return null;
+        }
+    }
+
+    /**
+     * Parses a dotted-quad IPv4 address.
+     *
+     * @param s      string containing the address.
+     * @param start  position where address starts.
+     * @param end    position where address ends (exclusive).
+     * @param dst    array where address bytes are stored.
+     * @param offset position where first byte is stored.
+     * @return true if address is valid, false otherwise.
+     */
+    static boolean parseIPv4(final String s, final int start, final int end,
+                             final byte[] dst, final int offset) {
+        int i = start;
+        int part = 0;
+        while (true) {
+            int value = 0;
+            int digits = 0;
+            while (i < end) {
+                final char c = s.charAt(i);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                value = value * 10 + (c - '0');
+                if (++digits > 3) {
+                    return false;
+                }
+                i++;
+            }
+            if (digits == 0 || value > MAX_IPV4_BYTE) {
+                return false;
+            }
+
+            dst[offset + part++] = (byte) value;
+            if (i == end) {
+                return part == IPV4_LENGTH;
+            }
+            if (part == IPV4_LENGTH || s.charAt(i) != '.') {
+                return false;
+            }
+            i++;
+        }
+    }
+
+    /**
+     * Parses an IPv6 address without zone ID.
+     *
+     * @param s     string containing the address.
+     * @param start position where address starts.
+     * @param end   position where address ends (exclusive).
+     * @param dst   array of 16 bytes where address bytes are stored.
+     * @return true if address is valid, false otherwise.
+     */
+    static boolean parseIPv6(final String s, final int start, final int end,
+                             final byte[] dst) {
+        int i = start;
+        int groups = 0;
+        // group where "::" compression was found
+        int compression = -1;
+
+        if (i < end && s.charAt(i) == ':') {
+            if (i + 1 >= end || s.charAt(i + 1) != ':') {
+                return false;
+            }
+            compression = 0;
+            i += 2;
+        }
+
+        while (i < end) {
+            if (groups == IPV6_GROUPS) {
+                return false;
+            }
+
+            int j = i;
+            int value = 0;
+            while (j < end) {
+                final int digit = hexDigit(s.charAt(j));
+                if (digit < 0) {
+                    break;
+                }
+                value = (value << 4) | digit;
+                j++;
+            }
+
+            if (j < end && s.charAt(j) == '.') {
+                // embedded IPv4 address, which must be the last component
+                if (groups > IPV6_GROUPS - 2 ||
+                        !parseIPv4(s, i, end, dst, 2 * groups)) {
+                    return false;
+                }
+                groups += 2;
+                break;
+            }
+
+            final int digits = j - i;
+            if (digits == 0 || digits > 4) {
+                return false;
+            }
+            dst[2 * groups] = (byte) (value >>> 8);
+            dst[2 * groups + 1] = (byte) value;
+            groups++;
+
+            if (j == end) {
+                break;
+            }
+            if (s.charAt(j) != ':') {
+                return false;
+            }
+            j++;
+            if (j < end && s.charAt(j) == ':') {
+                if (compression >= 0) {
+                    return false;
+                }
+                compression = groups;
+                j++;
+            } else if (j == end) {
+                // trailing single colon
+                return false;
+            }
+            i = j;
+        }
+
+        if (compression < 0) {
+            return groups == IPV6_GROUPS;
+        }
+        if (groups == IPV6_GROUPS) {
+            // compression must represent at least one group
+            return false;
+        }
+
+        // move groups after compression to the end of the address
+        final int shift = IPV6_GROUPS - groups;
+        System.arraycopy(dst, 2 * compression, dst, 2 * (compression + shift),
+                2 * (groups - compression));
+        Arrays.fill(dst, 2 * compression, 2 * (compression + shift), (byte) 0);
+        return true;
+    }
+
+    /**
+     * Gets value of an ASCII hexadecimal digit.
+     *
+     * @param c character to be converted.
+     * @return value of digit or -1 if character is not a hexadecimal digit.
+     */
+    private static int hexDigit(final char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    /**
+     * Parses a numeric IPv6 zone ID.
+     *
+     * @param s     string containing the zone ID.
+     * @param start position where zone ID starts.
+     * @param end   position where zone ID ends (exclusive).
+     * @return parsed scope ID or -1 if zone ID is not numeric.
+     */
+    private static int parseScope(final String s, final int start,
+                                  final int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            final char c = s.charAt(i);
+            if (c < '0' || c > '9' || value > (Integer.MAX_VALUE - 9) / 10) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import java.io.Closeable;
+import java.net.InetAddress;
+import java.util.Collection;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Geolocates large batches of IP addresses concurrently.
+ * Batches are recursively partitioned and executed on a fork/join pool, so
+ * that lookups run concurrently against the database readers shared by the
+ * underlying {@link IPGeolocator}, and throughput scales with the number of
+ * available cores.
+ * Submitted jobs expose their progress and throughput while being executed.
+ */
+public class IPBatchGeolocator implements Closeable {
+
+    /**
+     * Default number of addresses below which batches are not partitioned
+     * anymore.
+     */
+    public static final int DEFAULT_PARTITION_SIZE = 1024;
+
+    /**
+     * Geolocator used to look up addresses.
+     */
+    private final IPGeolocator mLocator;
+
+    /**
+     * Pool executing lookups.
+     */
+    private final ForkJoinPool mPool;
+
+    /**
+     * Indicates whether pool was created by this instance and must be shut
+     * down when closed.
+     */
+    private final boolean mOwnsPool;
+
+    /**
+     * Number of addresses below which batches are not partitioned anymore.
+     */
+    private final int mPartitionSize;
+
+    /**
+     * Constructor.
+     * Creates a pool having as many threads as available processors.
+     *
+     * @param locator geolocator used to look up addresses.
+     */
+    public IPBatchGeolocator(final IPGeolocator locator) {
+        this(locator, Runtime.getRuntime().availableProcessors(),
+                DEFAULT_PARTITION_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param locator       geolocator used to look up addresses.
+     * @param parallelism   number of threads used to look up addresses.
+     * @param partitionSize number of addresses below which batches are not
+     *                      partitioned anymore.
+     * @throws IllegalArgumentException if parallelism or partition size are
+     *                                  less than 1.
+     */
+    public IPBatchGeolocator(final IPGeolocator locator, final int parallelism,
+                             final int partitionSize) {
+        this(locator, new ForkJoinPool(parallelism), partitionSize, true);
+    }
+
+    /**
+     * Constructor.
+     * Provided pool is not shut down when this instance is closed.
+     *
+     * @param locator       geolocator used to look up addresses.
+     * @param pool          pool executing lookups.
+     * @param partitionSize number of addresses below which batches are not
+     *                      partitioned anymore.
+     * @throws IllegalArgumentException if partition size is less than 1.
+     */
+    public IPBatchGeolocator(final IPGeolocator locator, final ForkJoinPool pool,
+                             final int partitionSize) {
+        this(locator, pool, partitionSize, false);
+    }
+
+    /**
+     * Internal constructor.
+     *
+     * @param locator       geolocator used to look up addresses.
+     * @param pool          pool executing lookups.
+     * @param partitionSize number of addresses below which batches are not
+     *                      partitioned anymore.
+     * @param ownsPool      true if pool must be shut down when closed.
+     * @throws IllegalArgumentException if partition size is less than 1.
+     */
+    private IPBatchGeolocator(final IPGeolocator locator,
+                              final ForkJoinPool pool, final int partitionSize,
+                              final boolean ownsPool) {
+        if (locator == null || pool == null) {
+            throw new NullPointerException();
+        }
+        if (partitionSize < 1) {
+            if (ownsPool) {
+                pool.shutdown();
+            }
+            throw new IllegalArgumentException();
+        }
+        mLocator = locator;
+        mPool = pool;
+        mPartitionSize = partitionSize;
+        mOwnsPool = ownsPool;
+    }
+
+    /**
+     * Gets number of threads used to look up addresses.
+     *
+     * @return number of threads.
+     */
+    public int getParallelism() {
+        return mPool.getParallelism();
+    }
+
+    /**
+     * Gets number of addresses below which batches are not partitioned
+     * anymore.
+     *
+     * @return partition size.
+     */
+    public int getPartitionSize() {
+        return mPartitionSize;
+    }
+
+    /**
+     * Submits a batch of IP addresses to be geolocated concurrently.
+     *
+     * @param addresses IP addresses to evaluate. Array must not be modified
+     *                  while job is being executed.
+     * @param level     level of accuracy of geolocation.
+     * @return job geolocating provided addresses.
+     * @throws IPGeolocationDisabledException if IP geolocation is disabled or
+     *                                        was not properly configured.
+     */
+    public IPBatchJob submit(final InetAddress[] addresses,
+                             final IPGeolocationLevel level)
+            throws IPGeolocationDisabledException {
+        if (!mLocator.isEnabled() || level == IPGeolocationLevel.DISABLED) {
+            throw IPGeolocator.DISABLED_EXCEPTION;
+        }
+
+        final IPBatchJob.Progress progress = new IPBatchJob.Progress(
+                new IPLocation[addresses.length]);
+        final BatchTask task = new BatchTask(progress, addresses, level);
+        return new IPBatchJob(progress, mPool.submit(task));
+    }
+
+    /**
+     * Submits a batch of IP addresses to be geolocated concurrently.
+     *
+     * @param addresses IP addresses to evaluate.
+     * @param level     level of accuracy of geolocation.
+     * @return job geolocating provided addresses.
+     * @throws IPGeolocationDisabledException if IP geolocation is disabled or
+     *                                        was not properly configured.
+     */
+    public IPBatchJob submit(final Collection<InetAddress> addresses,
+                             final IPGeolocationLevel level)
+            throws IPGeolocationDisabledException {
+        return submit(addresses.toArray(new InetAddress[addresses.size()]),
+                level);
+    }
+
+    /**
+     * Geolocates a batch of IP addresses concurrently and waits until all of
+     * them have been processed.
+     *
+     * @param addresses IP addresses to evaluate.
+     * @param level     level of accuracy of geolocation.
+     * @return locations of IP addresses in input order, having null values
+     * for addresses that couldn't be geolocated.
+     * @throws IPGeolocationDisabledException if IP geolocation is disabled or
+     *                                        was not properly configured.
+     * @throws InterruptedException           if current thread was
+     *                                        interrupted while waiting.
+     */
+    public IPLocation[] locateAll(final InetAddress[] addresses,
+                                  final IPGeolocationLevel level)
+            throws IPGeolocationDisabledException, InterruptedException {
+        try {
+            return submit(addresses, level).get();
+        } catch (final ExecutionException e) {
+            // lookups never throw checked exceptions
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Closes this instance and shuts down its pool if it was created by this
+     * instance. Jobs already submitted are completed.
+     */
+    @Override
+    public void close() {
+        if (mOwnsPool) {
+            mPool.shutdown();
+        }
+    }
+
+    /**
+     * Task geolocating a whole batch and notifying its completion.
+     */
+    private class BatchTask extends RecursiveAction {
+
+        /**
+         * Progress of job being executed.
+         */
+        private final IPBatchJob.Progress mProgress;
+
+        /**
+         * Addresses of the batch.
+         */
+        private final InetAddress[] mAddresses;
+
+        /**
+         * Level of accuracy of geolocation.
+         */
+        private final IPGeolocationLevel mLevel;
+
+        /**
+         * Constructor.
+         *
+         * @param progress  progress of job being executed.
+         * @param addresses addresses of the batch.
+         * @param level     level of accuracy of geolocation.
+         */
+        BatchTask(final IPBatchJob.Progress progress,
+                  final InetAddress[] addresses,
+                  final IPGeolocationLevel level) {
+            mProgress = progress;
+            mAddresses = addresses;
+            mLevel = level;
+        }
+
+        /**
+         * Geolocates all addresses of the batch and records the time when
+         * the batch finished, even if it is empty or fails.
+         */
+        @Override
+        protected void compute() {
+            try {
+                new LocateTask(mProgress, mAddresses, mLevel, 0,
+                        mAddresses.length).invoke();
+            } finally {
+                mProgress.finish();
+            }
+        }
+    }
+
+    /**
+     * Task geolocating a range of addresses of a batch.
+     */
+    private class LocateTask extends RecursiveAction {
+
+        /**
+         * Progress of job being executed.
+         */
+        private final IPBatchJob.Progress mProgress;
+
+        /**
+         * Addresses of the batch.
+         */
+        private final InetAddress[] mAddresses;
+
+        /**
+         * Level of accuracy of geolocation.
+         */
+        private final IPGeolocationLevel mLevel;
+
+        /**
+         * Position of first address of range (inclusive).
+         */
+        private final int mFrom;
+
+        /**
+         * Position of last address of range (exclusive).
+         */
+        private final int mTo;
+
+        /**
+         * Constructor.
+         *
+         * @param progress  progress of job being executed.
+         * @param addresses addresses of the batch.
+         * @param level     level of accuracy of geolocation.
+         * @param from      position of first address of range (inclusive).
+         * @param to        position of last address of range (exclusive).
+         */
+        LocateTask(final IPBatchJob.Progress progress,
+                   final InetAddress[] addresses,
+                   final IPGeolocationLevel level, final int from,
+                   final int to) {
+            mProgress = progress;
+            mAddresses = addresses;
+            mLevel = level;
+            mFrom = from;
+            mTo = to;
+        }
+
+        /**
+         * Geolocates range of addresses, partitioning it if it is too large.
+         */
+        @Override
+        protected void compute() {
+            if (mTo - mFrom <= mPartitionSize) {
+                final IPLocation[] results = mProgress.getResults();
+                for (int i = mFrom; i < mTo; i++) {
+                    final InetAddress address = mAddresses[i];
+                    if (address != null) {
+                        results[i] = mLocator.tryLocate(address, mLevel);
+                    }
+                }
+                mProgress.addProcessed(mTo - mFrom);
+            } else {
+                final int middle = (mFrom + mTo) >>> 1;
+                invokeAll(new LocateTask(mProgress, mAddresses, mLevel, mFrom,
+                                middle),
+                        new LocateTask(mProgress, mAddresses, mLevel, middle,
+                                mTo));
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Batch geolocation job being executed by an {@link IPBatchGeolocator}.
+ * Jobs expose their progress and throughput while being executed, and their
+ * results once they complete. Results are returned in the same order as
+ * provided addresses, having null values for addresses that couldn't be
+ * geolocated.
+ */
+public class IPBatchJob implements Future<IPLocation[]> {
+
+    /**
+     * Number of nanoseconds per millisecond.
+     */
+    private static final long NANOS_PER_MILLISECOND = 1000000L;
+
+    /**
+     * Number of milliseconds per second.
+     */
+    private static final double MILLISECONDS_PER_SECOND = 1000.0;
+
+    /**
+     * Progress of this job, updated by the task executing it.
+     */
+    private final Progress mProgress;
+
+    /**
+     * Future of task executing this job.
+     */
+    private final Future<?> mFuture;
+
+    /**
+     * Constructor.
+     *
+     * @param progress progress updated by the task executing this job.
+     * @param future   future of task executing this job.
+     */
+    IPBatchJob(final Progress progress, final Future<?> future) {
+        mProgress = progress;
+        mFuture = future;
+    }
+
+    /**
+     * Gets total number of addresses to be geolocated.
+     *
+     * @return total number of addresses.
+     */
+    public int getTotalCount() {
+        return mProgress.getResults().length;
+    }
+
+    /**
+     * Gets number of addresses already processed.
+     *
+     * @return number of processed addresses.
+     */
+    public long getProcessedCount() {
+        return mProgress.mProcessedCount.get();
+    }
+
+    /**
+     * Gets progress of this job as a value between 0.0 and 1.0.
+     *
+     * @return progress of this job.
+     */
+    public double getProgress() {
+        final int totalCount = mProgress.getResults().length;
+        return totalCount > 0 ? (double) mProgress.mProcessedCount.get() /
+                (double) totalCount : 1.0;
+    }
+
+    /**
+     * Gets amount of time expressed in milliseconds since this job started,
+     * or total execution time if job has already finished.
+     *
+     * @return elapsed time expressed in milliseconds.
+     */
+    public long getElapsedTime() {
+        final long endTime = mProgress.mEndTime;
+        final long now = endTime != 0 ? endTime : System.nanoTime();
+        return (now - mProgress.mStartTime) / NANOS_PER_MILLISECOND;
+    }
+
+    /**
+     * Gets average number of addresses processed per second.
+     *
+     * @return throughput expressed in addresses per second.
+     */
+    public double getThroughput() {
+        final long elapsed = getElapsedTime();
+        return elapsed > 0 ? mProgress.mProcessedCount.get() *
+                MILLISECONDS_PER_SECOND / elapsed : 0.0;
+    }
+
+    /**
+     * Attempts to cancel execution of this job.
+     *
+     * @param mayInterruptIfRunning true if threads executing this job should
+     *                              be interrupted.
+     * @return false if job could not be cancelled, true otherwise.
+     */
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+        final boolean cancelled = mFuture.cancel(mayInterruptIfRunning);
+        if (cancelled) {
+            // task might have been cancelled before starting
+            mProgress.finish();
+        }
+        return cancelled;
+    }
+
+    /**
+     * Indicates whether this job was cancelled before completing.
+     *
+     * @return true if job was cancelled, false otherwise.
+     */
+    @Override
+    public boolean isCancelled() {
+        return mFuture.isCancelled();
+    }
+
+    /**
+     * Indicates whether this job has completed.
+     *
+     * @return true if job has completed, false otherwise.
+     */
+    @Override
+    public boolean isDone() {
+        return mFuture.isDone();
+    }
+
+    /**
+     * Waits until this job completes and returns its results.
+     *
+     * @return locations of IP addresses in input order.
+     * @throws InterruptedException if current thread was interrupted while
+     *                              waiting.
+     * @throws ExecutionException   if job failed.
+     */
+    @Override
+    public IPLocation[] get() throws InterruptedException, ExecutionException {
+        mFuture.get();
+        return mProgress.getResults();
+    }
+
+    /**
+     * Waits at most provided amount of time until this job completes and
+     * returns its results.
+     *
+     * @param timeout maximum amount of time to wait.
+     * @param unit    unit of timeout.
+     * @return locations of IP addresses in input order.
+     * @throws InterruptedException if current thread was interrupted while
+     *                              waiting.
+     * @throws ExecutionException   if job failed.
+     * @throws TimeoutException     if job did not complete in time.
+     */
+    @Override
+    public IPLocation[] get(final long timeout, final TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        mFuture.get(timeout, unit);
+        return mProgress.getResults();
+    }
+
+    /**
+     * Progress of a batch job, shared between the job and the task executing
+     * it, so that the task can be created before the job.
+     */
+    static final class Progress {
+
+        /**
+         * Array where results are stored.
+         */
+        private final IPLocation[] mResults;
+
+        /**
+         * Number of addresses already processed.
+         */
+        private final AtomicLong mProcessedCount = new AtomicLong();
+
+        /**
+         * Timestamp expressed in nanoseconds when job started.
+         */
+        private final long mStartTime;
+
+        /**
+         * Timestamp expressed in nanoseconds when job finished, or zero if job
+         * has not finished yet.
+         */
+        private volatile long mEndTime;
+
+        /**
+         * Constructor.
+         *
+         * @param results array where results will be stored, which has the
+         *                same length as the number of addresses to be
+         *                geolocated.
+         */
+        Progress(final IPLocation[] results) {
+            mResults = results;
+            mStartTime = System.nanoTime();
+        }
+
+        /**
+         * Gets array where results are stored.
+         *
+         * @return array of results.
+         */
+        IPLocation[] getResults() {
+            return mResults;
+        }
+
+        /**
+         * Notifies that provided number of addresses have been processed.
+         *
+         * @param count number of processed addresses.
+         */
+        void addProcessed(final int count) {
+            mProcessedCount.addAndGet(count);
+        }
+
+        /**
+         * Notifies that job has finished, either because all addresses were
+         * processed, it failed or it was cancelled.
+         * Only the first notification is taken into account.
+         */
+        void finish() {
+            if (mEndTime == 0) {
+                mEndTime = System.nanoTime();
+            }
+        }
+    }
+}
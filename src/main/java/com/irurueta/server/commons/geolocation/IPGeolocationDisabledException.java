@@ -56,4 +56,21 @@ public class IPGeolocationDisabledException extends GeolocationException {
     public IPGeolocationDisabledException(final Throwable cause) {
         super(cause);
     }
+
+    /**
+     * Constructor with message, cause, suppression and stack trace settings.
+     *
+     * @param message            message describing the cause of the exception.
+     * @param cause              originating exception that caused this
+     *                           exception. This can be used to obtain stack
+     *                           traces.
+     * @param enableSuppression  true if suppressed exceptions can be added,
+     *                           false otherwise.
+     * @param writableStackTrace true if stack trace is filled in and writable,
+     *                           false otherwise.
+     */
+    protected IPGeolocationDisabledException(final String message, final Throwable cause,
+            final boolean enableSuppression, final boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
 }
@@ -17,9 +17,11 @@ package com.irurueta.server.commons.geolocation;
 
 import com.maxmind.db.CHMCache;
 import com.maxmind.geoip2.DatabaseReader;
+import com.maxmind.geoip2.exception.AddressNotFoundException;
 import com.maxmind.geoip2.exception.GeoIp2Exception;
 import com.maxmind.geoip2.model.AbstractCountryResponse;
 import com.maxmind.geoip2.model.CityResponse;
+import com.maxmind.geoip2.record.AbstractNamedRecord;
 import com.maxmind.geoip2.record.City;
 import com.maxmind.geoip2.record.Continent;
 import com.maxmind.geoip2.record.Country;
@@ -28,24 +30,65 @@ import com.maxmind.geoip2.record.Postal;
 import com.maxmind.geoip2.record.Subdivision;
 import com.maxmind.geoip2.record.Traits;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.lang.ref.SoftReference;
+import java.net.Inet4Address;
 import java.net.InetAddress;
+import java.net.URL;
+import java.net.URLConnection;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
-import java.util.TimeZone;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Class to locate an IP address.
+ * Lookups are thread-safe and do not acquire any lock once the required
+ * database readers have been opened, since Maxmind database readers can be
+ * safely shared among threads. Hence, throughput of concurrent lookups scales
+ * with the number of available cores.
  */
 public class IPGeolocator implements Closeable {
 
@@ -58,17 +101,79 @@ public class IPGeolocator implements Closeable {
     /**
      * Buffer size to copy embedded databases into final locations.
      */
-    private static final int BUFFER_SIZE = 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Extension of files containing the hash of the embedded resource copied
+     * into a database file.
+     */
+    private static final String HASH_FILE_EXTENSION = ".sha256";
+
+    /**
+     * Extension of files locked while copying an embedded resource into a
+     * database file or deleting it.
+     * Lock files are never deleted, since processes sharing a database file
+     * must always lock the same file.
+     */
+    private static final String LOCK_FILE_EXTENSION = ".lock";
+
+    /**
+     * Algorithm used to hash embedded resources.
+     */
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    /**
+     * Lock preventing concurrent copies of embedded resources within this
+     * process, since file locks are held on behalf of the whole process.
+     */
+    private static final Object COPY_LOCK = new Object();
+
+    /**
+     * Amount of time expressed in milliseconds to wait for further changes once
+     * a change of database files is detected, so that files are completely
+     * written before being reloaded.
+     */
+    private static final long WATCH_DELAY = 1000;
+
+    /**
+     * All location fields, which are decoded when database records are
+     * decoded directly.
+     */
+    private static final Set<IPLocationField> ALL_FIELDS =
+            Collections.unmodifiableSet(EnumSet.allOf(IPLocationField.class));
+
+    /**
+     * Exception thrown when an address is known not to be found without
+     * accessing any database (i.e. reserved addresses or addresses contained in
+     * negative cache).
+     * Instance is shared, has no stack trace and does not accept suppressed
+     * exceptions, so that such misses do not allocate any object and callers
+     * cannot modify it.
+     */
+    private static final IPLocationNotFoundException NOT_FOUND_EXCEPTION =
+            new IPLocationNotFoundException("Address not found", null, false,
+                    false);
+
+    /**
+     * Exception thrown when IP geolocation is disabled.
+     * Instance is shared, has no stack trace and does not accept suppressed
+     * exceptions, so that lookups performed while geolocation is disabled do
+     * not allocate any object and callers cannot modify it.
+     */
+    static final IPGeolocationDisabledException DISABLED_EXCEPTION =
+            new IPGeolocationDisabledException(null, null, false, false);
 
     /**
      * Singleton instance of IPGeolocator.
+     * Reference is volatile so that the singleton can be obtained without
+     * locking once it has been created.
      */
-    private static SoftReference<IPGeolocator> mReference;
+    private static volatile SoftReference<IPGeolocator> mReference;
 
     /**
      * Indicates if geolocation is enabled.
      */
-    private boolean mEnabled;
+    private volatile boolean mEnabled;
 
     /**
      * Reference to geolocation configuration.
@@ -77,8 +182,10 @@ public class IPGeolocator implements Closeable {
 
     /**
      * City database reader.
+     * Reader is safely published to lookup threads through this volatile
+     * reference, so that lookups do not need to acquire any lock.
      */
-    private DatabaseReader mCityReader;
+    private volatile DatabaseReader mCityReader;
 
     /**
      * Indicates whether city database has already been prepared.
@@ -87,14 +194,140 @@ public class IPGeolocator implements Closeable {
 
     /**
      * Country database reader.
+     * Reader is safely published to lookup threads through this volatile
+     * reference, so that lookups do not need to acquire any lock.
      */
-    private DatabaseReader mCountryReader;
+    private volatile DatabaseReader mCountryReader;
 
     /**
      * Indicates whether country database has already been prepared.
      */
     private boolean mCountryDatabasePrepared;
 
+    /**
+     * Cache of obtained locations, or null if results cache is disabled.
+     * Cache is replaced when databases are reloaded.
+     */
+    private volatile IPLocationCache mResultCache;
+
+    /**
+     * Cache of locations obtained for database records, or null if network
+     * cache is disabled.
+     * Cache is replaced when databases are reloaded.
+     */
+    private volatile IPNetworkCache mNetworkCache;
+
+    /**
+     * Cache of addresses that could not be located, or null if negative cache
+     * is disabled.
+     * Cache is replaced when databases are reloaded.
+     */
+    private volatile IPNegativeCache mNegativeCache;
+
+    /**
+     * Table of canonical locations shared by addresses having identical data,
+     * or null if location interning is disabled.
+     * Table is replaced when databases are reloaded.
+     */
+    private volatile CanonicalLocationTable mLocationTable;
+
+    /**
+     * Locales of localized names loaded from databases, or null if no
+     * localized names are loaded.
+     */
+    private NameLocales mNameLocales;
+
+    /**
+     * Executor of asynchronous lookups, which is lazily created unless one is
+     * provided.
+     */
+    private volatile ExecutorService mAsyncExecutor;
+
+    /**
+     * Indicates whether executor of asynchronous lookups was created by this
+     * instance and must be shut down when closed.
+     */
+    private boolean mOwnsAsyncExecutor;
+
+    /**
+     * Indicates whether database indices are used by all lookups, which is
+     * required by the network cache, compiled tables and direct decoding.
+     * Otherwise indices are only used by lookups of selected fields and by
+     * the country table, and are lazily created when first needed.
+     */
+    private boolean mIndexRequired;
+
+    /**
+     * Indicates whether database indices have been needed by lookups of
+     * selected fields or by the country table, in which case indices are
+     * also created along with readers when databases are reopened.
+     */
+    private boolean mIndexUsed;
+
+    /**
+     * Indicates whether database records are decoded directly into locations
+     * instead of using Maxmind database readers.
+     */
+    private boolean mDirectDecodingEnabled;
+
+    /**
+     * Decodes selected fields of database records.
+     */
+    private LocationDecoder mLocationDecoder;
+
+    /**
+     * Index of city database, used to find database records without decoding
+     * them.
+     * Index is created along with its reader when required by all lookups,
+     * and otherwise lazily created once its reader is open.
+     */
+    private volatile DatabaseIndex mCityIndex;
+
+    /**
+     * Index of country database, used to find database records without
+     * decoding them.
+     * Index is created along with its reader when required by all lookups,
+     * and otherwise lazily created once its reader is open.
+     */
+    private volatile DatabaseIndex mCountryIndex;
+
+    /**
+     * Source of city database reader, used to lazily create its index, or
+     * null if its index has already been created. Guarded by this instance.
+     */
+    private DatabaseSource mCitySource;
+
+    /**
+     * Source of country database reader, used to lazily create its index, or
+     * null if its index has already been created. Guarded by this instance.
+     */
+    private DatabaseSource mCountrySource;
+
+    /**
+     * Current epoch of lookups, which lookups enter while using database
+     * readers, so that readers replaced when databases are reloaded or closed
+     * are only closed once no lookup uses them.
+     */
+    private volatile LookupEpoch mEpoch = new LookupEpoch();
+
+    /**
+     * Checksum of the last search tree walked when opening databases, which is
+     * kept so that reads done while walking are not discarded as unused.
+     */
+    private volatile int mTreeChecksum;
+
+    /**
+     * Service watching database files, or null if database files are not
+     * watched.
+     */
+    private WatchService mWatchService;
+
+    /**
+     * Table resolving addresses into country indices, which is lazily
+     * compiled.
+     */
+    private volatile CountryTable mCountryTable;
+
     /**
      * Constructor.
      * Creates and configures an IPGeolocator instance.
@@ -109,6 +342,17 @@ public class IPGeolocator implements Closeable {
             // copy embedded databases to destination if needed
             prepareDatabases();
 
+            createCaches();
+
+            mNameLocales = NameLocales.parse(mConfiguration.getNameLocales());
+            mLocationDecoder = new LocationDecoder(mNameLocales);
+
+            mDirectDecodingEnabled = mConfiguration.isDirectDecodingEnabled();
+            mIndexRequired = mNetworkCache != null ||
+                    mConfiguration.isCompiledIpv4TableEnabled() ||
+                    mConfiguration.isCompiledIpv6TableEnabled() ||
+                    mDirectDecodingEnabled;
+
             // configure lookup services
             final IPGeolocationLevel level = mConfiguration.getIPGeolocationLevel();
 
@@ -124,6 +368,10 @@ public class IPGeolocator implements Closeable {
                 }
             }
 
+            if (mEnabled && mConfiguration.isDatabaseWatchEnabled()) {
+                startWatching();
+            }
+
         } catch (final Exception e) {
             LOGGER.log(Level.WARNING, "IP geolocation configuration not completed", e);
         } finally {
@@ -138,22 +386,26 @@ public class IPGeolocator implements Closeable {
     /**
      * Factory method to return the singleton instance of IPGeolocator based
      * on current configuration.
+     * Once the singleton has been created, this method does not acquire any
+     * lock.
      *
      * @return singleton instance.
      */
-    public static synchronized IPGeolocator getInstance() {
-        IPGeolocator singleton;
-        if (mReference == null || (singleton = mReference.get()) == null) {
-            singleton = new IPGeolocator();
-            mReference = new SoftReference<>(singleton);
+    public static IPGeolocator getInstance() {
+        final SoftReference<IPGeolocator> reference = mReference;
+        final IPGeolocator singleton;
+        if (reference != null && (singleton = reference.get()) != null) {
+            return singleton;
         }
-        return singleton;
+        return createInstance();
     }
 
     /**
      * Locates provided IP or IPv6 address using requested level.
      * Notice that geolocation levels are: Country, City (which includes country
      * information) and Disabled, which throws an exception.
+     * This method can be safely called concurrently from multiple threads and
+     * does not acquire any lock once database readers have been opened.
      *
      * @param address IP address to evaluate.
      * @param level   level of accuracy of geolocation.
@@ -163,74 +415,348 @@ public class IPGeolocator implements Closeable {
      * @throws IPLocationNotFoundException    if IP address couldn't be geolocated
      *                                        because it wasn't found in database.
      */
-    public synchronized IPLocation locate(
+    public IPLocation locate(
             final InetAddress address,
             final IPGeolocationLevel level) throws IPGeolocationDisabledException,
             IPLocationNotFoundException {
         if (!mEnabled || level == IPGeolocationLevel.DISABLED) {
-            throw new IPGeolocationDisabledException();
+            throw DISABLED_EXCEPTION;
         }
 
+        final IPLocation location;
         try {
-            final IPLocation location = new IPLocation(level);
-            DatabaseReader reader;
+            location = lookup(address, level, null);
+        } catch (final GeoIp2Exception | IOException e) {
+            throw new IPLocationNotFoundException(e);
+        }
 
-            // city level
-            if (level == IPGeolocationLevel.CITY) {
-                reader = getOrCreateCityReader();
+        if (location == null) {
+            throw NOT_FOUND_EXCEPTION;
+        }
+        return location;
+    }
 
-                // search at city level
-                final CityResponse response = reader.city(address);
+    /**
+     * Locates provided IP or IPv6 address using requested level without
+     * throwing any exception.
+     * This method is meant for workloads where a large share of lookups are
+     * expected to fail (i.e. bot traffic), since no exception is allocated
+     * when an address cannot be located.
+     * This method can be safely called concurrently from multiple threads and
+     * does not acquire any lock once database readers have been opened.
+     *
+     * @param address IP address to evaluate.
+     * @param level   level of accuracy of geolocation.
+     * @return location of IP address or null if IP geolocation is disabled or
+     * IP address couldn't be geolocated.
+     */
+    public IPLocation tryLocate(final InetAddress address,
+                                final IPGeolocationLevel level) {
+        if (!mEnabled || level == IPGeolocationLevel.DISABLED ||
+                address == null) {
+            return null;
+        }
 
-                // city level
-                final City city = response.getCity();
-                if (city != null) {
-                    location.mCity = city.getName();
-                }
+        return lookupQuietly(address, level);
+    }
 
-                final Location loc = response.getLocation();
-                if (loc != null) {
-                    location.mTimeZone = loc.getTimeZone() != null ?
-                            TimeZone.getTimeZone(loc.getTimeZone()) : null;
-                    location.mAccuracyRadius = loc.getAccuracyRadius();
-                    location.mMetroCode = loc.getMetroCode();
-                    location.mLatitude = loc.getLatitude();
-                    location.mLongitude = loc.getLongitude();
-                }
+    /**
+     * Locates provided IP or IPv6 address using requested level, obtaining
+     * only requested fields.
+     * Only requested fields are decoded from database, which makes lookups
+     * needing few fields (i.e. country code) much cheaper. Fields that are not
+     * requested might be null, unless a complete location was already cached.
+     * Locations containing only requested fields are never cached.
+     * This method can be safely called concurrently from multiple threads and
+     * does not acquire any lock once database readers have been opened.
+     *
+     * @param address IP address to evaluate.
+     * @param level   level of accuracy of geolocation.
+     * @param fields  fields to be obtained.
+     * @return location of IP address.
+     * @throws IPGeolocationDisabledException if IP geolocation is disabled or
+     *                                        was not properly configured.
+     * @throws IPLocationNotFoundException    if IP address couldn't be geolocated
+     *                                        because it wasn't found in database.
+     */
+    public IPLocation locate(
+            final InetAddress address, final IPGeolocationLevel level,
+            final Set<IPLocationField> fields)
+            throws IPGeolocationDisabledException, IPLocationNotFoundException {
+        if (!mEnabled || level == IPGeolocationLevel.DISABLED) {
+            throw DISABLED_EXCEPTION;
+        }
 
-                final Postal postal = response.getPostal();
-                if (postal != null) {
-                    location.mPostalCode = postal.getCode();
-                }
+        final IPLocation location;
+        try {
+            location = lookup(address, level, fields);
+        } catch (final GeoIp2Exception | IOException e) {
+            throw new IPLocationNotFoundException(e);
+        }
 
-                final List<Subdivision> subdivisions = response.getSubdivisions();
-                if (subdivisions != null) {
-                    location.mSubdivisionCodes = new ArrayList<>();
-                    location.mSubdivisionNames = new ArrayList<>();
-                    for (final Subdivision s : subdivisions) {
-                        if (s.getIsoCode() != null && s.getName() != null) {
-                            location.mSubdivisionCodes.add(s.getIsoCode());
-                            location.mSubdivisionNames.add(s.getName());
-                        }
-                    }
-                }
+        if (location == null) {
+            throw NOT_FOUND_EXCEPTION;
+        }
+        return location;
+    }
 
+    /**
+     * Locates provided IP or IPv6 address using requested level, obtaining
+     * only requested fields without throwing any exception.
+     * Fields that are not requested might be null, unless a complete location
+     * was already cached.
+     *
+     * @param address IP address to evaluate.
+     * @param level   level of accuracy of geolocation.
+     * @param fields  fields to be obtained.
+     * @return location of IP address or null if IP geolocation is disabled or
+     * IP address couldn't be geolocated.
+     */
+    public IPLocation tryLocate(final InetAddress address,
+                                final IPGeolocationLevel level,
+                                final Set<IPLocationField> fields) {
+        if (!mEnabled || level == IPGeolocationLevel.DISABLED ||
+                address == null) {
+            return null;
+        }
 
-                // country level
-                processCountryResponse(response, location);
+        try {
+            return lookup(address, level, fields);
+        } catch (final GeoIp2Exception | IOException e) {
+            LOGGER.log(Level.FINE, "IP address could not be located", e);
+            return null;
+        }
+    }
+
+    /**
+     * Locates provided IP or IPv6 address using default configured geolocation
+     * level of accuracy without throwing any exception.
+     *
+     * @param address IP address to evaluate.
+     * @return location of IP address or null if IP geolocation is disabled or
+     * IP address couldn't be geolocated.
+     */
+    public IPLocation tryLocate(final InetAddress address) {
+        return tryLocate(address, mConfiguration.getIPGeolocationLevel());
+    }
+
+    /**
+     * Locates provided IP or IPv6 address using requested level without
+     * throwing any exception.
+     * Provided value is parsed without performing any DNS lookup, unless it is
+     * a host name and host name resolution has been enabled.
+     *
+     * @param address IP address or DNS host name to evaluate in string form.
+     * @param level   level of accuracy of geolocation.
+     * @return location of IP address or null if IP geolocation is disabled,
+     * provided value is not a valid IP address or IP address couldn't be
+     * geolocated.
+     */
+    public IPLocation tryLocate(final String address,
+                                final IPGeolocationLevel level) {
+        final InetAddress inetAddress = IPAddressParser.parse(address);
+        if (inetAddress != null) {
+            return tryLocate(inetAddress, level);
+        }
+
+        try {
+            return tryLocate(resolve(address), level);
+        } catch (final UnknownHostException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Locates provided IP or IPv6 address using default configured geolocation
+     * level of accuracy without throwing any exception.
+     *
+     * @param address IP address or DNS host name to evaluate in string form.
+     * @return location of IP address or null if IP geolocation is disabled,
+     * provided value is not a valid IP address or IP address couldn't be
+     * geolocated.
+     */
+    public IPLocation tryLocate(final String address) {
+        return tryLocate(address, mConfiguration.getIPGeolocationLevel());
+    }
+
+    /**
+     * Locates the country of provided IP or IPv6 address, returning its
+     * country index.
+     * Countries are resolved using a table compiled from the database used
+     * for country level geolocation the first time this method is called, so
+     * that no object is created and no lock is acquired afterwards (except
+     * for IPv6 addresses aliasing IPv4 address space).
+     * This method can be safely called concurrently from multiple threads.
+     *
+     * @param address IP address to evaluate.
+     * @return country index or {@link CountryIndex#UNKNOWN} if IP geolocation
+     * is disabled or country of IP address is not known.
+     * @see CountryIndex
+     */
+    public int locateCountry(final InetAddress address) {
+        final CountryTable table = getOrCreateCountryTable();
+        if (table == null || address == null) {
+            return CountryIndex.UNKNOWN;
+        }
+
+        try {
+            return table.find(address);
+        } catch (final IOException e) {
+            LOGGER.log(Level.FINE, "IP address could not be located", e);
+            return CountryIndex.UNKNOWN;
+        }
+    }
+
+    /**
+     * Locates the country of provided IPv4 address, returning its country
+     * index.
+     * This method neither creates any object nor acquires any lock once the
+     * country table has been compiled.
+     *
+     * @param address IPv4 address expressed as an integer in network order.
+     * @return country index or {@link CountryIndex#UNKNOWN} if IP geolocation
+     * is disabled or country of IP address is not known.
+     * @see #locateCountry(InetAddress)
+     */
+    public int locateCountry(final int address) {
+        final CountryTable table = getOrCreateCountryTable();
+        return table != null ? table.find(address) : CountryIndex.UNKNOWN;
+    }
+
+    /**
+     * Gets code of the continent of a country, as contained in the database
+     * used for country level geolocation.
+     *
+     * @param country country index.
+     * @return continent code or null if IP geolocation is disabled or
+     * continent is not known.
+     */
+    public String getContinentCode(final int country) {
+        final CountryTable table = getOrCreateCountryTable();
+        return table != null ? table.getContinentCode(country) : null;
+    }
+
+    /**
+     * Locates provided IP or IPv6 address using requested level
+     * asynchronously, so that calling threads (i.e. event loop threads) never
+     * block on database accesses.
+     * Lookup failures are reported as an {@link java.util.concurrent.ExecutionException}
+     * when obtaining the result of returned future.
+     *
+     * @param address IP address to evaluate.
+     * @param level   level of accuracy of geolocation.
+     * @return future containing location of IP address.
+     */
+    public Future<IPLocation> locateAsync(final InetAddress address,
+                                          final IPGeolocationLevel level) {
+        return submitAsync(new Callable<IPLocation>() {
+            @Override
+            public IPLocation call() throws IPGeolocationDisabledException,
+                    IPLocationNotFoundException {
+                return locate(address, level);
             }
+        });
+    }
 
-            // country or city level (if nothing has been found yet)
-            if (level == IPGeolocationLevel.COUNTRY) {
-                reader = getOrCreateCountryReader();
-                final AbstractCountryResponse response = reader.country(address);
-                processCountryResponse(response, location);
+    /**
+     * Locates provided IP or IPv6 address using requested level
+     * asynchronously, and notifies the outcome to provided callback.
+     *
+     * @param address  IP address to evaluate.
+     * @param level    level of accuracy of geolocation.
+     * @param callback callback to be notified once lookup completes.
+     * @return future of lookup, which can be used to cancel it.
+     */
+    public Future<?> locateAsync(final InetAddress address,
+                                 final IPGeolocationLevel level,
+                                 final IPLocationCallback callback) {
+        return submitAsync(new Runnable() {
+            @Override
+            public void run() {
+                final IPLocation location;
+                try {
+                    location = locate(address, level);
+                } catch (final GeolocationException e) {
+                    callback.onFailure(e);
+                    return;
+                }
+                callback.onLocated(location);
             }
+        }, callback);
+    }
 
-            return location;
-        } catch (final GeoIp2Exception | IOException e) {
-            throw new IPLocationNotFoundException(e);
+    /**
+     * Locates provided IP or IPv6 address using requested level
+     * asynchronously.
+     * Provided value is parsed within the executor, so that host name
+     * resolution (if enabled) does not block calling threads either.
+     *
+     * @param address IP address or DNS host name to evaluate in string form.
+     * @param level   level of accuracy of geolocation.
+     * @return future containing location of IP address.
+     */
+    public Future<IPLocation> locateAsync(final String address,
+                                          final IPGeolocationLevel level) {
+        return submitAsync(new Callable<IPLocation>() {
+            @Override
+            public IPLocation call() throws UnknownHostException,
+                    IPGeolocationDisabledException, IPLocationNotFoundException {
+                return locate(address, level);
+            }
+        });
+    }
+
+    /**
+     * Locates provided IP or IPv6 address using requested level
+     * asynchronously, and notifies the outcome to provided callback.
+     *
+     * @param address  IP address or DNS host name to evaluate in string form.
+     * @param level    level of accuracy of geolocation.
+     * @param callback callback to be notified once lookup completes.
+     * @return future of lookup, which can be used to cancel it.
+     */
+    public Future<?> locateAsync(final String address,
+                                 final IPGeolocationLevel level,
+                                 final IPLocationCallback callback) {
+        return submitAsync(new Runnable() {
+            @Override
+            public void run() {
+                final IPLocation location;
+                try {
+                    location = locate(address, level);
+                } catch (final UnknownHostException | GeolocationException e) {
+                    callback.onFailure(e);
+                    return;
+                }
+                callback.onLocated(location);
+            }
+        }, callback);
+    }
+
+    /**
+     * Sets executor of asynchronous lookups.
+     * Provided executor is not shut down when this instance is closed.
+     * If no executor is provided, a pool of daemon threads is lazily created
+     * having the configured number of threads.
+     *
+     * @param executor executor of asynchronous lookups.
+     */
+    public synchronized void setAsyncExecutor(final ExecutorService executor) {
+        if (mOwnsAsyncExecutor && mAsyncExecutor != null) {
+            mAsyncExecutor.shutdown();
         }
+        mOwnsAsyncExecutor = false;
+        mAsyncExecutor = executor;
+    }
+
+    /**
+     * Indicates whether IP geolocation is enabled.
+     *
+     * @return true if IP geolocation is enabled, false if it is disabled, was
+     * not properly configured or has been closed.
+     */
+    public boolean isEnabled() {
+        return mEnabled;
     }
 
     /**
@@ -243,7 +769,9 @@ public class IPGeolocator implements Closeable {
      * @param level   level of accuracy of geolocation.
      * @return location of IP address.
      * @throws UnknownHostException           if provided textual form of IP address is
-     *                                        not valid, or if DNS host name couldn't be resolved into an IP address.
+     *                                        not valid, or if provided value is a DNS host name
+     *                                        and either host name resolution is disabled or
+     *                                        host name couldn't be resolved into an IP address.
      * @throws IPGeolocationDisabledException if IP geolocation is disabled or
      *                                        was not properly configured.
      * @throws IPLocationNotFoundException    if IP address couldn't be geolocated
@@ -252,7 +780,7 @@ public class IPGeolocator implements Closeable {
     public IPLocation locate(final String address, final IPGeolocationLevel level)
             throws UnknownHostException, IPGeolocationDisabledException,
             IPLocationNotFoundException {
-        return locate(InetAddress.getByName(address), level);
+        return locate(toInetAddress(address), level);
     }
 
     /**
@@ -278,7 +806,9 @@ public class IPGeolocator implements Closeable {
      * @param address IP address or DNS host name to evaluate in string form
      * @return location of IP address.
      * @throws UnknownHostException           if provided textual form of IP address is
-     *                                        not valid, or if DNS host name couldn't be resolved into an IP address.
+     *                                        not valid, or if provided value is a DNS host name
+     *                                        and either host name resolution is disabled or
+     *                                        host name couldn't be resolved into an IP address.
      * @throws IPGeolocationDisabledException if IP geolocation is disabled or
      *                                        was not properly configured.
      * @throws IPLocationNotFoundException    if IP address couldn't be geolocated
@@ -286,202 +816,1384 @@ public class IPGeolocator implements Closeable {
      */
     public IPLocation locate(final String address) throws UnknownHostException,
             IPGeolocationDisabledException, IPLocationNotFoundException {
-        return locate(InetAddress.getByName(address));
+        return locate(toInetAddress(address));
     }
 
     /**
-     * Closes location services. Once closed, geolocation will not be available.
-     * If databases where embedded, then their destination local files will also
-     * be deleted when closing location services.
-     * This method should be called at server shutdown or when application is
-     * un-deployed.
+     * Locates a batch of IP or IPv6 addresses using requested level.
+     * Repeated addresses within the batch are only looked up once, and
+     * results are returned in the same order as provided addresses.
+     * Addresses that couldn't be geolocated (or null addresses) have a null
+     * result, so that a single miss does not abort the whole batch.
      *
-     * @throws IOException if an I/O error occurs.
+     * @param addresses IP addresses to evaluate.
+     * @param level     level of accuracy of geolocation.
+     * @return locations of IP addresses in input order.
+     * @throws IPGeolocationDisabledException if IP geolocation is disabled or
+     *                                        was not properly configured.
      */
-    @Override
-    public synchronized void close() throws IOException {
-        // close location services
-        if (mCityReader != null) {
-            try {
-                mCityReader.close();
-            } catch (final IOException e) {
-                LOGGER.log(Level.WARNING, "Could not close city database", e);
-            }
-        }
-        if (mCountryReader != null) {
-            try {
-                mCountryReader.close();
-            } catch (final IOException e) {
-                LOGGER.log(Level.WARNING, "Could not close country database", e);
-            }
-        }
+    public List<IPLocation> locateAll(final Collection<InetAddress> addresses,
+                                      final IPGeolocationLevel level)
+            throws IPGeolocationDisabledException {
+        return locateAll(addresses, level, false);
+    }
 
-        mEnabled = false;
+    /**
+     * Locates a batch of IP or IPv6 addresses using requested level.
+     * Repeated addresses within the batch are only looked up once, and
+     * results are returned in the same order as provided addresses.
+     * Addresses that couldn't be geolocated (or null addresses) have a null
+     * result, so that a single miss does not abort the whole batch.
+     *
+     * @param addresses IP addresses to evaluate.
+     * @param level     level of accuracy of geolocation.
+     * @param sort      true to look up addresses sorted by address, which
+     *                  improves locality of database accesses for large
+     *                  batches, false to look up addresses in input order.
+     * @return locations of IP addresses in input order.
+     * @throws IPGeolocationDisabledException if IP geolocation is disabled or
+     *                                        was not properly configured.
+     */
+    public List<IPLocation> locateAll(final Collection<InetAddress> addresses,
+                                      final IPGeolocationLevel level,
+                                      final boolean sort)
+            throws IPGeolocationDisabledException {
+        return Arrays.asList(locateAll(
+                addresses.toArray(new InetAddress[addresses.size()]), level,
+                sort));
+    }
 
-        // delete database files if they were copied from embedded resources, as
-        // this method will usually be called on server shutdown or application
-        // un-deployment
-        boolean failed = false;
-        if (mCountryDatabasePrepared) {
-            // delete country database file
-            final File f = new File(
-                    mConfiguration.getIPGeolocationCountryDatabaseFile());
-            if (f.exists()) {
+    /**
+     * Locates a batch of IP or IPv6 addresses using requested level.
+     * Repeated addresses within the batch are only looked up once, and
+     * results are returned in the same order as provided addresses.
+     * Addresses that couldn't be geolocated (or null addresses) have a null
+     * result, so that a single miss does not abort the whole batch.
+     *
+     * @param addresses IP addresses to evaluate.
+     * @param level     level of accuracy of geolocation.
+     * @param sort      true to look up addresses sorted by address, which
+     *                  improves locality of database accesses for large
+     *                  batches, false to look up addresses in input order.
+     * @return locations of IP addresses in input order.
+     * @throws IPGeolocationDisabledException if IP geolocation is disabled or
+     *                                        was not properly configured.
+     */
+    public IPLocation[] locateAll(final InetAddress[] addresses,
+                                  final IPGeolocationLevel level,
+                                  final boolean sort)
+            throws IPGeolocationDisabledException {
+        if (!mEnabled || level == IPGeolocationLevel.DISABLED) {
+            throw DISABLED_EXCEPTION;
+        }
+
+        // deduplicate addresses
+        final int length = addresses.length;
+        final Map<InetAddress, Integer> indices = new HashMap<>();
+        final List<InetAddress> unique = new ArrayList<>();
+        final int[] mapping = new int[length];
+        for (int i = 0; i < length; i++) {
+            final InetAddress address = addresses[i];
+            if (address == null) {
+                mapping[i] = -1;
+                continue;
+            }
+
+            Integer index = indices.get(address);
+            if (index == null) {
+                index = unique.size();
+                indices.put(address, index);
+                unique.add(address);
+            }
+            mapping[i] = index;
+        }
+
+        // determine lookup order, packing sort keys along with indices of
+        // unique addresses so that sorting does not box any value
+        final int count = unique.size();
+        final long[] order = new long[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = sort ? sortKey(unique.get(i)) | i : i;
+        }
+        if (sort) {
+            Arrays.sort(order);
+        }
+
+        final IPLocation[] uniqueResults = new IPLocation[count];
+        for (final long entry : order) {
+            final int index = (int) (entry & Integer.MAX_VALUE);
+            uniqueResults[index] = lookupQuietly(unique.get(index), level);
+        }
+
+        final IPLocation[] results = new IPLocation[length];
+        for (int i = 0; i < length; i++) {
+            if (mapping[i] >= 0) {
+                results[i] = uniqueResults[mapping[i]];
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Locates a batch of IPv4 addresses using requested level.
+     * Addresses are provided as integers in network order (i.e. 0x40040404 for
+     * 64.4.4.4), which avoids creating an address object for repeated
+     * addresses. Addresses are always deduplicated and looked up in ascending
+     * order to improve locality of database accesses, and results are
+     * returned in the same order as provided addresses.
+     * Addresses that couldn't be geolocated have a null result, so that a
+     * single miss does not abort the whole batch.
+     *
+     * @param addresses IPv4 addresses to evaluate.
+     * @param level     level of accuracy of geolocation.
+     * @return locations of IP addresses in input order.
+     * @throws IPGeolocationDisabledException if IP geolocation is disabled or
+     *                                        was not properly configured.
+     */
+    public IPLocation[] locateAll(final int[] addresses,
+                                  final IPGeolocationLevel level)
+            throws IPGeolocationDisabledException {
+        if (!mEnabled || level == IPGeolocationLevel.DISABLED) {
+            throw DISABLED_EXCEPTION;
+        }
+
+        // sort addresses as unsigned values by flipping their sign bit
+        final int length = addresses.length;
+        final int[] sorted = new int[length];
+        for (int i = 0; i < length; i++) {
+            sorted[i] = addresses[i] ^ Integer.MIN_VALUE;
+        }
+        Arrays.sort(sorted);
+
+        // deduplicate addresses
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (count == 0 || sorted[count - 1] != sorted[i]) {
+                sorted[count++] = sorted[i];
+            }
+        }
+
+        final IPLocation[] uniqueResults = new IPLocation[count];
+        final byte[] bytes = new byte[4];
+        for (int i = 0; i < count; i++) {
+            final int address = sorted[i] ^ Integer.MIN_VALUE;
+            bytes[0] = (byte) (address >>> 24);
+            bytes[1] = (byte) (address >>> 16);
+            bytes[2] = (byte) (address >>> 8);
+            bytes[3] = (byte) address;
+            try {
+                uniqueResults[i] = lookupQuietly(
+                        InetAddress.getByAddress(bytes), level);
+            } catch (final UnknownHostException ignore) {
+                // never thrown for addresses of valid length
+            }
+        }
+
+        final IPLocation[] results = new IPLocation[length];
+        for (int i = 0; i < length; i++) {
+            final int index = Arrays.binarySearch(sorted, 0, count,
+                    addresses[i] ^ Integer.MIN_VALUE);
+            results[i] = uniqueResults[index];
+        }
+        return results;
+    }
+
+    /**
+     * Gets cache of obtained locations, which can be used to inspect cache
+     * statistics.
+     *
+     * @return cache of obtained locations or null if results cache is
+     * disabled.
+     */
+    public IPLocationCache getResultCache() {
+        return mResultCache;
+    }
+
+    /**
+     * Gets cache of locations obtained for database records, which can be used
+     * to inspect cache statistics.
+     *
+     * @return cache of locations obtained for database records or null if
+     * network cache is disabled.
+     */
+    public IPNetworkCache getNetworkCache() {
+        return mNetworkCache;
+    }
+
+    /**
+     * Gets cache of addresses that could not be located, which can be used to
+     * inspect cache statistics.
+     *
+     * @return cache of addresses that could not be located or null if negative
+     * cache is disabled.
+     */
+    public IPNegativeCache getNegativeCache() {
+        return mNegativeCache;
+    }
+
+    /**
+     * Reloads databases currently in use, so that updated database files are
+     * used without interrupting lookups.
+     * New databases are opened and indexed while lookups keep using previous
+     * ones, and are validated and then switched atomically. Cached locations
+     * obtained from previous databases are discarded, and previous databases
+     * are closed as soon as no lookup in progress uses them.
+     * This method is called automatically when database files are replaced if
+     * they are being watched.
+     *
+     * @throws IOException if geolocation is closed or databases cannot be
+     *                     opened or are not valid, in which case previous
+     *                     databases are still used.
+     */
+    public synchronized void reload() throws IOException {
+        checkEnabled();
+
+        // open and validate new databases before switching, so that lookups
+        // are never interrupted
+        Database city = null;
+        Database country = null;
+        final CountryTable countryTable;
+        try {
+            if (mCityReader != null) {
+                city = openCityDatabase(true);
+            }
+            if (mCountryReader != null) {
+                country = openCountryDatabase(true);
+            }
+
+            // country table is compiled in advance if already in use
+            countryTable = mCountryTable != null ?
+                    new CountryTable(country != null ? country.mIndex :
+                            city.mIndex) : null;
+        } catch (final IOException | RuntimeException e) {
+            if (city != null) {
+                city.close();
+            }
+            if (country != null) {
+                country.close();
+            }
+            throw e instanceof IOException ? (IOException) e :
+                    new IOException("Invalid database", e);
+        }
+
+        // readers are published before indices, so that lookups finding a new
+        // index always use its reader
+        final DatabaseReader oldCityReader = mCityReader;
+        final DatabaseReader oldCountryReader = mCountryReader;
+        final DatabaseSource oldCitySource = mCitySource;
+        final DatabaseSource oldCountrySource = mCountrySource;
+        if (city != null) {
+            mCityReader = city.mReader;
+            mCityIndex = city.mIndex;
+            mCitySource = city.mSource;
+        }
+        if (country != null) {
+            mCountryReader = country.mReader;
+            mCountryIndex = country.mIndex;
+            mCountrySource = country.mSource;
+        }
+        mCountryTable = countryTable;
+
+        // caches are replaced rather than cleared, so that lookups in progress
+        // using previous databases cannot populate new caches
+        createCaches();
+
+        final List<Closeable> retired = new ArrayList<>();
+        if (city != null) {
+            retire(oldCityReader, retired);
+            retire(oldCitySource, retired);
+        }
+        if (country != null) {
+            retire(oldCountryReader, retired);
+            retire(oldCountrySource, retired);
+        }
+        retireReaders(retired);
+        LOGGER.log(Level.INFO, "IP geolocation databases reloaded");
+    }
+
+    /**
+     * Closes location services. Once closed, geolocation will not be available.
+     * If databases where embedded, then their destination local files will also
+     * be deleted when closing location services, unless they are configured to
+     * be kept.
+     * This method should be called at server shutdown or when application is
+     * un-deployed.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        // disable lookups before releasing readers so that no new lookups
+        // start using them
+        mEnabled = false;
+
+        final List<Closeable> retired = new ArrayList<>();
+        retire(mCityReader, retired);
+        retire(mCountryReader, retired);
+        retire(mCitySource, retired);
+        retire(mCountrySource, retired);
+        mCityReader = mCountryReader = null;
+        mCityIndex = mCountryIndex = null;
+        mCitySource = mCountrySource = null;
+        mCountryTable = null;
+
+        if (mWatchService != null) {
+            try {
+                mWatchService.close();
+            } catch (final IOException e) {
+                LOGGER.log(Level.WARNING, "Could not stop watching databases", e);
+            }
+            mWatchService = null;
+        }
+
+        if (mOwnsAsyncExecutor && mAsyncExecutor != null) {
+            // pending lookups are completed, and will fail if they start once
+            // readers are released
+            mAsyncExecutor.shutdown();
+            mAsyncExecutor = null;
+            mOwnsAsyncExecutor = false;
+        }
+
+        if (mResultCache != null) {
+            mResultCache.clear();
+        }
+        if (mNetworkCache != null) {
+            mNetworkCache.clear();
+        }
+        if (mNegativeCache != null) {
+            mNegativeCache.clear();
+        }
+        if (mLocationTable != null) {
+            mLocationTable.clear();
+        }
+
+        // close location services as soon as lookups in progress complete
+        retireReaders(retired);
+
+        // delete database files copied from embedded resources only when
+        // explicitly requested, since they can be shared with other processes
+        boolean failed = false;
+        if (mConfiguration != null &&
+                !mConfiguration.isEmbeddedDatabaseFileKeptOnClose()) {
+            if (mCountryDatabasePrepared) {
+                // delete country database file
+                failed = !deleteDatabaseFile(
+                        mConfiguration.getIPGeolocationCountryDatabaseFile());
+            }
+
+            //city database
+            if (mCityDatabasePrepared) {
+                //delete city database file
+                failed |= !deleteDatabaseFile(
+                        mConfiguration.getIPGeolocationCityDatabaseFile());
+            }
+        }
+
+        if (failed) {
+            throw new IOException();
+        }
+    }
+
+    /**
+     * Creates the singleton instance if it does not already exist.
+     * This method is only called the first time the singleton is requested or
+     * after it has been reset or reclaimed.
+     *
+     * @return singleton instance.
+     */
+    private static synchronized IPGeolocator createInstance() {
+        IPGeolocator singleton;
+        if (mReference == null || (singleton = mReference.get()) == null) {
+            singleton = new IPGeolocator();
+            mReference = new SoftReference<>(singleton);
+        }
+        return singleton;
+    }
+
+    /**
+     * Gets key to sort provided address by when locating a batch of
+     * addresses, so that IPv4 addresses are sorted before IPv6 addresses and
+     * addresses of the same family are sorted in ascending order of their 32
+     * most significant bits.
+     * The 31 least significant bits of returned key are left clear, so that
+     * the index of the address within the batch can be packed into them.
+     *
+     * @param address address to be sorted.
+     * @return sort key.
+     */
+    private static long sortKey(final InetAddress address) {
+        final int prefix;
+        if (address instanceof Inet4Address) {
+            prefix = IPAddressParser.toInt((Inet4Address) address);
+        } else {
+            final byte[] bytes = address.getAddress();
+            prefix = (bytes[0] & 0xFF) << 24 | (bytes[1] & 0xFF) << 16 |
+                    (bytes[2] & 0xFF) << 8 | (bytes[3] & 0xFF);
+        }
+
+        final long key = (prefix & 0xFFFFFFFFL) << 31;
+        // IPv4 keys are negative so that they are sorted first
+        return address instanceof Inet4Address ? key | Long.MIN_VALUE : key;
+    }
+
+    /**
+     * Closes geolocation services if a configured IPGeolocator exists, and
+     * resets the current singleton instance so a new one can be acquired having
+     * a new configuration if required.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    protected static synchronized void reset() throws IOException {
+        final IPGeolocator singleton;
+        if (mReference != null && (singleton = mReference.get()) != null) {
+            singleton.close();
+        }
+        mReference = null;
+    }
+
+    /**
+     * Converts provided textual representation of an IP address into an
+     * address.
+     * IP address literals are parsed without performing any DNS lookup.
+     *
+     * @param address IP address or DNS host name in string form.
+     * @return converted address.
+     * @throws UnknownHostException if provided value is not a valid IP address
+     *                              and host name resolution is disabled or
+     *                              host name couldn't be resolved.
+     */
+    private InetAddress toInetAddress(final String address)
+            throws UnknownHostException {
+        final InetAddress inetAddress = IPAddressParser.parse(address);
+        return inetAddress != null ? inetAddress : resolve(address);
+    }
+
+    /**
+     * Resolves provided host name using DNS, if host name resolution is
+     * enabled.
+     *
+     * @param host host name to be resolved.
+     * @return resolved address.
+     * @throws UnknownHostException if host name resolution is disabled or host
+     *                              name couldn't be resolved.
+     */
+    private InetAddress resolve(final String host) throws UnknownHostException {
+        if (host == null || mConfiguration == null ||
+                !mConfiguration.isHostNameResolutionEnabled()) {
+            throw new UnknownHostException(host);
+        }
+        return InetAddress.getByName(host);
+    }
+
+    /**
+     * Looks up provided IP or IPv6 address using requested level without
+     * throwing any exception.
+     *
+     * @param address IP address to evaluate.
+     * @param level   level of accuracy of geolocation.
+     * @return location of IP address or null if IP address couldn't be
+     * geolocated.
+     */
+    private IPLocation lookupQuietly(final InetAddress address,
+                                     final IPGeolocationLevel level) {
+        try {
+            return lookup(address, level, null);
+        } catch (final GeoIp2Exception | IOException e) {
+            LOGGER.log(Level.FINE, "IP address could not be located", e);
+            return null;
+        }
+    }
+
+    /**
+     * Looks up provided IP or IPv6 address using requested level.
+     * Addresses known not to be contained in the database are reported by
+     * returning null, so that no exception is allocated for them.
+     *
+     * When fields are provided, only those fields are decoded and obtained
+     * locations are not cached.
+     *
+     * @param address IP address to evaluate.
+     * @param level   level of accuracy of geolocation.
+     * @param fields  fields to be obtained, or null to obtain all fields.
+     * @return location of IP address or null if IP address is not contained in
+     * database.
+     * @throws GeoIp2Exception if database data cannot be read.
+     * @throws IOException     if an I/O error occurs.
+     */
+    private IPLocation lookup(final InetAddress address,
+                              final IPGeolocationLevel level,
+                              final Set<IPLocationField> fields)
+            throws GeoIp2Exception, IOException {
+        // reserved addresses are never contained in databases
+        if (mConfiguration.isReservedAddressesFilterEnabled() &&
+                ReservedAddresses.isReserved(address)) {
+            return null;
+        }
+
+        final IPLocationCache cache = mResultCache;
+        if (cache != null) {
+            final IPLocation cached = cache.get(address, level);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        final IPNegativeCache negativeCache = mNegativeCache;
+        if (negativeCache != null && negativeCache.contains(address, level)) {
+            return null;
+        }
+
+        // readers are not closed while being used by this lookup
+        final LookupEpoch epoch = enterEpoch();
+        try {
+            // level of database answering the lookup, which might contain
+            // more data than requested
+            final IPGeolocationLevel database = getDatabaseLevel(level);
+
+            // addresses belonging to the same network block share the same
+            // database record, and hence the same location
+            final IPNetworkCache networkCache = mNetworkCache;
+            BaseRangeTable table = null;
+            int slot = BaseRangeTable.NOT_FOUND;
+            int record = MmdbReader.NOT_FOUND;
+            DatabaseIndex index = null;
+            if (mIndexRequired || fields != null) {
+                index = getOrCreateIndex(database);
+                table = address instanceof Inet4Address ?
+                        index.getIpv4Table() : index.getIpv6Table();
+
+                IPLocation cached = null;
+                if (table != null) {
+                    slot = table.findIndex(address);
+                    if (slot == BaseRangeTable.DELEGATED) {
+                        // address aliases IPv4 address space, which is not
+                        // compiled into IPv6 tables
+                        table = null;
+                    } else if (slot != BaseRangeTable.NOT_FOUND) {
+                        record = table.getRecord(slot);
+                        if (database == level) {
+                            cached = table.getLocation(slot);
+                        } else {
+                            // tables only store locations of the level of
+                            // their database
+                            table = null;
+                        }
+                    }
+                }
+                if (table == null && record == MmdbReader.NOT_FOUND) {
+                    record = index.getTree().findRecord(address);
+                }
+                if (table == null && record != MmdbReader.NOT_FOUND &&
+                        networkCache != null) {
+                    cached = networkCache.get(record, level);
+                }
+
+                if (record == MmdbReader.NOT_FOUND) {
+                    // index proves that address is not in database
+                    if (negativeCache != null) {
+                        negativeCache.put(address, level);
+                    }
+                    return null;
+                }
+                if (cached != null) {
+                    if (cache != null) {
+                        cache.put(address, level, cached);
+                    }
+                    return cached;
+                }
+            }
+
+            final IPLocation.Builder builder = new IPLocation.Builder(level)
+                    .setNameLocales(mNameLocales);
+
+            if (fields != null) {
+                // partial locations are never cached, since they cannot be
+                // returned to lookups requesting other fields
+                mLocationDecoder.decode(index.getTree(), record, level, fields,
+                        builder);
+                return builder.build();
+            }
+
+            if (mDirectDecodingEnabled) {
+                // values are written straight into the location, without
+                // building intermediate responses
+                mLocationDecoder.decode(index.getTree(), record, level,
+                        ALL_FIELDS, builder);
+            } else if (database == IPGeolocationLevel.CITY) {
+                // city level
+                final DatabaseReader reader = getOrCreateCityReader();
+
+                // search at city level
+                final CityResponse response = reader.city(address);
+                if (level == IPGeolocationLevel.CITY) {
+                    processCityResponse(response, builder);
+                }
+
+                // country level
+                processCountryResponse(response, builder);
+            } else {
+                // country level
+                final DatabaseReader reader = getOrCreateCountryReader();
+                final AbstractCountryResponse response = reader.country(address);
+                processCountryResponse(response, builder);
+            }
+
+            IPLocation location = builder.build();
+
+            final CanonicalLocationTable locationTable = mLocationTable;
+            if (locationTable != null) {
+                location = locationTable.canonicalize(location);
+            }
+
+            if (table != null) {
+                // keep location stored by any concurrent lookup
+                location = table.setLocation(slot, location);
+            } else if (networkCache != null && record != MmdbReader.NOT_FOUND) {
+                networkCache.put(record, level, location);
+            }
+            if (cache != null) {
+                cache.put(address, level, location);
+            }
+
+            return location;
+        } catch (final AddressNotFoundException e) {
+            if (negativeCache != null) {
+                negativeCache.put(address, level);
+            }
+            return null;
+        } finally {
+            epoch.exit();
+        }
+    }
+
+    /**
+     * Gets or create city database reader.
+     * If reader has already been created, no lock is acquired.
+     *
+     * @return city database reader.
+     * @throws IOException if an I/O error occurs.
+     */
+    private DatabaseReader getOrCreateCityReader() throws IOException {
+        final DatabaseReader reader = mCityReader;
+        if (reader != null) {
+            return reader;
+        }
+
+        synchronized (this) {
+            if (mCityReader == null) {
+                checkEnabled();
+                mCityReader = createCityReader();
+            }
+            return mCityReader;
+        }
+    }
+
+    /**
+     * Gets or creates country database reader.
+     * If reader has already been created, no lock is acquired.
+     *
+     * @return country database reader.
+     * @throws IOException if an I/O error occurs.
+     */
+    private DatabaseReader getOrCreateCountryReader() throws IOException {
+        final DatabaseReader reader = mCountryReader;
+        if (reader != null) {
+            return reader;
+        }
+
+        synchronized (this) {
+            if (mCountryReader == null) {
+                checkEnabled();
+                mCountryReader = createCountryReader();
+            }
+            return mCountryReader;
+        }
+    }
+
+    /**
+     * Gets or creates index of the database used for provided geolocation
+     * level.
+     * Indices that are not required by all lookups are lazily created from
+     * the same source as their readers.
+     * If index has already been created, no lock is acquired.
+     *
+     * @param level requested geolocation level.
+     * @return index of database.
+     * @throws IOException if an I/O error occurs.
+     */
+    private DatabaseIndex getOrCreateIndex(final IPGeolocationLevel level)
+            throws IOException {
+        final DatabaseIndex index = level == IPGeolocationLevel.CITY ?
+                mCityIndex : mCountryIndex;
+        if (index != null) {
+            return index;
+        }
+
+        synchronized (this) {
+            checkEnabled();
+
+            // from now on indices are created along with their readers
+            mIndexUsed = true;
+            if (level == IPGeolocationLevel.CITY) {
+                getOrCreateCityReader();
+                if (mCityIndex == null) {
+                    mCityIndex = createIndex(mCitySource.openTree());
+                    mCitySource.close();
+                    mCitySource = null;
+                }
+                return mCityIndex;
+            } else {
+                getOrCreateCountryReader();
+                if (mCountryIndex == null) {
+                    mCountryIndex = createIndex(mCountrySource.openTree());
+                    mCountrySource.close();
+                    mCountrySource = null;
+                }
+                return mCountryIndex;
+            }
+        }
+    }
+
+    /**
+     * Gets level of the database used to answer lookups at provided
+     * geolocation level.
+     * Since city databases also contain all country data, country level
+     * lookups are answered by the city database when it is already open and
+     * the country database is not, so that a single database serves all
+     * levels.
+     *
+     * @param level requested geolocation level.
+     * @return level of database to be used.
+     */
+    private IPGeolocationLevel getDatabaseLevel(final IPGeolocationLevel level) {
+        if (level == IPGeolocationLevel.COUNTRY && mCountryReader == null &&
+                mCityReader != null) {
+            return IPGeolocationLevel.CITY;
+        }
+        return level;
+    }
+
+    /**
+     * Gets or creates table resolving addresses into country indices.
+     * If table has already been created, no lock is acquired.
+     *
+     * @return country table or null if geolocation is disabled or table cannot
+     * be compiled.
+     */
+    private CountryTable getOrCreateCountryTable() {
+        final CountryTable table = mCountryTable;
+        if (table != null || !mEnabled) {
+            return table;
+        }
+
+        synchronized (this) {
+            if (mCountryTable == null && mEnabled) {
                 try {
-                    Files.delete(f.toPath());
+                    mCountryTable = new CountryTable(getOrCreateIndex(
+                            getDatabaseLevel(IPGeolocationLevel.COUNTRY)));
                 } catch (final IOException e) {
-                    failed = true;
+                    LOGGER.log(Level.WARNING,
+                            "Country table could not be compiled", e);
+                }
+            }
+            return mCountryTable;
+        }
+    }
+
+    /**
+     * Submits an asynchronous lookup.
+     * Once geolocation is closed, returned future fails right away with the
+     * shared disabled exception, and no executor is created.
+     *
+     * @param task lookup to be submitted.
+     * @param <T>  type of lookup result.
+     * @return future of lookup.
+     */
+    private <T> Future<T> submitAsync(final Callable<T> task) {
+        final ExecutorService executor = getOrCreateAsyncExecutor();
+        if (executor != null) {
+            return executor.submit(task);
+        }
+
+        final FutureTask<T> future = new FutureTask<>(new Callable<T>() {
+            @Override
+            public T call() throws IPGeolocationDisabledException {
+                throw DISABLED_EXCEPTION;
+            }
+        });
+        future.run();
+        return future;
+    }
+
+    /**
+     * Submits an asynchronous lookup notifying its outcome to provided
+     * callback.
+     * Once geolocation is closed, callback is notified right away with the
+     * shared disabled exception, and no executor is created.
+     *
+     * @param task     lookup to be submitted.
+     * @param callback callback notified by lookup.
+     * @return future of lookup.
+     */
+    private Future<?> submitAsync(final Runnable task,
+                                  final IPLocationCallback callback) {
+        final ExecutorService executor = getOrCreateAsyncExecutor();
+        if (executor != null) {
+            return executor.submit(task);
+        }
+
+        final FutureTask<Void> future = new FutureTask<>(new Runnable() {
+            @Override
+            public void run() {
+                callback.onFailure(DISABLED_EXCEPTION);
+            }
+        }, null);
+        future.run();
+        return future;
+    }
+
+    /**
+     * Gets or creates executor of asynchronous lookups.
+     * If executor has already been created or provided, no lock is acquired.
+     * No executor is created once geolocation is closed or if it is disabled.
+     *
+     * @return executor of asynchronous lookups or null if none is provided and
+     * geolocation is not enabled.
+     */
+    private ExecutorService getOrCreateAsyncExecutor() {
+        final ExecutorService executor = mAsyncExecutor;
+        if (executor != null) {
+            return executor;
+        }
+
+        synchronized (this) {
+            if (mAsyncExecutor == null && mEnabled) {
+                int threads = mConfiguration != null ?
+                        mConfiguration.getAsyncThreadPoolSize() : 0;
+                if (threads <= 0) {
+                    threads = Runtime.getRuntime().availableProcessors();
                 }
+                mAsyncExecutor = Executors.newFixedThreadPool(threads,
+                        new AsyncThreadFactory());
+                mOwnsAsyncExecutor = true;
             }
+            return mAsyncExecutor;
+        }
+    }
+
+    /**
+     * Checks that geolocation is still enabled before opening a database
+     * reader, so that no reader is opened once this instance has been closed.
+     *
+     * @throws IOException if geolocation has been disabled.
+     */
+    private void checkEnabled() throws IOException {
+        if (!mEnabled) {
+            throw new IOException("IP geolocation has been closed");
+        }
+    }
+
+    /**
+     * Creates a city database reader.
+     *
+     * @return a city database reader.
+     * @throws IOException if an I/O error occurs.
+     */
+    private DatabaseReader createCityReader() throws IOException {
+        final Database database = openCityDatabase(false);
+        mCityIndex = database.mIndex;
+        mCitySource = database.mSource;
+        return database.mReader;
+    }
+
+    /**
+     * Opens city database.
+     *
+     * @param validate true to validate search tree of database.
+     * @return reader and index of city database.
+     * @throws IOException if an I/O error occurs or database is not valid.
+     */
+    private Database openCityDatabase(final boolean validate)
+            throws IOException {
+        if (isCityDatabaseLoadedInMemory()) {
+            return openDatabase(loadResource(
+                    mConfiguration.getIPGeolocationCityEmbeddedResource()),
+                    validate);
+        }
+
+        if (!mCityDatabasePrepared) {
+            mCityDatabasePrepared = prepareCityDatabase();
+        }
+        return openDatabase(new File(
+                mConfiguration.getIPGeolocationCityDatabaseFile()), validate);
+    }
+
+    /**
+     * Creates a country database reader.
+     *
+     * @return a country database reader.
+     * @throws IOException if an I/O error occurs.
+     */
+    private DatabaseReader createCountryReader() throws IOException {
+        final Database database = openCountryDatabase(false);
+        mCountryIndex = database.mIndex;
+        mCountrySource = database.mSource;
+        return database.mReader;
+    }
+
+    /**
+     * Opens country database.
+     *
+     * @param validate true to validate search tree of database.
+     * @return reader and index of country database.
+     * @throws IOException if an I/O error occurs or database is not valid.
+     */
+    private Database openCountryDatabase(final boolean validate)
+            throws IOException {
+        if (isCountryDatabaseLoadedInMemory()) {
+            return openDatabase(loadResource(
+                    mConfiguration.getIPGeolocationCountryEmbeddedResource()),
+                    validate);
+        }
+
+        if (!mCountryDatabasePrepared) {
+            mCountryDatabasePrepared = prepareCountryDatabase();
+        }
+        return openDatabase(new File(
+                mConfiguration.getIPGeolocationCountryDatabaseFile()), validate);
+    }
+
+    /**
+     * Opens a database file.
+     * If its index is not created yet, the file is kept open so that the index
+     * can later be created from the same file as the reader, even if the file
+     * is replaced meanwhile.
+     *
+     * @param file     database file.
+     * @param validate true to validate search tree of database.
+     * @return reader, index and source of database.
+     * @throws IOException if an I/O error occurs or database is not valid.
+     */
+    private Database openDatabase(final File file, final boolean validate)
+            throws IOException {
+        // index is created first, since it needs not be closed if reader
+        // cannot be created
+        final DatabaseIndex index = createIndex(file, validate);
+        final DatabaseSource source = index == null ?
+                new DatabaseSource(file) : null;
+        try {
+            return new Database(createReader(file), index, source);
+        } catch (final IOException | RuntimeException e) {
+            if (source != null) {
+                source.close();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a database loaded into memory.
+     * If its index is not created yet, loaded data is kept so that the index
+     * can later be created from it.
+     *
+     * @param data     database contents.
+     * @param validate true to validate search tree of database.
+     * @return reader, index and source of database.
+     * @throws IOException if an I/O error occurs or database is not valid.
+     */
+    private Database openDatabase(final byte[] data, final boolean validate)
+            throws IOException {
+        final DatabaseIndex index = createIndex(data, validate);
+        return new Database(createReader(data), index,
+                index == null ? new DatabaseSource(data) : null);
+    }
+
+    /**
+     * Creates caches of locations and table of canonical locations, according
+     * to configuration.
+     */
+    private void createCaches() {
+        // configure results cache
+        if (mConfiguration.isResultCacheEnabled()) {
+            mResultCache = new IPLocationCache(
+                    mConfiguration.getResultCacheSize(),
+                    mConfiguration.getResultCacheTimeToLive());
+        }
+
+        // configure network cache
+        if (mConfiguration.isNetworkCacheEnabled()) {
+            mNetworkCache = new IPNetworkCache(
+                    mConfiguration.getNetworkCacheSize());
+        }
+
+        // configure negative cache
+        if (mConfiguration.isNegativeCacheEnabled()) {
+            mNegativeCache = new IPNegativeCache(
+                    mConfiguration.getNegativeCacheSize());
+        }
+
+        // off-heap locations are not interned to keep them out of the
+        // Java heap
+        if (mConfiguration.isLocationInterningEnabled() &&
+                !mConfiguration.isOffHeapStorageEnabled()) {
+            mLocationTable = new CanonicalLocationTable();
+        }
+    }
+
+    /**
+     * Starts a new epoch of lookups and retires the current one, so that
+     * provided readers are closed once no lookup uses them.
+     * New readers must already have been published.
+     *
+     * @param readers readers of previous databases and their sources.
+     */
+    private void retireReaders(final List<Closeable> readers) {
+        final LookupEpoch previous = mEpoch;
+        mEpoch = new LookupEpoch(previous);
+        previous.retire(readers);
+    }
+
+    /**
+     * Adds a reader or source of a previous database to the list of those to
+     * be retired, if any.
+     *
+     * @param closeable reader or source of previous database or null.
+     * @param retired   list of readers and sources to be retired.
+     */
+    private static void retire(final Closeable closeable,
+                               final List<Closeable> retired) {
+        if (closeable != null) {
+            retired.add(closeable);
+        }
+    }
+
+    /**
+     * Enters current epoch of lookups, so that database readers are not
+     * closed while being used.
+     * Returned epoch must be exited once lookup completes.
+     *
+     * @return entered epoch.
+     */
+    private LookupEpoch enterEpoch() {
+        LookupEpoch epoch;
+        do {
+            epoch = mEpoch;
+        } while (!epoch.enter());
+        return epoch;
+    }
+
+    /**
+     * Starts watching database files, so that databases are reloaded when
+     * their files are replaced.
+     * Only creation of files is watched, which is notified when files are
+     * atomically replaced (i.e. moved into their folder), since files
+     * modified in place might be incomplete and corrupt databases in use.
+     * Databases loaded into memory from embedded resources are not watched.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    private void startWatching() throws IOException {
+        final List<File> files = new ArrayList<>();
+        if (!isCityDatabaseLoadedInMemory() &&
+                mConfiguration.getIPGeolocationCityDatabaseFile() != null) {
+            files.add(new File(mConfiguration.getIPGeolocationCityDatabaseFile()).
+                    getAbsoluteFile());
+        }
+        if (!isCountryDatabaseLoadedInMemory() &&
+                mConfiguration.getIPGeolocationCountryDatabaseFile() != null) {
+            files.add(new File(
+                    mConfiguration.getIPGeolocationCountryDatabaseFile()).
+                    getAbsoluteFile());
+        }
+        if (files.isEmpty()) {
+            return;
         }
 
-        //city database
-        if (mCityDatabasePrepared) {
-            //delete city database file
-            final File f = new File(
-                    mConfiguration.getIPGeolocationCityDatabaseFile());
-            if (f.exists()) {
-                try {
-                    Files.delete(f.toPath());
-                } catch (final IOException e) {
-                    failed = true;
-                }
-            }
+        final WatchService watchService = FileSystems.getDefault().
+                newWatchService();
+        final List<Path> names = new ArrayList<>();
+        for (final File f : files) {
+            f.getParentFile().toPath().register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE);
+            names.add(f.toPath().getFileName());
         }
+        mWatchService = watchService;
 
-        mCityReader = mCountryReader = null;
+        final Thread thread = new Thread(new DatabaseWatcher(watchService,
+                names), "ip-geolocation-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
 
-        if (failed) {
-            throw new IOException();
-        }
+    /**
+     * Creates a database reader.
+     *
+     * @param file file to read database from.
+     * @return a database reader.
+     * @throws IOException if an I/O error occurs.
+     */
+    private DatabaseReader createReader(final File file) throws IOException {
+        return buildReader(new DatabaseReader.Builder(file));
     }
 
     /**
-     * Closes geolocation services if a configured IPGeolocator exists, and
-     * resets the current singleton instance so a new one can be acquired having
-     * a new configuration if required.
+     * Creates a database reader for a database loaded into memory.
+     * Readers read provided data into a buffer of their own, hence data is
+     * copied and not shared with database indices.
      *
+     * @param data database contents.
+     * @return a database reader.
      * @throws IOException if an I/O error occurs.
      */
-    protected static synchronized void reset() throws IOException {
-        final IPGeolocator singleton;
-        if (mReference != null && (singleton = mReference.get()) != null) {
-            singleton.close();
-        }
-        mReference = null;
+    private DatabaseReader createReader(final byte[] data) throws IOException {
+        return buildReader(new DatabaseReader.Builder(
+                new ByteArrayInputStream(data)));
     }
 
     /**
-     * Gets or create city database reader.
+     * Configures and builds a database reader.
      *
-     * @return city database reader.
+     * @param builder builder of database reader.
+     * @return a database reader.
      * @throws IOException if an I/O error occurs.
      */
-    private DatabaseReader getOrCreateCityReader() throws IOException {
-        if (mCityReader != null) {
-            return mCityReader;
-        } else {
-            mCityReader = createCityReader();
+    private DatabaseReader buildReader(final DatabaseReader.Builder builder)
+            throws IOException {
+        // decoded data cached by readers is kept on the Java heap
+        final boolean cachingEnabled = mConfiguration.isCachingEnabled() &&
+                !mConfiguration.isOffHeapStorageEnabled();
+
+        if (cachingEnabled) {
+            builder.withCache(new CHMCache());
         }
+        return builder.build();
+    }
 
-        return mCityReader;
+    /**
+     * Creates the index of a database if indices are needed.
+     * The search tree of the database is preloaded and validated according to
+     * configuration even if no index is created.
+     *
+     * @param file     database file.
+     * @param validate true to validate search tree of database.
+     * @return index of database or null if indices are not needed yet.
+     * @throws IOException if an I/O error occurs or database is not valid.
+     */
+    private DatabaseIndex createIndex(final File file, final boolean validate)
+            throws IOException {
+        return isTreeNeeded(validate) ?
+                createIndex(new MmdbReader(file), validate) : null;
     }
 
     /**
-     * Gets or creates country database reader.
+     * Creates the index of a database loaded into memory if indices are
+     * needed.
+     * The search tree of the database is preloaded and validated according to
+     * configuration even if no index is created.
      *
-     * @return country database reader.
-     * @throws IOException if an I/O error occurs.
+     * @param data     database contents.
+     * @param validate true to validate search tree of database.
+     * @return index of database or null if indices are not needed yet.
+     * @throws IOException if an I/O error occurs or database is not valid.
      */
-    private DatabaseReader getOrCreateCountryReader() throws IOException {
-        if (mCountryReader != null) {
-            return mCountryReader;
-        } else {
-            mCountryReader = createCountryReader();
-        }
+    private DatabaseIndex createIndex(final byte[] data, final boolean validate)
+            throws IOException {
+        return isTreeNeeded(validate) ? createIndex(new MmdbReader(
+                ByteBuffer.wrap(data).asReadOnlyBuffer()), validate) : null;
+    }
 
-        return mCountryReader;
+    /**
+     * Preloads and validates provided search tree according to configuration,
+     * and creates an index using it if indices are needed.
+     *
+     * @param tree     search tree of database.
+     * @param validate true to validate search tree of database.
+     * @return index of database or null if indices are not needed yet.
+     * @throws IOException if database is not valid.
+     */
+    private DatabaseIndex createIndex(final MmdbReader tree,
+                                      final boolean validate)
+            throws IOException {
+        preload(tree, validate);
+        return mIndexRequired || mIndexUsed ? createIndex(tree) : null;
     }
 
     /**
-     * Creates a city database reader.
+     * Creates the index of a database using provided search tree.
      *
-     * @return a city database reader.
-     * @throws IOException if an I/O error occurs.
+     * @param tree search tree of database.
+     * @return index of database.
      */
-    private DatabaseReader createCityReader() throws IOException {
-        if (!mCityDatabasePrepared) {
-            mCityDatabasePrepared = prepareCityDatabase();
-        }
-        final File f = new File(mConfiguration.getIPGeolocationCityDatabaseFile());
-        return createReader(f);
+    private DatabaseIndex createIndex(final MmdbReader tree) {
+        return new DatabaseIndex(tree,
+                mConfiguration.isCompiledIpv4TableEnabled(),
+                mConfiguration.isCompiledIpv6TableEnabled(),
+                mConfiguration.isOffHeapStorageEnabled());
     }
 
     /**
-     * Creates a country database reader.
+     * Indicates whether the search tree of a database being opened must be
+     * read, either to create its index, to preload it or to validate it.
      *
-     * @return a country database reader.
-     * @throws IOException if an I/O error occurs.
+     * @param validate true if search tree must be validated.
+     * @return true if search tree must be read, false otherwise.
      */
-    private DatabaseReader createCountryReader() throws IOException {
-        if (!mCountryDatabasePrepared) {
-            mCountryDatabasePrepared = prepareCountryDatabase();
+    private boolean isTreeNeeded(final boolean validate) {
+        return validate || mIndexRequired || mIndexUsed ||
+                mConfiguration.isDatabasePreloadEnabled() ||
+                mConfiguration.isDatabaseTreeWalkEnabled();
+    }
+
+    /**
+     * Makes contents of a database resident in memory before it is used, if
+     * enabled by configuration.
+     * Database readers map the same files as search trees, hence both share
+     * the pages loaded by the operating system.
+     * Walked search trees are also validated, so that corrupt databases are
+     * never used.
+     *
+     * @param tree     search tree of database.
+     * @param validate true to validate search tree even if it is not walked.
+     * @throws IOException if the search tree is validated and found to be
+     *                     corrupt.
+     */
+    private void preload(final MmdbReader tree, final boolean validate)
+            throws IOException {
+        if (mConfiguration.isDatabasePreloadEnabled()) {
+            tree.load();
+        }
+        if (mConfiguration.isDatabaseTreeWalkEnabled()) {
+            mTreeChecksum = tree.walk();
+        } else if (validate) {
+            tree.validate();
         }
-        final File f = new File(mConfiguration.getIPGeolocationCountryDatabaseFile());
-        return createReader(f);
     }
 
     /**
-     * Creates a database reader.
+     * Processes city level location data.
      *
-     * @param file file to read database from.
-     * @return a database reader.
-     * @throws IOException if an I/O error occurs.
+     * @param response a response being processed.
+     * @param builder  builder of location where result will be stored.
      */
-    private DatabaseReader createReader(final File file) throws IOException {
-        final boolean cachingEnabled = mConfiguration.isCachingEnabled();
+    private void processCityResponse(final CityResponse response,
+                                     final IPLocation.Builder builder) {
+        final City city = response.getCity();
+        if (city != null) {
+            builder.setCity(city.getName())
+                    .setLocalizedCityNames(localizedNames(city));
+        }
 
-        final DatabaseReader.Builder builder =
-                new DatabaseReader.Builder(file);
-        if (cachingEnabled) {
-            builder.withCache(new CHMCache());
+        final Location loc = response.getLocation();
+        if (loc != null) {
+            builder.setTimeZoneId(loc.getTimeZone())
+                    .setAccuracyRadius(loc.getAccuracyRadius())
+                    .setMetroCode(loc.getMetroCode())
+                    .setLatitude(loc.getLatitude())
+                    .setLongitude(loc.getLongitude());
+        }
+
+        final Postal postal = response.getPostal();
+        if (postal != null) {
+            builder.setPostalCode(postal.getCode());
+        }
+
+        final List<Subdivision> subdivisions = response.getSubdivisions();
+        if (subdivisions != null) {
+            processSubdivisions(subdivisions, builder);
         }
-        return builder.build();
     }
 
     /**
      * Processes country level location data.
      *
      * @param response a response being processed.
-     * @param location location where result will be stored.
+     * @param builder  builder of location where result will be stored.
      */
     private void processCountryResponse(final AbstractCountryResponse response,
-                                        final IPLocation location) {
+                                        final IPLocation.Builder builder) {
         final Continent continent = response.getContinent();
         if (continent != null) {
-            location.mContinentCode = continent.getCode();
-            location.mContinentName = continent.getName();
+            builder.setContinentCode(continent.getCode())
+                    .setContinentName(continent.getName())
+                    .setLocalizedContinentNames(localizedNames(continent));
         }
 
         Country country = response.getCountry();
         if (country != null) {
-            location.mCountryCode = country.getIsoCode();
-            location.mCountryName = country.getName();
+            builder.setCountryCode(country.getIsoCode())
+                    .setCountryName(country.getName())
+                    .setLocalizedCountryNames(localizedNames(country));
         }
         country = response.getRegisteredCountry();
         if (country != null) {
-            location.mRegisteredCountryCode = country.getIsoCode();
-            location.mRegisteredCountryName = country.getName();
+            builder.setRegisteredCountryCode(country.getIsoCode())
+                    .setRegisteredCountryName(country.getName())
+                    .setLocalizedRegisteredCountryNames(
+                            localizedNames(country));
         }
 
         final Traits traits = response.getTraits();
         if (traits != null) {
-            location.mAutonomousSystemNumber =
-                    traits.getAutonomousSystemNumber();
-            location.mDomain = traits.getDomain();
-            location.mIsp = traits.getIsp();
-            location.mOrganization = traits.getOrganization();
+            builder.setAutonomousSystemNumber(
+                    traits.getAutonomousSystemNumber())
+                    .setDomain(traits.getDomain())
+                    .setIsp(traits.getIsp())
+                    .setOrganization(traits.getOrganization());
+        }
+    }
+
+    /**
+     * Gets names of a database record in configured locales.
+     *
+     * @param record a database record containing names.
+     * @return names in configured locales or null if localized names are not
+     * loaded or not available.
+     */
+    private String[] localizedNames(final AbstractNamedRecord record) {
+        return mNameLocales != null ? mNameLocales.names(record.getNames()) :
+                null;
+    }
+
+    /**
+     * Processes subdivisions of city level location data.
+     * Only subdivisions having both code and name are kept.
+     *
+     * @param subdivisions subdivisions being processed.
+     * @param builder      builder of location where data will be stored.
+     */
+    private void processSubdivisions(
+            final List<Subdivision> subdivisions,
+            final IPLocation.Builder builder) {
+        int count = 0;
+        for (final Subdivision s : subdivisions) {
+            if (s.getIsoCode() != null && s.getName() != null) {
+                count++;
+            }
         }
+
+        final String[] codes = new String[count];
+        final String[] names = new String[count];
+        final int localeCount = mNameLocales != null ? mNameLocales.size() : 0;
+        String[] localizedNames = null;
+        int pos = 0;
+        for (final Subdivision s : subdivisions) {
+            if (s.getIsoCode() != null && s.getName() != null) {
+                codes[pos] = s.getIsoCode();
+                names[pos] = s.getName();
+
+                final String[] l = localizedNames(s);
+                if (l != null) {
+                    if (localizedNames == null) {
+                        localizedNames = new String[count * localeCount];
+                    }
+                    System.arraycopy(l, 0, localizedNames, pos * localeCount,
+                            localeCount);
+                }
+                pos++;
+            }
+        }
+        builder.setSubdivisionCodes(codes).setSubdivisionNames(names)
+                .setLocalizedSubdivisionNames(localizedNames);
     }
 
     /**
@@ -518,7 +2230,8 @@ public class IPGeolocator implements Closeable {
      * @throws IOException if an I/O error occurs.
      */
     private boolean prepareCityDatabase() throws IOException {
-        if (mConfiguration.isIPGeolocationCityDatabaseEmbedded() &&
+        if (!isCityDatabaseLoadedInMemory() &&
+                mConfiguration.isIPGeolocationCityDatabaseEmbedded() &&
                 mConfiguration.getIPGeolocationCityEmbeddedResource() != null &&
                 mConfiguration.getIPGeolocationCityDatabaseFile() != null) {
             // copy embedded resource to destination file
@@ -538,7 +2251,8 @@ public class IPGeolocator implements Closeable {
      * @throws IOException if an I/O error occurs.
      */
     private boolean prepareCountryDatabase() throws IOException {
-        if (mConfiguration.isIPGeolocationCountryDatabaseEmbedded() &&
+        if (!isCountryDatabaseLoadedInMemory() &&
+                mConfiguration.isIPGeolocationCountryDatabaseEmbedded() &&
                 mConfiguration.getIPGeolocationCountryEmbeddedResource() != null &&
                 mConfiguration.getIPGeolocationCountryDatabaseFile() != null) {
             // copy embedded resource to destination file
@@ -550,42 +2264,569 @@ public class IPGeolocator implements Closeable {
         return false;
     }
 
+    /**
+     * Indicates whether city database must be loaded into memory directly from
+     * its embedded resource.
+     *
+     * @return true if city database is loaded into memory, false otherwise.
+     */
+    private boolean isCityDatabaseLoadedInMemory() {
+        return mConfiguration.isEmbeddedDatabaseLoadedInMemory() &&
+                mConfiguration.isIPGeolocationCityDatabaseEmbedded() &&
+                mConfiguration.getIPGeolocationCityEmbeddedResource() != null;
+    }
+
+    /**
+     * Indicates whether country database must be loaded into memory directly
+     * from its embedded resource.
+     *
+     * @return true if country database is loaded into memory, false otherwise.
+     */
+    private boolean isCountryDatabaseLoadedInMemory() {
+        return mConfiguration.isEmbeddedDatabaseLoadedInMemory() &&
+                mConfiguration.isIPGeolocationCountryDatabaseEmbedded() &&
+                mConfiguration.getIPGeolocationCountryEmbeddedResource() != null;
+    }
+
+    /**
+     * Loads a given resource embedded in code into memory.
+     *
+     * @param resource resource to read data from.
+     * @return contents of resource.
+     * @throws IOException if resource cannot be read.
+     */
+    private static byte[] loadResource(final String resource)
+            throws IOException {
+        final URL url = IPGeolocator.class.getResource(resource);
+        if (url == null) {
+            throw new IOException("Resource not found: " + resource);
+        }
+
+        LOGGER.log(Level.INFO, "Loading resource: {0}", resource);
+        final URLConnection connection = url.openConnection();
+        try (final InputStream inStream = connection.getInputStream()) {
+            // read into an array of the resource size when known, so that
+            // data is not copied again once read
+            final int length = connection.getContentLength();
+            if (length >= 0) {
+                final byte[] data = new byte[length];
+                int offset = 0;
+                int n;
+                while (offset < length && (n = inStream.read(data, offset,
+                        length - offset)) > 0) {
+                    offset += n;
+                }
+                if (offset < length) {
+                    throw new IOException("Resource truncated: " + resource);
+                }
+                return data;
+            }
+
+            final ByteArrayOutputStream outStream =
+                    new ByteArrayOutputStream(BUFFER_SIZE);
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int n;
+            while ((n = inStream.read(buffer)) > 0) {
+                outStream.write(buffer, 0, n);
+            }
+            return outStream.toByteArray();
+        }
+    }
+
     /**
      * Copies a given resource embedded in code into provided destination file.
      * If file where data is to be stored does not exist, a new one will be
-     * created. If it already exists, it will be overwritten.
+     * created. If it already exists, it will be overwritten, unless it already
+     * contains the resource.
+     * The hash of the resource is stored along with the file to detect stale or
+     * truncated copies, along with the size and modification time of the
+     * resource, so that resources are only hashed again when those change.
+     * Files modified after their hash was stored are hashed again to detect
+     * corrupt copies.
+     * Files are locked while being copied, and data is written into a temporary
+     * file that replaces the destination file once complete, so that several
+     * processes can safely share a single copy.
      *
      * @param resource resource to read data from.
      * @param file     file to store data.
      * @throws IOException .
      */
     private void copyResource(final String resource, final String file) throws IOException {
-        final File f = new File(file);
+        final File f = new File(file).getAbsoluteFile();
         final File parent = f.getParentFile();
         // attempt to create parent folders if they don't exist
         if (parent != null && !parent.exists() && !parent.mkdirs()) {
             throw new IOException();
         }
 
-        if (!f.exists()) {
-            try (final InputStream inStream = IPGeolocator.class.getResourceAsStream(resource)) {
+        final File hashFile = new File(f.getPath() + HASH_FILE_EXTENSION);
+        final File lockFile = new File(f.getPath() + LOCK_FILE_EXTENSION);
+        synchronized (COPY_LOCK) {
+            try (final FileChannel lockChannel = FileChannel.open(
+                    lockFile.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE);
+                 final FileLock ignored = lockChannel.lock()) {
+
+                final String version = resourceVersion(resource);
+                final String[] stored = readHashFile(f, hashFile);
+                if (stored != null && version != null &&
+                        version.equals(stored[1])) {
+                    LOGGER.log(Level.INFO, "Resource: {0} already copied to {1}",
+                            new Object[]{resource, f.getPath()});
+                    return;
+                }
+
+                // resource might have changed, hence its contents are hashed
+                final String hash = hashResource(resource);
+                if (stored != null && hash.equals(stored[0])) {
+                    writeHashFile(f, hashFile, hash, version);
+                    LOGGER.log(Level.INFO, "Resource: {0} already copied to {1}",
+                            new Object[]{resource, f.getPath()});
+                    return;
+                }
+
+                LOGGER.log(Level.INFO, "Copying resource: {0}", resource);
+                writeResource(resource, f);
+                writeHashFile(f, hashFile, hash, version);
+                LOGGER.log(Level.INFO, "Resource: {0} copied to {1}",
+                        new Object[]{resource, f.getPath()});
+            }
+        }
+    }
+
+    /**
+     * Gets the version of a given resource embedded in code, made of its size
+     * and modification time, which can be obtained without reading it.
+     *
+     * @param resource resource to obtain version for.
+     * @return version of resource or null if it is unknown.
+     * @throws IOException if resource cannot be found.
+     */
+    private static String resourceVersion(final String resource)
+            throws IOException {
+        final URL url = IPGeolocator.class.getResource(resource);
+        if (url == null) {
+            throw new IOException("Resource not found: " + resource);
+        }
+
+        final URLConnection connection = url.openConnection();
+        final long length = connection.getContentLengthLong();
+        final long lastModified = connection.getLastModified();
+        if (length < 0 || lastModified <= 0) {
+            return null;
+        }
+        return length + ":" + lastModified;
+    }
+
+    /**
+     * Computes the hash of a given resource embedded in code.
+     *
+     * @param resource resource to read data from.
+     * @return hexadecimal representation of resource hash.
+     * @throws IOException if resource cannot be read.
+     */
+    private static String hashResource(final String resource)
+            throws IOException {
+        try (final InputStream inStream =
+                     IPGeolocator.class.getResourceAsStream(resource)) {
+            if (inStream == null) {
+                throw new IOException();
+            }
+            return hash(inStream);
+        }
+    }
+
+    /**
+     * Computes the hash of a given file.
+     *
+     * @param file file to read data from.
+     * @return hexadecimal representation of file hash.
+     * @throws IOException if file cannot be read.
+     */
+    private static String hashContents(final File file) throws IOException {
+        try (final InputStream inStream = new FileInputStream(file)) {
+            return hash(inStream);
+        }
+    }
+
+    /**
+     * Computes the hash of the data read from provided stream.
+     *
+     * @param inStream stream to read data from.
+     * @return hexadecimal representation of data hash.
+     * @throws IOException if data cannot be read.
+     */
+    private static String hash(final InputStream inStream) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int n;
+        while ((n = inStream.read(buffer)) > 0) {
+            digest.update(buffer, 0, n);
+        }
+
+        final StringBuilder builder = new StringBuilder();
+        for (final byte b : digest.digest()) {
+            builder.append(Character.forDigit((b >> 4) & 0xf, 16))
+                    .append(Character.forDigit(b & 0xf, 16));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Reads hash and version of the embedded resource copied into a database
+     * file.
+     * If the database file has been modified after the hash was stored, its
+     * contents are hashed again and the stored hash is only kept if they
+     * still match.
+     *
+     * @param file     database file.
+     * @param hashFile file containing hash, length and version of copied
+     *                 resource.
+     * @return hash and version of copied resource, or null if database file
+     * does not contain a complete copy of a resource.
+     * @throws IOException if hash file cannot be read.
+     */
+    private static String[] readHashFile(final File file, final File hashFile)
+            throws IOException {
+        if (!file.exists() || !hashFile.exists()) {
+            return null;
+        }
+
+        final String[] stored = new String(Files.readAllBytes(
+                hashFile.toPath()), StandardCharsets.UTF_8).split(" ");
+        if (stored.length < 2 ||
+                !stored[1].equals(Long.toString(file.length()))) {
+            return null;
+        }
+
+        final String version = stored.length > 2 ? stored[2] : null;
+        if (file.lastModified() > hashFile.lastModified()) {
+            // copy might have been modified in place with the same size
+            if (!hashContents(file).equals(stored[0])) {
+                return null;
+            }
+            writeHashFile(file, hashFile, stored[0], version);
+        }
+        return new String[]{stored[0], version};
+    }
+
+    /**
+     * Writes hash and version of the embedded resource copied into a database
+     * file.
+     *
+     * @param file     database file.
+     * @param hashFile file containing hash, length and version of copied
+     *                 resource.
+     * @param hash     hash of embedded resource.
+     * @param version  version of embedded resource or null if unknown.
+     * @throws IOException if hash file cannot be written.
+     */
+    private static void writeHashFile(final File file, final File hashFile,
+                                      final String hash, final String version)
+            throws IOException {
+        final String contents = hash + " " + file.length() +
+                (version != null ? " " + version : "");
+        Files.write(hashFile.toPath(), contents.getBytes(
+                StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes a resource embedded in code into a temporary file, which then
+     * replaces provided file, so that no incomplete file is ever visible.
+     *
+     * @param resource resource to read data from.
+     * @param file     file to store data.
+     * @throws IOException if an I/O error occurs.
+     */
+    private static void writeResource(final String resource, final File file)
+            throws IOException {
+        final File tmp = File.createTempFile(file.getName(), ".tmp",
+                file.getParentFile());
+        try {
+            try (final InputStream inStream =
+                         IPGeolocator.class.getResourceAsStream(resource);
+                 final OutputStream outStream = new FileOutputStream(tmp)) {
                 if (inStream == null) {
                     throw new IOException();
                 }
 
-                try (final OutputStream outStream = new FileOutputStream(file)) {
-                    LOGGER.log(Level.INFO, "Copying resource: {0}", resource);
+                final byte[] buffer = new byte[BUFFER_SIZE];
+                int n;
+                while ((n = inStream.read(buffer)) > 0) {
+                    outStream.write(buffer, 0, n);
+                }
+            }
+
+            try {
+                Files.move(tmp.toPath(), file.toPath(),
+                        StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (final AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
+
+    /**
+     * Deletes a database file copied from an embedded resource, along with its
+     * hash file.
+     * Lock file is kept and locked while deleting, so that processes copying
+     * the resource at the same time always lock the same file.
+     *
+     * @param file database file.
+     * @return true if database file was deleted or did not exist, false
+     * otherwise.
+     */
+    private static boolean deleteDatabaseFile(final String file) {
+        final File f = new File(file).getAbsoluteFile();
+        final File lockFile = new File(f.getPath() + LOCK_FILE_EXTENSION);
+        synchronized (COPY_LOCK) {
+            try (final FileChannel lockChannel = FileChannel.open(
+                    lockFile.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE);
+                 final FileLock ignored = lockChannel.lock()) {
+                Files.deleteIfExists(new File(f.getPath() +
+                        HASH_FILE_EXTENSION).toPath());
+                Files.deleteIfExists(f.toPath());
+            } catch (final IOException e) {
+                LOGGER.log(Level.WARNING, "Could not delete database files", e);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reader and index of an opened database.
+     */
+    private static final class Database {
+
+        /**
+         * Database reader.
+         */
+        private final DatabaseReader mReader;
+
+        /**
+         * Database index, or null if indices are not needed yet.
+         */
+        private final DatabaseIndex mIndex;
+
+        /**
+         * Source of database reader, used to lazily create its index, or null
+         * if index has already been created.
+         */
+        private final DatabaseSource mSource;
+
+        /**
+         * Constructor.
+         *
+         * @param reader database reader.
+         * @param index  database index or null.
+         * @param source source of database reader, or null if index is
+         *               provided.
+         */
+        Database(final DatabaseReader reader, final DatabaseIndex index,
+                 final DatabaseSource source) {
+            mReader = reader;
+            mIndex = index;
+            mSource = source;
+        }
+
+        /**
+         * Closes database reader and source.
+         *
+         * @throws IOException if an I/O error occurs.
+         */
+        void close() throws IOException {
+            try {
+                mReader.close();
+            } finally {
+                if (mSource != null) {
+                    mSource.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Source of a database reader whose index has not been created yet, which
+     * is either the open database file or the data loaded into memory, so that
+     * the index is created from the same database as the reader.
+     */
+    private static final class DatabaseSource implements Closeable {
+
+        /**
+         * Database file, or null if database is loaded into memory.
+         */
+        private final RandomAccessFile mFile;
+
+        /**
+         * Database contents, or null if database is read from a file.
+         */
+        private final byte[] mData;
+
+        /**
+         * Constructor.
+         *
+         * @param file database file, which is kept open.
+         * @throws IOException if file cannot be opened.
+         */
+        DatabaseSource(final File file) throws IOException {
+            mFile = new RandomAccessFile(file, "r");
+            mData = null;
+        }
+
+        /**
+         * Constructor.
+         *
+         * @param data database contents.
+         */
+        DatabaseSource(final byte[] data) {
+            mFile = null;
+            mData = data;
+        }
+
+        /**
+         * Opens search tree of database.
+         *
+         * @return search tree of database.
+         * @throws IOException if an I/O error occurs.
+         */
+        MmdbReader openTree() throws IOException {
+            if (mData != null) {
+                return new MmdbReader(ByteBuffer.wrap(mData).asReadOnlyBuffer());
+            }
+            final FileChannel channel = mFile.getChannel();
+            return new MmdbReader(channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size()));
+        }
+
+        /**
+         * Closes database file, if any.
+         * Search trees already opened remain usable.
+         *
+         * @throws IOException if an I/O error occurs.
+         */
+        @Override
+        public void close() throws IOException {
+            if (mFile != null) {
+                mFile.close();
+            }
+        }
+    }
+
+    /**
+     * Watches database files and reloads databases when they are replaced.
+     * Watching stops once the watch service is closed.
+     */
+    private class DatabaseWatcher implements Runnable {
+
+        /**
+         * Service notifying changes of folders containing database files.
+         */
+        private final WatchService mService;
+
+        /**
+         * Names of watched database files.
+         */
+        private final List<Path> mNames;
+
+        /**
+         * Constructor.
+         *
+         * @param service service notifying changes of folders containing
+         *                database files.
+         * @param names   names of watched database files.
+         */
+        DatabaseWatcher(final WatchService service, final List<Path> names) {
+            mService = service;
+            mNames = names;
+        }
 
+        /**
+         * Waits for changes of database files and reloads databases.
+         */
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    boolean changed = isChanged(mService.take());
+
+                    // wait until no more changes are notified, so that all
+                    // replaced files are reloaded at once
+                    WatchKey key;
+                    while ((key = mService.poll(WATCH_DELAY,
+                            TimeUnit.MILLISECONDS)) != null) {
+                        changed |= isChanged(key);
+                    }
 
-                    final byte[] buffer = new byte[BUFFER_SIZE];
-                    int n;
-                    while ((n = inStream.read(buffer)) > 0) {
-                        outStream.write(buffer, 0, n);
+                    if (changed) {
+                        try {
+                            reload();
+                        } catch (final IOException e) {
+                            LOGGER.log(Level.WARNING,
+                                    "Could not reload IP geolocation databases",
+                                    e);
+                        }
                     }
-                    LOGGER.log(Level.INFO, "Resource: {0} copied to {1}",
-                            new Object[]{resource, f.getAbsolutePath()});
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (final ClosedWatchServiceException ignore) {
+                // geolocation has been closed
+            }
+        }
+
+        /**
+         * Indicates whether notified events concern any database file.
+         *
+         * @param key key containing notified events.
+         * @return true if any database file changed, false otherwise.
+         */
+        private boolean isChanged(final WatchKey key) {
+            boolean changed = false;
+            for (final WatchEvent<?> event : key.pollEvents()) {
+                if (mNames.contains(event.context())) {
+                    changed = true;
                 }
             }
+            key.reset();
+            return changed;
+        }
+    }
+
+    /**
+     * Creates daemon threads to execute asynchronous lookups, so that they do
+     * not prevent the JVM from exiting.
+     */
+    private static class AsyncThreadFactory implements ThreadFactory {
+
+        /**
+         * Number of created threads.
+         */
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        /**
+         * Creates a new thread.
+         *
+         * @param r runnable to be executed by the thread.
+         * @return a new thread.
+         */
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, "ip-geolocation-" +
+                    mCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
         }
     }
 }
@@ -17,34 +17,73 @@ package com.irurueta.server.commons.geolocation;
 
 import com.irurueta.navigation.utils.LocationUtils;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.TimeZone;
 
 /**
- * Class containing location information obtained for a given IP address
+ * Class containing location information obtained for a given IP address.
+ * Instances are immutable, hence they can be safely shared among threads and
+ * caches. Numeric values are stored as primitive fields along with bits
+ * indicating their presence, and subdivisions are stored in fixed size
+ * arrays, so that each location is a single small object.
+ * Since instances are immutable, this class is not intended to be subclassed,
+ * and subclasses should read location data through public getters.
  */
 @SuppressWarnings("DuplicatedCode")
 public class IPLocation {
 
+    /**
+     * Bit indicating that accuracy radius is available.
+     */
+    static final int ACCURACY_RADIUS_PRESENT = 1;
+
+    /**
+     * Bit indicating that metro code is available.
+     */
+    static final int METRO_CODE_PRESENT = 1 << 1;
+
+    /**
+     * Bit indicating that latitude is available.
+     */
+    static final int LATITUDE_PRESENT = 1 << 2;
+
+    /**
+     * Bit indicating that longitude is available.
+     */
+    static final int LONGITUDE_PRESENT = 1 << 3;
+
+    /**
+     * Bit indicating that autonomous system number is available.
+     */
+    static final int AUTONOMOUS_SYSTEM_NUMBER_PRESENT = 1 << 4;
+
     /**
      * If available, city name where IP address is located.
      */
-    protected String mCity;
+    protected final String mCity;
 
     /**
-     * If available, time zone assigned to location where this IP address is
-     * located as specified by the IANA Time Zone database.
+     * If available, identifier of time zone assigned to location where this IP
+     * address is located as specified by the IANA Time Zone database.
+     * Time zone is only resolved when requested.
      *
      * @see <a href="http://www.iana.org/time-zones">http://www.iana.org/time-zones</a>
      */
-    protected TimeZone mTimeZone;
+    final String mTimeZoneId;
+
+    /**
+     * Bits indicating which numeric values are available.
+     */
+    final int mPresence;
 
     /**
      * The radius in kilometers around the specified location where the IP
      * address is likely to be.
      */
-    protected Integer mAccuracyRadius;
+    final int mAccuracyRadius;
 
     /**
      * Metro code of the location if the location is in the US as specified
@@ -53,45 +92,47 @@ public class IPLocation {
      * @see <a href="https://developers.google.com/adwords/api/docs/appendix/cities-DMAregions">
      * https://developers.google.com/adwords/api/docs/appendix/cities-DMAregions</a>
      */
-    protected Integer mMetroCode;
+    final int mMetroCode;
 
     /**
      * The approximate latitude of the location associated with the IP address.
      * This value is not precise and should not be used to identify a particular
      * address or household.
      */
-    protected Double mLatitude;
+    final double mLatitude;
 
     /**
      * The approximate longitude of the location associated with the IP address.
      * This value is not precise and should not be used to identify a particular
      * address or household.
      */
-    protected Double mLongitude;
+    final double mLongitude;
 
     /**
      * The postal code of the location. Postal codes are not available for all
      * countries. In some countries, this will only contain part of the postal
      * code.
      */
-    protected String mPostalCode;
+    protected final String mPostalCode;
 
     /**
-     * List of subdivisions where location is likely to be.
+     * Subdivisions where location is likely to be.
      * A subdivision is a string of up to three characters long defining a
      * subdivision (i.e. district, province, autonomous community, region, etc).
      * Order of subdivision codes is the same as subdivisions' names.
+     * Arrays are never modified.
      *
      * @see <a href="http://en.wikipedia.org/wiki/ISO_3166-2">
      * http://en.wikipedia.org/wiki/ISO_3166-2</a>
      */
-    protected List<String> mSubdivisionCodes;
+    final String[] mSubdivisionCodes;
 
     /**
-     * List of subdivisions' names where location is likely to be.
+     * Subdivisions' names where location is likely to be.
      * Order of subdivision names is the same as subdivisions' codes.
+     * Arrays are never modified.
      */
-    protected List<String> mSubdivisionNames;
+    final String[] mSubdivisionNames;
 
     /**
      * The two-character ISO 3166-1 alpha code for the country where the IP
@@ -100,24 +141,24 @@ public class IPLocation {
      * @see <a href="http://en.wikipedia.org/wiki/ISO_3166-1">
      * http://en.wikipedia.org/wiki/ISO_3166-1</a>
      */
-    protected String mCountryCode;
+    protected final String mCountryCode;
 
     /**
      * Name of country where the IP address is likely to be.
      */
-    protected String mCountryName;
+    protected final String mCountryName;
 
     /**
      * Two-character ISO 3166-1 alpha code for the country where the ISP has
      * registered a given IP block. This might differ the actual user's country.
      */
-    protected String mRegisteredCountryCode;
+    protected final String mRegisteredCountryCode;
 
     /**
      * Name of country where the ISP has registered a given IP block. This might
      * differ the actual user's country.
      */
-    protected String mRegisteredCountryName;
+    protected final String mRegisteredCountryName;
 
     /**
      * Autonomous system number associated with the IP address.
@@ -125,34 +166,34 @@ public class IPLocation {
      * @see <a href="http://en.wikipedia.org/wiki/Autonomous_system_(Internet)">
      * http://en.wikipedia.org/wiki/Autonomous_system_(Internet)</a>
      */
-    protected Integer mAutonomousSystemNumber;
+    final int mAutonomousSystemNumber;
 
     /**
      * The second level domain associated with the IP address. This will be
      * something like "example.com" or "example.co.uk", not "foo.example.com"
      */
-    protected String mDomain;
+    protected final String mDomain;
 
     /**
      * The name of the ISP associated with the IP address.
      */
-    protected String mIsp;
+    protected final String mIsp;
 
     /**
      * The name of the organization associated with the IP address.
      */
-    protected String mOrganization;
+    protected final String mOrganization;
 
     /**
      * A two character continent code like "NA" (North America) or "OC"
      * (Oceania).
      */
-    protected String mContinentCode;
+    protected final String mContinentCode;
 
     /**
      * Name of continent where request originates from.
      */
-    protected String mContinentName;
+    protected final String mContinentName;
 
     /**
      * Assigned geolocation level to this instance.
@@ -161,6 +202,49 @@ public class IPLocation {
      */
     protected final IPGeolocationLevel mLevel;
 
+    /**
+     * Locales of localized names or null if no localized name is kept.
+     */
+    final NameLocales mNameLocales;
+
+    /**
+     * City names in configured locales or null if not available.
+     */
+    final String[] mLocalizedCityNames;
+
+    /**
+     * Subdivision names in configured locales or null if not available.
+     * Names of each subdivision are stored consecutively, in the same order as
+     * subdivision codes.
+     */
+    final String[] mLocalizedSubdivisionNames;
+
+    /**
+     * Country names in configured locales or null if not available.
+     */
+    final String[] mLocalizedCountryNames;
+
+    /**
+     * Registered country names in configured locales or null if not
+     * available.
+     */
+    final String[] mLocalizedRegisteredCountryNames;
+
+    /**
+     * Continent names in configured locales or null if not available.
+     */
+    final String[] mLocalizedContinentNames;
+
+    /**
+     * Lazily created list view of subdivision codes.
+     */
+    private List<String> mSubdivisionCodeList;
+
+    /**
+     * Lazily created list view of subdivision names.
+     */
+    private List<String> mSubdivisionNameList;
+
     /**
      * Constructor with required geolocation level
      *
@@ -169,7 +253,43 @@ public class IPLocation {
      *              city and country data)
      */
     public IPLocation(IPGeolocationLevel level) {
-        mLevel = level;
+        this(new Builder(level));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param builder builder containing location data.
+     */
+    private IPLocation(final Builder builder) {
+        mLevel = builder.mLevel;
+        mCity = builder.mCity;
+        mTimeZoneId = builder.mTimeZoneId;
+        mPresence = builder.mPresence;
+        mAccuracyRadius = builder.mAccuracyRadius;
+        mMetroCode = builder.mMetroCode;
+        mLatitude = builder.mLatitude;
+        mLongitude = builder.mLongitude;
+        mPostalCode = builder.mPostalCode;
+        mSubdivisionCodes = builder.mSubdivisionCodes;
+        mSubdivisionNames = builder.mSubdivisionNames;
+        mCountryCode = builder.mCountryCode;
+        mCountryName = builder.mCountryName;
+        mRegisteredCountryCode = builder.mRegisteredCountryCode;
+        mRegisteredCountryName = builder.mRegisteredCountryName;
+        mAutonomousSystemNumber = builder.mAutonomousSystemNumber;
+        mDomain = builder.mDomain;
+        mIsp = builder.mIsp;
+        mOrganization = builder.mOrganization;
+        mContinentCode = builder.mContinentCode;
+        mContinentName = builder.mContinentName;
+        mNameLocales = builder.mNameLocales;
+        mLocalizedCityNames = builder.mLocalizedCityNames;
+        mLocalizedSubdivisionNames = builder.mLocalizedSubdivisionNames;
+        mLocalizedCountryNames = builder.mLocalizedCountryNames;
+        mLocalizedRegisteredCountryNames =
+                builder.mLocalizedRegisteredCountryNames;
+        mLocalizedContinentNames = builder.mLocalizedContinentNames;
     }
 
     /**
@@ -181,16 +301,47 @@ public class IPLocation {
         return mCity;
     }
 
+    /**
+     * Gets city name where IP address is located using provided locale.
+     * If no localized name is found, the fallback non-localized name obtained
+     * from database will be returned.
+     *
+     * @param locale language to return localized city name. If null, default
+     *               locale is used.
+     * @return city name where IP address is located.
+     */
+    public String getCity(final Locale locale) {
+        return mNameLocales != null ? mNameLocales.name(mLocalizedCityNames,
+                locale, mCity) : mCity;
+    }
+
     /**
      * Gets the time zone assigned to location where this IP address is located
      * as specified by the IANA Time Zone database.
+     * Time zones are resolved once per identifier and shared among all
+     * locations, hence a copy of the shared instance is returned so that
+     * callers can freely modify it.
      *
      * @return time zone where this IP address is located.
      * @see <a href="http://www.iana.org/time-zones">
      * http://www.iana.org/time-zones</a>
      */
     public TimeZone getTimeZone() {
-        return mTimeZone;
+        final TimeZone timeZone = TimeZoneTable.get(mTimeZoneId);
+        return timeZone != null ? (TimeZone) timeZone.clone() : null;
+    }
+
+    /**
+     * Gets identifier of the time zone assigned to location where this IP
+     * address is located as specified by the IANA Time Zone database.
+     * Unlike {@link #getTimeZone()}, time zone is not resolved.
+     *
+     * @return identifier of time zone where this IP address is located.
+     * @see <a href="http://www.iana.org/time-zones">
+     * http://www.iana.org/time-zones</a>
+     */
+    public String getTimeZoneId() {
+        return mTimeZoneId;
     }
 
     /**
@@ -201,7 +352,7 @@ public class IPLocation {
      * likely to be.
      */
     public Integer getAccuracyRadius() {
-        return mAccuracyRadius;
+        return isPresent(ACCURACY_RADIUS_PRESENT) ? mAccuracyRadius : null;
     }
 
     /**
@@ -213,7 +364,7 @@ public class IPLocation {
      * https://developers.google.com/adwords/api/docs/appendix/cities-DMAregions</a>
      */
     public Integer getMetroCode() {
-        return mMetroCode;
+        return isPresent(METRO_CODE_PRESENT) ? mMetroCode : null;
     }
 
     /**
@@ -226,7 +377,7 @@ public class IPLocation {
      * address.
      */
     public Double getLatitude() {
-        return mLatitude;
+        return isPresent(LATITUDE_PRESENT) ? mLatitude : null;
     }
 
     /**
@@ -239,7 +390,7 @@ public class IPLocation {
      * address.
      */
     public Double getLongitude() {
-        return mLongitude;
+        return isPresent(LONGITUDE_PRESENT) ? mLongitude : null;
     }
 
     /**
@@ -248,7 +399,7 @@ public class IPLocation {
      * @return true if GPS coordinates are available, false otherwise
      */
     public boolean areCoordinatesAvailable() {
-        return mLatitude != null && mLongitude != null;
+        return isPresent(LATITUDE_PRESENT) && isPresent(LONGITUDE_PRESENT);
     }
 
     /**
@@ -268,22 +419,65 @@ public class IPLocation {
      * subdivision (i.e. district, province, autonomous community, region, etc).
      * Order of subdivision codes is the same as subdivisions' names.
      *
+     * Returned list cannot be modified.
+     *
      * @return list of subdivisions where location is likely to be.
      * @see <a href="http://en.wikipedia.org/wiki/ISO_3166-2">
      * http://en.wikipedia.org/wiki/ISO_3166-2</a>
      */
     public List<String> getSubdivisionCodes() {
-        return mSubdivisionCodes;
+        // list views are immutable, hence they can be lazily created by any
+        // thread
+        List<String> list = mSubdivisionCodeList;
+        if (list == null && mSubdivisionCodes != null) {
+            list = mSubdivisionCodeList = toList(mSubdivisionCodes);
+        }
+        return list;
     }
 
     /**
      * Gets list of subdivisions' names where location is likely to be.
      * Order of subdivision names is the same as subdivisions' codes.
+     * Returned list cannot be modified.
      *
      * @return list of subdivisions' names where location is likely to be.
      */
     public List<String> getSubdivisionNames() {
-        return mSubdivisionNames;
+        List<String> list = mSubdivisionNameList;
+        if (list == null && mSubdivisionNames != null) {
+            list = mSubdivisionNameList = toList(mSubdivisionNames);
+        }
+        return list;
+    }
+
+    /**
+     * Gets list of subdivisions' names where location is likely to be using
+     * provided locale.
+     * Order of subdivision names is the same as subdivisions' codes. For any
+     * subdivision having no localized name, the fallback non-localized name
+     * obtained from database is used.
+     *
+     * @param locale language to return localized subdivision names. If null,
+     *               default locale is used.
+     * @return list of subdivisions' names where location is likely to be.
+     */
+    public List<String> getSubdivisionNames(final Locale locale) {
+        if (mNameLocales == null || mLocalizedSubdivisionNames == null) {
+            return getSubdivisionNames();
+        }
+
+        final int index = mNameLocales.indexOf(locale);
+        if (index < 0) {
+            return getSubdivisionNames();
+        }
+
+        final int size = mNameLocales.size();
+        final String[] names = new String[mSubdivisionNames.length];
+        for (int i = 0; i < names.length; i++) {
+            final String name = mLocalizedSubdivisionNames[i * size + index];
+            names[i] = name != null ? name : mSubdivisionNames[i];
+        }
+        return toList(names);
     }
 
     /**
@@ -313,6 +507,8 @@ public class IPLocation {
     /**
      * If available, returns country name where IP address is located using
      * provided locale.
+     * Names obtained from database in configured locales are used first, and
+     * otherwise the name provided by the JDK for the country code.
      * If no value is found, the fallback non-localized name obtained from
      * database will be returned
      *
@@ -321,25 +517,8 @@ public class IPLocation {
      * available
      */
     public String getCountryName(final Locale locale) {
-        if (mCountryCode != null) {
-            final Locale l = new Locale(Locale.getDefault().getLanguage(),
-                    mCountryCode);
-            final String displayCountry;
-            if (locale != null) {
-                displayCountry = l.getDisplayCountry(locale);
-            } else {
-                displayCountry = l.getDisplayCountry();
-            }
-            if (displayCountry.equals(mCountryCode)) {
-                // country code is invalid and it is returned as display country
-                // name
-                return mCountryName;
-            } else {
-                return displayCountry;
-            }
-        } else {
-            return mCountryName;
-        }
+        return localizedCountryName(mLocalizedCountryNames, mCountryCode,
+                mCountryName, locale);
     }
 
     /**
@@ -368,6 +547,8 @@ public class IPLocation {
     /**
      * If available, returns registered country name where IP address is
      * registered by the ISP using provided locale.
+     * Names obtained from database in configured locales are used first, and
+     * otherwise the name provided by the JDK for the country code.
      * If no value is found, the fallback non-localized name obtained from
      * database will be returned
      *
@@ -376,25 +557,8 @@ public class IPLocation {
      * available
      */
     public String getRegisteredCountryName(final Locale locale) {
-        if (mRegisteredCountryCode != null) {
-            final Locale l = new Locale(Locale.getDefault().getLanguage(),
-                    mRegisteredCountryCode);
-            final String displayCountry;
-            if (locale != null) {
-                displayCountry = l.getDisplayCountry(locale);
-            } else {
-                displayCountry = l.getDisplayCountry();
-            }
-            if (displayCountry.equals(mRegisteredCountryCode)) {
-                // country code is invalid and it is returned as display country
-                // name
-                return mRegisteredCountryName;
-            } else {
-                return displayCountry;
-            }
-        } else {
-            return mRegisteredCountryName;
-        }
+        return localizedCountryName(mLocalizedRegisteredCountryNames,
+                mRegisteredCountryCode, mRegisteredCountryName, locale);
     }
 
     /**
@@ -405,7 +569,8 @@ public class IPLocation {
      * http://en.wikipedia.org/wiki/Autonomous_system_(Internet)</a>
      */
     public Integer getAutonomousSystemNumber() {
-        return mAutonomousSystemNumber;
+        return isPresent(AUTONOMOUS_SYSTEM_NUMBER_PRESENT) ?
+                mAutonomousSystemNumber : null;
     }
 
     /**
@@ -455,6 +620,22 @@ public class IPLocation {
         return mContinentName;
     }
 
+    /**
+     * Gets name of continent where request originates from using provided
+     * locale.
+     * If no localized name is found, the fallback non-localized name obtained
+     * from database will be returned.
+     *
+     * @param locale language to return localized continent name. If null,
+     *               default locale is used.
+     * @return name of continent.
+     */
+    public String getContinentName(final Locale locale) {
+        return mNameLocales != null ? mNameLocales.name(
+                mLocalizedContinentNames, locale, mContinentName) :
+                mContinentName;
+    }
+
     /**
      * Returns geolocation level or accuracy that was requested to locate an
      * IP address.
@@ -475,7 +656,552 @@ public class IPLocation {
      * @return distance between locations expressed in meters
      */
     public double distance(final IPLocation otherLocation) {
-        return LocationUtils.distanceBetweenMeters(mLatitude, mLongitude,
-                otherLocation.mLatitude, otherLocation.mLongitude);
+        return LocationUtils.distanceBetweenMeters(getLatitude(),
+                getLongitude(), otherLocation.getLatitude(),
+                otherLocation.getLongitude());
+    }
+
+    /**
+     * Indicates whether a numeric value is available.
+     *
+     * @param bit bit indicating presence of value.
+     * @return true if value is available, false otherwise.
+     */
+    boolean isPresent(final int bit) {
+        return (mPresence & bit) != 0;
+    }
+
+    /**
+     * Creates a list view of an array that cannot be modified.
+     *
+     * @param values array of values.
+     * @return list view.
+     */
+    private static List<String> toList(final String[] values) {
+        return Collections.unmodifiableList(Arrays.asList(values));
+    }
+
+    /**
+     * Gets localized name of a country.
+     *
+     * @param localizedNames country names in configured locales or null.
+     * @param countryCode    ISO country code.
+     * @param countryName    non-localized name obtained from database.
+     * @param locale         requested locale.
+     * @return localized country name or non-localized name if not available.
+     */
+    private String localizedCountryName(final String[] localizedNames,
+                                        final String countryCode,
+                                        final String countryName,
+                                        final Locale locale) {
+        if (mNameLocales != null) {
+            final String name = mNameLocales.name(localizedNames, locale, null);
+            if (name != null) {
+                return name;
+            }
+        }
+        final String displayCountry = CountryNameTable.get(countryCode, locale);
+        return displayCountry != null ? displayCountry : countryName;
+    }
+
+    /**
+     * Collects location data to create immutable locations.
+     */
+    static final class Builder {
+
+        /**
+         * Geolocation level.
+         */
+        private final IPGeolocationLevel mLevel;
+
+        /**
+         * City name.
+         */
+        private String mCity;
+
+        /**
+         * Time zone identifier.
+         */
+        private String mTimeZoneId;
+
+        /**
+         * Bits indicating which numeric values are available.
+         */
+        private int mPresence;
+
+        /**
+         * Accuracy radius expressed in kilometers.
+         */
+        private int mAccuracyRadius;
+
+        /**
+         * Metro code.
+         */
+        private int mMetroCode;
+
+        /**
+         * Latitude.
+         */
+        private double mLatitude;
+
+        /**
+         * Longitude.
+         */
+        private double mLongitude;
+
+        /**
+         * Postal code.
+         */
+        private String mPostalCode;
+
+        /**
+         * Subdivision codes.
+         */
+        private String[] mSubdivisionCodes;
+
+        /**
+         * Subdivision names.
+         */
+        private String[] mSubdivisionNames;
+
+        /**
+         * ISO country code.
+         */
+        private String mCountryCode;
+
+        /**
+         * Country name.
+         */
+        private String mCountryName;
+
+        /**
+         * Registered ISO country code.
+         */
+        private String mRegisteredCountryCode;
+
+        /**
+         * Registered country name.
+         */
+        private String mRegisteredCountryName;
+
+        /**
+         * Autonomous system number.
+         */
+        private int mAutonomousSystemNumber;
+
+        /**
+         * Second level domain.
+         */
+        private String mDomain;
+
+        /**
+         * Name of ISP.
+         */
+        private String mIsp;
+
+        /**
+         * Name of organization.
+         */
+        private String mOrganization;
+
+        /**
+         * Continent code.
+         */
+        private String mContinentCode;
+
+        /**
+         * Continent name.
+         */
+        private String mContinentName;
+
+        /**
+         * Locales of localized names.
+         */
+        private NameLocales mNameLocales;
+
+        /**
+         * City names in configured locales.
+         */
+        private String[] mLocalizedCityNames;
+
+        /**
+         * Subdivision names in configured locales.
+         */
+        private String[] mLocalizedSubdivisionNames;
+
+        /**
+         * Country names in configured locales.
+         */
+        private String[] mLocalizedCountryNames;
+
+        /**
+         * Registered country names in configured locales.
+         */
+        private String[] mLocalizedRegisteredCountryNames;
+
+        /**
+         * Continent names in configured locales.
+         */
+        private String[] mLocalizedContinentNames;
+
+        /**
+         * Constructor.
+         *
+         * @param level geolocation level.
+         */
+        Builder(final IPGeolocationLevel level) {
+            mLevel = level;
+        }
+
+        /**
+         * Constructor copying data of an existing location.
+         *
+         * @param location location to copy data from.
+         */
+        Builder(final IPLocation location) {
+            mLevel = location.mLevel;
+            mCity = location.mCity;
+            mTimeZoneId = location.mTimeZoneId;
+            mPresence = location.mPresence;
+            mAccuracyRadius = location.mAccuracyRadius;
+            mMetroCode = location.mMetroCode;
+            mLatitude = location.mLatitude;
+            mLongitude = location.mLongitude;
+            mPostalCode = location.mPostalCode;
+            mSubdivisionCodes = location.mSubdivisionCodes;
+            mSubdivisionNames = location.mSubdivisionNames;
+            mCountryCode = location.mCountryCode;
+            mCountryName = location.mCountryName;
+            mRegisteredCountryCode = location.mRegisteredCountryCode;
+            mRegisteredCountryName = location.mRegisteredCountryName;
+            mAutonomousSystemNumber = location.mAutonomousSystemNumber;
+            mDomain = location.mDomain;
+            mIsp = location.mIsp;
+            mOrganization = location.mOrganization;
+            mContinentCode = location.mContinentCode;
+            mContinentName = location.mContinentName;
+            mNameLocales = location.mNameLocales;
+            mLocalizedCityNames = location.mLocalizedCityNames;
+            mLocalizedSubdivisionNames = location.mLocalizedSubdivisionNames;
+            mLocalizedCountryNames = location.mLocalizedCountryNames;
+            mLocalizedRegisteredCountryNames =
+                    location.mLocalizedRegisteredCountryNames;
+            mLocalizedContinentNames = location.mLocalizedContinentNames;
+        }
+
+        /**
+         * Sets city name.
+         *
+         * @param city city name.
+         * @return this builder.
+         */
+        Builder setCity(final String city) {
+            mCity = city;
+            return this;
+        }
+
+        /**
+         * Sets time zone identifier.
+         *
+         * @param timeZoneId time zone identifier as specified by the IANA Time
+         *                   Zone database.
+         * @return this builder.
+         */
+        Builder setTimeZoneId(final String timeZoneId) {
+            mTimeZoneId = timeZoneId;
+            return this;
+        }
+
+        /**
+         * Sets accuracy radius.
+         *
+         * @param accuracyRadius accuracy radius expressed in kilometers or
+         *                       null if not available.
+         * @return this builder.
+         */
+        Builder setAccuracyRadius(final Integer accuracyRadius) {
+            mAccuracyRadius = accuracyRadius != null ? accuracyRadius : 0;
+            return setPresent(ACCURACY_RADIUS_PRESENT, accuracyRadius != null);
+        }
+
+        /**
+         * Sets metro code.
+         *
+         * @param metroCode metro code or null if not available.
+         * @return this builder.
+         */
+        Builder setMetroCode(final Integer metroCode) {
+            mMetroCode = metroCode != null ? metroCode : 0;
+            return setPresent(METRO_CODE_PRESENT, metroCode != null);
+        }
+
+        /**
+         * Sets latitude.
+         *
+         * @param latitude latitude or null if not available.
+         * @return this builder.
+         */
+        Builder setLatitude(final Double latitude) {
+            mLatitude = latitude != null ? latitude : 0.0;
+            return setPresent(LATITUDE_PRESENT, latitude != null);
+        }
+
+        /**
+         * Sets longitude.
+         *
+         * @param longitude longitude or null if not available.
+         * @return this builder.
+         */
+        Builder setLongitude(final Double longitude) {
+            mLongitude = longitude != null ? longitude : 0.0;
+            return setPresent(LONGITUDE_PRESENT, longitude != null);
+        }
+
+        /**
+         * Sets postal code.
+         *
+         * @param postalCode postal code.
+         * @return this builder.
+         */
+        Builder setPostalCode(final String postalCode) {
+            mPostalCode = postalCode;
+            return this;
+        }
+
+        /**
+         * Sets subdivision codes.
+         *
+         * @param subdivisionCodes subdivision codes. Array must not be modified
+         *                         afterwards.
+         * @return this builder.
+         */
+        Builder setSubdivisionCodes(final String[] subdivisionCodes) {
+            mSubdivisionCodes = subdivisionCodes;
+            return this;
+        }
+
+        /**
+         * Sets subdivision names.
+         *
+         * @param subdivisionNames subdivision names. Array must not be modified
+         *                         afterwards.
+         * @return this builder.
+         */
+        Builder setSubdivisionNames(final String[] subdivisionNames) {
+            mSubdivisionNames = subdivisionNames;
+            return this;
+        }
+
+        /**
+         * Sets ISO country code.
+         *
+         * @param countryCode ISO country code.
+         * @return this builder.
+         */
+        Builder setCountryCode(final String countryCode) {
+            mCountryCode = countryCode;
+            return this;
+        }
+
+        /**
+         * Sets country name.
+         *
+         * @param countryName country name.
+         * @return this builder.
+         */
+        Builder setCountryName(final String countryName) {
+            mCountryName = countryName;
+            return this;
+        }
+
+        /**
+         * Sets registered ISO country code.
+         *
+         * @param registeredCountryCode registered ISO country code.
+         * @return this builder.
+         */
+        Builder setRegisteredCountryCode(final String registeredCountryCode) {
+            mRegisteredCountryCode = registeredCountryCode;
+            return this;
+        }
+
+        /**
+         * Sets registered country name.
+         *
+         * @param registeredCountryName registered country name.
+         * @return this builder.
+         */
+        Builder setRegisteredCountryName(final String registeredCountryName) {
+            mRegisteredCountryName = registeredCountryName;
+            return this;
+        }
+
+        /**
+         * Sets autonomous system number.
+         *
+         * @param autonomousSystemNumber autonomous system number or null if not
+         *                               available.
+         * @return this builder.
+         */
+        Builder setAutonomousSystemNumber(final Integer autonomousSystemNumber) {
+            mAutonomousSystemNumber = autonomousSystemNumber != null ?
+                    autonomousSystemNumber : 0;
+            return setPresent(AUTONOMOUS_SYSTEM_NUMBER_PRESENT,
+                    autonomousSystemNumber != null);
+        }
+
+        /**
+         * Sets second level domain.
+         *
+         * @param domain second level domain.
+         * @return this builder.
+         */
+        Builder setDomain(final String domain) {
+            mDomain = domain;
+            return this;
+        }
+
+        /**
+         * Sets name of ISP.
+         *
+         * @param isp name of ISP.
+         * @return this builder.
+         */
+        Builder setIsp(final String isp) {
+            mIsp = isp;
+            return this;
+        }
+
+        /**
+         * Sets name of organization.
+         *
+         * @param organization name of organization.
+         * @return this builder.
+         */
+        Builder setOrganization(final String organization) {
+            mOrganization = organization;
+            return this;
+        }
+
+        /**
+         * Sets continent code.
+         *
+         * @param continentCode continent code.
+         * @return this builder.
+         */
+        Builder setContinentCode(final String continentCode) {
+            mContinentCode = continentCode;
+            return this;
+        }
+
+        /**
+         * Sets continent name.
+         *
+         * @param continentName continent name.
+         * @return this builder.
+         */
+        Builder setContinentName(final String continentName) {
+            mContinentName = continentName;
+            return this;
+        }
+
+        /**
+         * Sets locales of localized names.
+         *
+         * @param nameLocales locales of localized names.
+         * @return this builder.
+         */
+        Builder setNameLocales(final NameLocales nameLocales) {
+            mNameLocales = nameLocales;
+            return this;
+        }
+
+        /**
+         * Sets city names in configured locales.
+         *
+         * @param localizedCityNames city names in configured locales.
+         * @return this builder.
+         */
+        Builder setLocalizedCityNames(final String[] localizedCityNames) {
+            mLocalizedCityNames = localizedCityNames;
+            return this;
+        }
+
+        /**
+         * Sets subdivision names in configured locales.
+         * Names of each subdivision must be stored consecutively, in the same
+         * order as subdivision codes.
+         *
+         * @param localizedSubdivisionNames subdivision names in configured
+         *                                  locales.
+         * @return this builder.
+         */
+        Builder setLocalizedSubdivisionNames(
+                final String[] localizedSubdivisionNames) {
+            mLocalizedSubdivisionNames = localizedSubdivisionNames;
+            return this;
+        }
+
+        /**
+         * Sets country names in configured locales.
+         *
+         * @param localizedCountryNames country names in configured locales.
+         * @return this builder.
+         */
+        Builder setLocalizedCountryNames(final String[] localizedCountryNames) {
+            mLocalizedCountryNames = localizedCountryNames;
+            return this;
+        }
+
+        /**
+         * Sets registered country names in configured locales.
+         *
+         * @param localizedRegisteredCountryNames registered country names in
+         *                                        configured locales.
+         * @return this builder.
+         */
+        Builder setLocalizedRegisteredCountryNames(
+                final String[] localizedRegisteredCountryNames) {
+            mLocalizedRegisteredCountryNames = localizedRegisteredCountryNames;
+            return this;
+        }
+
+        /**
+         * Sets continent names in configured locales.
+         *
+         * @param localizedContinentNames continent names in configured
+         *                                locales.
+         * @return this builder.
+         */
+        Builder setLocalizedContinentNames(
+                final String[] localizedContinentNames) {
+            mLocalizedContinentNames = localizedContinentNames;
+            return this;
+        }
+
+        /**
+         * Creates an immutable location containing collected data.
+         *
+         * @return a new location.
+         */
+        IPLocation build() {
+            return new IPLocation(this);
+        }
+
+        /**
+         * Sets or clears a bit indicating presence of a numeric value.
+         *
+         * @param bit     bit to be set or cleared.
+         * @param present true if value is available, false otherwise.
+         * @return this builder.
+         */
+        private Builder setPresent(final int bit, final boolean present) {
+            if (present) {
+                mPresence |= bit;
+            } else {
+                mPresence &= ~bit;
+            }
+            return this;
+        }
     }
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import java.net.InetAddress;
+
+/**
+ * Bounded cache of locations obtained for IP addresses.
+ * Locations are cached by IP address and requested geolocation level.
+ * Cached locations are kept in least recently used order, so that once the
+ * maximum size is reached, least recently used locations are evicted.
+ * Optionally, cached locations can expire after a given amount of time.
+ * This cache is safe to be used concurrently.
+ */
+public class IPLocationCache extends BaseIPLocationCache {
+
+    /**
+     * Constructor.
+     *
+     * @param maxSize    maximum number of locations to be kept in this cache.
+     * @param timeToLive amount of time expressed in milliseconds that locations
+     *                   are kept in this cache. Zero or negative values indicate
+     *                   that locations never expire.
+     * @throws IllegalArgumentException if provided maximum size is less than 1.
+     */
+    public IPLocationCache(final int maxSize, final long timeToLive) {
+        super(maxSize, timeToLive);
+    }
+
+    /**
+     * Gets cached location of provided address for requested geolocation
+     * level.
+     *
+     * @param address IP address to look for.
+     * @param level   requested geolocation level.
+     * @return cached location or null if not found or expired.
+     */
+    public IPLocation get(final InetAddress address,
+                          final IPGeolocationLevel level) {
+        return getLocation(new Key(address, level));
+    }
+
+    /**
+     * Stores location obtained for provided address and geolocation level.
+     *
+     * @param address  IP address that was located.
+     * @param level    requested geolocation level.
+     * @param location location obtained for provided address.
+     */
+    public void put(final InetAddress address, final IPGeolocationLevel level,
+                    final IPLocation location) {
+        putLocation(new Key(address, level), location);
+    }
+
+    /**
+     * Key of cached locations.
+     * Key is also used by other caches indexed by IP address.
+     */
+    static final class Key {
+
+        /**
+         * Located IP address.
+         */
+        private final InetAddress mAddress;
+
+        /**
+         * Requested geolocation level.
+         */
+        private final IPGeolocationLevel mLevel;
+
+        /**
+         * Constructor.
+         *
+         * @param address located IP address.
+         * @param level   requested geolocation level.
+         */
+        Key(final InetAddress address, final IPGeolocationLevel level) {
+            mAddress = address;
+            mLevel = level;
+        }
+
+        /**
+         * Computes hash code of this key.
+         *
+         * @return hash code.
+         */
+        @Override
+        public int hashCode() {
+            return 31 * mAddress.hashCode() + mLevel.ordinal();
+        }
+
+        /**
+         * Indicates whether provided object is equal to this key.
+         *
+         * @param obj object to compare.
+         * @return true if both objects are equal, false otherwise.
+         */
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return mLevel == other.mLevel && mAddress.equals(other.mAddress);
+        }
+    }
+}
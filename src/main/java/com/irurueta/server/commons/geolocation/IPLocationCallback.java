@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+/**
+ * Receives the outcome of asynchronous lookups.
+ * Methods of this interface are called from the thread executing the lookup,
+ * hence implementations should not block.
+ */
+public interface IPLocationCallback {
+
+    /**
+     * Called when an IP address has been successfully located.
+     *
+     * @param location location of IP address.
+     */
+    void onLocated(final IPLocation location);
+
+    /**
+     * Called when an IP address could not be located.
+     *
+     * @param e exception describing the failure, which can be an
+     *          {@link IPGeolocationDisabledException}, an
+     *          {@link IPLocationNotFoundException} or an
+     *          {@link java.net.UnknownHostException} if provided textual
+     *          address was not valid.
+     */
+    void onFailure(final Exception e);
+}
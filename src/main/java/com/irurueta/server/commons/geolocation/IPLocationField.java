@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+/**
+ * Enumerator defining location fields that can be requested when locating
+ * IP addresses.
+ * Requesting only needed fields avoids decoding and creating objects for
+ * fields that are not used.
+ * Fields of city level are only obtained on city level geolocation.
+ */
+public enum IPLocationField {
+    /**
+     * Continent code.
+     */
+    CONTINENT_CODE,
+
+    /**
+     * Continent name, including localized names.
+     */
+    CONTINENT_NAME,
+
+    /**
+     * Country ISO code.
+     */
+    COUNTRY_CODE,
+
+    /**
+     * Country name, including localized names.
+     */
+    COUNTRY_NAME,
+
+    /**
+     * ISO code of country where IP address is registered.
+     */
+    REGISTERED_COUNTRY_CODE,
+
+    /**
+     * Name of country where IP address is registered, including localized
+     * names.
+     */
+    REGISTERED_COUNTRY_NAME,
+
+    /**
+     * Autonomous system number, domain, ISP and organization.
+     */
+    TRAITS,
+
+    /**
+     * City name, including localized names.
+     */
+    CITY,
+
+    /**
+     * Subdivision codes and names, including localized names.
+     */
+    SUBDIVISIONS,
+
+    /**
+     * Postal code.
+     */
+    POSTAL_CODE,
+
+    /**
+     * Coordinates, accuracy radius, metro code and time zone.
+     */
+    LOCATION
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import java.net.InetAddress;
+
+/**
+ * Bounded cache of IP addresses that could not be located.
+ * Addresses are cached by IP address and requested geolocation level, so that
+ * repeated lookups of addresses not contained in the database can be answered
+ * without accessing the database again.
+ * Cached addresses are kept in least recently used order, so that once the
+ * maximum size is reached, least recently used addresses are evicted.
+ * This cache is safe to be used concurrently.
+ */
+public class IPNegativeCache extends BaseIPLocationCache {
+
+    /**
+     * Constructor.
+     * Cached addresses never expire, since contents of a database do not
+     * change while the database is open.
+     *
+     * @param maxSize maximum number of addresses to be kept in this cache.
+     * @throws IllegalArgumentException if provided maximum size is less than 1.
+     */
+    public IPNegativeCache(final int maxSize) {
+        super(maxSize, 0);
+    }
+
+    /**
+     * Indicates whether provided address is known not to be found for
+     * requested geolocation level.
+     *
+     * @param address IP address to look for.
+     * @param level   requested geolocation level.
+     * @return true if address could not be located, false otherwise.
+     */
+    public boolean contains(final InetAddress address,
+                            final IPGeolocationLevel level) {
+        return containsKey(new IPLocationCache.Key(address, level));
+    }
+
+    /**
+     * Stores an address that could not be located for provided geolocation
+     * level.
+     *
+     * @param address IP address that could not be located.
+     * @param level   requested geolocation level.
+     */
+    public void put(final InetAddress address, final IPGeolocationLevel level) {
+        putKey(new IPLocationCache.Key(address, level));
+    }
+}
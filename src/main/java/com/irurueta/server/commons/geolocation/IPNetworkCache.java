@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+/**
+ * Bounded cache of locations obtained for database records.
+ * Each record of a Maxmind database contains the data of one or more network
+ * blocks, hence all addresses belonging to those blocks share a single cache
+ * entry, regardless of how many distinct addresses are located.
+ * Records are identified by their position within the database, as obtained
+ * when walking the search tree of the database.
+ * Cached locations are kept in least recently used order, so that once the
+ * maximum size is reached, least recently used locations are evicted.
+ * This cache is safe to be used concurrently.
+ */
+public class IPNetworkCache extends BaseIPLocationCache {
+
+    /**
+     * Constructor.
+     * Cached locations never expire, since data of a database record does not
+     * change while the database is open.
+     *
+     * @param maxSize maximum number of locations to be kept in this cache.
+     * @throws IllegalArgumentException if provided maximum size is less than 1.
+     */
+    public IPNetworkCache(final int maxSize) {
+        super(maxSize, 0);
+    }
+
+    /**
+     * Gets cached location of provided database record for requested
+     * geolocation level.
+     *
+     * @param record position of record within the database.
+     * @param level  requested geolocation level.
+     * @return cached location or null if not found.
+     */
+    public IPLocation get(final int record, final IPGeolocationLevel level) {
+        return getLocation(new RecordKey(record, level));
+    }
+
+    /**
+     * Stores location obtained for provided database record and geolocation
+     * level.
+     *
+     * @param record   position of record within the database.
+     * @param level    requested geolocation level.
+     * @param location location obtained for provided record.
+     */
+    public void put(final int record, final IPGeolocationLevel level,
+                    final IPLocation location) {
+        putLocation(new RecordKey(record, level), location);
+    }
+
+    /**
+     * Key of cached locations.
+     */
+    private static final class RecordKey {
+
+        /**
+         * Position of record within the database.
+         */
+        private final int mRecord;
+
+        /**
+         * Requested geolocation level.
+         */
+        private final IPGeolocationLevel mLevel;
+
+        /**
+         * Constructor.
+         *
+         * @param record position of record within the database.
+         * @param level  requested geolocation level.
+         */
+        RecordKey(final int record, final IPGeolocationLevel level) {
+            mRecord = record;
+            mLevel = level;
+        }
+
+        /**
+         * Computes hash code of this key.
+         *
+         * @return hash code.
+         */
+        @Override
+        public int hashCode() {
+            return 31 * mRecord + mLevel.ordinal();
+        }
+
+        /**
+         * Indicates whether provided object is equal to this key.
+         *
+         * @param obj object to compare.
+         * @return true if both objects are equal, false otherwise.
+         */
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof RecordKey)) {
+                return false;
+            }
+            final RecordKey other = (RecordKey) obj;
+            return mRecord == other.mRecord && mLevel == other.mLevel;
+        }
+    }
+}
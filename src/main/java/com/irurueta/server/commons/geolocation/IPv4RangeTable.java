@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Flat table of IPv4 address ranges compiled from the search tree of a
+ * Maxmind database.
+ * IPv4 addresses are resolved with a single binary search over a primitive
+ * array instead of walking up to 32 tree nodes. A first level index on the 16
+ * most significant bits of addresses narrows each binary search to the few
+ * ranges sharing those bits.
+ * Adjacent ranges pointing to the same record are merged, and address space
+ * not contained in the database is represented by ranges without record.
+ * Instances of this class are safe to be used concurrently.
+ */
+final class IPv4RangeTable extends BaseRangeTable {
+
+    /**
+     * Number of bits of an IPv4 address.
+     */
+    private static final int IPV4_BITS = 32;
+
+    /**
+     * Start address of each range. Addresses have their sign bit flipped, so
+     * that signed comparisons sort them as unsigned values.
+     */
+    private final IntBuffer mStarts;
+
+    /**
+     * First level index containing, for each value of the 16 most significant
+     * bits of addresses, the position of the range containing the first
+     * address having those bits. Last entry contains position of last range.
+     */
+    private final IntBuffer mIndex;
+
+    /**
+     * Constructor.
+     *
+     * @param collector collector containing compiled ranges.
+     * @param offHeap   true to store table off-heap, false otherwise.
+     */
+    private IPv4RangeTable(final Collector collector, final boolean offHeap) {
+        super(collector, offHeap);
+        final int size = collector.size();
+        final int[] starts = collector.mStarts;
+        mStarts = toBuffer(starts, size, offHeap);
+
+        final int[] index = new int[INDEX_SIZE + 1];
+        int pos = 0;
+        for (int i = 0; i < INDEX_SIZE; i++) {
+            final int first = (i << (IPV4_BITS - INDEX_BITS)) ^ Integer.MIN_VALUE;
+            while (pos + 1 < size && starts[pos + 1] <= first) {
+                pos++;
+            }
+            index[i] = pos;
+        }
+        index[INDEX_SIZE] = size - 1;
+        mIndex = toBuffer(index, index.length, offHeap);
+    }
+
+    /**
+     * Compiles the IPv4 address space of provided database into a range table.
+     *
+     * @param reader  reader of database to be compiled.
+     * @param offHeap true to store table off-heap, false otherwise.
+     * @return compiled table.
+     */
+    static IPv4RangeTable compile(final MmdbReader reader,
+                                  final boolean offHeap) {
+        final Collector collector = new Collector(reader);
+        collector.collect(reader.getIpv4StartNode());
+        return new IPv4RangeTable(collector, offHeap);
+    }
+
+    /**
+     * Gets number of ranges of this table.
+     *
+     * @return number of ranges.
+     */
+    @Override
+    int size() {
+        return mStarts.capacity();
+    }
+
+    /**
+     * Finds position within the record table of the record containing data
+     * of provided IPv4 address.
+     *
+     * @param address IPv4 address to look for.
+     * @return position within record table or {@link #NOT_FOUND}.
+     */
+    @Override
+    int findIndex(final InetAddress address) {
+        return findIndex(IPAddressParser.toInt((Inet4Address) address));
+    }
+
+    /**
+     * Finds position within the record table of the record containing data
+     * of provided IPv4 address.
+     *
+     * @param address IPv4 address expressed as an integer in network order.
+     * @return position within record table or {@link #NOT_FOUND}.
+     */
+    int findIndex(final int address) {
+        final int bucket = address >>> (IPV4_BITS - INDEX_BITS);
+        final int flipped = address ^ Integer.MIN_VALUE;
+
+        // find last range starting at or before address
+        int from = mIndex.get(bucket);
+        int to = mIndex.get(bucket + 1);
+        while (from < to) {
+            final int middle = (from + to + 1) >>> 1;
+            if (mStarts.get(middle) <= flipped) {
+                from = middle;
+            } else {
+                to = middle - 1;
+            }
+        }
+        return recordIndexOf(from);
+    }
+
+    /**
+     * Walks the IPv4 subtree of a database collecting ranges in ascending
+     * order.
+     */
+    private static final class Collector extends RangeCollector {
+
+        /**
+         * Reader of database being compiled.
+         */
+        private final MmdbReader mReader;
+
+        /**
+         * Number of nodes of search tree.
+         */
+        private final int mNodeCount;
+
+        /**
+         * Start address of collected ranges with flipped sign bit.
+         */
+        private int[] mStarts = new int[INITIAL_CAPACITY];
+
+        /**
+         * Constructor.
+         *
+         * @param reader reader of database being compiled.
+         */
+        Collector(final MmdbReader reader) {
+            mReader = reader;
+            mNodeCount = reader.getNodeCount();
+        }
+
+        /**
+         * Collects ranges of the IPv4 subtree.
+         *
+         * @param start root of IPv4 subtree, which might also be a data or empty
+         *              record if all IPv4 addresses share the same record.
+         */
+        void collect(final int start) {
+            if (start < mNodeCount) {
+                visit(start, 0, 0);
+            } else {
+                // a single range covers the whole IPv4 address space
+                mStarts[add(mReader.resolve(start))] = Integer.MIN_VALUE;
+            }
+        }
+
+        /**
+         * Visits a node of the search tree.
+         *
+         * @param node   node to visit.
+         * @param prefix address prefix of node.
+         * @param depth  number of bits of address prefix.
+         */
+        void visit(final int node, final int prefix, final int depth) {
+            for (int bit = 0; bit < 2; bit++) {
+                final int value = mReader.readNode(node, bit);
+                final int childPrefix = bit == 0 ? prefix :
+                        prefix | (1 << (IPV4_BITS - 1 - depth));
+                if (value < mNodeCount && depth + 1 < IPV4_BITS) {
+                    visit(value, childPrefix, depth + 1);
+                } else {
+                    final int pos = add(value < mNodeCount ?
+                            MmdbReader.NOT_FOUND : mReader.resolve(value));
+                    if (pos >= 0) {
+                        mStarts[pos] = childPrefix ^ Integer.MIN_VALUE;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Grows array where range starts are stored.
+         *
+         * @param capacity new capacity.
+         */
+        @Override
+        void grow(final int capacity) {
+            mStarts = Arrays.copyOf(mStarts, capacity);
+        }
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import java.net.InetAddress;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * Flat table of IPv6 address ranges compiled from the search tree of a
+ * Maxmind database.
+ * Addresses are represented as two longs containing their 64 most and least
+ * significant bits, so that IPv6 addresses are resolved with primitive
+ * comparisons instead of walking up to 128 tree nodes.
+ * The table is laid out as a multibit trie having a first level with a stride
+ * of 16 bits, whose entries point to the sorted ranges sharing those bits,
+ * which are then binary searched. Since IPv6 address space is sparsely
+ * allocated, this requires far less memory than deeper levels of fixed stride
+ * nodes.
+ * Subtrees aliasing IPv4 address space (IPv4 compatible, IPv4 mapped and 6to4
+ * addresses) are not compiled. Addresses within them are reported as
+ * {@link #DELEGATED}, so that they are resolved using the search tree of the
+ * database.
+ * Instances of this class are safe to be used concurrently.
+ */
+final class IPv6RangeTable extends BaseRangeTable {
+
+    /**
+     * Number of bits of an IPv6 address.
+     */
+    private static final int IPV6_BITS = 128;
+
+    /**
+     * Number of bits of each long containing half an IPv6 address.
+     */
+    private static final int HALF_BITS = 64;
+
+    /**
+     * Number of bytes of each long containing half an IPv6 address.
+     */
+    private static final int HALF_BYTES = 8;
+
+    /**
+     * Depth of IPv4 subtree within IPv6 databases.
+     */
+    private static final int IPV4_SUBTREE_DEPTH = 96;
+
+    /**
+     * Pseudo record assigned to ranges aliasing IPv4 address space.
+     */
+    private static final int DELEGATED_RECORD = -2;
+
+    /**
+     * 64 most significant bits of start address of each range. Values have
+     * their sign bit flipped, so that signed comparisons sort them as unsigned
+     * values.
+     */
+    private final LongBuffer mHighStarts;
+
+    /**
+     * 64 least significant bits of start address of each range. Values have
+     * their sign bit flipped, so that signed comparisons sort them as unsigned
+     * values.
+     */
+    private final LongBuffer mLowStarts;
+
+    /**
+     * First level index containing, for each value of the 16 most significant
+     * bits of addresses, the position of the range containing the first
+     * address having those bits. Last entry contains position of last range.
+     */
+    private final IntBuffer mIndex;
+
+    /**
+     * Position within the record table of the pseudo record assigned to ranges
+     * aliasing IPv4 address space, or {@link #NOT_FOUND} if there are none.
+     */
+    private final int mDelegatedIndex;
+
+    /**
+     * Constructor.
+     *
+     * @param collector collector containing compiled ranges.
+     * @param offHeap   true to store table off-heap, false otherwise.
+     */
+    private IPv6RangeTable(final Collector collector, final boolean offHeap) {
+        super(collector, offHeap);
+        final int size = collector.size();
+        final long[] highStarts = collector.mHighStarts;
+        final long[] lowStarts = collector.mLowStarts;
+        mHighStarts = toBuffer(highStarts, size, offHeap);
+        mLowStarts = toBuffer(lowStarts, size, offHeap);
+        mDelegatedIndex = collector.findRecordIndex(DELEGATED_RECORD);
+
+        final int[] index = new int[INDEX_SIZE + 1];
+        int pos = 0;
+        for (int i = 0; i < INDEX_SIZE; i++) {
+            final long first = ((long) i << (HALF_BITS - INDEX_BITS)) ^
+                    Long.MIN_VALUE;
+            while (pos + 1 < size && (highStarts[pos + 1] < first ||
+                    (highStarts[pos + 1] == first &&
+                            lowStarts[pos + 1] == Long.MIN_VALUE))) {
+                pos++;
+            }
+            index[i] = pos;
+        }
+        index[INDEX_SIZE] = size - 1;
+        mIndex = toBuffer(index, index.length, offHeap);
+    }
+
+    /**
+     * Compiles the IPv6 address space of provided database into a range table.
+     *
+     * @param reader  reader of database to be compiled.
+     * @param offHeap true to store table off-heap, false otherwise.
+     * @return compiled table.
+     * @throws IllegalArgumentException if database does not contain IPv6
+     *                                  addresses.
+     */
+    static IPv6RangeTable compile(final MmdbReader reader,
+                                  final boolean offHeap) {
+        if (reader.getIpVersion() != 6) {
+            throw new IllegalArgumentException(
+                    "database does not contain IPv6 addresses");
+        }
+        final Collector collector = new Collector(reader);
+        collector.visit(0, 0, 0, 0);
+        return new IPv6RangeTable(collector, offHeap);
+    }
+
+    /**
+     * Gets number of ranges of this table.
+     *
+     * @return number of ranges.
+     */
+    @Override
+    int size() {
+        return mHighStarts.capacity();
+    }
+
+    /**
+     * Finds position within the record table of the record containing data
+     * of provided IPv6 address.
+     *
+     * @param address IPv6 address to look for.
+     * @return position within record table, {@link #NOT_FOUND} or
+     * {@link #DELEGATED} if address aliases IPv4 address space.
+     */
+    @Override
+    int findIndex(final InetAddress address) {
+        final byte[] bytes = address.getAddress();
+        if (bytes.length != 2 * HALF_BYTES) {
+            return DELEGATED;
+        }
+        return findIndex(toLong(bytes, 0), toLong(bytes, HALF_BYTES));
+    }
+
+    /**
+     * Finds position within the record table of the record containing data
+     * of provided IPv6 address.
+     *
+     * @param high 64 most significant bits of address.
+     * @param low  64 least significant bits of address.
+     * @return position within record table, {@link #NOT_FOUND} or
+     * {@link #DELEGATED} if address aliases IPv4 address space.
+     */
+    int findIndex(final long high, final long low) {
+        final int bucket = (int) (high >>> (HALF_BITS - INDEX_BITS));
+        final long flippedHigh = high ^ Long.MIN_VALUE;
+        final long flippedLow = low ^ Long.MIN_VALUE;
+
+        // find last range starting at or before address
+        int from = mIndex.get(bucket);
+        int to = mIndex.get(bucket + 1);
+        while (from < to) {
+            final int middle = (from + to + 1) >>> 1;
+            final long middleHigh = mHighStarts.get(middle);
+            if (middleHigh < flippedHigh || (middleHigh == flippedHigh &&
+                    mLowStarts.get(middle) <= flippedLow)) {
+                from = middle;
+            } else {
+                to = middle - 1;
+            }
+        }
+
+        final int index = recordIndexOf(from);
+        return index == mDelegatedIndex && index != NOT_FOUND ?
+                DELEGATED : index;
+    }
+
+    /**
+     * Converts 8 bytes in network order into a long.
+     *
+     * @param bytes  bytes to convert.
+     * @param offset position of first byte.
+     * @return converted value.
+     */
+    private static long toLong(final byte[] bytes, final int offset) {
+        long value = 0;
+        for (int i = 0; i < HALF_BYTES; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Walks the search tree of a database collecting IPv6 ranges in ascending
+     * order.
+     */
+    private static final class Collector extends RangeCollector {
+
+        /**
+         * Reader of database being compiled.
+         */
+        private final MmdbReader mReader;
+
+        /**
+         * Number of nodes of search tree.
+         */
+        private final int mNodeCount;
+
+        /**
+         * Root node of IPv4 subtree, or -1 if IPv4 addresses are not aliased.
+         */
+        private final int mIpv4StartNode;
+
+        /**
+         * 64 most significant bits of start address of collected ranges with
+         * flipped sign bit.
+         */
+        private long[] mHighStarts = new long[INITIAL_CAPACITY];
+
+        /**
+         * 64 least significant bits of start address of collected ranges with
+         * flipped sign bit.
+         */
+        private long[] mLowStarts = new long[INITIAL_CAPACITY];
+
+        /**
+         * Constructor.
+         *
+         * @param reader reader of database being compiled.
+         */
+        Collector(final MmdbReader reader) {
+            mReader = reader;
+            mNodeCount = reader.getNodeCount();
+            mIpv4StartNode = reader.getIpv4StartDepth() == IPV4_SUBTREE_DEPTH &&
+                    reader.getIpv4StartNode() < mNodeCount ?
+                    reader.getIpv4StartNode() : -1;
+        }
+
+        /**
+         * Visits a node of the search tree.
+         *
+         * @param node  node to visit.
+         * @param high  64 most significant bits of address prefix of node.
+         * @param low   64 least significant bits of address prefix of node.
+         * @param depth number of bits of address prefix.
+         */
+        void visit(final int node, final long high, final long low,
+                   final int depth) {
+            for (int bit = 0; bit < 2; bit++) {
+                final int value = mReader.readNode(node, bit);
+                long childHigh = high;
+                long childLow = low;
+                if (bit == 1) {
+                    if (depth < HALF_BITS) {
+                        childHigh |= 1L << (HALF_BITS - 1 - depth);
+                    } else {
+                        childLow |= 1L << (IPV6_BITS - 1 - depth);
+                    }
+                }
+
+                final int record;
+                if (value == mIpv4StartNode) {
+                    record = DELEGATED_RECORD;
+                } else if (value < mNodeCount && depth + 1 < IPV6_BITS) {
+                    visit(value, childHigh, childLow, depth + 1);
+                    continue;
+                } else {
+                    record = value < mNodeCount ? MmdbReader.NOT_FOUND :
+                            mReader.resolve(value);
+                }
+
+                final int pos = add(record);
+                if (pos >= 0) {
+                    mHighStarts[pos] = childHigh ^ Long.MIN_VALUE;
+                    mLowStarts[pos] = childLow ^ Long.MIN_VALUE;
+                }
+            }
+        }
+
+        /**
+         * Grows arrays where range starts are stored.
+         *
+         * @param capacity new capacity.
+         */
+        @Override
+        void grow(final int capacity) {
+            mHighStarts = Arrays.copyOf(mHighStarts, capacity);
+            mLowStarts = Arrays.copyOf(mLowStarts, capacity);
+        }
+    }
+}
@@ -0,0 +1,452 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Set;
+
+/**
+ * Decodes selected fields of Maxmind database records directly into
+ * locations.
+ * Only entries of requested fields are decoded, while the rest of the record
+ * is skipped, so that lookups needing few fields (i.e. country code) create
+ * almost no objects. Likewise, only names in the default language and in
+ * configured locales are decoded, and no intermediate object is created for
+ * decoded values other than the values themselves.
+ * Instances of this class are immutable and can be safely shared among
+ * threads.
+ */
+final class LocationDecoder {
+
+    /**
+     * Language of names returned by default, which matches the default
+     * language of Maxmind database readers.
+     */
+    private static final String DEFAULT_LANGUAGE = "en";
+
+    /**
+     * Charset of keys.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Keys of record entries.
+     */
+    private static final byte[][] RECORD_KEYS = keys("continent", "country",
+            "registered_country", "traits", "city", "subdivisions", "postal",
+            "location");
+
+    /**
+     * Position of continent within record keys.
+     */
+    private static final int CONTINENT = 0;
+
+    /**
+     * Position of country within record keys.
+     */
+    private static final int COUNTRY = 1;
+
+    /**
+     * Position of registered country within record keys.
+     */
+    private static final int REGISTERED_COUNTRY = 2;
+
+    /**
+     * Position of traits within record keys.
+     */
+    private static final int TRAITS = 3;
+
+    /**
+     * Position of city within record keys.
+     */
+    private static final int CITY = 4;
+
+    /**
+     * Position of subdivisions within record keys.
+     */
+    private static final int SUBDIVISIONS = 5;
+
+    /**
+     * Position of postal data within record keys.
+     */
+    private static final int POSTAL = 6;
+
+    /**
+     * Position of location data within record keys.
+     */
+    private static final int LOCATION = 7;
+
+    /**
+     * Keys of continent entries.
+     */
+    private static final byte[][] CONTINENT_KEYS = keys("code", "names");
+
+    /**
+     * Keys of country entries.
+     */
+    private static final byte[][] COUNTRY_KEYS = keys("iso_code", "names");
+
+    /**
+     * Keys of city entries.
+     */
+    private static final byte[][] CITY_KEYS = keys("names");
+
+    /**
+     * Keys of postal entries.
+     */
+    private static final byte[][] POSTAL_KEYS = keys("code");
+
+    /**
+     * Keys of location entries.
+     */
+    private static final byte[][] LOCATION_KEYS = keys("time_zone",
+            "accuracy_radius", "metro_code", "latitude", "longitude");
+
+    /**
+     * Keys of traits entries.
+     */
+    private static final byte[][] TRAITS_KEYS = keys(
+            "autonomous_system_number", "domain", "isp", "organization");
+
+    /**
+     * Maximum number of keys of nested entries.
+     */
+    private static final int MAX_NESTED_KEYS = LOCATION_KEYS.length;
+
+    /**
+     * Keys of names to be decoded, which contain the default language followed
+     * by configured locales.
+     */
+    private final byte[][] mNameKeys;
+
+    /**
+     * Constructor.
+     *
+     * @param nameLocales locales of localized names to be decoded, or null if
+     *                    localized names are not loaded.
+     */
+    LocationDecoder(final NameLocales nameLocales) {
+        final int size = nameLocales != null ? nameLocales.size() : 0;
+        final String[] tags = new String[1 + size];
+        tags[0] = DEFAULT_LANGUAGE;
+        for (int i = 0; i < size; i++) {
+            tags[1 + i] = nameLocales.getTag(i);
+        }
+        mNameKeys = keys(tags);
+    }
+
+    /**
+     * Decodes requested fields of a database record.
+     * Fields of city level are only decoded when requested level is city.
+     *
+     * @param reader  reader of database containing the record.
+     * @param record  position of record within the database.
+     * @param level   requested geolocation level.
+     * @param fields  fields to be decoded.
+     * @param builder builder of location where decoded fields will be stored.
+     * @throws IOException if data is corrupt.
+     */
+    void decode(final MmdbReader reader, final int record,
+                final IPGeolocationLevel level,
+                final Set<IPLocationField> fields,
+                final IPLocation.Builder builder) throws IOException {
+        final int[] entries = new int[RECORD_KEYS.length];
+        reader.findEntries(record, RECORD_KEYS, entries);
+        final int[] values = new int[MAX_NESTED_KEYS];
+
+        final boolean continentCode = fields.contains(
+                IPLocationField.CONTINENT_CODE);
+        final boolean continentName = fields.contains(
+                IPLocationField.CONTINENT_NAME);
+        if ((continentCode || continentName) &&
+                find(reader, entries[CONTINENT], CONTINENT_KEYS, values)) {
+            if (continentCode) {
+                builder.setContinentCode(string(reader, values[0]));
+            }
+            if (continentName) {
+                final String[] names = names(reader, values[1]);
+                builder.setContinentName(name(names))
+                        .setLocalizedContinentNames(localizedNames(names));
+            }
+        }
+
+        final boolean countryCode = fields.contains(
+                IPLocationField.COUNTRY_CODE);
+        final boolean countryName = fields.contains(
+                IPLocationField.COUNTRY_NAME);
+        if ((countryCode || countryName) &&
+                find(reader, entries[COUNTRY], COUNTRY_KEYS, values)) {
+            if (countryCode) {
+                builder.setCountryCode(string(reader, values[0]));
+            }
+            if (countryName) {
+                final String[] names = names(reader, values[1]);
+                builder.setCountryName(name(names))
+                        .setLocalizedCountryNames(localizedNames(names));
+            }
+        }
+
+        final boolean registeredCode = fields.contains(
+                IPLocationField.REGISTERED_COUNTRY_CODE);
+        final boolean registeredName = fields.contains(
+                IPLocationField.REGISTERED_COUNTRY_NAME);
+        if ((registeredCode || registeredName) &&
+                find(reader, entries[REGISTERED_COUNTRY], COUNTRY_KEYS, values)) {
+            if (registeredCode) {
+                builder.setRegisteredCountryCode(string(reader, values[0]));
+            }
+            if (registeredName) {
+                final String[] names = names(reader, values[1]);
+                builder.setRegisteredCountryName(name(names))
+                        .setLocalizedRegisteredCountryNames(
+                                localizedNames(names));
+            }
+        }
+
+        if (fields.contains(IPLocationField.TRAITS) &&
+                find(reader, entries[TRAITS], TRAITS_KEYS, values)) {
+            final Number asn = number(reader, values[0]);
+            builder.setAutonomousSystemNumber(asn != null ? asn.intValue() : null)
+                    .setDomain(string(reader, values[1]))
+                    .setIsp(string(reader, values[2]))
+                    .setOrganization(string(reader, values[3]));
+        }
+
+        if (level != IPGeolocationLevel.CITY) {
+            return;
+        }
+
+        if (fields.contains(IPLocationField.CITY) &&
+                find(reader, entries[CITY], CITY_KEYS, values)) {
+            final String[] names = names(reader, values[0]);
+            builder.setCity(name(names))
+                    .setLocalizedCityNames(localizedNames(names));
+        }
+
+        if (fields.contains(IPLocationField.SUBDIVISIONS) &&
+                entries[SUBDIVISIONS] != MmdbReader.NOT_FOUND) {
+            decodeSubdivisions(reader, entries[SUBDIVISIONS], builder);
+        }
+
+        if (fields.contains(IPLocationField.POSTAL_CODE) &&
+                find(reader, entries[POSTAL], POSTAL_KEYS, values)) {
+            builder.setPostalCode(string(reader, values[0]));
+        }
+
+        if (fields.contains(IPLocationField.LOCATION) &&
+                find(reader, entries[LOCATION], LOCATION_KEYS, values)) {
+            final Number accuracyRadius = number(reader, values[1]);
+            final Number metroCode = number(reader, values[2]);
+            final Number latitude = number(reader, values[3]);
+            final Number longitude = number(reader, values[4]);
+            builder.setTimeZoneId(string(reader, values[0]))
+                    .setAccuracyRadius(accuracyRadius != null ?
+                            accuracyRadius.intValue() : null)
+                    .setMetroCode(metroCode != null ? metroCode.intValue() : null)
+                    .setLatitude(latitude != null ? latitude.doubleValue() : null)
+                    .setLongitude(longitude != null ?
+                            longitude.doubleValue() : null);
+        }
+    }
+
+    /**
+     * Decodes subdivisions of a record.
+     * Only subdivisions having both code and name are kept.
+     *
+     * @param reader   reader of database containing the record.
+     * @param position position of array of subdivisions.
+     * @param builder  builder of location where subdivisions will be stored.
+     * @throws IOException if data is corrupt.
+     */
+    private void decodeSubdivisions(final MmdbReader reader, final int position,
+                                    final IPLocation.Builder builder)
+            throws IOException {
+        final int[] subdivisions = reader.findElements(position);
+        final int[] values = new int[COUNTRY_KEYS.length];
+        final String[] codes = new String[subdivisions.length];
+        final String[][] names = new String[subdivisions.length][];
+        int count = 0;
+        for (final int subdivision : subdivisions) {
+            reader.findEntries(subdivision, COUNTRY_KEYS, values);
+            final String code = string(reader, values[0]);
+            final String[] n = names(reader, values[1]);
+            if (code != null && name(n) != null) {
+                codes[count] = code;
+                names[count] = n;
+                count++;
+            }
+        }
+
+        final String[] subdivisionCodes = new String[count];
+        final String[] subdivisionNames = new String[count];
+        final int localeCount = mNameKeys.length - 1;
+        String[] localizedNames = null;
+        for (int i = 0; i < count; i++) {
+            subdivisionCodes[i] = codes[i];
+            subdivisionNames[i] = name(names[i]);
+
+            final String[] l = localizedNames(names[i]);
+            if (l != null) {
+                if (localizedNames == null) {
+                    localizedNames = new String[count * localeCount];
+                }
+                System.arraycopy(l, 0, localizedNames, i * localeCount,
+                        localeCount);
+            }
+        }
+        builder.setSubdivisionCodes(subdivisionCodes)
+                .setSubdivisionNames(subdivisionNames)
+                .setLocalizedSubdivisionNames(localizedNames);
+    }
+
+    /**
+     * Decodes names at provided position.
+     * Only names in the default language and in configured locales are
+     * decoded.
+     *
+     * @param reader   reader of database.
+     * @param position position of names or {@link MmdbReader#NOT_FOUND}.
+     * @return name in default language followed by names in configured
+     * locales, or null if not found.
+     * @throws IOException if data is corrupt.
+     */
+    private String[] names(final MmdbReader reader, final int position)
+            throws IOException {
+        if (position == MmdbReader.NOT_FOUND) {
+            return null;
+        }
+
+        final int[] positions = new int[mNameKeys.length];
+        reader.findEntries(position, mNameKeys, positions);
+        final String[] names = new String[mNameKeys.length];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = string(reader, positions[i]);
+        }
+        return names;
+    }
+
+    /**
+     * Gets localized names in configured locales.
+     *
+     * @param names decoded names or null.
+     * @return names in configured locales or null if localized names are not
+     * loaded or not available.
+     */
+    private static String[] localizedNames(final String[] names) {
+        if (names == null) {
+            return null;
+        }
+
+        String[] result = null;
+        for (int i = 1; i < names.length; i++) {
+            if (names[i] != null) {
+                if (result == null) {
+                    result = new String[names.length - 1];
+                }
+                result[i - 1] = names[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds entries of a nested map.
+     *
+     * @param reader    reader of database.
+     * @param position  position of map or {@link MmdbReader#NOT_FOUND}.
+     * @param keys      keys of entries to look for.
+     * @param positions array where positions of values will be stored.
+     * @return true if map was found, false otherwise.
+     * @throws IOException if data is corrupt.
+     */
+    private static boolean find(final MmdbReader reader, final int position,
+                                final byte[][] keys, final int[] positions)
+            throws IOException {
+        if (position == MmdbReader.NOT_FOUND) {
+            return false;
+        }
+        reader.findEntries(position, keys, positions);
+        return true;
+    }
+
+    /**
+     * Decodes value at provided position.
+     *
+     * @param reader   reader of database.
+     * @param position position of value or {@link MmdbReader#NOT_FOUND}.
+     * @return decoded value or null if not found.
+     * @throws IOException if data is corrupt.
+     */
+    private static Object value(final MmdbReader reader, final int position)
+            throws IOException {
+        return position != MmdbReader.NOT_FOUND ? reader.decode(position) : null;
+    }
+
+    /**
+     * Decodes string at provided position.
+     *
+     * @param reader   reader of database.
+     * @param position position of string or {@link MmdbReader#NOT_FOUND}.
+     * @return decoded string or null if not found.
+     * @throws IOException if data is corrupt.
+     */
+    private static String string(final MmdbReader reader, final int position)
+            throws IOException {
+        final Object value = value(reader, position);
+        return value != null ? value.toString() : null;
+    }
+
+    /**
+     * Decodes number at provided position.
+     * Values that are not numbers are skipped, as if they were not found, so
+     * that unexpected data does not prevent locating addresses.
+     *
+     * @param reader   reader of database.
+     * @param position position of number or {@link MmdbReader#NOT_FOUND}.
+     * @return decoded number or null if not found or not a number.
+     * @throws IOException if data is corrupt.
+     */
+    private static Number number(final MmdbReader reader, final int position)
+            throws IOException {
+        final Object value = value(reader, position);
+        return value instanceof Number ? (Number) value : null;
+    }
+
+    /**
+     * Gets name in default language.
+     *
+     * @param names decoded names or null.
+     * @return name in default language or null if not available.
+     */
+    private static String name(final String[] names) {
+        return names != null ? names[0] : null;
+    }
+
+    /**
+     * Encodes provided keys.
+     *
+     * @param keys keys to be encoded.
+     * @return UTF-8 encoded keys.
+     */
+    private static byte[][] keys(final String... keys) {
+        final byte[][] result = new byte[keys.length][];
+        for (int i = 0; i < keys.length; i++) {
+            result[i] = keys[i].getBytes(UTF8);
+        }
+        return result;
+    }
+}
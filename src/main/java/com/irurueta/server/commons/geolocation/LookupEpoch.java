@@ -0,0 +1,249 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Period of time during which lookups may use a given set of databases.
+ * Lookups enter the current epoch before reading any database and exit it
+ * once they complete. When databases are replaced, a new epoch starts and the
+ * previous one is retired along with the replaced databases, which are closed
+ * once no lookup remains in the retired epoch or in any older one, since
+ * lookups of older epochs may also have read them.
+ * Entering and exiting an epoch only updates a counter that is striped among
+ * several cache lines, so that concurrent lookups rarely contend.
+ * This class is safe to be used concurrently.
+ */
+final class LookupEpoch {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(
+            LookupEpoch.class.getName());
+
+    /**
+     * Maximum number of stripes of lookup counters.
+     */
+    private static final int MAX_STRIPES = 64;
+
+    /**
+     * Distance between consecutive stripes, so that each stripe is stored in
+     * its own cache line.
+     */
+    private static final int STRIPE_PADDING = 16;
+
+    /**
+     * Lock guarding retirement of all epochs sharing it.
+     */
+    private final Object mLock;
+
+    /**
+     * Number of lookups in this epoch, striped by thread.
+     */
+    private final AtomicIntegerArray mUsers;
+
+    /**
+     * Mask to obtain the stripe of a given thread.
+     */
+    private final int mStripeMask;
+
+    /**
+     * Previous epoch, or null if it has already been drained. Guarded by lock.
+     */
+    private LookupEpoch mPrevious;
+
+    /**
+     * Next epoch, or null if this epoch is current. Guarded by lock.
+     */
+    private LookupEpoch mNext;
+
+    /**
+     * Resources to be closed once this epoch is drained. Guarded by lock.
+     */
+    private List<? extends Closeable> mResources = Collections.emptyList();
+
+    /**
+     * Indicates whether this epoch has been retired, in which case no more
+     * lookups can enter it.
+     */
+    private volatile boolean mRetired;
+
+    /**
+     * Indicates whether this epoch and all older ones have no lookups left.
+     * Guarded by lock.
+     */
+    private boolean mDrained;
+
+    /**
+     * Constructor of the first epoch.
+     */
+    LookupEpoch() {
+        this(new Object(), null);
+    }
+
+    /**
+     * Constructor of an epoch following a previous one.
+     *
+     * @param previous previous epoch, which must be retired once this one is
+     *                 published.
+     */
+    LookupEpoch(final LookupEpoch previous) {
+        this(previous.mLock, previous);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param lock     lock guarding retirement.
+     * @param previous previous epoch or null.
+     */
+    private LookupEpoch(final Object lock, final LookupEpoch previous) {
+        mLock = lock;
+
+        // use a power of two number of stripes
+        final int desired = Math.min(MAX_STRIPES,
+                Runtime.getRuntime().availableProcessors());
+        int stripes = 1;
+        while (stripes < desired) {
+            stripes *= 2;
+        }
+        mUsers = new AtomicIntegerArray(stripes * STRIPE_PADDING);
+        mStripeMask = stripes - 1;
+
+        if (previous != null) {
+            synchronized (mLock) {
+                if (!previous.mDrained) {
+                    mPrevious = previous;
+                }
+                previous.mNext = this;
+            }
+        }
+    }
+
+    /**
+     * Enters this epoch, unless it has been retired.
+     * Lookups entering an epoch must exit it once they complete.
+     *
+     * @return true if this epoch was entered, false if it has been retired and
+     * current epoch must be entered instead.
+     */
+    boolean enter() {
+        mUsers.incrementAndGet(stripe());
+        if (mRetired) {
+            exit();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Exits this epoch, closing retired resources if this was the last lookup
+     * using them.
+     */
+    void exit() {
+        if (mUsers.decrementAndGet(stripe()) == 0 && mRetired) {
+            drain();
+        }
+    }
+
+    /**
+     * Retires this epoch once a new epoch has been published, so that provided
+     * resources are closed as soon as no lookup may use them.
+     *
+     * @param resources resources replaced by the new epoch.
+     */
+    void retire(final List<? extends Closeable> resources) {
+        synchronized (mLock) {
+            mResources = resources;
+        }
+        mRetired = true;
+        drain();
+    }
+
+    /**
+     * Indicates whether this epoch and all older ones have no lookups left,
+     * and hence their resources have been closed.
+     *
+     * @return true if this epoch has been drained, false otherwise.
+     */
+    boolean isDrained() {
+        synchronized (mLock) {
+            return mDrained;
+        }
+    }
+
+    /**
+     * Marks this epoch as drained and closes its resources if neither this
+     * epoch nor any older one has lookups left, and then attempts to drain
+     * newer epochs that were only waiting for this one.
+     */
+    private void drain() {
+        synchronized (mLock) {
+            LookupEpoch epoch = this;
+            while (epoch != null && epoch.mRetired && !epoch.mDrained &&
+                    epoch.mPrevious == null && epoch.users() == 0) {
+                epoch.mDrained = true;
+                for (final Closeable resource : epoch.mResources) {
+                    try {
+                        resource.close();
+                    } catch (final IOException e) {
+                        LOGGER.log(Level.WARNING, "Could not close database", e);
+                    }
+                }
+                epoch.mResources = Collections.emptyList();
+
+                final LookupEpoch next = epoch.mNext;
+                if (next != null) {
+                    next.mPrevious = null;
+                }
+                epoch = next;
+            }
+        }
+    }
+
+    /**
+     * Gets number of lookups in this epoch.
+     * Lookups attempting to enter a retired epoch are transiently counted, but
+     * never make the count drop to zero while other lookups remain.
+     *
+     * @return number of lookups.
+     */
+    private int users() {
+        int users = 0;
+        for (int i = 0; i <= mStripeMask; i++) {
+            users += mUsers.get(i * STRIPE_PADDING);
+        }
+        return users;
+    }
+
+    /**
+     * Gets position of the lookup counter of current thread.
+     *
+     * @return position of counter.
+     */
+    private int stripe() {
+        final long id = Thread.currentThread().getId();
+        return ((int) (id ^ (id >>> 32)) & mStripeMask) * STRIPE_PADDING;
+    }
+}
@@ -0,0 +1,960 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads Maxmind DB (MMDB) files directly.
+ * Database file is memory mapped, and addresses are resolved by walking the
+ * binary search tree of the database, which neither decodes any data nor
+ * creates any object. Resolved records are identified by their offset within
+ * the database, so that all the addresses belonging to network blocks that
+ * point to the same record obtain the same offset.
+ * Instances of this class are immutable and can be safely shared among
+ * threads.
+ *
+ * @see <a href="https://maxmind.github.io/MaxMind-DB/">
+ * https://maxmind.github.io/MaxMind-DB/</a>
+ */
+final class MmdbReader {
+
+    /**
+     * Value returned when an address is not found in the database.
+     */
+    static final int NOT_FOUND = -1;
+
+    /**
+     * Marker indicating the start of metadata section.
+     */
+    private static final byte[] METADATA_START_MARKER = {
+            (byte) 0xAB, (byte) 0xCD, (byte) 0xEF,
+            'M', 'a', 'x', 'M', 'i', 'n', 'd', '.', 'c', 'o', 'm'};
+
+    /**
+     * Maximum size of metadata section, which is used to limit the search of
+     * the metadata start marker.
+     */
+    private static final int METADATA_MAX_SIZE = 128 * 1024;
+
+    /**
+     * Size in bytes of separator between search tree and data section.
+     */
+    private static final int DATA_SECTION_SEPARATOR_SIZE = 16;
+
+    /**
+     * Number of bits of an IPv4 address.
+     */
+    private static final int IPV4_BITS = 32;
+
+    /**
+     * Number of bits preceding the IPv4 subtree within an IPv6 tree.
+     */
+    private static final int IPV4_SUBTREE_DEPTH = 96;
+
+    /**
+     * Data type of extended types.
+     */
+    private static final int TYPE_EXTENDED = 0;
+
+    /**
+     * Data type of pointers.
+     */
+    private static final int TYPE_POINTER = 1;
+
+    /**
+     * Data type of UTF-8 strings.
+     */
+    private static final int TYPE_UTF8_STRING = 2;
+
+    /**
+     * Data type of doubles.
+     */
+    private static final int TYPE_DOUBLE = 3;
+
+    /**
+     * Data type of bytes.
+     */
+    private static final int TYPE_BYTES = 4;
+
+    /**
+     * Data type of unsigned 16 bit integers.
+     */
+    private static final int TYPE_UINT16 = 5;
+
+    /**
+     * Data type of unsigned 32 bit integers.
+     */
+    private static final int TYPE_UINT32 = 6;
+
+    /**
+     * Data type of maps.
+     */
+    private static final int TYPE_MAP = 7;
+
+    /**
+     * Data type of signed 32 bit integers.
+     */
+    private static final int TYPE_INT32 = 8;
+
+    /**
+     * Data type of unsigned 64 bit integers.
+     */
+    private static final int TYPE_UINT64 = 9;
+
+    /**
+     * Data type of unsigned 128 bit integers.
+     */
+    private static final int TYPE_UINT128 = 10;
+
+    /**
+     * Data type of arrays.
+     */
+    private static final int TYPE_ARRAY = 11;
+
+    /**
+     * Data type of booleans.
+     */
+    private static final int TYPE_BOOLEAN = 14;
+
+    /**
+     * Data type of floats.
+     */
+    private static final int TYPE_FLOAT = 15;
+
+    /**
+     * Charset of strings.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Buffer containing the whole database. Only absolute reads are used, so
+     * that buffer can be safely shared among threads.
+     */
+    private final ByteBuffer mBuffer;
+
+    /**
+     * Number of nodes of search tree.
+     */
+    private final int mNodeCount;
+
+    /**
+     * Size in bits of each record of search tree nodes.
+     */
+    private final int mRecordSize;
+
+    /**
+     * Size in bytes of each search tree node.
+     */
+    private final int mNodeByteSize;
+
+    /**
+     * IP version of search tree (either 4 or 6).
+     */
+    private final int mIpVersion;
+
+    /**
+     * Size in bytes of search tree.
+     */
+    private final int mSearchTreeSize;
+
+    /**
+     * Position where data section starts.
+     */
+    private final int mDataSectionStart;
+
+    /**
+     * Position where data section ends, which is where metadata marker starts.
+     */
+    private final int mDataSectionEnd;
+
+    /**
+     * Database type (i.e. GeoLite2-City).
+     */
+    private final String mDatabaseType;
+
+    /**
+     * Languages supported by the database.
+     */
+    private final List<String> mLanguages;
+
+    /**
+     * Database build time expressed in seconds since the epoch.
+     */
+    private final long mBuildEpoch;
+
+    /**
+     * Node where IPv4 addresses start being searched.
+     */
+    private final int mIpv4StartNode;
+
+    /**
+     * Depth of node where IPv4 addresses start being searched.
+     */
+    private final int mIpv4StartDepth;
+
+    /**
+     * Constructor.
+     * Provided file is memory mapped.
+     *
+     * @param file database file.
+     * @throws IOException if file cannot be read or is not a valid database.
+     */
+    MmdbReader(final File file) throws IOException {
+        this(map(file));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param buffer buffer containing the whole database.
+     * @throws IOException if buffer does not contain a valid database.
+     */
+    @SuppressWarnings("unchecked")
+    MmdbReader(final ByteBuffer buffer) throws IOException {
+        mBuffer = buffer;
+
+        final int metadataStart = findMetadataStart(buffer);
+        final Object decoded = decode(new Cursor(metadataStart), metadataStart);
+        if (!(decoded instanceof Map)) {
+            throw new IOException("Invalid database metadata");
+        }
+        final Map<String, Object> metadata = (Map<String, Object>) decoded;
+
+        mNodeCount = toInt(metadata.get("node_count"));
+        mRecordSize = toInt(metadata.get("record_size"));
+        mIpVersion = toInt(metadata.get("ip_version"));
+        if (mRecordSize != 24 && mRecordSize != 28 && mRecordSize != 32) {
+            throw new IOException("Unsupported record size: " + mRecordSize);
+        }
+        if (mIpVersion != 4 && mIpVersion != 6) {
+            throw new IOException("Unsupported IP version: " + mIpVersion);
+        }
+
+        final Object type = metadata.get("database_type");
+        mDatabaseType = type != null ? type.toString() : null;
+
+        final List<String> languages = new ArrayList<>();
+        final Object languagesValue = metadata.get("languages");
+        if (languagesValue instanceof List) {
+            for (final Object language : (List<Object>) languagesValue) {
+                languages.add(language.toString());
+            }
+        }
+        mLanguages = Collections.unmodifiableList(languages);
+
+        final Object epoch = metadata.get("build_epoch");
+        mBuildEpoch = epoch instanceof Number ? ((Number) epoch).longValue() : 0;
+
+        mNodeByteSize = mRecordSize / 4;
+        mSearchTreeSize = mNodeCount * mNodeByteSize;
+        mDataSectionStart = mSearchTreeSize + DATA_SECTION_SEPARATOR_SIZE;
+        mDataSectionEnd = metadataStart - METADATA_START_MARKER.length;
+
+        // find node where IPv4 subtree starts
+        int node = 0;
+        int depth = 0;
+        if (mIpVersion == 6) {
+            for (; depth < IPV4_SUBTREE_DEPTH && node < mNodeCount; depth++) {
+                node = readNode(node, 0);
+            }
+        }
+        mIpv4StartNode = node;
+        mIpv4StartDepth = depth;
+    }
+
+    /**
+     * Gets number of nodes of search tree.
+     *
+     * @return number of nodes of search tree.
+     */
+    int getNodeCount() {
+        return mNodeCount;
+    }
+
+    /**
+     * Gets size in bits of each record of search tree nodes.
+     *
+     * @return size of records.
+     */
+    int getRecordSize() {
+        return mRecordSize;
+    }
+
+    /**
+     * Gets IP version of search tree (either 4 or 6).
+     *
+     * @return IP version of search tree.
+     */
+    int getIpVersion() {
+        return mIpVersion;
+    }
+
+    /**
+     * Gets database type (i.e. GeoLite2-City).
+     *
+     * @return database type.
+     */
+    String getDatabaseType() {
+        return mDatabaseType;
+    }
+
+    /**
+     * Gets languages supported by the database.
+     *
+     * @return supported languages.
+     */
+    List<String> getLanguages() {
+        return mLanguages;
+    }
+
+    /**
+     * Gets database build time expressed in seconds since the epoch.
+     *
+     * @return database build time.
+     */
+    long getBuildEpoch() {
+        return mBuildEpoch;
+    }
+
+    /**
+     * Finds record containing data of provided address.
+     *
+     * @param address address to look for.
+     * @return position of record within the database or {@link #NOT_FOUND}.
+     */
+    int findRecord(final InetAddress address) {
+        if (address instanceof Inet4Address) {
+            return findIpv4Record(
+                    IPAddressParser.toInt((Inet4Address) address));
+        }
+        return findRecord(address.getAddress());
+    }
+
+    /**
+     * Finds record containing data of provided IPv4 address.
+     *
+     * @param address IPv4 address expressed as an integer in network order.
+     * @return position of record within the database or {@link #NOT_FOUND}.
+     */
+    int findIpv4Record(final int address) {
+        int node = mIpv4StartNode;
+        final int nodeCount = mNodeCount;
+        for (int i = 0; i < IPV4_BITS && node < nodeCount; i++) {
+            node = readNode(node, (address >>> (IPV4_BITS - 1 - i)) & 1);
+        }
+        return resolve(node);
+    }
+
+    /**
+     * Finds record containing data of provided address.
+     *
+     * @param address address bytes in network order (4 bytes for IPv4
+     *                addresses or 16 bytes for IPv6 addresses).
+     * @return position of record within the database or {@link #NOT_FOUND}.
+     */
+    int findRecord(final byte[] address) {
+        final int bitCount = address.length * 8;
+        int node;
+        if (bitCount == IPV4_BITS) {
+            node = mIpv4StartNode;
+        } else if (mIpVersion == 6) {
+            node = 0;
+        } else {
+            // IPv6 addresses cannot be found in IPv4 databases
+            return NOT_FOUND;
+        }
+
+        final int nodeCount = mNodeCount;
+        for (int i = 0; i < bitCount && node < nodeCount; i++) {
+            node = readNode(node, (address[i >> 3] >>> (7 - (i & 7))) & 1);
+        }
+        return resolve(node);
+    }
+
+    /**
+     * Gets depth of node where IPv4 addresses start being searched.
+     *
+     * @return depth of IPv4 start node.
+     */
+    int getIpv4StartDepth() {
+        return mIpv4StartDepth;
+    }
+
+    /**
+     * Gets node where IPv4 addresses start being searched.
+     *
+     * @return IPv4 start node.
+     */
+    int getIpv4StartNode() {
+        return mIpv4StartNode;
+    }
+
+    /**
+     * Loads contents of the database into physical memory if the database is
+     * memory mapped, so that no page faults occur when it is later accessed.
+     * Loading is done on a best effort basis, and contents might be paged out
+     * again by the operating system.
+     * This method has no effect on databases that are not memory mapped.
+     */
+    void load() {
+        if (mBuffer instanceof MappedByteBuffer) {
+            ((MappedByteBuffer) mBuffer).load();
+        }
+    }
+
+    /**
+     * Walks the whole search tree, reading all its nodes and the first byte
+     * of each record they point to, so that the search tree and the records
+     * being used by lookups are resident in memory.
+     * Nodes are read in order, hence the search tree is read sequentially.
+     * The search tree is validated while it is walked.
+     *
+     * @return checksum of read data, which must be kept so that reads are not
+     * discarded as unused.
+     * @throws IOException if the database is corrupt or truncated.
+     */
+    int walk() throws IOException {
+        return walk(true);
+    }
+
+    /**
+     * Checks that the search tree fits in the database and that all its nodes
+     * point either to other nodes or to records within the data section, so
+     * that lookups on this database cannot read out of bounds.
+     * The whole search tree is read, hence this method should not be called
+     * while the database is serving lookups.
+     *
+     * @throws IOException if the database is corrupt or truncated.
+     */
+    void validate() throws IOException {
+        walk(false);
+    }
+
+    /**
+     * Walks the whole search tree checking that all its nodes point either to
+     * other nodes or to records within the data section.
+     *
+     * @param touchRecords true to also read the first byte of each record,
+     *                     false to only read the search tree.
+     * @return checksum of read data.
+     * @throws IOException if the database is corrupt or truncated.
+     */
+    private int walk(final boolean touchRecords) throws IOException {
+        final int nodeCount = mNodeCount;
+        if (nodeCount <= 0 || mDataSectionStart > mDataSectionEnd) {
+            throw new IOException("Invalid search tree");
+        }
+
+        int checksum = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            for (int bit = 0; bit < 2; bit++) {
+                final int value = readNode(node, bit);
+                checksum = 31 * checksum + value;
+                if (value < 0) {
+                    throw new IOException("Invalid record pointer at node " +
+                            node);
+                } else if (value > nodeCount) {
+                    final int position = resolve(value);
+                    if (position < mDataSectionStart ||
+                            position >= mDataSectionEnd) {
+                        throw new IOException("Invalid record pointer at node " +
+                                node);
+                    }
+                    if (touchRecords) {
+                        checksum += mBuffer.get(position);
+                    }
+                }
+            }
+        }
+        return checksum;
+    }
+
+    /**
+     * Decodes value stored at provided position of data section.
+     *
+     * @param record position of value, as returned by find methods.
+     * @return decoded value.
+     * @throws IOException if data is corrupt.
+     */
+    Object decode(final int record) throws IOException {
+        return decode(new Cursor(record), mDataSectionStart);
+    }
+
+    /**
+     * Finds values of selected entries of the map stored at provided position
+     * of data section.
+     * Entries are located by comparing their encoded keys, and values are
+     * skipped rather than decoded, so that no data is decoded and no object
+     * is created for entries that are not needed.
+     *
+     * @param position  position of map, as returned by find methods or by
+     *                  this method.
+     * @param keys      UTF-8 encoded keys of entries to look for.
+     * @param positions array where position of the value of each provided key
+     *                  will be stored, or {@link #NOT_FOUND} if map does not
+     *                  contain the key. Positions can be decoded or used to find
+     *                  entries of nested maps.
+     * @throws IOException if data is corrupt or provided position does not
+     *                     contain a map.
+     */
+    void findEntries(final int position, final byte[][] keys,
+                     final int[] positions) throws IOException {
+        Arrays.fill(positions, 0, keys.length, NOT_FOUND);
+
+        final Cursor cursor = new Cursor(dereference(position));
+        final int ctrl = mBuffer.get(cursor.mPosition++) & 0xFF;
+        if (ctrl >>> 5 != TYPE_MAP) {
+            throw new IOException("Map expected at position: " + position);
+        }
+
+        final Cursor keyCursor = new Cursor(0);
+        final int size = readSize(ctrl, cursor);
+        for (int i = 0; i < size; i++) {
+            keyCursor.mPosition = dereference(cursor.mPosition);
+            skip(cursor);
+            final int key = indexOfKey(keyCursor, keys);
+            if (key >= 0) {
+                positions[key] = cursor.mPosition;
+            }
+            skip(cursor);
+        }
+    }
+
+    /**
+     * Finds values of the array stored at provided position of data section,
+     * without decoding any data.
+     *
+     * @param position position of array, as returned by find methods.
+     * @return positions of array values, which can be decoded or used to find
+     * entries of nested maps.
+     * @throws IOException if data is corrupt or provided position does not
+     *                     contain an array.
+     */
+    int[] findElements(final int position) throws IOException {
+        final Cursor cursor = new Cursor(dereference(position));
+        final int ctrl = mBuffer.get(cursor.mPosition++) & 0xFF;
+        if (ctrl >>> 5 != TYPE_EXTENDED ||
+                7 + (mBuffer.get(cursor.mPosition++) & 0xFF) != TYPE_ARRAY) {
+            throw new IOException("Array expected at position: " + position);
+        }
+
+        final int[] positions = new int[readSize(ctrl, cursor)];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = cursor.mPosition;
+            skip(cursor);
+        }
+        return positions;
+    }
+
+    /**
+     * Reads a record of a search tree node.
+     *
+     * @param node node index.
+     * @param bit  0 to read left record, 1 to read right record.
+     * @return value of record.
+     */
+    int readNode(final int node, final int bit) {
+        final int base = node * mNodeByteSize;
+        switch (mRecordSize) {
+            case 24:
+                return readInt(base + bit * 3, 3);
+            case 28:
+                final int middle = mBuffer.get(base + 3) & 0xFF;
+                if (bit == 0) {
+                    return ((middle & 0xF0) << 20) | readInt(base, 3);
+                } else {
+                    return ((middle & 0x0F) << 24) | readInt(base + 4, 3);
+                }
+            default:
+                return readInt(base + bit * 4, 4);
+        }
+    }
+
+    /**
+     * Converts a record value into a position within the database.
+     *
+     * @param node record value, which must not point to another node.
+     * @return position within the database or {@link #NOT_FOUND}.
+     */
+    int resolve(final int node) {
+        if (node <= mNodeCount) {
+            // empty record (or invalid tree)
+            return NOT_FOUND;
+        }
+        return node - mNodeCount + mSearchTreeSize;
+    }
+
+    /**
+     * Decodes value at cursor position.
+     *
+     * @param cursor position to read from, which is advanced after the value.
+     * @param base   position where pointers are relative to.
+     * @return decoded value.
+     * @throws IOException if data is corrupt.
+     */
+    private Object decode(final Cursor cursor, final int base)
+            throws IOException {
+        final int ctrl = mBuffer.get(cursor.mPosition++) & 0xFF;
+        int type = ctrl >>> 5;
+
+        if (type == TYPE_POINTER) {
+            final int pointer = readPointer(ctrl, cursor);
+            final Cursor target = new Cursor(base + pointer);
+            return decode(target, base);
+        }
+
+        if (type == TYPE_EXTENDED) {
+            type = 7 + (mBuffer.get(cursor.mPosition++) & 0xFF);
+        }
+
+        final int size = readSize(ctrl, cursor);
+        final int position = cursor.mPosition;
+        switch (type) {
+            case TYPE_UTF8_STRING:
+                cursor.mPosition += size;
+                return readString(position, size);
+            case TYPE_DOUBLE:
+                cursor.mPosition += size;
+                return Double.longBitsToDouble(readLong(position, size));
+            case TYPE_BYTES:
+                cursor.mPosition += size;
+                return readBytes(position, size);
+            case TYPE_UINT16:
+            case TYPE_INT32:
+                cursor.mPosition += size;
+                return readInt(position, size);
+            case TYPE_UINT32:
+            case TYPE_UINT64:
+                cursor.mPosition += size;
+                return readLong(position, size);
+            case TYPE_UINT128:
+                cursor.mPosition += size;
+                return new BigInteger(1, readBytes(position, size));
+            case TYPE_BOOLEAN:
+                return size != 0;
+            case TYPE_FLOAT:
+                cursor.mPosition += size;
+                return Float.intBitsToFloat(readInt(position, size));
+            case TYPE_MAP:
+                final Map<String, Object> map = new LinkedHashMap<>();
+                for (int i = 0; i < size; i++) {
+                    final Object key = decode(cursor, base);
+                    map.put(String.valueOf(key), decode(cursor, base));
+                }
+                return map;
+            case TYPE_ARRAY:
+                final List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(decode(cursor, base));
+                }
+                return list;
+            default:
+                throw new IOException("Unsupported data type: " + type);
+        }
+    }
+
+    /**
+     * Gets position of the value referenced by a pointer.
+     *
+     * @param position position of a value, which might be a pointer.
+     * @return position of pointed value, or provided position if it does not
+     * contain a pointer.
+     */
+    private int dereference(final int position) {
+        final int ctrl = mBuffer.get(position) & 0xFF;
+        if (ctrl >>> 5 != TYPE_POINTER) {
+            return position;
+        }
+        return mDataSectionStart + readPointer(ctrl, new Cursor(position + 1));
+    }
+
+    /**
+     * Skips value at cursor position without decoding it.
+     * Pointed values are not visited.
+     *
+     * @param cursor position to read from, which is advanced after the value.
+     * @throws IOException if data is corrupt.
+     */
+    private void skip(final Cursor cursor) throws IOException {
+        final int ctrl = mBuffer.get(cursor.mPosition++) & 0xFF;
+        int type = ctrl >>> 5;
+
+        if (type == TYPE_POINTER) {
+            readPointer(ctrl, cursor);
+            return;
+        }
+
+        if (type == TYPE_EXTENDED) {
+            type = 7 + (mBuffer.get(cursor.mPosition++) & 0xFF);
+        }
+
+        final int size = readSize(ctrl, cursor);
+        switch (type) {
+            case TYPE_MAP:
+                for (int i = 0; i < 2 * size; i++) {
+                    skip(cursor);
+                }
+                break;
+            case TYPE_ARRAY:
+                for (int i = 0; i < size; i++) {
+                    skip(cursor);
+                }
+                break;
+            case TYPE_BOOLEAN:
+                break;
+            default:
+                if (type > TYPE_FLOAT) {
+                    throw new IOException("Unsupported data type: " + type);
+                }
+                cursor.mPosition += size;
+                break;
+        }
+    }
+
+    /**
+     * Finds the key stored at cursor position among provided keys, without
+     * decoding it.
+     *
+     * @param cursor position of a map key.
+     * @param keys   UTF-8 encoded keys to compare with.
+     * @return position of key within provided keys or -1 if not found.
+     * @throws IOException if data is corrupt.
+     */
+    private int indexOfKey(final Cursor cursor, final byte[][] keys)
+            throws IOException {
+        final int ctrl = mBuffer.get(cursor.mPosition++) & 0xFF;
+        if (ctrl >>> 5 != TYPE_UTF8_STRING) {
+            throw new IOException("Invalid map key");
+        }
+        final int size = readSize(ctrl, cursor);
+        final int position = cursor.mPosition;
+        for (int k = 0; k < keys.length; k++) {
+            final byte[] key = keys[k];
+            if (key.length != size) {
+                continue;
+            }
+            int i = 0;
+            while (i < size && mBuffer.get(position + i) == key[i]) {
+                i++;
+            }
+            if (i == size) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads a pointer.
+     *
+     * @param ctrl   control byte of pointer.
+     * @param cursor position after control byte, which is advanced after the
+     *               pointer.
+     * @return pointer value relative to section base.
+     */
+    private int readPointer(final int ctrl, final Cursor cursor) {
+        final int size = ((ctrl >>> 3) & 0x3) + 1;
+        final int value = readInt(cursor.mPosition, size);
+        cursor.mPosition += size;
+
+        final int prefix = ctrl & 0x7;
+        switch (size) {
+            case 1:
+                return (prefix << 8) | value;
+            case 2:
+                return ((prefix << 16) | value) + 2048;
+            case 3:
+                return ((prefix << 24) | value) + 526336;
+            default:
+                return value;
+        }
+    }
+
+    /**
+     * Reads size of a data field.
+     *
+     * @param ctrl   control byte of data field.
+     * @param cursor position after control byte (and extended type), which is
+     *               advanced after any additional size bytes.
+     * @return size of data field.
+     */
+    private int readSize(final int ctrl, final Cursor cursor) {
+        final int size = ctrl & 0x1F;
+        if (size < 29) {
+            return size;
+        }
+
+        final int bytes = size - 28;
+        final int value = readInt(cursor.mPosition, bytes);
+        cursor.mPosition += bytes;
+        switch (bytes) {
+            case 1:
+                return 29 + value;
+            case 2:
+                return 285 + value;
+            default:
+                return 65821 + value;
+        }
+    }
+
+    /**
+     * Reads a big endian integer.
+     *
+     * @param position position to read from.
+     * @param size     number of bytes to read (up to 4).
+     * @return read value.
+     */
+    private int readInt(final int position, final int size) {
+        int value = 0;
+        for (int i = 0; i < size; i++) {
+            value = (value << 8) | (mBuffer.get(position + i) & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Reads a big endian long.
+     *
+     * @param position position to read from.
+     * @param size     number of bytes to read (up to 8).
+     * @return read value.
+     */
+    private long readLong(final int position, final int size) {
+        long value = 0;
+        for (int i = 0; i < size; i++) {
+            value = (value << 8) | (mBuffer.get(position + i) & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Reads bytes.
+     *
+     * @param position position to read from.
+     * @param size     number of bytes to read.
+     * @return read bytes.
+     */
+    private byte[] readBytes(final int position, final int size) {
+        final byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = mBuffer.get(position + i);
+        }
+        return bytes;
+    }
+
+    /**
+     * Reads an UTF-8 string.
+     *
+     * @param position position to read from.
+     * @param size     number of bytes to read.
+     * @return read string.
+     */
+    private String readString(final int position, final int size) {
+        return new String(readBytes(position, size), UTF8);
+    }
+
+    /**
+     * Converts a decoded metadata value into an integer.
+     *
+     * @param value decoded value.
+     * @return integer value.
+     * @throws IOException if value is not a number.
+     */
+    private static int toInt(final Object value) throws IOException {
+        if (!(value instanceof Number)) {
+            throw new IOException("Invalid database metadata");
+        }
+        return ((Number) value).intValue();
+    }
+
+    /**
+     * Finds position where metadata starts.
+     *
+     * @param buffer buffer containing the whole database.
+     * @return position where metadata starts.
+     * @throws IOException if metadata cannot be found.
+     */
+    private static int findMetadataStart(final ByteBuffer buffer)
+            throws IOException {
+        final int limit = buffer.limit();
+        final int markerLength = METADATA_START_MARKER.length;
+        final int first = Math.max(0, limit - METADATA_MAX_SIZE);
+        for (int i = limit - markerLength; i >= first; i--) {
+            boolean found = true;
+            for (int j = 0; j < markerLength; j++) {
+                if (buffer.get(i + j) != METADATA_START_MARKER[j]) {
+                    found = false;
+                    break;
+                }
+            }
+            if (found) {
+                return i + markerLength;
+            }
+        }
+        throw new IOException("Database metadata not found");
+    }
+
+    /**
+     * Memory maps provided file.
+     *
+     * @param file file to be mapped.
+     * @return buffer containing mapped file.
+     * @throws IOException if an I/O error occurs.
+     */
+    private static ByteBuffer map(final File file) throws IOException {
+        try (final RandomAccessFile raf = new RandomAccessFile(file, "r");
+             final FileChannel channel = raf.getChannel()) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+        }
+    }
+
+    /**
+     * Position within the database being decoded.
+     */
+    private static final class Cursor {
+
+        /**
+         * Current position.
+         */
+        private int mPosition;
+
+        /**
+         * Constructor.
+         *
+         * @param position initial position.
+         */
+        Cursor(final int position) {
+            mPosition = position;
+        }
+    }
+}
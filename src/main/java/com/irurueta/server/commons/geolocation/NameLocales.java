@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Locales of names kept from database records.
+ * Maxmind databases contain names of cities, subdivisions, countries and
+ * continents in several languages. Names in configured locales are stored
+ * into arrays containing one entry per locale, in the same order as locales
+ * are configured, so that no map is kept for each location.
+ * Instances are shared among all locations obtained by a geolocator.
+ * This class is safe to be used concurrently.
+ */
+final class NameLocales {
+
+    /**
+     * Value stored for locales not matching any configured locale.
+     */
+    private static final int NOT_FOUND = -1;
+
+    /**
+     * Configured language tags, as used by Maxmind databases (i.e. en, pt-BR,
+     * zh-CN).
+     */
+    private final String[] mTags;
+
+    /**
+     * Position of matching configured locale indexed by requested locale.
+     */
+    private final ConcurrentMap<Locale, Integer> mIndices =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param tags configured language tags.
+     */
+    NameLocales(final String[] tags) {
+        mTags = tags;
+    }
+
+    /**
+     * Parses a comma separated list of language tags.
+     *
+     * @param value comma separated list of language tags (i.e. en,es,pt-BR).
+     * @return parsed locales or null if no language tag is provided.
+     */
+    static NameLocales parse(final String value) {
+        if (value == null) {
+            return null;
+        }
+
+        final List<String> tags = new ArrayList<>();
+        for (final String tag : value.split(",")) {
+            final String trimmed = tag.trim();
+            if (!trimmed.isEmpty() && !tags.contains(trimmed)) {
+                tags.add(trimmed);
+            }
+        }
+        return !tags.isEmpty() ? new NameLocales(
+                tags.toArray(new String[tags.size()])) : null;
+    }
+
+    /**
+     * Gets number of configured locales.
+     *
+     * @return number of configured locales.
+     */
+    int size() {
+        return mTags.length;
+    }
+
+    /**
+     * Gets configured language tag at provided position.
+     *
+     * @param index position of locale.
+     * @return language tag.
+     */
+    String getTag(final int index) {
+        return mTags[index];
+    }
+
+    /**
+     * Gets position of configured locale matching provided locale.
+     * A configured locale matches when its language tag is equal to the one of
+     * provided locale, or otherwise when it only contains the language of
+     * provided locale.
+     *
+     * @param locale requested locale. If null, default display locale is used.
+     * @return position of matching locale or -1 if none matches.
+     */
+    int indexOf(final Locale locale) {
+        final Locale l = locale != null ? locale :
+                Locale.getDefault(Locale.Category.DISPLAY);
+        final Integer index = mIndices.get(l);
+        if (index != null) {
+            return index;
+        }
+
+        int result = NOT_FOUND;
+        final String tag = l.toLanguageTag();
+        for (int i = 0; i < mTags.length; i++) {
+            if (mTags[i].equalsIgnoreCase(tag)) {
+                result = i;
+                break;
+            }
+            if (result == NOT_FOUND && mTags[i].equalsIgnoreCase(
+                    l.getLanguage())) {
+                result = i;
+            }
+        }
+        mIndices.putIfAbsent(l, result);
+        return result;
+    }
+
+    /**
+     * Gets names of a database record in configured locales.
+     *
+     * @param names names of a database record indexed by language tag.
+     * @return names in configured locales or null if none is available.
+     */
+    String[] names(final Map<String, String> names) {
+        if (names == null || names.isEmpty()) {
+            return null;
+        }
+
+        String[] result = null;
+        for (int i = 0; i < mTags.length; i++) {
+            final String name = names.get(mTags[i]);
+            if (name != null) {
+                if (result == null) {
+                    result = new String[mTags.length];
+                }
+                result[i] = name;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets name in requested locale.
+     *
+     * @param names    names in configured locales or null.
+     * @param locale   requested locale.
+     * @param fallback name to return if no name is available for requested
+     *                 locale.
+     * @return name in requested locale or fallback name.
+     */
+    String name(final String[] names, final Locale locale,
+                final String fallback) {
+        if (names == null) {
+            return fallback;
+        }
+        final int index = indexOf(locale);
+        final String name = index != NOT_FOUND ? names[index] : null;
+        return name != null ? name : fallback;
+    }
+}
@@ -0,0 +1,552 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Stores locations serialized into memory allocated outside of the Java heap.
+ * Locations are identified by their position within the record table of a
+ * compiled range table. Recently requested locations are kept in a small
+ * direct-mapped front cache, so that frequently requested locations are not
+ * decoded again on each lookup, while the whole set of stored locations adds
+ * almost no live data to the Java heap and does not increase garbage
+ * collection pauses.
+ * Stored locations are never modified. When more memory is required, stored
+ * data is copied into a larger buffer, so that concurrent readers can keep
+ * using any previous buffer.
+ * This class is safe to be used concurrently.
+ */
+final class OffHeapLocationStore {
+
+    /**
+     * Initial number of bytes reserved to store locations.
+     */
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    /**
+     * Maximum number of decoded locations kept in the front cache.
+     */
+    private static final int MAX_CACHED_LOCATIONS = 4096;
+
+    /**
+     * Length used to encode null strings and lists.
+     */
+    private static final int NULL_LENGTH = -1;
+
+    /**
+     * Number of bytes used to encode the geolocation level.
+     */
+    private static final int LEVEL_BYTES = 1;
+
+    /**
+     * Number of bytes of an integer.
+     */
+    private static final int INT_BYTES = 4;
+
+    /**
+     * Number of bytes of a double.
+     */
+    private static final int DOUBLE_BYTES = 8;
+
+    /**
+     * Number of bytes of a char.
+     */
+    private static final int CHAR_BYTES = 2;
+
+    /**
+     * Geolocation levels indexed by their ordinal.
+     */
+    private static final IPGeolocationLevel[] LEVELS =
+            IPGeolocationLevel.values();
+
+    /**
+     * Position of each stored location plus one, or zero if not stored.
+     */
+    private final AtomicIntegerArray mOffsets;
+
+    /**
+     * Buffer containing serialized locations.
+     */
+    private volatile ByteBuffer mBuffer;
+
+    /**
+     * Number of bytes used within buffer.
+     */
+    private int mSize;
+
+    /**
+     * Locales of localized names of stored locations, which are shared by all
+     * locations obtained by a geolocator.
+     */
+    private volatile NameLocales mNameLocales;
+
+    /**
+     * Front cache of decoded locations. Each location can only be kept at the
+     * slot given by its position, so that a cached location is replaced when
+     * another location sharing its slot is decoded.
+     */
+    private final AtomicReferenceArray<CachedLocation> mCache;
+
+    /**
+     * Mask to obtain the front cache slot of a given position.
+     */
+    private final int mCacheMask;
+
+    /**
+     * Constructor.
+     *
+     * @param count number of locations that can be stored.
+     */
+    OffHeapLocationStore(final int count) {
+        mOffsets = new AtomicIntegerArray(count);
+        mBuffer = ByteBuffer.allocateDirect(INITIAL_CAPACITY);
+
+        // use a power of two number of slots not larger than needed
+        final int desired = Math.min(Math.max(count, 1), MAX_CACHED_LOCATIONS);
+        int slots = 1;
+        while (slots < desired) {
+            slots *= 2;
+        }
+        mCache = new AtomicReferenceArray<>(slots);
+        mCacheMask = slots - 1;
+    }
+
+    /**
+     * Gets a stored location.
+     * Recently requested locations are returned from the front cache,
+     * otherwise location is decoded from off-heap memory and cached.
+     *
+     * @param index position of location.
+     * @return stored location or null if not stored.
+     */
+    IPLocation get(final int index) {
+        final int slot = index & mCacheMask;
+        final CachedLocation cached = mCache.get(slot);
+        if (cached != null && cached.mIndex == index) {
+            return cached.mLocation;
+        }
+
+        final int offset = mOffsets.get(index);
+        if (offset == 0) {
+            return null;
+        }
+
+        // buffer must be read after offset, since it always contains data of
+        // previously published offsets
+        final IPLocation location = new Decoder(mBuffer, offset - 1,
+                mNameLocales).decode();
+        mCache.set(slot, new CachedLocation(index, location));
+        return location;
+    }
+
+    /**
+     * Stores a location, unless another one has already been stored.
+     *
+     * @param index    position of location.
+     * @param location location to be stored.
+     * @return stored location.
+     */
+    synchronized IPLocation put(final int index, final IPLocation location) {
+        if (mOffsets.get(index) != 0) {
+            return get(index);
+        }
+
+        if (location.mNameLocales != null) {
+            mNameLocales = location.mNameLocales;
+        }
+
+        final int length = encodedLength(location);
+        ensureCapacity(mSize + length);
+
+        final int offset = mSize;
+        new Encoder(mBuffer, offset).encode(location);
+        mSize += length;
+
+        mOffsets.set(index, offset + 1);
+        mCache.set(index & mCacheMask, new CachedLocation(index, location));
+        return location;
+    }
+
+    /**
+     * Ensures that buffer can contain provided number of bytes, replacing it by
+     * a larger one if needed.
+     *
+     * @param capacity required number of bytes.
+     */
+    private void ensureCapacity(final int capacity) {
+        final ByteBuffer buffer = mBuffer;
+        if (capacity <= buffer.capacity()) {
+            return;
+        }
+
+        final ByteBuffer larger = ByteBuffer.allocateDirect(
+                Math.max(capacity, 2 * buffer.capacity()));
+        final ByteBuffer source = buffer.duplicate();
+        source.position(0);
+        source.limit(mSize);
+        larger.put(source);
+        mBuffer = larger;
+    }
+
+    /**
+     * Computes number of bytes required to serialize a location.
+     *
+     * @param location location to be serialized.
+     * @return number of bytes.
+     */
+    private static int encodedLength(final IPLocation location) {
+        return LEVEL_BYTES + 4 * INT_BYTES + 2 * DOUBLE_BYTES +
+                encodedLength(location.mCity) +
+                encodedLength(location.mTimeZoneId) +
+                encodedLength(location.mPostalCode) +
+                encodedLength(location.mSubdivisionCodes) +
+                encodedLength(location.mSubdivisionNames) +
+                encodedLength(location.mCountryCode) +
+                encodedLength(location.mCountryName) +
+                encodedLength(location.mRegisteredCountryCode) +
+                encodedLength(location.mRegisteredCountryName) +
+                encodedLength(location.mDomain) +
+                encodedLength(location.mIsp) +
+                encodedLength(location.mOrganization) +
+                encodedLength(location.mContinentCode) +
+                encodedLength(location.mContinentName) +
+                encodedLength(location.mLocalizedCityNames) +
+                encodedLength(location.mLocalizedSubdivisionNames) +
+                encodedLength(location.mLocalizedCountryNames) +
+                encodedLength(location.mLocalizedRegisteredCountryNames) +
+                encodedLength(location.mLocalizedContinentNames);
+    }
+
+    /**
+     * Computes number of bytes required to serialize a string.
+     *
+     * @param value string to be serialized.
+     * @return number of bytes.
+     */
+    private static int encodedLength(final String value) {
+        return INT_BYTES + (value != null ? CHAR_BYTES * value.length() : 0);
+    }
+
+    /**
+     * Computes number of bytes required to serialize an array of strings.
+     *
+     * @param values array to be serialized.
+     * @return number of bytes.
+     */
+    private static int encodedLength(final String[] values) {
+        int length = INT_BYTES;
+        if (values != null) {
+            for (final String value : values) {
+                length += encodedLength(value);
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Location kept in the front cache along with its position.
+     */
+    private static final class CachedLocation {
+
+        /**
+         * Position of location.
+         */
+        private final int mIndex;
+
+        /**
+         * Cached location.
+         */
+        private final IPLocation mLocation;
+
+        /**
+         * Constructor.
+         *
+         * @param index    position of location.
+         * @param location cached location.
+         */
+        CachedLocation(final int index, final IPLocation location) {
+            mIndex = index;
+            mLocation = location;
+        }
+    }
+
+    /**
+     * Serializes locations into a buffer.
+     */
+    private static final class Encoder {
+
+        /**
+         * Buffer where data is written.
+         */
+        private final ByteBuffer mBuffer;
+
+        /**
+         * Position where next value is written.
+         */
+        private int mPosition;
+
+        /**
+         * Constructor.
+         *
+         * @param buffer   buffer where data is written.
+         * @param position position where first value is written.
+         */
+        Encoder(final ByteBuffer buffer, final int position) {
+            mBuffer = buffer;
+            mPosition = position;
+        }
+
+        /**
+         * Serializes a location.
+         *
+         * @param location location to be serialized.
+         */
+        void encode(final IPLocation location) {
+            mBuffer.put(mPosition, location.mLevel != null ?
+                    (byte) location.mLevel.ordinal() : (byte) NULL_LENGTH);
+            mPosition += LEVEL_BYTES;
+
+            writeInt(location.mPresence);
+            writeInt(location.mAccuracyRadius);
+            writeInt(location.mMetroCode);
+            writeInt(location.mAutonomousSystemNumber);
+            mBuffer.putDouble(mPosition, location.mLatitude);
+            mBuffer.putDouble(mPosition + DOUBLE_BYTES, location.mLongitude);
+            mPosition += 2 * DOUBLE_BYTES;
+
+            writeString(location.mCity);
+            writeString(location.mTimeZoneId);
+            writeString(location.mPostalCode);
+            writeArray(location.mSubdivisionCodes);
+            writeArray(location.mSubdivisionNames);
+            writeString(location.mCountryCode);
+            writeString(location.mCountryName);
+            writeString(location.mRegisteredCountryCode);
+            writeString(location.mRegisteredCountryName);
+            writeString(location.mDomain);
+            writeString(location.mIsp);
+            writeString(location.mOrganization);
+            writeString(location.mContinentCode);
+            writeString(location.mContinentName);
+            writeArray(location.mLocalizedCityNames);
+            writeArray(location.mLocalizedSubdivisionNames);
+            writeArray(location.mLocalizedCountryNames);
+            writeArray(location.mLocalizedRegisteredCountryNames);
+            writeArray(location.mLocalizedContinentNames);
+        }
+
+        /**
+         * Writes a string.
+         *
+         * @param value string to be written.
+         */
+        private void writeString(final String value) {
+            if (value == null) {
+                mBuffer.putInt(mPosition, NULL_LENGTH);
+                mPosition += INT_BYTES;
+                return;
+            }
+
+            final int length = value.length();
+            mBuffer.putInt(mPosition, length);
+            mPosition += INT_BYTES;
+            for (int i = 0; i < length; i++) {
+                mBuffer.putChar(mPosition, value.charAt(i));
+                mPosition += CHAR_BYTES;
+            }
+        }
+
+        /**
+         * Writes an array of strings.
+         *
+         * @param values array to be written.
+         */
+        private void writeArray(final String[] values) {
+            writeInt(values != null ? values.length : NULL_LENGTH);
+            if (values != null) {
+                for (final String value : values) {
+                    writeString(value);
+                }
+            }
+        }
+
+        /**
+         * Writes an integer.
+         *
+         * @param value integer to be written.
+         */
+        private void writeInt(final int value) {
+            mBuffer.putInt(mPosition, value);
+            mPosition += INT_BYTES;
+        }
+    }
+
+    /**
+     * Deserializes locations from a buffer.
+     */
+    private static final class Decoder {
+
+        /**
+         * Buffer where data is read from.
+         */
+        private final ByteBuffer mBuffer;
+
+        /**
+         * Position where next value is read.
+         */
+        private int mPosition;
+
+        /**
+         * Locales of localized names.
+         */
+        private final NameLocales mNameLocales;
+
+        /**
+         * Constructor.
+         *
+         * @param buffer      buffer where data is read from.
+         * @param position    position where first value is read.
+         * @param nameLocales locales of localized names.
+         */
+        Decoder(final ByteBuffer buffer, final int position,
+                final NameLocales nameLocales) {
+            mBuffer = buffer;
+            mPosition = position;
+            mNameLocales = nameLocales;
+        }
+
+        /**
+         * Deserializes a location.
+         *
+         * @return deserialized location.
+         */
+        IPLocation decode() {
+            final byte level = mBuffer.get(mPosition);
+            mPosition += LEVEL_BYTES;
+
+            final IPLocation.Builder builder = new IPLocation.Builder(
+                    level >= 0 ? LEVELS[level] : null);
+            final int presence = readInt();
+            final int accuracyRadius = readInt();
+            final int metroCode = readInt();
+            final int autonomousSystemNumber = readInt();
+            final double latitude = mBuffer.getDouble(mPosition);
+            final double longitude = mBuffer.getDouble(mPosition + DOUBLE_BYTES);
+            mPosition += 2 * DOUBLE_BYTES;
+
+            builder.setAccuracyRadius(
+                    present(presence, IPLocation.ACCURACY_RADIUS_PRESENT) ?
+                            accuracyRadius : null)
+                    .setMetroCode(
+                            present(presence, IPLocation.METRO_CODE_PRESENT) ?
+                                    metroCode : null)
+                    .setAutonomousSystemNumber(present(presence,
+                            IPLocation.AUTONOMOUS_SYSTEM_NUMBER_PRESENT) ?
+                            autonomousSystemNumber : null)
+                    .setLatitude(
+                            present(presence, IPLocation.LATITUDE_PRESENT) ?
+                                    latitude : null)
+                    .setLongitude(
+                            present(presence, IPLocation.LONGITUDE_PRESENT) ?
+                                    longitude : null);
+
+            builder.setCity(readString());
+            return builder.setTimeZoneId(readString())
+                    .setPostalCode(readString())
+                    .setSubdivisionCodes(readArray())
+                    .setSubdivisionNames(readArray())
+                    .setCountryCode(readString())
+                    .setCountryName(readString())
+                    .setRegisteredCountryCode(readString())
+                    .setRegisteredCountryName(readString())
+                    .setDomain(readString())
+                    .setIsp(readString())
+                    .setOrganization(readString())
+                    .setContinentCode(readString())
+                    .setContinentName(readString())
+                    .setNameLocales(mNameLocales)
+                    .setLocalizedCityNames(readArray())
+                    .setLocalizedSubdivisionNames(readArray())
+                    .setLocalizedCountryNames(readArray())
+                    .setLocalizedRegisteredCountryNames(readArray())
+                    .setLocalizedContinentNames(readArray())
+                    .build();
+        }
+
+        /**
+         * Indicates whether a bit is set.
+         *
+         * @param presence bits indicating presence of values.
+         * @param bit      bit to check.
+         * @return true if bit is set, false otherwise.
+         */
+        private static boolean present(final int presence, final int bit) {
+            return (presence & bit) != 0;
+        }
+
+        /**
+         * Reads a string.
+         *
+         * @return read string.
+         */
+        private String readString() {
+            final int length = mBuffer.getInt(mPosition);
+            mPosition += INT_BYTES;
+            if (length == NULL_LENGTH) {
+                return null;
+            }
+
+            final char[] chars = new char[length];
+            for (int i = 0; i < length; i++) {
+                chars[i] = mBuffer.getChar(mPosition);
+                mPosition += CHAR_BYTES;
+            }
+            return new String(chars);
+        }
+
+        /**
+         * Reads an array of strings.
+         *
+         * @return read array.
+         */
+        private String[] readArray() {
+            final int length = readInt();
+            if (length == NULL_LENGTH) {
+                return null;
+            }
+
+            final String[] values = new String[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = readString();
+            }
+            return values;
+        }
+
+        /**
+         * Reads an integer.
+         *
+         * @return read integer.
+         */
+        private int readInt() {
+            final int value = mBuffer.getInt(mPosition);
+            mPosition += INT_BYTES;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+
+/**
+ * Detects private, reserved and unrouted (bogon) addresses, which are never
+ * contained in geolocation databases.
+ * Checks are performed with a few bitwise comparisons and do not allocate any
+ * object for IPv4 addresses, so that lookups of such addresses can be
+ * answered without accessing any database.
+ *
+ * @see <a href="https://www.iana.org/assignments/iana-ipv4-special-registry/">
+ * IANA IPv4 Special-Purpose Address Registry</a>
+ * @see <a href="https://www.iana.org/assignments/iana-ipv6-special-registry/">
+ * IANA IPv6 Special-Purpose Address Registry</a>
+ */
+final class ReservedAddresses {
+
+    /**
+     * Length in bytes of IPv4 addresses.
+     */
+    private static final int IPV4_LENGTH = 4;
+
+    /**
+     * Length in bytes of IPv6 addresses.
+     */
+    private static final int IPV6_LENGTH = 16;
+
+    /**
+     * Length in bytes of the prefix of IPv4-mapped and IPv4-compatible IPv6
+     * addresses.
+     */
+    private static final int IPV4_MAPPED_PREFIX_LENGTH = 12;
+
+    /**
+     * Constructor.
+     * Prevents instantiation of utility class.
+     */
+    private ReservedAddresses() {
+    }
+
+    /**
+     * Indicates whether provided address is private, reserved or unrouted.
+     *
+     * @param address address to be checked.
+     * @return true if address is reserved, false otherwise.
+     */
+    static boolean isReserved(final InetAddress address) {
+        if (address instanceof Inet4Address) {
+            return isReserved(IPAddressParser.toInt((Inet4Address) address));
+        }
+        return isReserved(address.getAddress());
+    }
+
+    /**
+     * Indicates whether provided IPv4 address is private, reserved or
+     * unrouted.
+     *
+     * @param address IPv4 address expressed as an integer in network order.
+     * @return true if address is reserved, false otherwise.
+     */
+    static boolean isReserved(final int address) {
+        final int first = address >>> 24;
+        if (first == 0 || first == 10 || first == 127 || first >= 224) {
+            // "this" network, private, loopback, multicast, reserved and
+            // broadcast
+            return true;
+        }
+
+        // shared address space (100.64.0.0/10)
+        return (address & 0xFFC00000) == 0x64400000 ||
+                // link local (169.254.0.0/16)
+                (address & 0xFFFF0000) == 0xA9FE0000 ||
+                // private (172.16.0.0/12)
+                (address & 0xFFF00000) == 0xAC100000 ||
+                // IETF protocol assignments (192.0.0.0/24)
+                (address & 0xFFFFFF00) == 0xC0000000 ||
+                // documentation (192.0.2.0/24)
+                (address & 0xFFFFFF00) == 0xC0000200 ||
+                // private (192.168.0.0/16)
+                (address & 0xFFFF0000) == 0xC0A80000 ||
+                // benchmarking (198.18.0.0/15)
+                (address & 0xFFFE0000) == 0xC6120000 ||
+                // documentation (198.51.100.0/24)
+                (address & 0xFFFFFF00) == 0xC6336400 ||
+                // documentation (203.0.113.0/24)
+                (address & 0xFFFFFF00) == 0xCB007100;
+    }
+
+    /**
+     * Indicates whether provided address is private, reserved or unrouted.
+     *
+     * @param address address bytes in network order (4 bytes for IPv4
+     *                addresses or 16 bytes for IPv6 addresses).
+     * @return true if address is reserved, false otherwise.
+     */
+    static boolean isReserved(final byte[] address) {
+        if (address.length == IPV4_LENGTH) {
+            return isReserved(toInt(address, 0));
+        }
+        if (address.length != IPV6_LENGTH) {
+            return false;
+        }
+
+        final int first = address[0] & 0xFF;
+        final int second = address[1] & 0xFF;
+        if ((first & 0xFE) == 0xFC) {
+            // unique local (fc00::/7)
+            return true;
+        }
+        if (first == 0xFE && (second & 0x80) != 0) {
+            // link local (fe80::/10) and deprecated site local (fec0::/10)
+            return true;
+        }
+        if (first == 0xFF) {
+            // multicast (ff00::/8)
+            return true;
+        }
+        if (first == 0x20 && second == 0x01 && (address[2] & 0xFF) == 0x0D &&
+                (address[3] & 0xFF) == 0xB8) {
+            // documentation (2001:db8::/32)
+            return true;
+        }
+        if (first == 0x01 && second == 0x00 && isZero(address, 2, 6)) {
+            // discard only (100::/64)
+            return true;
+        }
+
+        if (isZero(address, 0, 10)) {
+            final int b10 = address[10] & 0xFF;
+            final int b11 = address[11] & 0xFF;
+            if (b10 == 0xFF && b11 == 0xFF) {
+                // IPv4-mapped address (::ffff:0:0/96)
+                return isReserved(toInt(address, IPV4_MAPPED_PREFIX_LENGTH));
+            }
+            if (b10 == 0 && b11 == 0) {
+                // unspecified (::), loopback (::1) and deprecated
+                // IPv4-compatible addresses
+                return isReserved(toInt(address, IPV4_MAPPED_PREFIX_LENGTH));
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Converts 4 bytes into an integer in network order.
+     *
+     * @param bytes  bytes to be converted.
+     * @param offset position of first byte.
+     * @return converted integer.
+     */
+    private static int toInt(final byte[] bytes, final int offset) {
+        return ((bytes[offset] & 0xFF) << 24) |
+                ((bytes[offset + 1] & 0xFF) << 16) |
+                ((bytes[offset + 2] & 0xFF) << 8) |
+                (bytes[offset + 3] & 0xFF);
+    }
+
+    /**
+     * Indicates whether a range of bytes are all zero.
+     *
+     * @param bytes  bytes to be checked.
+     * @param offset position of first byte.
+     * @param length number of bytes to be checked.
+     * @return true if all bytes are zero, false otherwise.
+     */
+    private static boolean isZero(final byte[] bytes, final int offset,
+                                  final int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (bytes[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
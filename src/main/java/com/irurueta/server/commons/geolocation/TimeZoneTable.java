@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Table of shared time zones indexed by their IANA identifiers.
+ * Resolving a time zone through {@link TimeZone#getTimeZone(String)} requires
+ * synchronization and creates a new copy of the time zone each time, hence
+ * time zones are resolved once per identifier and the same instance is
+ * returned afterwards.
+ * Since databases contain a bounded number of time zone identifiers, table
+ * size is also bounded.
+ * This class is safe to be used concurrently.
+ */
+final class TimeZoneTable {
+
+    /**
+     * Shared time zones indexed by their identifiers.
+     */
+    private static final ConcurrentMap<String, TimeZone> TIME_ZONES =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     * Prevents instantiation.
+     */
+    private TimeZoneTable() {
+    }
+
+    /**
+     * Gets shared time zone for provided identifier.
+     * Returned instance is shared among all callers and must not be modified.
+     * Unknown identifiers resolve to GMT, as {@link TimeZone#getTimeZone(String)}
+     * does.
+     *
+     * @param id time zone identifier as specified by the IANA Time Zone
+     *           database.
+     * @return shared time zone or null if no identifier is provided.
+     */
+    static TimeZone get(final String id) {
+        if (id == null) {
+            return null;
+        }
+
+        final TimeZone timeZone = TIME_ZONES.get(id);
+        if (timeZone != null) {
+            return timeZone;
+        }
+
+        final TimeZone resolved = TimeZone.getTimeZone(id);
+        final TimeZone previous = TIME_ZONES.putIfAbsent(id, resolved);
+        return previous != null ? previous : resolved;
+    }
+
+    /**
+     * Gets number of time zones resolved so far.
+     *
+     * @return number of time zones kept in this table.
+     */
+    static int size() {
+        return TIME_ZONES.size();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class CanonicalLocationTableTest {
+
+    @Test
+    public void testCanonicalize() {
+        final CanonicalLocationTable table = new CanonicalLocationTable();
+        assertEquals(table.size(), 0);
+
+        final IPLocation location1 = createLocation().build();
+        final IPLocation location2 = createLocation().build();
+
+        final IPLocation canonical1 = table.canonicalize(location1);
+        assertEquals(canonical1.getCity(), "Barcelona");
+        assertEquals(canonical1.getTimeZone().getID(), "Europe/Madrid");
+        assertEquals(canonical1.getLatitude(), 41.3888, 0.0);
+        assertEquals(canonical1.getSubdivisionCodes(), Arrays.asList("CT", "B"));
+        assertSame(table.canonicalize(location2), canonical1);
+        assertSame(table.canonicalize(canonical1), canonical1);
+        assertEquals(table.size(), 1);
+
+        // locations with different data are not merged
+        final IPLocation canonical3 = table.canonicalize(
+                createLocation().setCity("Girona").build());
+        assertNotSame(canonical3, canonical1);
+        assertEquals(canonical3.getCity(), "Girona");
+
+        final IPLocation canonical4 = table.canonicalize(createLocation()
+                .setTimeZoneId("UTC").build());
+        assertNotSame(canonical4, canonical1);
+
+        final IPLocation canonical5 = table.canonicalize(createLocation()
+                .setLatitude(null).build());
+        assertNotSame(canonical5, canonical1);
+        assertNull(canonical5.getLatitude());
+
+        final IPLocation canonical6 = table.canonicalize(new IPLocation.Builder(
+                IPGeolocationLevel.COUNTRY).setCountryCode("ES").build());
+        assertEquals(table.size(), 5);
+
+        // strings and arrays are shared among canonical locations
+        assertSame(canonical3.mCountryName, canonical1.mCountryName);
+        assertSame(canonical3.mSubdivisionCodes, canonical1.mSubdivisionCodes);
+        assertSame(canonical6.mCountryCode, canonical1.mCountryCode);
+
+        table.clear();
+        assertEquals(table.size(), 0);
+        assertNotSame(table.canonicalize(location2), canonical1);
+    }
+
+    @Test
+    public void testIntern() {
+        final CanonicalLocationTable table = new CanonicalLocationTable();
+
+        final String value = new String(new char[]{'E', 'S'});
+        assertSame(table.intern(value), value);
+        assertSame(table.intern(new String(new char[]{'E', 'S'})), value);
+        assertNull(table.intern((String) null));
+
+        final String[] array = table.intern(new String[]{"CT", "B"});
+        assertArrayEquals(array, new String[]{"CT", "B"});
+        assertSame(table.intern(new String[]{"CT", "B"}), array);
+        assertSame(array[0], table.intern(new String("CT")));
+        assertNull(table.intern((String[]) null));
+    }
+
+    private static IPLocation.Builder createLocation() {
+        return new IPLocation.Builder(IPGeolocationLevel.CITY)
+                .setCity(new String("Barcelona"))
+                .setTimeZoneId("Europe/Madrid")
+                .setLatitude(41.3888)
+                .setLongitude(2.159)
+                .setSubdivisionCodes(new String[]{"CT", "B"})
+                .setSubdivisionNames(new String[]{"Catalonia", "Barcelona"})
+                .setCountryCode(new String("ES"))
+                .setCountryName(new String("Spain"))
+                .setContinentCode("EU");
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CountryIndexTest {
+
+    @Test
+    public void testFromCode() {
+        assertEquals(CountryIndex.fromCode("AA"), 0);
+        assertEquals(CountryIndex.fromCode("ES"), 4 * 26 + 18);
+        assertEquals(CountryIndex.fromCode("es"), CountryIndex.fromCode("ES"));
+        assertEquals(CountryIndex.fromCode("ZZ"), CountryIndex.SIZE - 1);
+
+        assertEquals(CountryIndex.fromCode(null), CountryIndex.UNKNOWN);
+        assertEquals(CountryIndex.fromCode(""), CountryIndex.UNKNOWN);
+        assertEquals(CountryIndex.fromCode("USA"), CountryIndex.UNKNOWN);
+        assertEquals(CountryIndex.fromCode("E1"), CountryIndex.UNKNOWN);
+    }
+
+    @Test
+    public void testToCode() {
+        for (int i = 0; i < CountryIndex.SIZE; i++) {
+            final String code = CountryIndex.toCode(i);
+            assertEquals(CountryIndex.fromCode(code), i);
+            assertSame(CountryIndex.toCode(i), code);
+        }
+        assertEquals(CountryIndex.toCode(CountryIndex.fromCode("US")), "US");
+
+        assertNull(CountryIndex.toCode(CountryIndex.UNKNOWN));
+        assertNull(CountryIndex.toCode(CountryIndex.SIZE));
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+public class CountryNameTableTest {
+
+    @Test
+    public void testGet() {
+        assertNull(CountryNameTable.get(null, Locale.FRENCH));
+
+        final String name = CountryNameTable.get("ES", Locale.FRENCH);
+        assertEquals(name, "Espagne");
+        assertSame(CountryNameTable.get("ES", Locale.FRENCH), name);
+        assertEquals(CountryNameTable.get("ES", Locale.ENGLISH), "Spain");
+
+        // default display locale is used when no locale is provided
+        assertEquals(CountryNameTable.get("ES", null),
+                new Locale("", "ES").getDisplayCountry());
+
+        // unknown country codes have no name
+        assertNull(CountryNameTable.get("WRONG", Locale.FRENCH));
+        assertNull(CountryNameTable.get("WRONG", Locale.FRENCH));
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+
+import static org.junit.Assert.*;
+
+public class CountryTableTest {
+
+    @Test
+    public void testFind() throws IOException {
+        final CountryTable table = new CountryTable(new DatabaseIndex(
+                new File(MmdbReaderTest.DATABASE_FILE), false, false, false));
+
+        final int us = CountryIndex.fromCode("US");
+        final int es = CountryIndex.fromCode("ES");
+
+        assertEquals(table.find(InetAddress.getByName("64.4.4.4")), us);
+        assertEquals(table.find(InetAddress.getByName("81.33.1.1")), es);
+        assertEquals(table.find(IPAddressParser.toInt(
+                (Inet4Address) InetAddress.getByName("81.33.1.1"))), es);
+        assertEquals(table.find(InetAddress.getByName("2001:4860:4860::8888")),
+                us);
+
+        // 6to4 addresses are resolved using the search tree
+        assertEquals(table.find(InetAddress.getByName("2002:4004:404::1")), us);
+
+        assertEquals(table.find(InetAddress.getByName("10.0.0.1")),
+                CountryIndex.UNKNOWN);
+        assertEquals(table.find(InetAddress.getByName("fe80::1")),
+                CountryIndex.UNKNOWN);
+    }
+
+    @Test
+    public void testFindWhenTablesAreCompiled() throws IOException {
+        final CountryTable table = new CountryTable(new DatabaseIndex(
+                new File(MmdbReaderTest.DATABASE_FILE), true, true, true));
+
+        assertEquals(table.find(InetAddress.getByName("64.4.4.4")),
+                CountryIndex.fromCode("US"));
+        assertEquals(table.find(InetAddress.getByName("2001:4860:4860::8888")),
+                CountryIndex.fromCode("US"));
+    }
+
+    @Test
+    public void testGetContinentCode() throws IOException {
+        final CountryTable table = new CountryTable(new DatabaseIndex(
+                new File(MmdbReaderTest.DATABASE_FILE), false, false, false));
+
+        assertEquals(table.getContinentCode(CountryIndex.fromCode("US")), "NA");
+        assertEquals(table.getContinentCode(CountryIndex.fromCode("ES")), "EU");
+        assertNull(table.getContinentCode(CountryIndex.fromCode("ZZ")));
+        assertNull(table.getContinentCode(CountryIndex.UNKNOWN));
+    }
+}
@@ -22,6 +22,7 @@ import java.util.Properties;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -56,6 +57,85 @@ public class GeolocationConfigurationImplTest {
         assertEquals(cfg.getIPGeolocationCityDatabaseFile(),
                 GeolocationConfigurationFactory.
                         DEFAULT_IP_GEOLOCATION_CITY_DATABASE_FILE);
+
+        assertEquals(cfg.isResultCacheEnabled(),
+                GeolocationConfigurationFactory.
+                        DEFAULT_RESULT_CACHE_ENABLED);
+        assertEquals(cfg.getResultCacheSize(),
+                GeolocationConfigurationFactory.
+                        DEFAULT_RESULT_CACHE_SIZE);
+        assertEquals(cfg.getResultCacheTimeToLive(),
+                GeolocationConfigurationFactory.
+                        DEFAULT_RESULT_CACHE_TIME_TO_LIVE);
+
+        assertEquals(cfg.isNetworkCacheEnabled(),
+                GeolocationConfigurationFactory.
+                        DEFAULT_NETWORK_CACHE_ENABLED);
+        assertEquals(cfg.getNetworkCacheSize(),
+                GeolocationConfigurationFactory.
+                        DEFAULT_NETWORK_CACHE_SIZE);
+
+        assertEquals(cfg.isReservedAddressesFilterEnabled(),
+                GeolocationConfigurationFactory.
+                        DEFAULT_RESERVED_ADDRESSES_FILTER_ENABLED);
+        assertEquals(cfg.isNegativeCacheEnabled(),
+                GeolocationConfigurationFactory.
+                        DEFAULT_NEGATIVE_CACHE_ENABLED);
+        assertEquals(cfg.getNegativeCacheSize(),
+                GeolocationConfigurationFactory.
+                        DEFAULT_NEGATIVE_CACHE_SIZE);
+
+        assertEquals(cfg.isHostNameResolutionEnabled(),
+                GeolocationConfigurationFactory.
+                        DEFAULT_HOST_NAME_RESOLUTION_ENABLED);
+
+        assertEquals(cfg.getAsyncThreadPoolSize(),
+                GeolocationConfigurationFactory.
+                        DEFAULT_ASYNC_THREAD_POOL_SIZE);
+
+        assertEquals(cfg.isCompiledIpv4TableEnabled(),
+                GeolocationConfigurationFactory.
+                        DEFAULT_COMPILED_IPV4_TABLE_ENABLED);
+
+        assertEquals(cfg.isCompiledIpv6TableEnabled(),
+                GeolocationConfigurationFactory.
+                        DEFAULT_COMPILED_IPV6_TABLE_ENABLED);
+
+        assertEquals(cfg.isOffHeapStorageEnabled(),
+                GeolocationConfigurationFactory.
+                        DEFAULT_OFF_HEAP_STORAGE_ENABLED);
+
+        assertEquals(cfg.isLocationInterningEnabled(),
+                GeolocationConfigurationFactory.
+                        DEFAULT_LOCATION_INTERNING_ENABLED);
+
+        assertEquals(cfg.getNameLocales(),
+                GeolocationConfigurationFactory.
+                        DEFAULT_NAME_LOCALES);
+
+        assertEquals(cfg.isEmbeddedDatabaseLoadedInMemory(),
+                GeolocationConfigurationFactory.
+                        DEFAULT_EMBEDDED_DATABASE_LOADED_IN_MEMORY);
+
+        assertEquals(cfg.isEmbeddedDatabaseFileKeptOnClose(),
+                GeolocationConfigurationFactory.
+                        DEFAULT_EMBEDDED_DATABASE_FILE_KEPT_ON_CLOSE);
+
+        assertEquals(cfg.isDatabaseWatchEnabled(),
+                GeolocationConfigurationFactory.
+                        DEFAULT_DATABASE_WATCH_ENABLED);
+
+        assertEquals(cfg.isDirectDecodingEnabled(),
+                GeolocationConfigurationFactory.
+                        DEFAULT_DIRECT_DECODING_ENABLED);
+
+        assertEquals(cfg.isDatabasePreloadEnabled(),
+                GeolocationConfigurationFactory.
+                        DEFAULT_DATABASE_PRELOAD_ENABLED);
+
+        assertEquals(cfg.isDatabaseTreeWalkEnabled(),
+                GeolocationConfigurationFactory.
+                        DEFAULT_DATABASE_TREE_WALK_ENABLED);
     }
 
     @Test
@@ -78,6 +158,43 @@ public class GeolocationConfigurationImplTest {
         assertEquals(cfg.getIPGeolocationCityEmbeddedResource(),
                 "resource_city");
         assertEquals(cfg.getIPGeolocationCityDatabaseFile(), "city.mmdb");
+
+        assertTrue(cfg.isResultCacheEnabled());
+        assertEquals(cfg.getResultCacheSize(), 500);
+        assertEquals(cfg.getResultCacheTimeToLive(), 60000L);
+
+        assertTrue(cfg.isNetworkCacheEnabled());
+        assertEquals(cfg.getNetworkCacheSize(), 2000);
+
+        assertFalse(cfg.isReservedAddressesFilterEnabled());
+        assertTrue(cfg.isNegativeCacheEnabled());
+        assertEquals(cfg.getNegativeCacheSize(), 3000);
+
+        assertTrue(cfg.isHostNameResolutionEnabled());
+
+        assertEquals(cfg.getAsyncThreadPoolSize(), 8);
+
+        assertTrue(cfg.isCompiledIpv4TableEnabled());
+
+        assertTrue(cfg.isCompiledIpv6TableEnabled());
+
+        assertTrue(cfg.isOffHeapStorageEnabled());
+
+        assertFalse(cfg.isLocationInterningEnabled());
+
+        assertEquals(cfg.getNameLocales(), "en,es");
+
+        assertTrue(cfg.isEmbeddedDatabaseLoadedInMemory());
+
+        assertTrue(cfg.isEmbeddedDatabaseFileKeptOnClose());
+
+        assertTrue(cfg.isDatabaseWatchEnabled());
+
+        assertTrue(cfg.isDirectDecodingEnabled());
+
+        assertTrue(cfg.isDatabasePreloadEnabled());
+
+        assertTrue(cfg.isDatabaseTreeWalkEnabled());
     }
 
     @Test
@@ -104,6 +221,43 @@ public class GeolocationConfigurationImplTest {
         assertEquals(cfg.getIPGeolocationCityEmbeddedResource(),
                 "resource_city");
         assertEquals(cfg.getIPGeolocationCityDatabaseFile(), "city.mmdb");
+
+        assertTrue(cfg.isResultCacheEnabled());
+        assertEquals(cfg.getResultCacheSize(), 500);
+        assertEquals(cfg.getResultCacheTimeToLive(), 60000L);
+
+        assertTrue(cfg.isNetworkCacheEnabled());
+        assertEquals(cfg.getNetworkCacheSize(), 2000);
+
+        assertFalse(cfg.isReservedAddressesFilterEnabled());
+        assertTrue(cfg.isNegativeCacheEnabled());
+        assertEquals(cfg.getNegativeCacheSize(), 3000);
+
+        assertTrue(cfg.isHostNameResolutionEnabled());
+
+        assertEquals(cfg.getAsyncThreadPoolSize(), 8);
+
+        assertTrue(cfg.isCompiledIpv4TableEnabled());
+
+        assertTrue(cfg.isCompiledIpv6TableEnabled());
+
+        assertTrue(cfg.isOffHeapStorageEnabled());
+
+        assertFalse(cfg.isLocationInterningEnabled());
+
+        assertEquals(cfg.getNameLocales(), "en,es");
+
+        assertTrue(cfg.isEmbeddedDatabaseLoadedInMemory());
+
+        assertTrue(cfg.isEmbeddedDatabaseFileKeptOnClose());
+
+        assertTrue(cfg.isDatabaseWatchEnabled());
+
+        assertTrue(cfg.isDirectDecodingEnabled());
+
+        assertTrue(cfg.isDatabasePreloadEnabled());
+
+        assertTrue(cfg.isDatabaseTreeWalkEnabled());
     }
 
     @Test(expected = ConfigurationException.class)
@@ -156,6 +310,106 @@ public class GeolocationConfigurationImplTest {
                         IP_GEOLOCATION_CITY_DATABASE_FILE_PROPERTY),
                 props2.getProperty(GeolocationConfigurationFactory.
                         IP_GEOLOCATION_CITY_DATABASE_FILE_PROPERTY));
+
+        assertEquals(props.getProperty(GeolocationConfigurationFactory.
+                        RESULT_CACHE_ENABLED_PROPERTY),
+                props2.getProperty(GeolocationConfigurationFactory.
+                        RESULT_CACHE_ENABLED_PROPERTY));
+        assertEquals(props.getProperty(GeolocationConfigurationFactory.
+                        RESULT_CACHE_SIZE_PROPERTY),
+                props2.getProperty(GeolocationConfigurationFactory.
+                        RESULT_CACHE_SIZE_PROPERTY));
+        assertEquals(props.getProperty(GeolocationConfigurationFactory.
+                        RESULT_CACHE_TIME_TO_LIVE_PROPERTY),
+                props2.getProperty(GeolocationConfigurationFactory.
+                        RESULT_CACHE_TIME_TO_LIVE_PROPERTY));
+
+        assertEquals(props.getProperty(GeolocationConfigurationFactory.
+                        NETWORK_CACHE_ENABLED_PROPERTY),
+                props2.getProperty(GeolocationConfigurationFactory.
+                        NETWORK_CACHE_ENABLED_PROPERTY));
+        assertEquals(props.getProperty(GeolocationConfigurationFactory.
+                        NETWORK_CACHE_SIZE_PROPERTY),
+                props2.getProperty(GeolocationConfigurationFactory.
+                        NETWORK_CACHE_SIZE_PROPERTY));
+
+        assertEquals(props.getProperty(GeolocationConfigurationFactory.
+                        RESERVED_ADDRESSES_FILTER_ENABLED_PROPERTY),
+                props2.getProperty(GeolocationConfigurationFactory.
+                        RESERVED_ADDRESSES_FILTER_ENABLED_PROPERTY));
+        assertEquals(props.getProperty(GeolocationConfigurationFactory.
+                        NEGATIVE_CACHE_ENABLED_PROPERTY),
+                props2.getProperty(GeolocationConfigurationFactory.
+                        NEGATIVE_CACHE_ENABLED_PROPERTY));
+        assertEquals(props.getProperty(GeolocationConfigurationFactory.
+                        NEGATIVE_CACHE_SIZE_PROPERTY),
+                props2.getProperty(GeolocationConfigurationFactory.
+                        NEGATIVE_CACHE_SIZE_PROPERTY));
+
+        assertEquals(props.getProperty(GeolocationConfigurationFactory.
+                        HOST_NAME_RESOLUTION_ENABLED_PROPERTY),
+                props2.getProperty(GeolocationConfigurationFactory.
+                        HOST_NAME_RESOLUTION_ENABLED_PROPERTY));
+
+        assertEquals(props.getProperty(GeolocationConfigurationFactory.
+                        ASYNC_THREAD_POOL_SIZE_PROPERTY),
+                props2.getProperty(GeolocationConfigurationFactory.
+                        ASYNC_THREAD_POOL_SIZE_PROPERTY));
+
+        assertEquals(props.getProperty(GeolocationConfigurationFactory.
+                        COMPILED_IPV4_TABLE_ENABLED_PROPERTY),
+                props2.getProperty(GeolocationConfigurationFactory.
+                        COMPILED_IPV4_TABLE_ENABLED_PROPERTY));
+
+        assertEquals(props.getProperty(GeolocationConfigurationFactory.
+                        COMPILED_IPV6_TABLE_ENABLED_PROPERTY),
+                props2.getProperty(GeolocationConfigurationFactory.
+                        COMPILED_IPV6_TABLE_ENABLED_PROPERTY));
+
+        assertEquals(props.getProperty(GeolocationConfigurationFactory.
+                        OFF_HEAP_STORAGE_ENABLED_PROPERTY),
+                props2.getProperty(GeolocationConfigurationFactory.
+                        OFF_HEAP_STORAGE_ENABLED_PROPERTY));
+
+        assertEquals(props.getProperty(GeolocationConfigurationFactory.
+                        LOCATION_INTERNING_ENABLED_PROPERTY),
+                props2.getProperty(GeolocationConfigurationFactory.
+                        LOCATION_INTERNING_ENABLED_PROPERTY));
+
+        assertEquals(props.getProperty(GeolocationConfigurationFactory.
+                        NAME_LOCALES_PROPERTY),
+                props2.getProperty(GeolocationConfigurationFactory.
+                        NAME_LOCALES_PROPERTY));
+
+        assertEquals(props.getProperty(GeolocationConfigurationFactory.
+                        EMBEDDED_DATABASE_LOADED_IN_MEMORY_PROPERTY),
+                props2.getProperty(GeolocationConfigurationFactory.
+                        EMBEDDED_DATABASE_LOADED_IN_MEMORY_PROPERTY));
+
+        assertEquals(props.getProperty(GeolocationConfigurationFactory.
+                        EMBEDDED_DATABASE_FILE_KEPT_ON_CLOSE_PROPERTY),
+                props2.getProperty(GeolocationConfigurationFactory.
+                        EMBEDDED_DATABASE_FILE_KEPT_ON_CLOSE_PROPERTY));
+
+        assertEquals(props.getProperty(GeolocationConfigurationFactory.
+                        DATABASE_WATCH_ENABLED_PROPERTY),
+                props2.getProperty(GeolocationConfigurationFactory.
+                        DATABASE_WATCH_ENABLED_PROPERTY));
+
+        assertEquals(props.getProperty(GeolocationConfigurationFactory.
+                        DIRECT_DECODING_ENABLED_PROPERTY),
+                props2.getProperty(GeolocationConfigurationFactory.
+                        DIRECT_DECODING_ENABLED_PROPERTY));
+
+        assertEquals(props.getProperty(GeolocationConfigurationFactory.
+                        DATABASE_PRELOAD_ENABLED_PROPERTY),
+                props2.getProperty(GeolocationConfigurationFactory.
+                        DATABASE_PRELOAD_ENABLED_PROPERTY));
+
+        assertEquals(props.getProperty(GeolocationConfigurationFactory.
+                        DATABASE_TREE_WALK_ENABLED_PROPERTY),
+                props2.getProperty(GeolocationConfigurationFactory.
+                        DATABASE_TREE_WALK_ENABLED_PROPERTY));
     }
 
     private Properties buildProperties() {
@@ -182,6 +436,64 @@ public class GeolocationConfigurationImplTest {
         props.setProperty(GeolocationConfigurationFactory.
                 IP_GEOLOCATION_CITY_DATABASE_FILE_PROPERTY, "city.mmdb");
 
+        props.setProperty(GeolocationConfigurationFactory.
+                RESULT_CACHE_ENABLED_PROPERTY, "true");
+        props.setProperty(GeolocationConfigurationFactory.
+                RESULT_CACHE_SIZE_PROPERTY, "500");
+        props.setProperty(GeolocationConfigurationFactory.
+                RESULT_CACHE_TIME_TO_LIVE_PROPERTY, "60000");
+
+        props.setProperty(GeolocationConfigurationFactory.
+                NETWORK_CACHE_ENABLED_PROPERTY, "true");
+        props.setProperty(GeolocationConfigurationFactory.
+                NETWORK_CACHE_SIZE_PROPERTY, "2000");
+
+        props.setProperty(GeolocationConfigurationFactory.
+                RESERVED_ADDRESSES_FILTER_ENABLED_PROPERTY, "false");
+        props.setProperty(GeolocationConfigurationFactory.
+                NEGATIVE_CACHE_ENABLED_PROPERTY, "true");
+        props.setProperty(GeolocationConfigurationFactory.
+                NEGATIVE_CACHE_SIZE_PROPERTY, "3000");
+
+        props.setProperty(GeolocationConfigurationFactory.
+                HOST_NAME_RESOLUTION_ENABLED_PROPERTY, "true");
+
+        props.setProperty(GeolocationConfigurationFactory.
+                ASYNC_THREAD_POOL_SIZE_PROPERTY, "8");
+
+        props.setProperty(GeolocationConfigurationFactory.
+                COMPILED_IPV4_TABLE_ENABLED_PROPERTY, "true");
+
+        props.setProperty(GeolocationConfigurationFactory.
+                COMPILED_IPV6_TABLE_ENABLED_PROPERTY, "true");
+
+        props.setProperty(GeolocationConfigurationFactory.
+                OFF_HEAP_STORAGE_ENABLED_PROPERTY, "true");
+
+        props.setProperty(GeolocationConfigurationFactory.
+                LOCATION_INTERNING_ENABLED_PROPERTY, "false");
+
+        props.setProperty(GeolocationConfigurationFactory.
+                NAME_LOCALES_PROPERTY, "en,es");
+
+        props.setProperty(GeolocationConfigurationFactory.
+                EMBEDDED_DATABASE_LOADED_IN_MEMORY_PROPERTY, "true");
+
+        props.setProperty(GeolocationConfigurationFactory.
+                EMBEDDED_DATABASE_FILE_KEPT_ON_CLOSE_PROPERTY, "true");
+
+        props.setProperty(GeolocationConfigurationFactory.
+                DATABASE_WATCH_ENABLED_PROPERTY, "true");
+
+        props.setProperty(GeolocationConfigurationFactory.
+                DIRECT_DECODING_ENABLED_PROPERTY, "true");
+
+        props.setProperty(GeolocationConfigurationFactory.
+                DATABASE_PRELOAD_ENABLED_PROPERTY, "true");
+
+        props.setProperty(GeolocationConfigurationFactory.
+                DATABASE_TREE_WALK_ENABLED_PROPERTY, "true");
+
         return props;
     }
 }
@@ -17,6 +17,7 @@ package com.irurueta.server.commons.geolocation;
 
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
 public class GeolocationExceptionTest {
@@ -34,5 +35,11 @@ public class GeolocationExceptionTest {
 
         ex = new GeolocationException("message", new Exception());
         assertNotNull(ex);
+
+        ex = new GeolocationException("message", null, false, false);
+        assertNotNull(ex);
+        ex.addSuppressed(new Exception());
+        assertEquals(0, ex.getSuppressed().length);
+        assertEquals(0, ex.getStackTrace().length);
     }
 }
\ No newline at end of file
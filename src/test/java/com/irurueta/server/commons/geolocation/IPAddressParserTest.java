@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import org.junit.Test;
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class IPAddressParserTest {
+
+    @Test
+    public void testParseIPv4() throws UnknownHostException {
+        final String[] addresses = {
+                "0.0.0.0", "1.2.3.4", "64.4.4.4", "192.168.1.1",
+                "255.255.255.255"};
+        for (final String address : addresses) {
+            final InetAddress parsed = IPAddressParser.parse(address);
+            assertTrue(parsed instanceof Inet4Address);
+            assertEquals(parsed, InetAddress.getByName(address));
+        }
+
+        // surrounding whitespace and leading zeros
+        assertEquals(IPAddressParser.parse(" 10.0.0.1\t"),
+                InetAddress.getByName("10.0.0.1"));
+        assertEquals(IPAddressParser.parse("010.000.000.001"),
+                InetAddress.getByName("10.0.0.1"));
+    }
+
+    @Test
+    public void testParseInvalidIPv4() {
+        final String[] addresses = {
+                "", " ", "1", "1.2.3", "1.2.3.4.5", "1.2.3.256", "1.2.3.",
+                ".1.2.3", "1..2.3", "1.2.3.4a", "1234.1.1.1", "a.b.c.d",
+                "1.2.3.4%1", "[1.2.3.4"};
+        for (final String address : addresses) {
+            assertNull(address, IPAddressParser.parse(address));
+        }
+        assertNull(IPAddressParser.parse(null));
+    }
+
+    @Test
+    public void testParseIPv6() throws UnknownHostException {
+        final String[] addresses = {
+                "::", "::1", "1::", "2001:db8::1", "2001:DB8:0:0:8:800:200C:417A",
+                "fe80::1:2:3:4", "1:2:3:4:5:6:7:8", "1:2:3:4:5:6:7::",
+                "::2:3:4:5:6:7:8", "1:2:3::6:7:8", "2001:4860:4860::8888",
+                "64:ff9b::192.0.2.33", "::1.2.3.4"};
+        for (final String address : addresses) {
+            final InetAddress parsed = IPAddressParser.parse(address);
+            assertNotNull(address, parsed);
+            assertEquals(parsed, InetAddress.getByName(address));
+        }
+
+        assertEquals(IPAddressParser.parse("[2001:db8::1]"),
+                InetAddress.getByName("2001:db8::1"));
+    }
+
+    @Test
+    public void testParseIPv4Mapped() throws UnknownHostException {
+        final InetAddress parsed = IPAddressParser.parse("::ffff:64.4.4.4");
+        assertTrue(parsed instanceof Inet4Address);
+        assertEquals(parsed, InetAddress.getByName("64.4.4.4"));
+    }
+
+    @Test
+    public void testParseZoneId() {
+        final InetAddress parsed = IPAddressParser.parse("fe80::1%3");
+        assertTrue(parsed instanceof Inet6Address);
+        assertEquals(((Inet6Address) parsed).getScopeId(), 3);
+
+        // interface names are ignored
+        final InetAddress parsed2 = IPAddressParser.parse("fe80::1%eth0");
+        assertTrue(parsed2 instanceof Inet6Address);
+        assertEquals(((Inet6Address) parsed2).getScopeId(), 0);
+
+        assertNull(IPAddressParser.parse("fe80::1%"));
+    }
+
+    @Test
+    public void testParseInvalidIPv6() {
+        final String[] addresses = {
+                ":", ":::", ":1", "1:", "1:2:3:4:5:6:7", "1:2:3:4:5:6:7:8:9",
+                "1::2::3", "12345::", "1:2:3:4:5:6:7:8::", "::1:2:3:4:5:6:7:8",
+                "g::1", "1:2:3:4:5:6:7:1.2.3.4", "::1.2.3", "::1.2.3.4:5",
+                "www.example.com", "localhost", "1.2.3.4:80"};
+        for (final String address : addresses) {
+            assertNull(address, IPAddressParser.parse(address));
+        }
+    }
+
+    @Test
+    public void testToInt() throws UnknownHostException {
+        final String[] addresses = {
+                "0.0.0.0", "1.2.3.4", "64.4.4.4", "127.0.0.1", "192.168.1.1",
+                "255.255.255.255"};
+        for (final String address : addresses) {
+            final Inet4Address parsed =
+                    (Inet4Address) InetAddress.getByName(address);
+            assertEquals(IPAddressParser.toInt(parsed),
+                    ByteBuffer.wrap(parsed.getAddress()).getInt());
+        }
+    }
+}
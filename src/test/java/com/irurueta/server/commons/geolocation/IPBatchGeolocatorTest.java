@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import com.irurueta.server.commons.configuration.ConfigurationException;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class IPBatchGeolocatorTest {
+
+    @Before
+    public void setUp() throws IOException, ConfigurationException {
+        IPGeolocator.reset();
+        GeolocationConfigurationFactory.getInstance().reset();
+        IPGeolocatorTest.deleteDatabaseFiles();
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws IOException {
+        IPGeolocator.reset();
+        IPGeolocatorTest.deleteDatabaseFiles();
+    }
+
+    @Test
+    public void testConstructor() {
+        final IPGeolocator locator = IPGeolocator.getInstance();
+
+        try (final IPBatchGeolocator batch = new IPBatchGeolocator(locator)) {
+            assertEquals(batch.getParallelism(),
+                    Runtime.getRuntime().availableProcessors());
+            assertEquals(batch.getPartitionSize(),
+                    IPBatchGeolocator.DEFAULT_PARTITION_SIZE);
+        }
+
+        try (final IPBatchGeolocator batch = new IPBatchGeolocator(locator, 2,
+                10)) {
+            assertEquals(batch.getParallelism(), 2);
+            assertEquals(batch.getPartitionSize(), 10);
+        }
+
+        final ForkJoinPool pool = new ForkJoinPool(3);
+        try (final IPBatchGeolocator batch = new IPBatchGeolocator(locator, pool,
+                5)) {
+            assertEquals(batch.getParallelism(), 3);
+            assertEquals(batch.getPartitionSize(), 5);
+        }
+
+        // provided pools are not shut down
+        assertFalse(pool.isShutdown());
+        pool.shutdown();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWhenInvalidPartitionSize() {
+        new IPBatchGeolocator(IPGeolocator.getInstance(), 2, 0);
+    }
+
+    @Test
+    public void testLocateAll() throws UnknownHostException,
+            IPGeolocationDisabledException, InterruptedException {
+        final InetAddress us = InetAddress.getByName("64.4.4.4");
+        final InetAddress es = InetAddress.getByName("81.33.1.1");
+        final InetAddress local = InetAddress.getByName("10.0.0.1");
+
+        final InetAddress[] addresses = new InetAddress[1000];
+        for (int i = 0; i < addresses.length; i++) {
+            switch (i % 4) {
+                case 0:
+                    addresses[i] = us;
+                    break;
+                case 1:
+                    addresses[i] = es;
+                    break;
+                case 2:
+                    addresses[i] = local;
+                    break;
+                default:
+                    addresses[i] = null;
+                    break;
+            }
+        }
+
+        try (final IPBatchGeolocator batch = new IPBatchGeolocator(
+                IPGeolocator.getInstance(), 4, 16)) {
+            final IPLocation[] locations = batch.locateAll(addresses,
+                    IPGeolocationLevel.COUNTRY);
+
+            assertEquals(locations.length, addresses.length);
+            for (int i = 0; i < locations.length; i++) {
+                switch (i % 4) {
+                    case 0:
+                        assertEquals(locations[i].getCountryCode(), "US");
+                        break;
+                    case 1:
+                        assertEquals(locations[i].getCountryCode(), "ES");
+                        break;
+                    default:
+                        assertNull(locations[i]);
+                        break;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSubmit() throws UnknownHostException,
+            IPGeolocationDisabledException, InterruptedException,
+            ExecutionException {
+        final InetAddress[] addresses = new InetAddress[100];
+        Arrays.fill(addresses, InetAddress.getByName("64.4.4.4"));
+
+        try (final IPBatchGeolocator batch = new IPBatchGeolocator(
+                IPGeolocator.getInstance(), 2, 10)) {
+            final IPBatchJob job = batch.submit(Arrays.asList(addresses),
+                    IPGeolocationLevel.COUNTRY);
+            assertEquals(job.getTotalCount(), 100);
+
+            final IPLocation[] locations = job.get();
+            assertTrue(job.isDone());
+            assertFalse(job.isCancelled());
+            assertEquals(job.getProcessedCount(), 100);
+            assertEquals(job.getProgress(), 1.0, 0.0);
+            assertTrue(job.getElapsedTime() >= 0);
+            assertTrue(job.getThroughput() >= 0.0);
+            assertEquals(locations.length, 100);
+            assertEquals(locations[99].getCountryCode(), "US");
+        }
+    }
+
+    @Test
+    public void testSubmitEmpty() throws IPGeolocationDisabledException,
+            InterruptedException, ExecutionException {
+        try (final IPBatchGeolocator batch = new IPBatchGeolocator(
+                IPGeolocator.getInstance(), 2, 10)) {
+            final IPBatchJob job = batch.submit(new InetAddress[0],
+                    IPGeolocationLevel.COUNTRY);
+
+            final IPLocation[] locations = job.get();
+            assertEquals(locations.length, 0);
+            assertEquals(job.getProgress(), 1.0, 0.0);
+
+            // elapsed time stops growing once job has finished
+            final long elapsed = job.getElapsedTime();
+            Thread.sleep(20);
+            assertEquals(job.getElapsedTime(), elapsed);
+        }
+    }
+
+    @Test
+    public void testSubmitWhenDisabledLevel() throws UnknownHostException {
+        try (final IPBatchGeolocator batch = new IPBatchGeolocator(
+                IPGeolocator.getInstance())) {
+            batch.submit(new InetAddress[]{InetAddress.getByName("64.4.4.4")},
+                    IPGeolocationLevel.DISABLED);
+            fail("IPGeolocationDisabledException expected but not thrown");
+        } catch (final IPGeolocationDisabledException e) {
+            // shared exception is reused
+            assertSame(e, IPGeolocator.DISABLED_EXCEPTION);
+        }
+    }
+}
@@ -17,6 +17,7 @@ package com.irurueta.server.commons.geolocation;
 
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
 public class IPGeolocationDisabledExceptionTest {
@@ -34,5 +35,11 @@ public class IPGeolocationDisabledExceptionTest {
 
         ex = new IPGeolocationDisabledException("message", new Exception());
         assertNotNull(ex);
+
+        ex = new IPGeolocationDisabledException("message", null, false, false);
+        assertNotNull(ex);
+        ex.addSuppressed(new Exception());
+        assertEquals(0, ex.getSuppressed().length);
+        assertEquals(0, ex.getStackTrace().length);
     }
 }
@@ -25,10 +25,24 @@ import org.junit.Test;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.net.Inet4Address;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -82,6 +96,9 @@ public class IPGeolocatorTest {
             fail("City file was not deleted");
         }
 
+        // lock files are kept on close
+        deleteDatabaseFiles();
+
         final File folder = new File(FOLDER);
         assertTrue(folder.exists());
         folder.delete();
@@ -91,6 +108,26 @@ public class IPGeolocatorTest {
     public void setUp() throws IOException, ConfigurationException {
         IPGeolocator.reset();
         GeolocationConfigurationFactory.getInstance().reset();
+        deleteDatabaseFiles();
+    }
+
+    /**
+     * Deletes database files copied from embedded resources, along with their
+     * hash and lock files.
+     *
+     * @throws IOException if files cannot be deleted.
+     */
+    static void deleteDatabaseFiles() throws IOException {
+        final String[] files = {COUNTRY_FILE, CITY_FILE,
+                GeolocationConfigurationFactory.
+                        DEFAULT_IP_GEOLOCATION_COUNTRY_DATABASE_FILE,
+                GeolocationConfigurationFactory.
+                        DEFAULT_IP_GEOLOCATION_CITY_DATABASE_FILE};
+        for (final String file : files) {
+            Files.deleteIfExists(new File(file).toPath());
+            Files.deleteIfExists(new File(file + ".sha256").toPath());
+            Files.deleteIfExists(new File(file + ".lock").toPath());
+        }
     }
 
     @Test
@@ -2079,7 +2116,17 @@ public class IPGeolocatorTest {
 
     @Test
     public void testLocateDnsAddress() throws UnknownHostException,
-            IPLocationNotFoundException, IPGeolocationDisabledException {
+            IPLocationNotFoundException, IPGeolocationDisabledException,
+            ConfigurationException {
+        final Properties props = new Properties();
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_COUNTRY_DATABASE_FILE_PROPERTY, COUNTRY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_CITY_DATABASE_FILE_PROPERTY, CITY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                HOST_NAME_RESOLUTION_ENABLED_PROPERTY, "true");
+
+        GeolocationConfigurationFactory.getInstance().configure(props);
 
         final IPGeolocator locator = IPGeolocator.getInstance();
 
@@ -2704,6 +2751,1233 @@ public class IPGeolocatorTest {
         assertEquals(location.getLevel(), IPGeolocationLevel.COUNTRY);
     }
 
+    @Test
+    public void testLocateConcurrently() throws InterruptedException {
+        final IPGeolocator locator = IPGeolocator.getInstance();
+
+        final String[] addresses = {"64.4.4.4", "37.15.50.115", "12.25.205.51"};
+        final int numThreads = 8;
+        final int numLookups = 100;
+        final AtomicInteger found = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+
+        final Thread[] threads = new Thread[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < numLookups; j++) {
+                            final IPLocation location = locator.locate(
+                                    addresses[j % addresses.length]);
+                            if (location.getCountryCode() != null) {
+                                found.incrementAndGet();
+                            }
+                        }
+                    } catch (final Exception e) {
+                        failed.incrementAndGet();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+
+        start.countDown();
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(failed.get(), 0);
+        assertEquals(found.get(), numThreads * numLookups);
+    }
+
+    @Test
+    public void testLocateWithResultCache() throws ConfigurationException,
+            UnknownHostException, IPLocationNotFoundException,
+            IPGeolocationDisabledException {
+        final Properties props = new Properties();
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_COUNTRY_DATABASE_FILE_PROPERTY, COUNTRY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_CITY_DATABASE_FILE_PROPERTY, CITY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                RESULT_CACHE_ENABLED_PROPERTY, "true");
+        props.setProperty(GeolocationConfigurationFactory.
+                RESULT_CACHE_SIZE_PROPERTY, "10");
+
+        GeolocationConfigurationFactory.getInstance().configure(props);
+
+        final IPGeolocator locator = IPGeolocator.getInstance();
+        final IPLocationCache cache = locator.getResultCache();
+        assertNotNull(cache);
+        assertEquals(cache.getMaxSize(), 10);
+
+        final InetAddress address = InetAddress.getByName("64.4.4.4");
+
+        final IPLocation location1 = locator.locate(address,
+                IPGeolocationLevel.CITY);
+        assertEquals(cache.getMissCount(), 1);
+        assertEquals(cache.getHitCount(), 0);
+
+        final IPLocation location2 = locator.locate(address,
+                IPGeolocationLevel.CITY);
+        assertSame(location1, location2);
+        assertEquals(cache.getMissCount(), 1);
+        assertEquals(cache.getHitCount(), 1);
+
+        final IPLocation location3 = locator.locate(address,
+                IPGeolocationLevel.COUNTRY);
+        assertNotSame(location1, location3);
+        assertEquals(location3.getLevel(), IPGeolocationLevel.COUNTRY);
+        assertEquals(cache.getMissCount(), 2);
+    }
+
+    @Test
+    public void testGetResultCacheWhenDisabled() {
+        assertNull(IPGeolocator.getInstance().getResultCache());
+    }
+
+    @Test
+    public void testLocateWithNetworkCache() throws ConfigurationException,
+            UnknownHostException, IPLocationNotFoundException,
+            IPGeolocationDisabledException {
+        final Properties props = new Properties();
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_COUNTRY_DATABASE_FILE_PROPERTY, COUNTRY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_CITY_DATABASE_FILE_PROPERTY, CITY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                NETWORK_CACHE_ENABLED_PROPERTY, "true");
+        props.setProperty(GeolocationConfigurationFactory.
+                NETWORK_CACHE_SIZE_PROPERTY, "10");
+
+        GeolocationConfigurationFactory.getInstance().configure(props);
+
+        final IPGeolocator locator = IPGeolocator.getInstance();
+        final IPNetworkCache cache = locator.getNetworkCache();
+        assertNotNull(cache);
+        assertEquals(cache.getMaxSize(), 10);
+
+        // both addresses belong to networks sharing the same country record
+        final IPLocation location1 = locator.locate(
+                InetAddress.getByName("64.4.4.4"), IPGeolocationLevel.COUNTRY);
+        assertEquals(location1.getCountryCode(), "US");
+        assertEquals(cache.getMissCount(), 1);
+        assertEquals(cache.size(), 1);
+
+        final IPLocation location2 = locator.locate(
+                InetAddress.getByName("8.8.8.8"), IPGeolocationLevel.COUNTRY);
+        assertSame(location1, location2);
+        assertEquals(cache.getHitCount(), 1);
+        assertEquals(cache.size(), 1);
+
+        // addresses of other networks are cached independently
+        final IPLocation location3 = locator.locate(
+                InetAddress.getByName("81.33.1.1"), IPGeolocationLevel.COUNTRY);
+        assertEquals(location3.getCountryCode(), "ES");
+        assertEquals(cache.getMissCount(), 2);
+        assertEquals(cache.size(), 2);
+    }
+
+    @Test
+    public void testGetNetworkCacheWhenDisabled() {
+        assertNull(IPGeolocator.getInstance().getNetworkCache());
+    }
+
+    @Test
+    public void testLocateReservedAddress() throws UnknownHostException,
+            IPGeolocationDisabledException {
+        final IPGeolocator locator = IPGeolocator.getInstance();
+
+        final String[] addresses = {"10.0.0.1", "192.168.1.1", "fd00::1"};
+        for (final String address : addresses) {
+            try {
+                locator.locate(InetAddress.getByName(address),
+                        IPGeolocationLevel.COUNTRY);
+                fail("IPLocationNotFoundException expected but not thrown");
+            } catch (final IPLocationNotFoundException e) {
+                // reserved addresses are rejected without accessing database
+                assertNull(e.getCause());
+                assertEquals(e.getStackTrace().length, 0);
+            }
+        }
+    }
+
+    @Test
+    public void testLocateWithNegativeCache() throws ConfigurationException,
+            UnknownHostException, IPGeolocationDisabledException {
+        final Properties props = new Properties();
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_COUNTRY_DATABASE_FILE_PROPERTY, COUNTRY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_CITY_DATABASE_FILE_PROPERTY, CITY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                RESERVED_ADDRESSES_FILTER_ENABLED_PROPERTY, "false");
+        props.setProperty(GeolocationConfigurationFactory.
+                NEGATIVE_CACHE_ENABLED_PROPERTY, "true");
+        props.setProperty(GeolocationConfigurationFactory.
+                NEGATIVE_CACHE_SIZE_PROPERTY, "10");
+
+        GeolocationConfigurationFactory.getInstance().configure(props);
+
+        final IPGeolocator locator = IPGeolocator.getInstance();
+        final IPNegativeCache cache = locator.getNegativeCache();
+        assertNotNull(cache);
+        assertEquals(cache.getMaxSize(), 10);
+
+        final InetAddress address = InetAddress.getByName("10.0.0.1");
+
+        // first lookup accesses database
+        try {
+            locator.locate(address, IPGeolocationLevel.COUNTRY);
+            fail("IPLocationNotFoundException expected but not thrown");
+        } catch (final IPLocationNotFoundException ignore) {
+        }
+        assertEquals(cache.getMissCount(), 1);
+        assertEquals(cache.size(), 1);
+
+        // second lookup is answered by negative cache
+        try {
+            locator.locate(address, IPGeolocationLevel.COUNTRY);
+            fail("IPLocationNotFoundException expected but not thrown");
+        } catch (final IPLocationNotFoundException ignore) {
+        }
+        assertEquals(cache.getHitCount(), 1);
+    }
+
+    @Test
+    public void testLocateWithCompiledIpv4Table() throws ConfigurationException,
+            UnknownHostException, IPLocationNotFoundException,
+            IPGeolocationDisabledException {
+        final Properties props = new Properties();
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_COUNTRY_DATABASE_FILE_PROPERTY, COUNTRY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_CITY_DATABASE_FILE_PROPERTY, CITY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                RESERVED_ADDRESSES_FILTER_ENABLED_PROPERTY, "false");
+        props.setProperty(GeolocationConfigurationFactory.
+                COMPILED_IPV4_TABLE_ENABLED_PROPERTY, "true");
+
+        GeolocationConfigurationFactory.getInstance().configure(props);
+
+        final IPGeolocator locator = IPGeolocator.getInstance();
+
+        // addresses pointing to the same record share the same location
+        final IPLocation location1 = locator.locate(
+                InetAddress.getByName("64.4.4.4"), IPGeolocationLevel.COUNTRY);
+        final IPLocation location2 = locator.locate(
+                InetAddress.getByName("8.8.8.8"), IPGeolocationLevel.COUNTRY);
+        assertEquals(location1.getCountryCode(), "US");
+        assertSame(location1, location2);
+
+        final IPLocation location3 = locator.locate(
+                InetAddress.getByName("81.33.1.1"), IPGeolocationLevel.COUNTRY);
+        assertEquals(location3.getCountryCode(), "ES");
+
+        // IPv6 addresses are still resolved using the search tree
+        final IPLocation location4 = locator.locate(
+                InetAddress.getByName("2001:4860:4860::8888"),
+                IPGeolocationLevel.COUNTRY);
+        assertEquals(location4.getCountryCode(), "US");
+
+        assertNull(locator.tryLocate(InetAddress.getByName("10.0.0.1"),
+                IPGeolocationLevel.COUNTRY));
+    }
+
+    @Test
+    public void testLocateWithCompiledIpv6Table() throws ConfigurationException,
+            UnknownHostException, IPLocationNotFoundException,
+            IPGeolocationDisabledException {
+        final Properties props = new Properties();
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_COUNTRY_DATABASE_FILE_PROPERTY, COUNTRY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_CITY_DATABASE_FILE_PROPERTY, CITY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                RESERVED_ADDRESSES_FILTER_ENABLED_PROPERTY, "false");
+        props.setProperty(GeolocationConfigurationFactory.
+                COMPILED_IPV6_TABLE_ENABLED_PROPERTY, "true");
+
+        GeolocationConfigurationFactory.getInstance().configure(props);
+
+        final IPGeolocator locator = IPGeolocator.getInstance();
+
+        // addresses pointing to the same record share the same location
+        final IPLocation location1 = locator.locate(
+                InetAddress.getByName("2001:4860:4860::8888"),
+                IPGeolocationLevel.COUNTRY);
+        final IPLocation location2 = locator.locate(
+                InetAddress.getByName("2001:4860:4860::8844"),
+                IPGeolocationLevel.COUNTRY);
+        assertEquals(location1.getCountryCode(), "US");
+        assertSame(location1, location2);
+
+        // 6to4 addresses are resolved using the search tree
+        final IPLocation location3 = locator.locate(
+                InetAddress.getByName("2002:4004:404::1"),
+                IPGeolocationLevel.COUNTRY);
+        assertEquals(location3.getCountryCode(), "US");
+
+        // IPv4 addresses are still resolved using the search tree
+        final IPLocation location4 = locator.locate(
+                InetAddress.getByName("81.33.1.1"), IPGeolocationLevel.COUNTRY);
+        assertEquals(location4.getCountryCode(), "ES");
+
+        assertNull(locator.tryLocate(InetAddress.getByName("fe80::1"),
+                IPGeolocationLevel.COUNTRY));
+    }
+
+    @Test
+    public void testLocateWithOffHeapStorage() throws ConfigurationException,
+            UnknownHostException, IPLocationNotFoundException,
+            IPGeolocationDisabledException {
+        final Properties props = new Properties();
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_COUNTRY_DATABASE_FILE_PROPERTY, COUNTRY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_CITY_DATABASE_FILE_PROPERTY, CITY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                RESERVED_ADDRESSES_FILTER_ENABLED_PROPERTY, "false");
+        props.setProperty(GeolocationConfigurationFactory.
+                COMPILED_IPV4_TABLE_ENABLED_PROPERTY, "true");
+        props.setProperty(GeolocationConfigurationFactory.
+                COMPILED_IPV6_TABLE_ENABLED_PROPERTY, "true");
+        props.setProperty(GeolocationConfigurationFactory.
+                OFF_HEAP_STORAGE_ENABLED_PROPERTY, "true");
+
+        GeolocationConfigurationFactory.getInstance().configure(props);
+
+        final IPGeolocator locator = IPGeolocator.getInstance();
+
+        // locations are decoded from off-heap memory for each lookup
+        final IPLocation location1 = locator.locate(
+                InetAddress.getByName("64.4.4.4"), IPGeolocationLevel.COUNTRY);
+        final IPLocation location2 = locator.locate(
+                InetAddress.getByName("8.8.8.8"), IPGeolocationLevel.COUNTRY);
+        assertEquals(location1.getCountryCode(), "US");
+        assertEquals(location2.getCountryCode(), "US");
+        assertEquals(location2.getContinentCode(), "NA");
+
+        final IPLocation location3 = locator.locate(
+                InetAddress.getByName("2001:4860:4860::8888"),
+                IPGeolocationLevel.COUNTRY);
+        assertEquals(location3.getCountryCode(), "US");
+
+        assertNull(locator.tryLocate(InetAddress.getByName("10.0.0.1"),
+                IPGeolocationLevel.COUNTRY));
+    }
+
+    @Test
+    public void testLocateWithEmbeddedDatabaseLoadedInMemory()
+            throws ConfigurationException, UnknownHostException,
+            IPLocationNotFoundException, IPGeolocationDisabledException {
+        final Properties props = new Properties();
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_COUNTRY_DATABASE_FILE_PROPERTY, COUNTRY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_CITY_DATABASE_FILE_PROPERTY, CITY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                EMBEDDED_DATABASE_LOADED_IN_MEMORY_PROPERTY, "true");
+        props.setProperty(GeolocationConfigurationFactory.
+                COMPILED_IPV4_TABLE_ENABLED_PROPERTY, "true");
+
+        GeolocationConfigurationFactory.getInstance().configure(props);
+
+        final IPGeolocator locator = IPGeolocator.getInstance();
+
+        assertEquals(locator.locate(InetAddress.getByName("64.4.4.4"),
+                IPGeolocationLevel.COUNTRY).getCountryCode(), "US");
+        assertEquals(locator.locate(InetAddress.getByName("81.33.1.1"),
+                IPGeolocationLevel.COUNTRY).getCountryCode(), "ES");
+
+        // databases are not copied into files
+        assertFalse(new File(COUNTRY_FILE).exists());
+        assertFalse(new File(CITY_FILE).exists());
+    }
+
+    @Test
+    public void testEmbeddedDatabaseFileKeptOnClose()
+            throws ConfigurationException, IOException {
+        final Properties props = new Properties();
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_COUNTRY_DATABASE_FILE_PROPERTY, COUNTRY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_CITY_DATABASE_FILE_PROPERTY, CITY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_LEVEL_PROPERTY,
+                IPGeolocationLevel.COUNTRY.getValue());
+        props.setProperty(GeolocationConfigurationFactory.
+                EMBEDDED_DATABASE_FILE_KEPT_ON_CLOSE_PROPERTY, "true");
+
+        GeolocationConfigurationFactory.getInstance().configure(props);
+
+        final File f = new File(COUNTRY_FILE);
+        final File hashFile = new File(COUNTRY_FILE + ".sha256");
+        final File lockFile = new File(COUNTRY_FILE + ".lock");
+        try {
+            IPGeolocator.getInstance();
+            assertTrue(f.exists());
+            assertTrue(hashFile.exists());
+            final long length = f.length();
+
+            // file is kept on close and reused when contents are identical
+            IPGeolocator.reset();
+            assertTrue(f.exists());
+            assertTrue(hashFile.exists());
+            assertTrue(lockFile.exists());
+            assertTrue(f.setLastModified(1000));
+
+            IPGeolocator.getInstance();
+            assertEquals(f.lastModified(), 1000);
+
+            // when resource version is not known, file is reused as long as
+            // resource hash is identical
+            IPGeolocator.reset();
+            final String[] stored = new String(Files.readAllBytes(
+                    hashFile.toPath()), "UTF-8").split(" ");
+            Files.write(hashFile.toPath(), (stored[0] + " " + stored[1])
+                    .getBytes("UTF-8"));
+
+            IPGeolocator.getInstance();
+            assertEquals(f.lastModified(), 1000);
+
+            // files modified in place are copied again even if their length
+            // is unchanged
+            IPGeolocator.reset();
+            final byte[] data = Files.readAllBytes(f.toPath());
+            data[0] ^= 1;
+            Files.write(f.toPath(), data);
+            assertTrue(f.setLastModified(hashFile.lastModified() + 10000));
+
+            IPGeolocator.getInstance();
+            assertArrayEquals(Files.readAllBytes(f.toPath()), Files.readAllBytes(
+                    new File(MmdbReaderTest.DATABASE_FILE).toPath()));
+
+            // truncated files are copied again
+            IPGeolocator.reset();
+            Files.write(f.toPath(), new byte[]{1, 2, 3});
+
+            IPGeolocator.getInstance();
+            assertEquals(f.length(), length);
+            assertTrue(IPGeolocator.getInstance().isEnabled());
+        } finally {
+            IPGeolocator.reset();
+            Files.deleteIfExists(f.toPath());
+            Files.deleteIfExists(hashFile.toPath());
+            Files.deleteIfExists(lockFile.toPath());
+        }
+    }
+
+    @Test
+    public void testEmbeddedDatabaseFileDeletedOnClose()
+            throws ConfigurationException, IOException {
+        final Properties props = new Properties();
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_COUNTRY_DATABASE_FILE_PROPERTY, COUNTRY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_CITY_DATABASE_FILE_PROPERTY, CITY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_LEVEL_PROPERTY,
+                IPGeolocationLevel.COUNTRY.getValue());
+        props.setProperty(GeolocationConfigurationFactory.
+                EMBEDDED_DATABASE_FILE_KEPT_ON_CLOSE_PROPERTY, "false");
+
+        GeolocationConfigurationFactory.getInstance().configure(props);
+
+        final File f = new File(COUNTRY_FILE);
+        final File hashFile = new File(COUNTRY_FILE + ".sha256");
+        final File lockFile = new File(COUNTRY_FILE + ".lock");
+
+        IPGeolocator.getInstance();
+        assertTrue(f.exists());
+        assertTrue(hashFile.exists());
+
+        // lock file is kept so that all processes lock the same file
+        IPGeolocator.reset();
+        assertFalse(f.exists());
+        assertFalse(hashFile.exists());
+        assertTrue(lockFile.exists());
+    }
+
+    @Test
+    public void testLocateWhenIndexNotRequired() throws ConfigurationException,
+            IOException, NoSuchFieldException, IllegalAccessException,
+            IPLocationNotFoundException, IPGeolocationDisabledException {
+        final Properties props = new Properties();
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_COUNTRY_DATABASE_FILE_PROPERTY, COUNTRY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_LEVEL_PROPERTY,
+                IPGeolocationLevel.COUNTRY.getValue());
+
+        GeolocationConfigurationFactory.getInstance().configure(props);
+
+        final IPGeolocator locator = IPGeolocator.getInstance();
+        final Field field = IPGeolocator.class.getDeclaredField(
+                "mCountryIndex");
+        field.setAccessible(true);
+
+        // index is not created until a lookup needs it
+        final InetAddress address = InetAddress.getByName("81.33.1.1");
+        assertEquals(locator.locate(address, IPGeolocationLevel.COUNTRY).
+                getCountryCode(), "ES");
+        assertNull(field.get(locator));
+
+        assertEquals(locator.locate(address, IPGeolocationLevel.COUNTRY,
+                EnumSet.of(IPLocationField.COUNTRY_CODE)).getCountryCode(),
+                "ES");
+        final Object index = field.get(locator);
+        assertNotNull(index);
+
+        // reloaded databases keep their indices once needed
+        locator.reload();
+        assertNotNull(field.get(locator));
+        assertNotSame(field.get(locator), index);
+        assertEquals(locator.locate(address, IPGeolocationLevel.COUNTRY,
+                EnumSet.of(IPLocationField.COUNTRY_CODE)).getCountryCode(),
+                "ES");
+    }
+
+    @Test
+    public void testLocateWithFieldsWhenDatabaseFileReplaced()
+            throws ConfigurationException, IOException,
+            IPLocationNotFoundException, IPGeolocationDisabledException {
+        final File f = File.createTempFile("country", ".mmdb");
+        final File tmp = File.createTempFile("country", ".tmp");
+        try {
+            Files.copy(new File(MmdbReaderTest.DATABASE_FILE).toPath(),
+                    f.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+            final Properties props = new Properties();
+            props.setProperty(GeolocationConfigurationFactory.
+                    IP_GEOLOCATION_COUNTRY_DATABASE_FILE_PROPERTY,
+                    f.getAbsolutePath());
+            props.setProperty(GeolocationConfigurationFactory.
+                    IP_GEOLOCATION_COUNTRY_DATABASE_EMBEDDED_PROPERTY, "false");
+            props.setProperty(GeolocationConfigurationFactory.
+                    IP_GEOLOCATION_LEVEL_PROPERTY,
+                    IPGeolocationLevel.COUNTRY.getValue());
+
+            GeolocationConfigurationFactory.getInstance().configure(props);
+
+            final IPGeolocator locator = IPGeolocator.getInstance();
+            final InetAddress address = InetAddress.getByName("81.33.1.1");
+            assertEquals(locator.locate(address, IPGeolocationLevel.COUNTRY).
+                    getCountryCode(), "ES");
+
+            // replace database file with a corrupt one without reloading
+            final byte[] data = Files.readAllBytes(f.toPath());
+            data[0] = data[1] = data[2] = (byte) 0xFF;
+            Files.write(tmp.toPath(), data);
+            Files.move(tmp.toPath(), f.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+
+            // index is lazily created from the file opened by the reader
+            assertEquals(locator.locate(address, IPGeolocationLevel.COUNTRY,
+                    EnumSet.of(IPLocationField.COUNTRY_CODE)).getCountryCode(),
+                    "ES");
+
+            locator.close();
+        } finally {
+            assertTrue(!f.exists() || f.delete());
+            assertTrue(!tmp.exists() || tmp.delete());
+        }
+    }
+
+    @Test
+    public void testLocateWithFields() throws ConfigurationException,
+            UnknownHostException, IPLocationNotFoundException,
+            IPGeolocationDisabledException {
+        final Properties props = new Properties();
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_COUNTRY_DATABASE_FILE_PROPERTY, COUNTRY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_CITY_DATABASE_FILE_PROPERTY, CITY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_LEVEL_PROPERTY,
+                IPGeolocationLevel.COUNTRY.getValue());
+        props.setProperty(GeolocationConfigurationFactory.
+                RESULT_CACHE_ENABLED_PROPERTY, "true");
+
+        GeolocationConfigurationFactory.getInstance().configure(props);
+
+        final IPGeolocator locator = IPGeolocator.getInstance();
+
+        final InetAddress address = InetAddress.getByName("81.33.1.1");
+        final IPLocation location = locator.locate(address,
+                IPGeolocationLevel.COUNTRY,
+                EnumSet.of(IPLocationField.COUNTRY_CODE));
+        assertEquals(location.getCountryCode(), "ES");
+        assertNull(location.getContinentName());
+        assertNull(location.getContinentCode());
+        assertEquals(location.getLevel(), IPGeolocationLevel.COUNTRY);
+
+        // partial locations are not cached
+        assertEquals(locator.getResultCache().size(), 0);
+        assertNotSame(locator.locate(address, IPGeolocationLevel.COUNTRY,
+                EnumSet.of(IPLocationField.COUNTRY_CODE)), location);
+
+        // complete cached locations are returned
+        final IPLocation complete = locator.locate(address,
+                IPGeolocationLevel.COUNTRY);
+        assertEquals(complete.getCountryName(), "Spain");
+        assertSame(locator.tryLocate(address, IPGeolocationLevel.COUNTRY,
+                EnumSet.of(IPLocationField.COUNTRY_CODE)), complete);
+
+        assertNull(locator.tryLocate(InetAddress.getByName("10.0.0.1"),
+                IPGeolocationLevel.COUNTRY,
+                EnumSet.of(IPLocationField.COUNTRY_CODE)));
+        try {
+            locator.locate(InetAddress.getByName("10.0.0.1"),
+                    IPGeolocationLevel.COUNTRY,
+                    EnumSet.of(IPLocationField.COUNTRY_CODE));
+            fail("IPLocationNotFoundException expected but not thrown");
+        } catch (final IPLocationNotFoundException ignore) { }
+    }
+
+    @Test
+    public void testLocateWithDirectDecoding() throws ConfigurationException,
+            IOException, IPLocationNotFoundException,
+            IPGeolocationDisabledException {
+        final String[] addresses = {"64.4.4.4", "81.33.1.1", "193.90.1.1",
+                "2001:4860:4860::8888"};
+
+        final Properties props = new Properties();
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_COUNTRY_DATABASE_FILE_PROPERTY, COUNTRY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_CITY_DATABASE_FILE_PROPERTY, CITY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_LEVEL_PROPERTY,
+                IPGeolocationLevel.COUNTRY.getValue());
+        props.setProperty(GeolocationConfigurationFactory.NAME_LOCALES_PROPERTY,
+                "fr");
+
+        GeolocationConfigurationFactory.getInstance().configure(props);
+
+        final IPLocation[] expected = new IPLocation[addresses.length];
+        for (int i = 0; i < addresses.length; i++) {
+            expected[i] = IPGeolocator.getInstance().locate(
+                    InetAddress.getByName(addresses[i]),
+                    IPGeolocationLevel.COUNTRY);
+        }
+
+        // decoding records directly obtains the same locations
+        IPGeolocator.reset();
+        props.setProperty(GeolocationConfigurationFactory.
+                DIRECT_DECODING_ENABLED_PROPERTY, "true");
+        GeolocationConfigurationFactory.getInstance().configure(props);
+
+        final IPGeolocator locator = IPGeolocator.getInstance();
+        for (int i = 0; i < addresses.length; i++) {
+            final IPLocation location = locator.locate(
+                    InetAddress.getByName(addresses[i]),
+                    IPGeolocationLevel.COUNTRY);
+            assertEquals(location.getLevel(), expected[i].getLevel());
+            assertEquals(location.getCountryCode(),
+                    expected[i].getCountryCode());
+            assertEquals(location.getCountryName(),
+                    expected[i].getCountryName());
+            assertEquals(location.getCountryName(Locale.FRENCH),
+                    expected[i].getCountryName(Locale.FRENCH));
+            assertEquals(location.getRegisteredCountryCode(),
+                    expected[i].getRegisteredCountryCode());
+            assertEquals(location.getRegisteredCountryName(),
+                    expected[i].getRegisteredCountryName());
+            assertEquals(location.getContinentCode(),
+                    expected[i].getContinentCode());
+            assertEquals(location.getContinentName(),
+                    expected[i].getContinentName());
+            assertEquals(location.getContinentName(Locale.FRENCH),
+                    expected[i].getContinentName(Locale.FRENCH));
+            assertEquals(location.getAutonomousSystemNumber(),
+                    expected[i].getAutonomousSystemNumber());
+        }
+
+        assertNull(locator.tryLocate(InetAddress.getByName("10.0.0.1"),
+                IPGeolocationLevel.COUNTRY));
+    }
+
+    @Test
+    public void testLocateWhenDatabasePreloaded() throws ConfigurationException,
+            IOException, IPLocationNotFoundException,
+            IPGeolocationDisabledException {
+        final Properties props = new Properties();
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_COUNTRY_DATABASE_FILE_PROPERTY, COUNTRY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_LEVEL_PROPERTY,
+                IPGeolocationLevel.COUNTRY.getValue());
+        props.setProperty(GeolocationConfigurationFactory.
+                DATABASE_PRELOAD_ENABLED_PROPERTY, "true");
+        props.setProperty(GeolocationConfigurationFactory.
+                DATABASE_TREE_WALK_ENABLED_PROPERTY, "true");
+
+        GeolocationConfigurationFactory.getInstance().configure(props);
+
+        final IPGeolocator locator = IPGeolocator.getInstance();
+        assertTrue(locator.isEnabled());
+
+        final IPLocation location = locator.locate(
+                InetAddress.getByName("81.33.1.1"), IPGeolocationLevel.COUNTRY);
+        assertEquals(location.getCountryCode(), "ES");
+
+        // reloaded databases are also preloaded before being used
+        locator.reload();
+
+        assertEquals(locator.locate(InetAddress.getByName("81.33.1.1"),
+                IPGeolocationLevel.COUNTRY).getCountryCode(), "ES");
+    }
+
+    @Test
+    public void testLocateWhenWalkedDatabaseIsCorrupt()
+            throws ConfigurationException, IOException {
+        final File f = File.createTempFile("country", ".mmdb");
+        try {
+            final byte[] data = Files.readAllBytes(
+                    new File(MmdbReaderTest.DATABASE_FILE).toPath());
+            data[0] = data[1] = data[2] = (byte) 0xFF;
+            Files.write(f.toPath(), data);
+
+            final Properties props = new Properties();
+            props.setProperty(GeolocationConfigurationFactory.
+                    IP_GEOLOCATION_COUNTRY_DATABASE_FILE_PROPERTY,
+                    f.getAbsolutePath());
+            props.setProperty(GeolocationConfigurationFactory.
+                    IP_GEOLOCATION_COUNTRY_DATABASE_EMBEDDED_PROPERTY, "false");
+            props.setProperty(GeolocationConfigurationFactory.
+                    IP_GEOLOCATION_LEVEL_PROPERTY,
+                    IPGeolocationLevel.COUNTRY.getValue());
+            props.setProperty(GeolocationConfigurationFactory.
+                    DATABASE_TREE_WALK_ENABLED_PROPERTY, "true");
+
+            GeolocationConfigurationFactory.getInstance().configure(props);
+
+            // corrupt databases are never used
+            final IPGeolocator locator = IPGeolocator.getInstance();
+            assertFalse(locator.isEnabled());
+            assertNull(locator.tryLocate(InetAddress.getByName("81.33.1.1"),
+                    IPGeolocationLevel.COUNTRY));
+        } finally {
+            assertTrue(f.delete());
+        }
+    }
+
+    @Test
+    public void testLocateCountry() throws ConfigurationException,
+            IOException {
+        final Properties props = new Properties();
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_COUNTRY_DATABASE_FILE_PROPERTY, COUNTRY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_CITY_DATABASE_FILE_PROPERTY, CITY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_LEVEL_PROPERTY,
+                IPGeolocationLevel.COUNTRY.getValue());
+
+        GeolocationConfigurationFactory.getInstance().configure(props);
+
+        final IPGeolocator locator = IPGeolocator.getInstance();
+
+        final InetAddress address = InetAddress.getByName("81.33.1.1");
+        final int country = locator.locateCountry(address);
+        assertEquals(CountryIndex.toCode(country), "ES");
+        assertEquals(locator.locateCountry(
+                IPAddressParser.toInt((Inet4Address) address)), country);
+        assertEquals(locator.getContinentCode(country), "EU");
+        assertEquals(CountryIndex.toCode(locator.locateCountry(
+                InetAddress.getByName("2001:4860:4860::8888"))), "US");
+        assertEquals(locator.locateCountry(InetAddress.getByName("10.0.0.1")),
+                CountryIndex.UNKNOWN);
+        assertEquals(locator.locateCountry(null), CountryIndex.UNKNOWN);
+
+        // countries are still located once databases are reloaded
+        locator.reload();
+        assertEquals(locator.locateCountry(address), country);
+
+        locator.close();
+        assertEquals(locator.locateCountry(address), CountryIndex.UNKNOWN);
+        assertNull(locator.getContinentCode(country));
+    }
+
+    @Test
+    public void testReload() throws ConfigurationException, IOException,
+            IPLocationNotFoundException, IPGeolocationDisabledException {
+        final Properties props = new Properties();
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_COUNTRY_DATABASE_FILE_PROPERTY, COUNTRY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_CITY_DATABASE_FILE_PROPERTY, CITY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_LEVEL_PROPERTY,
+                IPGeolocationLevel.COUNTRY.getValue());
+        props.setProperty(GeolocationConfigurationFactory.
+                RESULT_CACHE_ENABLED_PROPERTY, "true");
+        props.setProperty(GeolocationConfigurationFactory.
+                COMPILED_IPV4_TABLE_ENABLED_PROPERTY, "true");
+
+        GeolocationConfigurationFactory.getInstance().configure(props);
+
+        final IPGeolocator locator = IPGeolocator.getInstance();
+
+        final InetAddress address = InetAddress.getByName("64.4.4.4");
+        assertEquals(locator.locate(address, IPGeolocationLevel.COUNTRY).
+                getCountryCode(), "US");
+        final IPLocationCache cache = locator.getResultCache();
+        assertEquals(cache.size(), 1);
+
+        locator.reload();
+
+        // cached locations are discarded and lookups use reloaded database
+        assertNotSame(locator.getResultCache(), cache);
+        assertEquals(locator.getResultCache().size(), 0);
+        assertEquals(locator.locate(address, IPGeolocationLevel.COUNTRY).
+                getCountryCode(), "US");
+        assertEquals(locator.locate(InetAddress.getByName("81.33.1.1"),
+                IPGeolocationLevel.COUNTRY).getCountryCode(), "ES");
+
+        locator.close();
+
+        try {
+            locator.reload();
+            fail("IOException expected but not thrown");
+        } catch (final IOException ignore) { }
+    }
+
+    @Test
+    public void testReloadWhenDatabaseIsCorrupt()
+            throws ConfigurationException, IOException,
+            IPLocationNotFoundException, IPGeolocationDisabledException {
+        final File f = File.createTempFile("country", ".mmdb");
+        final File tmp = File.createTempFile("country", ".tmp");
+        try {
+            Files.copy(new File(MmdbReaderTest.DATABASE_FILE).toPath(),
+                    f.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+
+            final Properties props = new Properties();
+            props.setProperty(GeolocationConfigurationFactory.
+                    IP_GEOLOCATION_COUNTRY_DATABASE_FILE_PROPERTY,
+                    f.getAbsolutePath());
+            props.setProperty(GeolocationConfigurationFactory.
+                    IP_GEOLOCATION_CITY_DATABASE_FILE_PROPERTY, CITY_FILE);
+            props.setProperty(GeolocationConfigurationFactory.
+                    IP_GEOLOCATION_LEVEL_PROPERTY,
+                    IPGeolocationLevel.COUNTRY.getValue());
+
+            GeolocationConfigurationFactory.getInstance().configure(props);
+
+            final IPGeolocator locator = IPGeolocator.getInstance();
+            final InetAddress address = InetAddress.getByName("64.4.4.4");
+            assertEquals(locator.locate(address, IPGeolocationLevel.COUNTRY).
+                    getCountryCode(), "US");
+
+            // replace database with one whose search tree points past its
+            // data section
+            final byte[] data = Files.readAllBytes(f.toPath());
+            data[0] = data[1] = data[2] = (byte) 0xFF;
+            Files.write(tmp.toPath(), data);
+            Files.move(tmp.toPath(), f.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+
+            try {
+                locator.reload();
+                fail("IOException expected but not thrown");
+            } catch (final IOException ignore) { }
+
+            // previous database is still used
+            assertEquals(locator.locate(address, IPGeolocationLevel.COUNTRY).
+                    getCountryCode(), "US");
+
+            locator.close();
+        } finally {
+            assertTrue(!f.exists() || f.delete());
+            assertTrue(!tmp.exists() || tmp.delete());
+        }
+    }
+
+    @Test
+    public void testReloadWhenDatabaseFileChanges()
+            throws ConfigurationException, IOException, InterruptedException,
+            IPLocationNotFoundException, IPGeolocationDisabledException {
+        final Properties props = new Properties();
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_COUNTRY_DATABASE_FILE_PROPERTY, COUNTRY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_CITY_DATABASE_FILE_PROPERTY, CITY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_LEVEL_PROPERTY,
+                IPGeolocationLevel.COUNTRY.getValue());
+        props.setProperty(GeolocationConfigurationFactory.
+                RESULT_CACHE_ENABLED_PROPERTY, "true");
+        props.setProperty(GeolocationConfigurationFactory.
+                DATABASE_WATCH_ENABLED_PROPERTY, "true");
+
+        GeolocationConfigurationFactory.getInstance().configure(props);
+
+        final IPGeolocator locator = IPGeolocator.getInstance();
+        final IPLocationCache cache = locator.getResultCache();
+
+        // replace database file the same way updates are usually deployed
+        final File f = new File(COUNTRY_FILE);
+        final File tmp = new File(COUNTRY_FILE + ".tmp");
+        Files.copy(f.toPath(), tmp.toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+        Files.move(tmp.toPath(), f.toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+
+        final long end = System.currentTimeMillis() + 30000;
+        while (locator.getResultCache() == cache &&
+                System.currentTimeMillis() < end) {
+            Thread.sleep(100);
+        }
+
+        assertNotSame(locator.getResultCache(), cache);
+        assertEquals(locator.locate(InetAddress.getByName("64.4.4.4"),
+                IPGeolocationLevel.COUNTRY).getCountryCode(), "US");
+    }
+
+    @Test
+    public void testLocateWithLocationInterning() throws ConfigurationException,
+            IOException, IPLocationNotFoundException,
+            IPGeolocationDisabledException {
+        final IPGeolocator locator = IPGeolocator.getInstance();
+
+        // addresses having identical data share the same location
+        final IPLocation location1 = locator.locate(
+                InetAddress.getByName("64.4.4.4"), IPGeolocationLevel.COUNTRY);
+        final IPLocation location2 = locator.locate(
+                InetAddress.getByName("8.8.8.8"), IPGeolocationLevel.COUNTRY);
+        assertEquals(location1.getCountryCode(), "US");
+        assertSame(location1, location2);
+
+        final IPLocation location3 = locator.locate(
+                InetAddress.getByName("81.33.1.1"), IPGeolocationLevel.COUNTRY);
+        assertEquals(location3.getCountryCode(), "ES");
+        assertSame(location3.getContinentName(),
+                locator.locate(InetAddress.getByName("5.6.7.8"),
+                        IPGeolocationLevel.COUNTRY).getContinentName());
+
+        // disable interning
+        IPGeolocator.reset();
+        GeolocationConfigurationFactory.getInstance().reset();
+        final Properties props = new Properties();
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_COUNTRY_DATABASE_FILE_PROPERTY, COUNTRY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_CITY_DATABASE_FILE_PROPERTY, CITY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                LOCATION_INTERNING_ENABLED_PROPERTY, "false");
+
+        GeolocationConfigurationFactory.getInstance().configure(props);
+
+        final IPGeolocator locator2 = IPGeolocator.getInstance();
+        assertNotSame(locator2.locate(InetAddress.getByName("64.4.4.4"),
+                        IPGeolocationLevel.COUNTRY),
+                locator2.locate(InetAddress.getByName("8.8.8.8"),
+                        IPGeolocationLevel.COUNTRY));
+    }
+
+    @Test
+    public void testLocateWithNameLocales() throws ConfigurationException,
+            IOException, IPLocationNotFoundException,
+            IPGeolocationDisabledException {
+        IPGeolocator.reset();
+        GeolocationConfigurationFactory.getInstance().reset();
+        final Properties props = new Properties();
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_COUNTRY_DATABASE_FILE_PROPERTY, COUNTRY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_CITY_DATABASE_FILE_PROPERTY, CITY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                NAME_LOCALES_PROPERTY, "de, fr");
+
+        GeolocationConfigurationFactory.getInstance().configure(props);
+
+        final IPLocation location = IPGeolocator.getInstance().locate(
+                InetAddress.getByName("81.33.1.1"), IPGeolocationLevel.COUNTRY);
+
+        // localized names are obtained from database
+        assertEquals(location.getCountryName(Locale.GERMAN), "Spanien");
+        assertEquals(location.getCountryName(Locale.FRENCH), "Espagne");
+        assertEquals(location.getContinentName(Locale.GERMAN), "Europa");
+        assertEquals(location.getRegisteredCountryName(Locale.GERMAN),
+                "Spanien");
+
+        // locales not loaded fall back to default names
+        assertEquals(location.getContinentName(Locale.ITALIAN),
+                location.getContinentName());
+        assertEquals(location.getCountryName(Locale.ITALIAN), "Spagna");
+    }
+
+    @Test
+    public void testGetNegativeCacheWhenDisabled() {
+        assertNull(IPGeolocator.getInstance().getNegativeCache());
+    }
+
+    @Test
+    public void testTryLocate() throws UnknownHostException {
+        final IPGeolocator locator = IPGeolocator.getInstance();
+        assertTrue(locator.isEnabled());
+
+        final IPLocation location = locator.tryLocate(
+                InetAddress.getByName("64.4.4.4"), IPGeolocationLevel.COUNTRY);
+        assertNotNull(location);
+        assertEquals(location.getCountryCode(), "US");
+
+        assertNotNull(locator.tryLocate(InetAddress.getByName("64.4.4.4")));
+
+        // misses and disabled level return null
+        assertNull(locator.tryLocate(InetAddress.getByName("127.0.0.1"),
+                IPGeolocationLevel.COUNTRY));
+        assertNull(locator.tryLocate(InetAddress.getByName("10.0.0.1")));
+        assertNull(locator.tryLocate(InetAddress.getByName("64.4.4.4"),
+                IPGeolocationLevel.DISABLED));
+        assertNull(locator.tryLocate((InetAddress) null,
+                IPGeolocationLevel.COUNTRY));
+    }
+
+    @Test(expected = UnknownHostException.class)
+    public void testLocateDnsAddressWhenResolutionDisabled()
+            throws UnknownHostException, IPLocationNotFoundException,
+            IPGeolocationDisabledException {
+        IPGeolocator.getInstance().locate("www.mobbio.com");
+    }
+
+    @Test(expected = UnknownHostException.class)
+    public void testLocateInvalidAddress() throws UnknownHostException,
+            IPLocationNotFoundException, IPGeolocationDisabledException {
+        IPGeolocator.getInstance().locate("1.2.3.4.5",
+                IPGeolocationLevel.COUNTRY);
+    }
+
+    @Test
+    public void testTryLocateString() {
+        final IPGeolocator locator = IPGeolocator.getInstance();
+
+        final IPLocation location = locator.tryLocate(" 64.4.4.4 ",
+                IPGeolocationLevel.COUNTRY);
+        assertNotNull(location);
+        assertEquals(location.getCountryCode(), "US");
+
+        assertNotNull(locator.tryLocate("[::ffff:64.4.4.4]",
+                IPGeolocationLevel.COUNTRY));
+        assertNotNull(locator.tryLocate("64.4.4.4"));
+
+        // invalid literals and host names are not resolved
+        assertNull(locator.tryLocate("64.4.4", IPGeolocationLevel.COUNTRY));
+        assertNull(locator.tryLocate("www.mobbio.com",
+                IPGeolocationLevel.COUNTRY));
+        assertNull(locator.tryLocate((String) null,
+                IPGeolocationLevel.COUNTRY));
+    }
+
+    @Test
+    public void testLocateAll() throws UnknownHostException,
+            IPGeolocationDisabledException {
+        final IPGeolocator locator = IPGeolocator.getInstance();
+
+        final InetAddress us = InetAddress.getByName("64.4.4.4");
+        final InetAddress es = InetAddress.getByName("81.33.1.1");
+        final InetAddress local = InetAddress.getByName("10.0.0.1");
+        final InetAddress ipv6 = InetAddress.getByName("2001:4860:4860::8888");
+
+        final List<InetAddress> addresses = Arrays.asList(
+                es, us, local, es, null, ipv6, us);
+
+        for (final boolean sort : new boolean[]{false, true}) {
+            final List<IPLocation> locations = locator.locateAll(addresses,
+                    IPGeolocationLevel.COUNTRY, sort);
+            assertEquals(locations.size(), addresses.size());
+
+            // results are returned in input order
+            assertEquals(locations.get(0).getCountryCode(), "ES");
+            assertEquals(locations.get(1).getCountryCode(), "US");
+            assertNull(locations.get(2));
+            assertNull(locations.get(4));
+            assertEquals(locations.get(5).getCountryCode(), "US");
+
+            // repeated addresses are only located once
+            assertSame(locations.get(0), locations.get(3));
+            assertSame(locations.get(1), locations.get(6));
+        }
+
+        assertEquals(locator.locateAll(addresses,
+                IPGeolocationLevel.COUNTRY).size(), addresses.size());
+    }
+
+    @Test
+    public void testLocateAllPrimitive() throws IPGeolocationDisabledException {
+        final IPGeolocator locator = IPGeolocator.getInstance();
+
+        // 81.33.1.1, 64.4.4.4, 10.0.0.1, 81.33.1.1, 200.21.225.82
+        final int[] addresses = {0x51210101, 0x40040404, 0x0A000001,
+                0x51210101, 0xC815E152};
+
+        final IPLocation[] locations = locator.locateAll(addresses,
+                IPGeolocationLevel.COUNTRY);
+        assertEquals(locations.length, addresses.length);
+        assertEquals(locations[0].getCountryCode(), "ES");
+        assertEquals(locations[1].getCountryCode(), "US");
+        assertNull(locations[2]);
+        assertSame(locations[0], locations[3]);
+        assertNotNull(locations[4]);
+    }
+
+    @Test(expected = IPGeolocationDisabledException.class)
+    public void testLocateAllWhenDisabledLevel() throws UnknownHostException,
+            IPGeolocationDisabledException {
+        IPGeolocator.getInstance().locateAll(
+                new InetAddress[]{InetAddress.getByName("64.4.4.4")},
+                IPGeolocationLevel.DISABLED, false);
+    }
+
+    @Test
+    public void testLocateAsync() throws UnknownHostException,
+            InterruptedException, ExecutionException {
+        final IPGeolocator locator = IPGeolocator.getInstance();
+
+        final Future<IPLocation> future = locator.locateAsync(
+                InetAddress.getByName("64.4.4.4"), IPGeolocationLevel.COUNTRY);
+        assertEquals(future.get().getCountryCode(), "US");
+
+        final Future<IPLocation> future2 = locator.locateAsync("81.33.1.1",
+                IPGeolocationLevel.COUNTRY);
+        assertEquals(future2.get().getCountryCode(), "ES");
+
+        final Future<IPLocation> future3 = locator.locateAsync("10.0.0.1",
+                IPGeolocationLevel.COUNTRY);
+        try {
+            future3.get();
+            fail("ExecutionException expected but not thrown");
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof IPLocationNotFoundException);
+        }
+    }
+
+    @Test
+    public void testLocateAsyncWithCallback() throws UnknownHostException,
+            InterruptedException {
+        final IPGeolocator locator = IPGeolocator.getInstance();
+
+        final CountDownLatch latch = new CountDownLatch(3);
+        final AtomicReference<IPLocation> located = new AtomicReference<>();
+        final AtomicInteger failures = new AtomicInteger();
+        final IPLocationCallback callback = new IPLocationCallback() {
+            @Override
+            public void onLocated(final IPLocation location) {
+                located.set(location);
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(final Exception e) {
+                failures.incrementAndGet();
+                latch.countDown();
+            }
+        };
+
+        locator.locateAsync(InetAddress.getByName("64.4.4.4"),
+                IPGeolocationLevel.COUNTRY, callback);
+        locator.locateAsync("10.0.0.1", IPGeolocationLevel.COUNTRY, callback);
+        locator.locateAsync("invalid", IPGeolocationLevel.COUNTRY, callback);
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(located.get().getCountryCode(), "US");
+        assertEquals(failures.get(), 2);
+    }
+
+    @Test
+    public void testLocateAsyncWithExecutor() throws UnknownHostException,
+            InterruptedException, ExecutionException {
+        final IPGeolocator locator = IPGeolocator.getInstance();
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            locator.setAsyncExecutor(executor);
+
+            final Future<IPLocation> future = locator.locateAsync(
+                    InetAddress.getByName("64.4.4.4"),
+                    IPGeolocationLevel.COUNTRY);
+            assertEquals(future.get().getCountryCode(), "US");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testLocateAsyncAfterClose() throws IOException,
+            InterruptedException, NoSuchFieldException,
+            IllegalAccessException {
+        final IPGeolocator locator = IPGeolocator.getInstance();
+        locator.close();
+
+        // lookups fail right away without creating a new executor
+        final Future<IPLocation> future = locator.locateAsync(
+                InetAddress.getByName("64.4.4.4"), IPGeolocationLevel.COUNTRY);
+        assertTrue(future.isDone());
+        try {
+            future.get();
+            fail("ExecutionException expected but not thrown");
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof IPGeolocationDisabledException);
+        }
+
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        final Future<?> future2 = locator.locateAsync("64.4.4.4",
+                IPGeolocationLevel.COUNTRY, new IPLocationCallback() {
+                    @Override
+                    public void onLocated(final IPLocation location) {
+                        fail("Lookup expected to fail");
+                    }
+
+                    @Override
+                    public void onFailure(final Exception e) {
+                        failure.set(e);
+                    }
+                });
+        assertTrue(future2.isDone());
+        assertTrue(failure.get() instanceof IPGeolocationDisabledException);
+
+        final Field field = IPGeolocator.class.getDeclaredField(
+                "mAsyncExecutor");
+        field.setAccessible(true);
+        assertNull(field.get(locator));
+    }
+
+    @Test
+    public void testTryLocateAfterClose() throws IOException {
+        final IPGeolocator locator = IPGeolocator.getInstance();
+        locator.close();
+
+        assertFalse(locator.isEnabled());
+        assertNull(locator.tryLocate(InetAddress.getByName("64.4.4.4"),
+                IPGeolocationLevel.COUNTRY));
+    }
+
+    @Test
+    public void testLocateExceptionsHaveNoStackTrace()
+            throws UnknownHostException, IPLocationNotFoundException {
+        final IPGeolocator locator = IPGeolocator.getInstance();
+
+        try {
+            locator.locate(InetAddress.getByName("64.4.4.4"),
+                    IPGeolocationLevel.DISABLED);
+            fail("IPGeolocationDisabledException expected but not thrown");
+        } catch (final IPGeolocationDisabledException e) {
+            assertEquals(e.getStackTrace().length, 0);
+
+            // shared instance cannot be modified by callers
+            e.addSuppressed(new Exception());
+            assertEquals(e.getSuppressed().length, 0);
+            e.setStackTrace(new Throwable().getStackTrace());
+            assertEquals(e.getStackTrace().length, 0);
+        }
+    }
+
     @Test(expected = IPGeolocationDisabledException.class)
     public void testLocateAfterClose() throws IOException,
             IPLocationNotFoundException, IPGeolocationDisabledException {
@@ -2771,6 +4045,55 @@ public class IPGeolocatorTest {
         assertEquals(location.getLevel(), IPGeolocationLevel.CITY);
     }
 
+    @Test
+    public void testLocateCountryLevelWhenCityConfigured()
+            throws ConfigurationException, UnknownHostException,
+            IPLocationNotFoundException, IPGeolocationDisabledException,
+            NoSuchFieldException, IllegalAccessException {
+        final Properties props = new Properties();
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_COUNTRY_DATABASE_FILE_PROPERTY, COUNTRY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.
+                IP_GEOLOCATION_CITY_DATABASE_FILE_PROPERTY, CITY_FILE);
+        props.setProperty(GeolocationConfigurationFactory.IP_GEOLOCATION_LEVEL_PROPERTY,
+                IPGeolocationLevel.CITY.getValue());
+        props.setProperty(GeolocationConfigurationFactory.
+                COMPILED_IPV4_TABLE_ENABLED_PROPERTY, "true");
+        props.setProperty(GeolocationConfigurationFactory.
+                NETWORK_CACHE_ENABLED_PROPERTY, "true");
+
+        GeolocationConfigurationFactory.getInstance().configure(props);
+
+        final IPGeolocator locator = IPGeolocator.getInstance();
+
+        final InetAddress address = InetAddress.getByName("12.25.205.51");
+
+        final IPLocation cityLocation = locator.locate(address,
+                IPGeolocationLevel.CITY);
+        final IPLocation location = locator.locate(address,
+                IPGeolocationLevel.COUNTRY);
+        assertEquals(location.getLevel(), IPGeolocationLevel.COUNTRY);
+        assertEquals(location.getCountryCode(), "US");
+        assertEquals(location.getRegisteredCountryCode(), "US");
+        assertEquals(location.getContinentCode(), "NA");
+        assertNull(location.getAccuracyRadius());
+        assertFalse(location.areCoordinatesAvailable());
+
+        // country locations are cached independently of city locations
+        assertSame(locator.locate(address, IPGeolocationLevel.COUNTRY),
+                location);
+        assertSame(locator.locate(address, IPGeolocationLevel.CITY),
+                cityLocation);
+        assertEquals(locator.locate(InetAddress.getByName("81.33.1.1"),
+                IPGeolocationLevel.COUNTRY).getCountryCode(), "ES");
+
+        // country database is neither copied nor opened
+        final Field field = IPGeolocator.class.getDeclaredField("mCountryReader");
+        field.setAccessible(true);
+        assertNull(field.get(locator));
+        assertFalse(new File(COUNTRY_FILE).exists());
+    }
+
     @Test
     public void testLocateWhenDisabledLevel() throws ConfigurationException, IOException {
         final Properties props = new Properties();
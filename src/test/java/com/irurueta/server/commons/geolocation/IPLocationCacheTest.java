@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import static org.junit.Assert.*;
+
+public class IPLocationCacheTest {
+
+    @Test
+    public void testConstructor() {
+        final IPLocationCache cache = new IPLocationCache(100, 1000);
+
+        assertEquals(cache.getMaxSize(), 100);
+        assertEquals(cache.getTimeToLive(), 1000);
+        assertEquals(cache.size(), 0);
+        assertEquals(cache.getHitCount(), 0);
+        assertEquals(cache.getMissCount(), 0);
+        assertEquals(cache.getEvictionCount(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWhenInvalidSize() {
+        new IPLocationCache(0, 0);
+    }
+
+    @Test
+    public void testGetAndPut() throws UnknownHostException {
+        final IPLocationCache cache = new IPLocationCache(100, 0);
+
+        final InetAddress address = InetAddress.getByName("64.4.4.4");
+        final IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
+
+        assertNull(cache.get(address, IPGeolocationLevel.CITY));
+        assertEquals(cache.getMissCount(), 1);
+
+        cache.put(address, IPGeolocationLevel.CITY, location);
+
+        assertEquals(cache.size(), 1);
+        assertSame(cache.get(address, IPGeolocationLevel.CITY), location);
+        assertEquals(cache.getHitCount(), 1);
+
+        // other levels are cached independently
+        assertNull(cache.get(address, IPGeolocationLevel.COUNTRY));
+        assertEquals(cache.getMissCount(), 2);
+
+        cache.clear();
+
+        assertEquals(cache.size(), 0);
+        assertNull(cache.get(address, IPGeolocationLevel.CITY));
+        assertEquals(cache.getHitCount(), 1);
+        assertEquals(cache.getMissCount(), 3);
+    }
+
+    @Test
+    public void testEviction() throws UnknownHostException {
+        final int maxSize = 64;
+        final IPLocationCache cache = new IPLocationCache(maxSize, 0);
+
+        for (int i = 0; i < 10 * maxSize; i++) {
+            final InetAddress address = InetAddress.getByAddress(new byte[]{
+                    10, 0, (byte) (i >> 8), (byte) i});
+            cache.put(address, IPGeolocationLevel.COUNTRY,
+                    new IPLocation(IPGeolocationLevel.COUNTRY));
+        }
+
+        assertTrue(cache.size() <= maxSize);
+        assertTrue(cache.getEvictionCount() > 0);
+        assertEquals(cache.size() + cache.getEvictionCount(), 10 * maxSize);
+    }
+
+    @Test
+    public void testExpiration() throws UnknownHostException,
+            InterruptedException {
+        final IPLocationCache cache = new IPLocationCache(100, 1);
+
+        final InetAddress address = InetAddress.getByName("64.4.4.4");
+        cache.put(address, IPGeolocationLevel.CITY,
+                new IPLocation(IPGeolocationLevel.CITY));
+
+        Thread.sleep(10);
+
+        assertNull(cache.get(address, IPGeolocationLevel.CITY));
+        assertEquals(cache.getEvictionCount(), 1);
+        assertEquals(cache.size(), 0);
+    }
+}
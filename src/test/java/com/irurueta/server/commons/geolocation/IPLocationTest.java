@@ -18,7 +18,8 @@ package com.irurueta.server.commons.geolocation;
 import com.irurueta.navigation.utils.LocationUtils;
 import org.junit.Test;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.TimeZone;
@@ -58,132 +59,165 @@ public class IPLocationTest {
 
     @Test
     public void testGetCity() {
-        final IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
+        IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
 
         assertNull(location.getCity());
 
-        location.mCity = "Barcelona";
+        location = new IPLocation.Builder(IPGeolocationLevel.CITY)
+                .setCity("Barcelona").build();
 
         assertEquals(location.getCity(), "Barcelona");
     }
 
     @Test
     public void testGetTimeZone() {
-        final IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
+        IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
 
         assertNull(location.getTimeZone());
 
-        location.mTimeZone = TimeZone.getTimeZone("Europe/Madrid");
+        assertNull(location.getTimeZoneId());
+
+        location = new IPLocation.Builder(IPGeolocationLevel.CITY)
+                .setTimeZoneId("Europe/Madrid").build();
 
+        assertEquals(location.getTimeZoneId(), "Europe/Madrid");
         assertEquals(location.getTimeZone(),
                 TimeZone.getTimeZone("Europe/Madrid"));
+
+        // modifying returned time zone does not affect other locations
+        final IPLocation location2 = new IPLocation.Builder(
+                IPGeolocationLevel.CITY).setTimeZoneId("Europe/Madrid").build();
+        final TimeZone timeZone = location.getTimeZone();
+        assertNotSame(location2.getTimeZone(), timeZone);
+        timeZone.setID("GMT");
+        timeZone.setRawOffset(0);
+        assertEquals(location.getTimeZone().getID(), "Europe/Madrid");
+        assertEquals(location2.getTimeZone(),
+                TimeZone.getTimeZone("Europe/Madrid"));
     }
 
     @Test
     public void testGetAccuracyRadius() {
-        final IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
+        IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
 
         assertNull(location.getAccuracyRadius());
 
-        location.mAccuracyRadius = 100;
+        location = new IPLocation.Builder(IPGeolocationLevel.CITY)
+                .setAccuracyRadius(100).build();
 
         assertEquals(location.getAccuracyRadius().intValue(), 100);
     }
 
     @Test
     public void testGetMetroCode() {
-        final IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
+        IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
 
         assertNull(location.getMetroCode());
 
-        location.mMetroCode = 123;
+        location = new IPLocation.Builder(IPGeolocationLevel.CITY)
+                .setMetroCode(123).build();
 
         assertEquals(location.getMetroCode().intValue(), 123);
     }
 
     @Test
     public void testGetLatitude() {
-        final IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
+        IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
 
         assertNull(location.getLatitude());
 
-        location.mLatitude = 41.0;
+        location = new IPLocation.Builder(IPGeolocationLevel.CITY)
+                .setLatitude(41.0).build();
 
         assertEquals(location.getLatitude(), 41.0, 0.0);
     }
 
     @Test
     public void testGetLongitude() {
-        final IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
+        IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
 
         assertNull(location.getLongitude());
 
-        location.mLongitude = 2.0;
+        location = new IPLocation.Builder(IPGeolocationLevel.CITY)
+                .setLongitude(2.0).build();
 
         assertEquals(location.getLongitude(), 2.0, 0.0);
     }
 
     @Test
     public void testAreCoordinatesAvailable() {
-        final IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
+        final IPLocation.Builder builder = new IPLocation.Builder(
+                IPGeolocationLevel.CITY);
 
-        assertFalse(location.areCoordinatesAvailable());
+        assertFalse(builder.build().areCoordinatesAvailable());
 
-        location.mLatitude = 41.0;
-        assertFalse(location.areCoordinatesAvailable());
+        builder.setLatitude(41.0);
+        assertFalse(builder.build().areCoordinatesAvailable());
 
-        location.mLongitude = 2.0;
-        assertTrue(location.areCoordinatesAvailable());
+        builder.setLongitude(2.0);
+        assertTrue(builder.build().areCoordinatesAvailable());
+
+        builder.setLatitude(null);
+        assertFalse(builder.build().areCoordinatesAvailable());
     }
 
     @Test
     public void testGetPostalCode() {
-        final IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
+        IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
 
         assertNull(location.getPostalCode());
 
-        location.mPostalCode = "08008";
+        location = new IPLocation.Builder(IPGeolocationLevel.CITY)
+                .setPostalCode("08008").build();
 
         assertEquals(location.getPostalCode(), "08008");
     }
 
     @Test
     public void testGetSubdivisionCodes() {
-        final IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
+        IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
 
         assertNull(location.getSubdivisionCodes());
 
-        final List<String> subdivisionCodes = new ArrayList<>();
-        subdivisionCodes.add("CAT");
-
-        location.mSubdivisionCodes = subdivisionCodes;
+        location = new IPLocation.Builder(IPGeolocationLevel.CITY)
+                .setSubdivisionCodes(new String[]{"CAT"}).build();
 
+        final List<String> subdivisionCodes = location.getSubdivisionCodes();
+        assertEquals(subdivisionCodes, Collections.singletonList("CAT"));
         assertSame(location.getSubdivisionCodes(), subdivisionCodes);
+
+        try {
+            subdivisionCodes.set(0, "GI");
+            fail("UnsupportedOperationException expected but not thrown");
+        } catch (final UnsupportedOperationException ignore) {
+        }
     }
 
     @Test
     public void testGetSubdivisionNames() {
-        final IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
+        IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
 
         assertNull(location.getSubdivisionNames());
 
-        final List<String> subdivisionNames = new ArrayList<>();
-        subdivisionNames.add("Catalonia");
-
-        location.mSubdivisionNames = subdivisionNames;
+        location = new IPLocation.Builder(IPGeolocationLevel.CITY)
+                .setSubdivisionNames(new String[]{"Catalonia"}).build();
 
+        final List<String> subdivisionNames = location.getSubdivisionNames();
+        assertEquals(subdivisionNames, Collections.singletonList("Catalonia"));
         assertSame(location.getSubdivisionNames(), subdivisionNames);
     }
 
     @Test
     public void testGetCountryCodeAndGetCountryName() {
-        final IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
+        final IPLocation.Builder builder = new IPLocation.Builder(
+                IPGeolocationLevel.CITY);
+        IPLocation location = builder.build();
 
         assertNull(location.getCountryCode());
         assertNull(location.getCountryName());
         assertNull(location.getCountryName(Locale.ENGLISH));
 
-        location.mCountryCode = "ES";
+        location = builder.setCountryCode("ES").build();
 
         assertEquals(location.getCountryCode(), "ES");
         assertEquals(location.getCountryName(), location.getCountryName(
@@ -191,32 +225,86 @@ public class IPLocationTest {
         assertEquals(location.getCountryName(Locale.FRENCH), "Espagne");
 
         // sets wrong country code
-        location.mCountryCode = "WRONG";
+        location = builder.setCountryCode("WRONG").build();
         assertNull(location.getCountryName());
         assertNull(location.getCountryName(Locale.FRENCH));
 
         // fallback country name
-        location.mCountryName = "Spain";
+        location = builder.setCountryName("Spain").build();
 
         assertEquals(location.getCountryName(), "Spain");
         assertEquals(location.getCountryName(Locale.FRENCH), "Spain");
 
         // set null country code
-        location.mCountryCode = null;
+        location = builder.setCountryCode(null).build();
 
         assertEquals(location.getCountryName(), "Spain");
         assertEquals(location.getCountryName(Locale.FRENCH), "Spain");
     }
 
+    @Test
+    public void testLocalizedNames() {
+        final NameLocales locales = NameLocales.parse("de,fr");
+
+        final IPLocation location = new IPLocation.Builder(
+                IPGeolocationLevel.CITY)
+                .setNameLocales(locales)
+                .setCity("Barcelona")
+                .setLocalizedCityNames(new String[]{null, "Barcelone"})
+                .setSubdivisionCodes(new String[]{"CT", "B"})
+                .setSubdivisionNames(new String[]{"Catalonia", "Barcelona"})
+                .setLocalizedSubdivisionNames(new String[]{
+                        "Katalonien", "Catalogne", null, "Barcelone"})
+                .setCountryCode("ES")
+                .setCountryName("Spain")
+                .setLocalizedCountryNames(new String[]{"Spanien", null})
+                .setRegisteredCountryCode("ES")
+                .setRegisteredCountryName("Spain")
+                .setContinentCode("EU")
+                .setContinentName("Europe")
+                .setLocalizedContinentNames(new String[]{"Europa", null})
+                .build();
+
+        assertEquals(location.getCity(Locale.FRENCH), "Barcelone");
+        assertEquals(location.getCity(Locale.GERMAN), "Barcelona");
+        assertEquals(location.getCity(Locale.ITALIAN), "Barcelona");
+
+        assertEquals(location.getSubdivisionNames(Locale.GERMAN),
+                Arrays.asList("Katalonien", "Barcelona"));
+        assertEquals(location.getSubdivisionNames(Locale.FRENCH),
+                Arrays.asList("Catalogne", "Barcelone"));
+        assertSame(location.getSubdivisionNames(Locale.ITALIAN),
+                location.getSubdivisionNames());
+
+        // database names are used before JDK names
+        assertEquals(location.getCountryName(Locale.GERMAN), "Spanien");
+        assertEquals(location.getCountryName(Locale.FRENCH), "Espagne");
+        assertEquals(location.getRegisteredCountryName(Locale.GERMAN),
+                "Spanien");
+
+        assertEquals(location.getContinentName(Locale.GERMAN), "Europa");
+        assertEquals(location.getContinentName(Locale.FRENCH), "Europe");
+
+        // without localized names default names are returned
+        final IPLocation location2 = new IPLocation.Builder(
+                IPGeolocationLevel.CITY).setCity("Barcelona")
+                .setContinentName("Europe").build();
+        assertEquals(location2.getCity(Locale.FRENCH), "Barcelona");
+        assertEquals(location2.getContinentName(Locale.FRENCH), "Europe");
+        assertNull(location2.getSubdivisionNames(Locale.FRENCH));
+    }
+
     @Test
     public void testGetRegisteredCountryCodeAndGetRegisteredCountryName() {
-        final IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
+        final IPLocation.Builder builder = new IPLocation.Builder(
+                IPGeolocationLevel.CITY);
+        IPLocation location = builder.build();
 
         assertNull(location.getRegisteredCountryCode());
         assertNull(location.getRegisteredCountryName());
         assertNull(location.getRegisteredCountryName(Locale.ENGLISH));
 
-        location.mRegisteredCountryCode = "ES";
+        location = builder.setRegisteredCountryCode("ES").build();
 
         assertEquals(location.getRegisteredCountryCode(), "ES");
         assertEquals(location.getRegisteredCountryName(),
@@ -225,18 +313,18 @@ public class IPLocationTest {
                 "Espagne");
 
         // sets wrong country code
-        location.mRegisteredCountryCode = "WRONG";
+        location = builder.setRegisteredCountryCode("WRONG").build();
         assertNull(location.getRegisteredCountryName());
         assertNull(location.getRegisteredCountryName(Locale.FRENCH));
 
         // fallback country name
-        location.mRegisteredCountryName = "Spain";
+        location = builder.setRegisteredCountryName("Spain").build();
 
         assertEquals(location.getRegisteredCountryName(), "Spain");
         assertEquals(location.getRegisteredCountryName(Locale.FRENCH), "Spain");
 
         // set null country code
-        location.mRegisteredCountryCode = null;
+        location = builder.setRegisteredCountryCode(null).build();
 
         assertEquals(location.getRegisteredCountryName(), "Spain");
         assertEquals(location.getRegisteredCountryName(Locale.FRENCH), "Spain");
@@ -244,67 +332,73 @@ public class IPLocationTest {
 
     @Test
     public void testGetAutonomousSystemNumber() {
-        final IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
+        IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
 
         assertNull(location.getAutonomousSystemNumber());
 
         // new value
-        location.mAutonomousSystemNumber = 123;
+        location = new IPLocation.Builder(IPGeolocationLevel.CITY)
+                .setAutonomousSystemNumber(123).build();
 
         assertEquals(location.getAutonomousSystemNumber().intValue(), 123);
     }
 
     @Test
     public void testGetDomain() {
-        final IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
+        IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
 
         assertNull(location.getDomain());
 
-        location.mDomain = "irurueta.com";
+        location = new IPLocation.Builder(IPGeolocationLevel.CITY)
+                .setDomain("irurueta.com").build();
 
         assertEquals(location.getDomain(), "irurueta.com");
     }
 
     @Test
     public void testGetIsp() {
-        final IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
+        IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
 
         assertNull(location.getIsp());
 
-        location.mIsp = "Vodafone";
+        location = new IPLocation.Builder(IPGeolocationLevel.CITY)
+                .setIsp("Vodafone").build();
 
         assertEquals(location.getIsp(), "Vodafone");
     }
 
     @Test
     public void testGetOrganization() {
-        final IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
+        IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
 
         assertNull(location.getOrganization());
 
-        location.mOrganization = "Inditex";
+        location = new IPLocation.Builder(IPGeolocationLevel.CITY)
+                .setOrganization("Inditex").build();
 
         assertEquals(location.getOrganization(), "Inditex");
     }
 
     @Test
     public void testGetContinentCode() {
-        final IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
+        IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
 
         assertNull(location.getContinentCode());
 
-        location.mContinentCode = "EU";
+        location = new IPLocation.Builder(IPGeolocationLevel.CITY)
+                .setContinentCode("EU").build();
 
         assertEquals(location.getContinentCode(), "EU");
     }
 
     @Test
     public void testGetContinentName() {
-        final IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
+        IPLocation location = new IPLocation(IPGeolocationLevel.CITY);
 
         assertNull(location.getContinentName());
 
-        location.mContinentName = "Europe";
+        location = new IPLocation.Builder(IPGeolocationLevel.CITY)
+                .setContinentName("Europe").build();
 
         assertEquals(location.getContinentName(), "Europe");
     }
@@ -332,13 +426,13 @@ public class IPLocationTest {
         final double latitude2 = 41.5;
         final double longitude2 = 2.0;
 
-        final IPLocation location1 = new IPLocation(IPGeolocationLevel.CITY);
-        location1.mLatitude = latitude1;
-        location1.mLongitude = longitude1;
+        final IPLocation location1 = new IPLocation.Builder(
+                IPGeolocationLevel.CITY).setLatitude(latitude1)
+                .setLongitude(longitude1).build();
 
-        final IPLocation location2 = new IPLocation(IPGeolocationLevel.CITY);
-        location2.mLatitude = latitude2;
-        location2.mLongitude = longitude2;
+        final IPLocation location2 = new IPLocation.Builder(
+                IPGeolocationLevel.CITY).setLatitude(latitude2)
+                .setLongitude(longitude2).build();
 
         assertEquals(location1.distance(location2),
                 LocationUtils.distanceBetweenMeters(
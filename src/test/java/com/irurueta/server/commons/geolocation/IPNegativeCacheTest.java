@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import static org.junit.Assert.*;
+
+public class IPNegativeCacheTest {
+
+    @Test
+    public void testConstructor() {
+        final IPNegativeCache cache = new IPNegativeCache(100);
+
+        assertEquals(cache.getMaxSize(), 100);
+        assertEquals(cache.getTimeToLive(), 0);
+        assertEquals(cache.size(), 0);
+        assertEquals(cache.getHitCount(), 0);
+        assertEquals(cache.getMissCount(), 0);
+        assertEquals(cache.getEvictionCount(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWhenInvalidSize() {
+        new IPNegativeCache(0);
+    }
+
+    @Test
+    public void testContainsAndPut() throws UnknownHostException {
+        final IPNegativeCache cache = new IPNegativeCache(100);
+
+        final InetAddress address = InetAddress.getByName("10.0.0.1");
+
+        assertFalse(cache.contains(address, IPGeolocationLevel.COUNTRY));
+        assertEquals(cache.getMissCount(), 1);
+
+        cache.put(address, IPGeolocationLevel.COUNTRY);
+
+        assertEquals(cache.size(), 1);
+        assertTrue(cache.contains(address, IPGeolocationLevel.COUNTRY));
+        assertEquals(cache.getHitCount(), 1);
+
+        // other levels are cached independently
+        assertFalse(cache.contains(address, IPGeolocationLevel.CITY));
+        assertEquals(cache.getMissCount(), 2);
+
+        cache.clear();
+
+        assertEquals(cache.size(), 0);
+        assertFalse(cache.contains(address, IPGeolocationLevel.COUNTRY));
+    }
+}
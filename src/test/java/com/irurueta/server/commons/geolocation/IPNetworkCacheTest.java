@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class IPNetworkCacheTest {
+
+    @Test
+    public void testConstructor() {
+        final IPNetworkCache cache = new IPNetworkCache(100);
+
+        assertEquals(cache.getMaxSize(), 100);
+        assertEquals(cache.getTimeToLive(), 0);
+        assertEquals(cache.size(), 0);
+        assertEquals(cache.getHitCount(), 0);
+        assertEquals(cache.getMissCount(), 0);
+        assertEquals(cache.getEvictionCount(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWhenInvalidSize() {
+        new IPNetworkCache(0);
+    }
+
+    @Test
+    public void testGetAndPut() {
+        final IPNetworkCache cache = new IPNetworkCache(100);
+
+        final IPLocation location = new IPLocation(IPGeolocationLevel.COUNTRY);
+
+        assertNull(cache.get(1234, IPGeolocationLevel.COUNTRY));
+        assertEquals(cache.getMissCount(), 1);
+
+        cache.put(1234, IPGeolocationLevel.COUNTRY, location);
+
+        assertEquals(cache.size(), 1);
+        assertSame(cache.get(1234, IPGeolocationLevel.COUNTRY), location);
+        assertEquals(cache.getHitCount(), 1);
+
+        // other records and levels are cached independently
+        assertNull(cache.get(1235, IPGeolocationLevel.COUNTRY));
+        assertNull(cache.get(1234, IPGeolocationLevel.CITY));
+        assertEquals(cache.getMissCount(), 3);
+
+        cache.clear();
+
+        assertEquals(cache.size(), 0);
+        assertNull(cache.get(1234, IPGeolocationLevel.COUNTRY));
+    }
+
+    @Test
+    public void testEviction() {
+        final int maxSize = 64;
+        final IPNetworkCache cache = new IPNetworkCache(maxSize);
+
+        for (int i = 0; i < 10 * maxSize; i++) {
+            cache.put(i, IPGeolocationLevel.COUNTRY,
+                    new IPLocation(IPGeolocationLevel.COUNTRY));
+        }
+
+        assertTrue(cache.size() <= maxSize);
+        assertEquals(cache.size() + cache.getEvictionCount(), 10 * maxSize);
+    }
+}
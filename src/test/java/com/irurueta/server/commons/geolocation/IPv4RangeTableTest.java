@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IPv4RangeTableTest {
+
+    private static final int TIMES = 100000;
+
+    private static MmdbReader reader;
+
+    private static IPv4RangeTable table;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        reader = new MmdbReader(new File(MmdbReaderTest.DATABASE_FILE));
+        table = IPv4RangeTable.compile(reader, false);
+    }
+
+    @Test
+    public void testCompile() {
+        assertTrue(table.size() > 0);
+        assertTrue(table.getRecordCount() > 0);
+        assertTrue(table.getRecordCount() <= table.size());
+    }
+
+    @Test
+    public void testFindIndex() throws UnknownHostException {
+        final String[] addresses = {"64.4.4.4", "8.8.8.8", "81.33.1.1",
+                "0.0.0.0", "255.255.255.255", "10.0.0.1", "127.0.0.1"};
+        for (final String address : addresses) {
+            assertSameRecord(toInt(address));
+        }
+
+        // addresses of the same country share the same record
+        assertEquals(table.findIndex(toInt("64.4.4.4")),
+                table.findIndex(toInt("8.8.8.8")));
+        assertEquals(table.findIndex(toInt("10.0.0.1")),
+                IPv4RangeTable.NOT_FOUND);
+    }
+
+    @Test
+    public void testFindIndexMatchesSearchTree() {
+        final Random random = new Random();
+        for (int i = 0; i < TIMES; i++) {
+            assertSameRecord(random.nextInt());
+        }
+    }
+
+    @Test
+    public void testLocations() {
+        final IPv4RangeTable table = IPv4RangeTable.compile(reader, false);
+
+        final IPLocation location1 = new IPLocation(IPGeolocationLevel.COUNTRY);
+        final IPLocation location2 = new IPLocation(IPGeolocationLevel.COUNTRY);
+
+        assertNull(table.getLocation(0));
+        assertSame(table.setLocation(0, location1), location1);
+
+        // first stored location is kept
+        assertSame(table.setLocation(0, location2), location1);
+        assertSame(table.getLocation(0), location1);
+    }
+
+    @Test
+    public void testOffHeap() {
+        final IPv4RangeTable offHeapTable = IPv4RangeTable.compile(reader, true);
+
+        assertEquals(offHeapTable.size(), table.size());
+        assertEquals(offHeapTable.getRecordCount(), table.getRecordCount());
+
+        final Random random = new Random();
+        for (int i = 0; i < TIMES; i++) {
+            final int address = random.nextInt();
+            final int index = table.findIndex(address);
+            assertEquals(offHeapTable.findIndex(address), index);
+            if (index != IPv4RangeTable.NOT_FOUND) {
+                assertEquals(offHeapTable.getRecord(index), table.getRecord(index));
+            }
+        }
+
+        // off-heap locations are serialized when stored
+        final IPLocation location = new IPLocation.Builder(
+                IPGeolocationLevel.COUNTRY).setCountryCode("US").build();
+
+        assertNull(offHeapTable.getLocation(0));
+        assertSame(offHeapTable.setLocation(0, location), location);
+        assertEquals(offHeapTable.getLocation(0).getCountryCode(), "US");
+        assertSame(offHeapTable.getLocation(0), offHeapTable.getLocation(0));
+    }
+
+    @Test
+    public void testCompileWhenIpv4SubtreeIsSingleRecord() throws IOException {
+        // IPv6 database having a single node whose records point to start of
+        // data section, hence all IPv4 addresses share the same record
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[]{0, 0, 17, 0, 0, 17});
+        out.write(new byte[16]);
+        // empty map
+        out.write(7 << 5);
+        // metadata
+        out.write(new byte[]{(byte) 0xAB, (byte) 0xCD, (byte) 0xEF});
+        out.write("MaxMind.com".getBytes(StandardCharsets.UTF_8));
+        out.write((7 << 5) | 3);
+        writeKey(out, "node_count");
+        out.write(new byte[]{(byte) 0xC1, 1});
+        writeKey(out, "record_size");
+        out.write(new byte[]{(byte) 0xA1, 24});
+        writeKey(out, "ip_version");
+        out.write(new byte[]{(byte) 0xA1, 6});
+
+        final MmdbReader reader = new MmdbReader(
+                ByteBuffer.wrap(out.toByteArray()));
+        assertTrue(reader.getIpv4StartNode() >= reader.getNodeCount());
+
+        final IPv4RangeTable table = IPv4RangeTable.compile(reader, false);
+        assertEquals(table.size(), 1);
+        assertEquals(table.getRecordCount(), 1);
+
+        final int record = reader.findIpv4Record(0);
+        assertNotEquals(record, MmdbReader.NOT_FOUND);
+        assertEquals(table.getRecord(table.findIndex(0)), record);
+        assertEquals(table.getRecord(table.findIndex(-1)), record);
+        assertEquals(table.getRecord(table.findIndex(toInt("81.33.1.1"))),
+                record);
+    }
+
+    private static void writeKey(final ByteArrayOutputStream out,
+                                 final String key) throws IOException {
+        final byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        out.write((2 << 5) | bytes.length);
+        out.write(bytes);
+    }
+
+    private static void assertSameRecord(final int address) {
+        final int index = table.findIndex(address);
+        final int record = reader.findIpv4Record(address);
+        if (record == MmdbReader.NOT_FOUND) {
+            assertEquals(index, IPv4RangeTable.NOT_FOUND);
+        } else {
+            assertEquals(table.getRecord(index), record);
+        }
+    }
+
+    private static int toInt(final String address)
+            throws UnknownHostException {
+        return IPAddressParser.toInt(
+                (Inet4Address) InetAddress.getByName(address));
+    }
+}
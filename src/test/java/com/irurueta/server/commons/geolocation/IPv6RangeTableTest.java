@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IPv6RangeTableTest {
+
+    private static final int TIMES = 100000;
+
+    private static MmdbReader reader;
+
+    private static IPv6RangeTable table;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        reader = new MmdbReader(new File(MmdbReaderTest.DATABASE_FILE));
+        table = IPv6RangeTable.compile(reader, false);
+    }
+
+    @Test
+    public void testCompile() {
+        assertTrue(table.size() > 0);
+        assertTrue(table.getRecordCount() > 0);
+        assertTrue(table.getRecordCount() <= table.size());
+    }
+
+    @Test
+    public void testFindIndex() throws UnknownHostException {
+        final String[] addresses = {"2001:4860:4860::8888", "2a00:1450::1",
+                "::", "ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff", "fe80::1",
+                "2001:db8::1"};
+        for (final String address : addresses) {
+            assertSameRecord(InetAddress.getByName(address).getAddress());
+        }
+
+        assertEquals(table.findIndex(InetAddress.getByName("fe80::1")),
+                IPv6RangeTable.NOT_FOUND);
+    }
+
+    @Test
+    public void testFindIndexWhenIpv4Alias() throws UnknownHostException {
+        // IPv4 compatible and 6to4 addresses are resolved using search tree
+        assertEquals(table.findIndex(InetAddress.getByName("::4004:404")),
+                IPv6RangeTable.DELEGATED);
+        assertEquals(table.findIndex(InetAddress.getByName("2002:4004:404::1")),
+                IPv6RangeTable.DELEGATED);
+        assertEquals(table.findIndex(InetAddress.getByName("64.4.4.4")),
+                IPv6RangeTable.DELEGATED);
+    }
+
+    @Test
+    public void testFindIndexMatchesSearchTree() {
+        final Random random = new Random();
+        final byte[] address = new byte[16];
+        for (int i = 0; i < TIMES; i++) {
+            random.nextBytes(address);
+            // focus on allocated global unicast address space
+            address[0] = (byte) (0x20 | (address[0] & 0x0F));
+            assertSameRecord(address);
+        }
+    }
+
+    @Test
+    public void testLocations() {
+        final IPv6RangeTable table = IPv6RangeTable.compile(reader, false);
+
+        final IPLocation location = new IPLocation(IPGeolocationLevel.COUNTRY);
+
+        assertNull(table.getLocation(0));
+        assertSame(table.setLocation(0, location), location);
+        assertSame(table.getLocation(0), location);
+    }
+
+    @Test
+    public void testOffHeap() {
+        final IPv6RangeTable offHeapTable = IPv6RangeTable.compile(reader, true);
+
+        assertEquals(offHeapTable.size(), table.size());
+        assertEquals(offHeapTable.getRecordCount(), table.getRecordCount());
+
+        final Random random = new Random();
+        for (int i = 0; i < TIMES; i++) {
+            final long high = (0x2L << 60) | (random.nextLong() >>> 4);
+            final long low = random.nextLong();
+            assertEquals(offHeapTable.findIndex(high, low),
+                    table.findIndex(high, low));
+        }
+    }
+
+    private static void assertSameRecord(final byte[] address) {
+        final ByteBuffer buffer = ByteBuffer.wrap(address);
+        final int index = table.findIndex(buffer.getLong(0),
+                buffer.getLong(8));
+        final int record = reader.findRecord(address);
+        if (index == IPv6RangeTable.DELEGATED) {
+            // only IPv4 aliases are delegated
+            assertTrue(buffer.getLong(0) == 0 ||
+                    (buffer.getShort(0) & 0xFFFF) == 0x2002);
+        } else if (record == MmdbReader.NOT_FOUND) {
+            assertEquals(index, IPv6RangeTable.NOT_FOUND);
+        } else {
+            assertEquals(table.getRecord(index), record);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+public class LocationDecoderTest {
+
+    @Test
+    public void testDecodeSelectedFields() throws IOException {
+        final MmdbReader reader = new MmdbReader(
+                new File(MmdbReaderTest.DATABASE_FILE));
+        final int record = reader.findRecord(
+                InetAddress.getByName("81.33.1.1"));
+
+        final LocationDecoder decoder = new LocationDecoder(null);
+        final IPLocation.Builder builder = new IPLocation.Builder(
+                IPGeolocationLevel.COUNTRY);
+        decoder.decode(reader, record, IPGeolocationLevel.COUNTRY,
+                EnumSet.of(IPLocationField.COUNTRY_CODE), builder);
+        final IPLocation location = builder.build();
+
+        assertEquals(location.getCountryCode(), "ES");
+        assertNull(location.getContinentName());
+        assertNull(location.getContinentCode());
+        assertNull(location.getRegisteredCountryCode());
+        assertEquals(location.getLevel(), IPGeolocationLevel.COUNTRY);
+    }
+
+    @Test
+    public void testDecodeAllFields() throws IOException {
+        final MmdbReader reader = new MmdbReader(
+                new File(MmdbReaderTest.DATABASE_FILE));
+        final int record = reader.findRecord(
+                InetAddress.getByName("81.33.1.1"));
+
+        final LocationDecoder decoder = new LocationDecoder(
+                NameLocales.parse("fr"));
+        final IPLocation.Builder builder = new IPLocation.Builder(
+                IPGeolocationLevel.CITY).setNameLocales(NameLocales.parse("fr"));
+        decoder.decode(reader, record, IPGeolocationLevel.CITY,
+                EnumSet.allOf(IPLocationField.class), builder);
+        final IPLocation location = builder.build();
+
+        assertEquals(location.getContinentCode(), "EU");
+        assertEquals(location.getContinentName(), "Europe");
+        assertEquals(location.getCountryCode(), "ES");
+        assertEquals(location.getCountryName(), "Spain");
+        assertEquals(location.getCountryName(Locale.FRENCH), "Espagne");
+        assertEquals(location.getRegisteredCountryCode(), "ES");
+        assertEquals(location.getRegisteredCountryName(), "Spain");
+
+        // country databases contain no city data
+        assertNull(location.getCity());
+        assertNull(location.getPostalCode());
+        assertNull(location.getLatitude());
+        assertNull(location.getSubdivisionCodes());
+    }
+
+    @Test
+    public void testDecodeWhenUnexpectedTypes() throws IOException {
+        // database having a single node pointing to a record whose numeric
+        // fields are stored as strings
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // search tree with both records pointing to start of data section
+        out.write(new byte[]{0, 0, 17, 0, 0, 17});
+        out.write(new byte[16]);
+        writeMap(out, 2);
+        writeString(out, "location");
+        writeMap(out, 2);
+        writeString(out, "time_zone");
+        writeString(out, "UTC");
+        writeString(out, "latitude");
+        writeString(out, "north");
+        writeString(out, "traits");
+        writeMap(out, 1);
+        writeString(out, "autonomous_system_number");
+        writeString(out, "many");
+        // metadata
+        out.write(new byte[]{(byte) 0xAB, (byte) 0xCD, (byte) 0xEF});
+        out.write("MaxMind.com".getBytes(StandardCharsets.UTF_8));
+        writeMap(out, 3);
+        writeString(out, "node_count");
+        out.write(new byte[]{(byte) 0xC1, 1});
+        writeString(out, "record_size");
+        out.write(new byte[]{(byte) 0xA1, 24});
+        writeString(out, "ip_version");
+        out.write(new byte[]{(byte) 0xA1, 4});
+
+        final MmdbReader reader = new MmdbReader(
+                ByteBuffer.wrap(out.toByteArray()));
+        reader.validate();
+        final int record = reader.findRecord(InetAddress.getByName("1.2.3.4"));
+
+        // fields having unexpected types are skipped
+        final LocationDecoder decoder = new LocationDecoder(null);
+        final IPLocation.Builder builder = new IPLocation.Builder(
+                IPGeolocationLevel.CITY);
+        decoder.decode(reader, record, IPGeolocationLevel.CITY,
+                EnumSet.allOf(IPLocationField.class), builder);
+        final IPLocation location = builder.build();
+
+        assertEquals(location.getTimeZoneId(), "UTC");
+        assertNull(location.getLatitude());
+        assertNull(location.getLongitude());
+        assertNull(location.getAutonomousSystemNumber());
+    }
+
+    private static void writeMap(final ByteArrayOutputStream out,
+                                 final int size) {
+        out.write((7 << 5) | size);
+    }
+
+    private static void writeString(final ByteArrayOutputStream out,
+                                    final String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.write((2 << 5) | bytes.length);
+        out.write(bytes);
+    }
+}
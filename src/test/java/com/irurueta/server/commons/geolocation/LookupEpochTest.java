@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class LookupEpochTest {
+
+    @Test
+    public void testRetireWhenUnused() throws Exception {
+        final LookupEpoch epoch = new LookupEpoch();
+        final Closeable resource = mock(Closeable.class);
+
+        assertFalse(epoch.isDrained());
+
+        new LookupEpoch(epoch);
+        epoch.retire(Collections.singletonList(resource));
+
+        // resources are closed right away
+        assertTrue(epoch.isDrained());
+        verify(resource, times(1)).close();
+
+        // retired epochs cannot be entered
+        assertFalse(epoch.enter());
+    }
+
+    @Test
+    public void testRetireWhenUsed() throws Exception {
+        final LookupEpoch epoch = new LookupEpoch();
+        final Closeable resource = mock(Closeable.class);
+
+        assertTrue(epoch.enter());
+        assertTrue(epoch.enter());
+
+        final LookupEpoch next = new LookupEpoch(epoch);
+        epoch.retire(Collections.singletonList(resource));
+
+        // resources are closed once last lookup exits
+        assertFalse(epoch.isDrained());
+        epoch.exit();
+        assertFalse(epoch.isDrained());
+        verify(resource, never()).close();
+
+        epoch.exit();
+        assertTrue(epoch.isDrained());
+        verify(resource, times(1)).close();
+
+        // next epoch can still be entered
+        assertTrue(next.enter());
+        next.exit();
+        assertFalse(next.isDrained());
+    }
+
+    @Test
+    public void testRetireWhenOlderEpochIsUsed() throws Exception {
+        final LookupEpoch first = new LookupEpoch();
+        final LookupEpoch second = new LookupEpoch(first);
+        final Closeable firstResource = mock(Closeable.class);
+        final Closeable secondResource = mock(Closeable.class);
+
+        assertTrue(first.enter());
+        first.retire(Collections.singletonList(firstResource));
+
+        new LookupEpoch(second);
+        second.retire(Collections.singletonList(secondResource));
+
+        // second epoch is not drained while lookups remain in first one,
+        // since they might also use resources of second epoch
+        assertFalse(first.isDrained());
+        assertFalse(second.isDrained());
+        verify(secondResource, never()).close();
+
+        first.exit();
+        assertTrue(first.isDrained());
+        assertTrue(second.isDrained());
+        verify(firstResource, times(1)).close();
+        verify(secondResource, times(1)).close();
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class MmdbReaderTest {
+
+    public static final String DATABASE_FILE =
+            "./src/main/java/com/irurueta/server/commons/geolocation/GeoLite2-Country.mmdb";
+
+    @Test
+    public void testConstructor() throws IOException {
+        final MmdbReader reader = new MmdbReader(new File(DATABASE_FILE));
+
+        assertEquals(reader.getDatabaseType(), "GeoLite2-Country");
+        assertEquals(reader.getIpVersion(), 6);
+        assertEquals(reader.getRecordSize(), 24);
+        assertTrue(reader.getNodeCount() > 0);
+        assertTrue(reader.getLanguages().contains("en"));
+        assertTrue(reader.getBuildEpoch() > 0);
+        assertEquals(reader.getIpv4StartDepth(), 96);
+    }
+
+    @Test(expected = IOException.class)
+    public void testConstructorWhenInvalidDatabase() throws IOException {
+        new MmdbReader(ByteBuffer.wrap(new byte[1024]));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFindRecordAndDecode() throws IOException {
+        final MmdbReader reader = new MmdbReader(new File(DATABASE_FILE));
+
+        final int record1 = reader.findRecord(InetAddress.getByName("64.4.4.4"));
+        final int record2 = reader.findRecord(InetAddress.getByName("8.8.8.8"));
+        final int record3 = reader.findRecord(InetAddress.getByName("81.33.1.1"));
+
+        // addresses of the same country share the same record
+        assertTrue(record1 >= 0);
+        assertEquals(record1, record2);
+        assertNotEquals(record1, record3);
+
+        final Map<String, Object> data1 =
+                (Map<String, Object>) reader.decode(record1);
+        final Map<String, Object> country1 =
+                (Map<String, Object>) data1.get("country");
+        assertEquals(country1.get("iso_code"), "US");
+
+        final Map<String, Object> data3 =
+                (Map<String, Object>) reader.decode(record3);
+        final Map<String, Object> country3 =
+                (Map<String, Object>) data3.get("country");
+        assertEquals(country3.get("iso_code"), "ES");
+        final Map<String, Object> names3 =
+                (Map<String, Object>) country3.get("names");
+        assertEquals(names3.get("en"), "Spain");
+    }
+
+    @Test
+    public void testFindEntries() throws IOException {
+        final MmdbReader reader = new MmdbReader(new File(DATABASE_FILE));
+
+        final int record = reader.findRecord(
+                InetAddress.getByName("81.33.1.1"));
+
+        final byte[][] keys = {"country".getBytes("UTF-8"),
+                "city".getBytes("UTF-8")};
+        final int[] positions = new int[keys.length];
+        reader.findEntries(record, keys, positions);
+
+        // country databases contain no city
+        assertTrue(positions[0] >= 0);
+        assertEquals(positions[1], MmdbReader.NOT_FOUND);
+
+        final byte[][] countryKeys = {"iso_code".getBytes("UTF-8")};
+        final int[] countryPositions = new int[countryKeys.length];
+        reader.findEntries(positions[0], countryKeys, countryPositions);
+        assertEquals(reader.decode(countryPositions[0]), "ES");
+
+        // only maps contain entries
+        try {
+            reader.findEntries(countryPositions[0], countryKeys,
+                    countryPositions);
+            fail("IOException expected but not thrown");
+        } catch (final IOException ignore) { }
+
+        // only arrays contain elements
+        try {
+            reader.findElements(positions[0]);
+            fail("IOException expected but not thrown");
+        } catch (final IOException ignore) { }
+    }
+
+    @Test
+    public void testFindRecordIPv6() throws IOException {
+        final MmdbReader reader = new MmdbReader(new File(DATABASE_FILE));
+
+        final int record1 = reader.findRecord(
+                InetAddress.getByName("2001:4860:4860::8888"));
+        final int record2 = reader.findRecord(InetAddress.getByName("8.8.8.8"));
+
+        assertTrue(record1 >= 0);
+        assertEquals(record1, record2);
+    }
+
+    @Test
+    public void testFindRecordWhenNotFound() throws IOException {
+        final MmdbReader reader = new MmdbReader(new File(DATABASE_FILE));
+
+        assertEquals(reader.findRecord(InetAddress.getByName("127.0.0.1")),
+                MmdbReader.NOT_FOUND);
+        assertEquals(reader.findRecord(InetAddress.getByName("10.0.0.1")),
+                MmdbReader.NOT_FOUND);
+    }
+
+    @Test
+    public void testFindRecordWithBytes() throws IOException {
+        final MmdbReader reader = new MmdbReader(new File(DATABASE_FILE));
+
+        final InetAddress address = InetAddress.getByName("81.33.1.1");
+        assertEquals(reader.findRecord(address.getAddress()),
+                reader.findRecord(address));
+        assertEquals(reader.findIpv4Record(
+                IPAddressParser.toInt((Inet4Address) address)),
+                reader.findRecord(address));
+    }
+
+    @Test
+    public void testLoadAndWalk() throws IOException {
+        final MmdbReader reader = new MmdbReader(new File(DATABASE_FILE));
+        final InetAddress address = InetAddress.getByName("81.33.1.1");
+        final int record = reader.findRecord(address);
+
+        reader.load();
+
+        // walking the tree is deterministic and does not change lookups
+        assertEquals(reader.walk(), reader.walk());
+        assertEquals(reader.findRecord(address), record);
+
+        // databases that are not memory mapped can also be loaded and walked
+        final MmdbReader heapReader = new MmdbReader(ByteBuffer.wrap(
+                Files.readAllBytes(new File(DATABASE_FILE).toPath())));
+        heapReader.load();
+        assertEquals(heapReader.walk(), reader.walk());
+    }
+
+    @Test
+    public void testValidate() throws IOException {
+        final MmdbReader reader = new MmdbReader(new File(DATABASE_FILE));
+        reader.validate();
+    }
+
+    @Test(expected = IOException.class)
+    public void testValidateWhenCorruptSearchTree() throws IOException {
+        final byte[] data = Files.readAllBytes(new File(DATABASE_FILE).toPath());
+
+        // make first record of root node point past the data section
+        data[0] = data[1] = data[2] = (byte) 0xFF;
+
+        final MmdbReader reader = new MmdbReader(ByteBuffer.wrap(data));
+        reader.validate();
+    }
+
+    @Test(expected = IOException.class)
+    public void testWalkWhenCorruptSearchTree() throws IOException {
+        final byte[] data = Files.readAllBytes(new File(DATABASE_FILE).toPath());
+        data[0] = data[1] = data[2] = (byte) 0xFF;
+
+        final MmdbReader reader = new MmdbReader(ByteBuffer.wrap(data));
+        reader.walk();
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class NameLocalesTest {
+
+    @Test
+    public void testParse() {
+        assertNull(NameLocales.parse(null));
+        assertNull(NameLocales.parse(""));
+        assertNull(NameLocales.parse(" , "));
+
+        final NameLocales locales = NameLocales.parse("en, pt-BR,,en,es");
+        assertNotNull(locales);
+        assertEquals(locales.size(), 3);
+        assertEquals(locales.getTag(0), "en");
+        assertEquals(locales.getTag(1), "pt-BR");
+        assertEquals(locales.getTag(2), "es");
+    }
+
+    @Test
+    public void testIndexOf() {
+        final NameLocales locales = NameLocales.parse("en,pt,pt-BR,zh-CN");
+
+        assertEquals(locales.indexOf(Locale.ENGLISH), 0);
+        assertEquals(locales.indexOf(Locale.US), 0);
+        assertEquals(locales.indexOf(new Locale("pt")), 1);
+        assertEquals(locales.indexOf(new Locale("pt", "PT")), 1);
+        assertEquals(locales.indexOf(new Locale("pt", "BR")), 2);
+        assertEquals(locales.indexOf(Locale.SIMPLIFIED_CHINESE), 3);
+        assertEquals(locales.indexOf(Locale.FRENCH), -1);
+
+        // cached results are returned
+        assertEquals(locales.indexOf(new Locale("pt", "BR")), 2);
+        assertEquals(locales.indexOf(Locale.FRENCH), -1);
+    }
+
+    @Test
+    public void testNames() {
+        final NameLocales locales = NameLocales.parse("de,fr");
+
+        assertNull(locales.names(null));
+        assertNull(locales.names(new HashMap<String, String>()));
+
+        final Map<String, String> names = new HashMap<>();
+        names.put("en", "Spain");
+        assertNull(locales.names(names));
+
+        names.put("fr", "Espagne");
+        final String[] result = locales.names(names);
+        assertArrayEquals(result, new String[]{null, "Espagne"});
+
+        assertEquals(locales.name(result, Locale.FRENCH, "Spain"), "Espagne");
+        assertEquals(locales.name(result, Locale.GERMAN, "Spain"), "Spain");
+        assertEquals(locales.name(result, Locale.ITALIAN, "Spain"), "Spain");
+        assertEquals(locales.name(null, Locale.FRENCH, "Spain"), "Spain");
+    }
+}
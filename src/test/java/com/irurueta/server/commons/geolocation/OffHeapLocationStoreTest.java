@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+public class OffHeapLocationStoreTest {
+
+    @Test
+    public void testPutAndGet() {
+        final OffHeapLocationStore store = new OffHeapLocationStore(10);
+        assertNull(store.get(0));
+
+        final IPLocation location = new IPLocation.Builder(
+                IPGeolocationLevel.CITY)
+                .setCity("Barcelona")
+                .setTimeZoneId("Europe/Madrid")
+                .setAccuracyRadius(5)
+                .setLatitude(41.3888)
+                .setLongitude(2.159)
+                .setPostalCode("08001")
+                .setSubdivisionCodes(new String[]{"CT", "B"})
+                .setSubdivisionNames(new String[]{"Catalonia", "Barcelona"})
+                .setCountryCode("ES")
+                .setCountryName("Spain")
+                .setRegisteredCountryCode("ES")
+                .setRegisteredCountryName("Spain")
+                .setContinentCode("EU")
+                .setContinentName("Europe")
+                .build();
+
+        assertSame(store.put(3, location), location);
+
+        // stored instance is kept in front cache
+        assertSame(store.get(3), location);
+
+        // once evicted from front cache, a new instance is decoded and cached
+        final OffHeapLocationStore decodingStore =
+                new OffHeapLocationStore(5000);
+        decodingStore.put(3, location);
+        decodingStore.put(3 + 4096, new IPLocation(IPGeolocationLevel.COUNTRY));
+        final IPLocation stored = decodingStore.get(3);
+        assertNotSame(stored, location);
+        assertSame(decodingStore.get(3), stored);
+
+        assertEquals(stored.getLevel(), IPGeolocationLevel.CITY);
+        assertEquals(stored.getCity(), "Barcelona");
+        assertEquals(stored.getTimeZone().getID(), "Europe/Madrid");
+        assertEquals(stored.getAccuracyRadius(), Integer.valueOf(5));
+        assertNull(stored.getMetroCode());
+        assertEquals(stored.getLatitude(), 41.3888, 0.0);
+        assertEquals(stored.getLongitude(), 2.159, 0.0);
+        assertEquals(stored.getPostalCode(), "08001");
+        assertEquals(stored.getSubdivisionCodes(), Arrays.asList("CT", "B"));
+        assertEquals(stored.getSubdivisionNames(),
+                Arrays.asList("Catalonia", "Barcelona"));
+        assertEquals(stored.getCountryCode(), "ES");
+        assertEquals(stored.mCountryName, "Spain");
+        assertEquals(stored.getRegisteredCountryCode(), "ES");
+        assertEquals(stored.mRegisteredCountryName, "Spain");
+        assertNull(stored.getAutonomousSystemNumber());
+        assertNull(stored.getDomain());
+        assertNull(stored.getIsp());
+        assertNull(stored.getOrganization());
+        assertEquals(stored.getContinentCode(), "EU");
+        assertEquals(stored.getContinentName(), "Europe");
+
+        // first stored location is kept
+        final IPLocation other = new IPLocation.Builder(
+                IPGeolocationLevel.COUNTRY).setCountryCode("US").build();
+        assertEquals(store.put(3, other).getCountryCode(), "ES");
+        assertEquals(store.get(3).getCountryCode(), "ES");
+    }
+
+    @Test
+    public void testPutWithLocalizedNames() {
+        final OffHeapLocationStore store = new OffHeapLocationStore(1);
+        final NameLocales locales = NameLocales.parse("de,fr");
+
+        store.put(0, new IPLocation.Builder(IPGeolocationLevel.COUNTRY)
+                .setNameLocales(locales)
+                .setCountryCode("ES")
+                .setCountryName("Spain")
+                .setLocalizedCountryNames(new String[]{"Spanien", null})
+                .setContinentName("Europe")
+                .setLocalizedContinentNames(new String[]{"Europa", "Europe"})
+                .build());
+
+        final IPLocation stored = store.get(0);
+        assertSame(stored.mNameLocales, locales);
+        assertArrayEquals(stored.mLocalizedCountryNames,
+                new String[]{"Spanien", null});
+        assertNull(stored.mLocalizedCityNames);
+        assertEquals(stored.getCountryName(Locale.GERMAN), "Spanien");
+        assertEquals(stored.getContinentName(Locale.GERMAN), "Europa");
+    }
+
+    @Test
+    public void testPutWhenEmptyLocation() {
+        final OffHeapLocationStore store = new OffHeapLocationStore(1);
+
+        store.put(0, new IPLocation(IPGeolocationLevel.COUNTRY));
+
+        final IPLocation stored = store.get(0);
+        assertEquals(stored.getLevel(), IPGeolocationLevel.COUNTRY);
+        assertNull(stored.getCity());
+        assertNull(stored.getTimeZone());
+        assertNull(stored.getLatitude());
+        assertNull(stored.getSubdivisionCodes());
+        assertNull(stored.getCountryCode());
+    }
+
+    @Test
+    public void testGrowth() {
+        final int count = 10000;
+        final OffHeapLocationStore store = new OffHeapLocationStore(count);
+
+        for (int i = 0; i < count; i++) {
+            final IPLocation location = new IPLocation.Builder(
+                    IPGeolocationLevel.CITY).setCity("City " + i)
+                    .setMetroCode(i).build();
+            store.put(i, location);
+        }
+
+        for (int i = 0; i < count; i++) {
+            final IPLocation stored = store.get(i);
+            assertEquals(stored.getCity(), "City " + i);
+            assertEquals(stored.getMetroCode(), Integer.valueOf(i));
+        }
+    }
+}
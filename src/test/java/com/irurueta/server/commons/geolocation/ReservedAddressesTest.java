@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import static org.junit.Assert.*;
+
+public class ReservedAddressesTest {
+
+    @Test
+    public void testIsReservedIPv4() throws UnknownHostException {
+        final String[] reserved = {
+                "0.1.2.3", "10.0.0.1", "10.255.255.255", "100.64.0.1",
+                "100.127.255.255", "127.0.0.1", "169.254.1.1", "172.16.0.1",
+                "172.31.255.255", "192.0.0.8", "192.0.2.1", "192.168.1.1",
+                "198.18.0.1", "198.19.255.255", "198.51.100.7", "203.0.113.9",
+                "224.0.0.1", "240.0.0.1", "255.255.255.255"};
+        for (final String address : reserved) {
+            assertTrue(address, ReservedAddresses.isReserved(
+                    InetAddress.getByName(address)));
+        }
+
+        final String[] routable = {
+                "1.1.1.1", "8.8.8.8", "11.0.0.1", "64.4.4.4", "100.63.255.255",
+                "100.128.0.1", "172.15.255.255", "172.32.0.1", "192.0.3.1",
+                "192.169.0.1", "198.20.0.1", "203.0.114.1", "223.255.255.255"};
+        for (final String address : routable) {
+            assertFalse(address, ReservedAddresses.isReserved(
+                    InetAddress.getByName(address)));
+        }
+    }
+
+    @Test
+    public void testIsReservedIPv6() throws UnknownHostException {
+        final String[] reserved = {
+                "::", "::1", "fc00::1", "fd12:3456::1", "fe80::1", "fec0::1",
+                "ff02::1", "2001:db8::1", "100::1", "100::1:0:0:1"};
+        for (final String address : reserved) {
+            assertTrue(address, ReservedAddresses.isReserved(
+                    InetAddress.getByName(address)));
+        }
+
+        final String[] routable = {
+                "2001:4860:4860::8888", "2a00:1450::1", "fb00::1", "100:0:0:1::1"};
+        for (final String address : routable) {
+            assertFalse(address, ReservedAddresses.isReserved(
+                    InetAddress.getByName(address)));
+        }
+    }
+
+    @Test
+    public void testIsReservedIPv4Mapped() {
+        final byte[] mapped = new byte[16];
+        mapped[10] = (byte) 0xFF;
+        mapped[11] = (byte) 0xFF;
+        mapped[12] = (byte) 192;
+        mapped[13] = (byte) 168;
+        mapped[14] = 1;
+        mapped[15] = 1;
+        assertTrue(ReservedAddresses.isReserved(mapped));
+
+        mapped[12] = 8;
+        mapped[13] = 8;
+        mapped[14] = 8;
+        mapped[15] = 8;
+        assertFalse(ReservedAddresses.isReserved(mapped));
+    }
+
+    @Test
+    public void testIsReservedWhenInvalidLength() {
+        assertFalse(ReservedAddresses.isReserved(new byte[5]));
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2016 Alberto Irurueta Carro (alberto@irurueta.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.irurueta.server.commons.geolocation;
+
+import org.junit.Test;
+
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class TimeZoneTableTest {
+
+    @Test
+    public void testGet() {
+        assertNull(TimeZoneTable.get(null));
+
+        final TimeZone timeZone = TimeZoneTable.get("Europe/Madrid");
+        assertEquals(timeZone, TimeZone.getTimeZone("Europe/Madrid"));
+        assertSame(TimeZoneTable.get("Europe/Madrid"), timeZone);
+        assertTrue(TimeZoneTable.size() > 0);
+
+        // unknown identifiers resolve to GMT
+        assertEquals(TimeZoneTable.get("Unknown/Zone").getID(), "GMT");
+    }
+}